@@ -0,0 +1,341 @@
+package com.sentinelpay.fraudengine.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Size-bounded in-process cache with frequency-aware (TinyLFU) admission.
+ *
+ * <p>Entries live in lock-striped, access-ordered segments. When a segment is full the
+ * least recently used entry is only replaced if the newcomer has been requested more
+ * often, according to a small count-min sketch, so one-off keys cannot flush out the
+ * hot set. Caches built by {@link #lru} skip that check and always admit the newcomer.
+ * Entries may also expire after a fixed time-to-live or after a period without access.
+ *
+ * <p>Values may be mutated in place, so their weights are computed when
+ * {@link #weightedSize()} is read rather than remembered from when they were put.
+ */
+public class BoundedCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    // Null when every newcomer is admitted
+    private final FrequencySketch sketch;
+    private final long expireAfterAccessNanos;
+    private final ToLongFunction<V> weigher;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    public BoundedCache(int maximumSize) {
+        this(maximumSize, Duration.ZERO, value -> 1L);
+    }
+
+    public BoundedCache(int maximumSize, Duration expireAfterAccess) {
+        this(maximumSize, expireAfterAccess, value -> 1L);
+    }
+
+    /**
+     * @param expireAfterAccess idle time after which an entry expires; zero disables it
+     * @param weigher           estimated footprint of a value, summed by {@link #weightedSize()}
+     */
+    public BoundedCache(int maximumSize, Duration expireAfterAccess, ToLongFunction<V> weigher) {
+        this(maximumSize, expireAfterAccess, weigher, true);
+    }
+
+    /**
+     * A cache that always admits a new key, evicting the least recently used one, for
+     * entries that must be found again right after they are put whatever their popularity.
+     */
+    public static <K, V> BoundedCache<K, V> lru(int maximumSize) {
+        return new BoundedCache<>(maximumSize, Duration.ZERO, value -> 1L, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private BoundedCache(int maximumSize, Duration expireAfterAccess, ToLongFunction<V> weigher, boolean frequencyAdmission) {
+        int perSegment = Math.max(1, (maximumSize + SEGMENTS - 1) / SEGMENTS);
+        this.segments = (Segment<K, V>[]) new Segment<?, ?>[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(perSegment);
+        }
+        this.sketch = frequencyAdmission ? new FrequencySketch(maximumSize) : null;
+        this.expireAfterAccessNanos = expireAfterAccess.toNanos();
+        this.weigher = weigher;
+    }
+
+    public V getIfPresent(K key) {
+        int hash = spread(key.hashCode());
+        if (sketch != null) {
+            sketch.increment(hash);
+        }
+        Segment<K, V> segment = segmentFor(hash);
+        long now = System.nanoTime();
+
+        segment.lock.lock();
+        try {
+            Entry<V> entry = segment.map.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (entry.isExpired(now)) {
+                segment.map.remove(key);
+                misses.incrementAndGet();
+                return null;
+            }
+            if (expireAfterAccessNanos > 0) {
+                entry.expiresAtNanos = now + expireAfterAccessNanos;
+            }
+            hits.incrementAndGet();
+            return entry.value;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public boolean put(K key, V value) {
+        return put(key, value, Duration.ZERO);
+    }
+
+    /**
+     * Inserts or replaces an entry. A new key may be rejected when the segment is full
+     * and the key is colder than the eviction candidate.
+     *
+     * @param timeToLive fixed lifetime of this entry; zero means no fixed expiry
+     * @return whether the value is now cached
+     */
+    public boolean put(K key, V value, Duration timeToLive) {
+        int hash = spread(key.hashCode());
+        Segment<K, V> segment = segmentFor(hash);
+        long now = System.nanoTime();
+        long expiresAt = expiryFor(now, timeToLive);
+
+        segment.lock.lock();
+        try {
+            Entry<V> existing = segment.map.get(key);
+            if (existing != null) {
+                existing.value = value;
+                existing.expiresAtNanos = expiresAt;
+                return true;
+            }
+
+            if (segment.map.size() >= segment.capacity && !makeRoom(segment, hash, now)) {
+                rejections.incrementAndGet();
+                return false;
+            }
+
+            segment.map.put(key, new Entry<>(value, expiresAt));
+            return true;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public V invalidate(K key) {
+        Segment<K, V> segment = segmentFor(spread(key.hashCode()));
+        segment.lock.lock();
+        try {
+            Entry<V> removed = segment.map.remove(key);
+            return removed == null ? null : removed.value;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Drops expired entries. Expired entries are also removed lazily on access.
+     */
+    public void cleanUp() {
+        long now = System.nanoTime();
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                Iterator<Entry<V>> it = segment.map.values().iterator();
+                while (it.hasNext()) {
+                    Entry<V> entry = it.next();
+                    if (entry.isExpired(now)) {
+                        it.remove();
+                        evictions.incrementAndGet();
+                    }
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.map.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Sum of the current weights of all entries, visiting every entry; meant for metrics.
+     */
+    public long weightedSize() {
+        long total = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                for (Entry<V> entry : segment.map.values()) {
+                    total += weigher.applyAsLong(entry.value);
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return total;
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    public long rejectedCount() {
+        return rejections.get();
+    }
+
+    public double hitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    private boolean makeRoom(Segment<K, V> segment, int candidateHash, long now) {
+        Iterator<Map.Entry<K, Entry<V>>> it = segment.map.entrySet().iterator();
+        Map.Entry<K, Entry<V>> victim = it.next();
+        boolean admit = sketch == null
+                || victim.getValue().isExpired(now)
+                || sketch.frequency(candidateHash) > sketch.frequency(spread(victim.getKey().hashCode()));
+        if (admit) {
+            it.remove();
+            evictions.incrementAndGet();
+        }
+        return admit;
+    }
+
+    private long expiryFor(long now, Duration timeToLive) {
+        long ttl = timeToLive.toNanos();
+        if (ttl > 0) {
+            return now + ttl;
+        }
+        return expireAfterAccessNanos > 0 ? now + expireAfterAccessNanos : Long.MAX_VALUE;
+    }
+
+    private Segment<K, V> segmentFor(int hash) {
+        return segments[(hash >>> 28) & (SEGMENTS - 1)];
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Segment<K, V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<K, Entry<V>> map;
+        private final int capacity;
+
+        private Segment(int capacity) {
+            this.capacity = capacity;
+            this.map = new LinkedHashMap<>(Math.min(capacity, 1024), 0.75f, true);
+        }
+    }
+
+    private static final class Entry<V> {
+        private V value;
+        private long expiresAtNanos;
+
+        private Entry(V value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAtNanos != Long.MAX_VALUE && now - expiresAtNanos >= 0;
+        }
+    }
+
+    /**
+     * Count-min sketch of recent access frequencies. Counters saturate at 15 and are
+     * halved periodically so old popularity fades. Updates are deliberately unsynchronised;
+     * an occasional lost increment only makes an estimate slightly low.
+     */
+    static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x97cb3127, 0xc2b2ae35, 0x85ebca6b, 0x27d4eb2f};
+
+        private final int[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int width = Integer.highestOneBit(Math.max(16, maximumSize) - 1) << 1;
+            this.table = new int[width * DEPTH];
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(16, maximumSize);
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = indexOf(hash, row);
+                if (table[index] < MAX_COUNT) {
+                    table[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(int hash) {
+            int min = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, table[indexOf(hash, row)]);
+            }
+            return min;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+            h ^= h >>> 15;
+            return row * (mask + 1) + (h & mask);
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] >>>= 1;
+            }
+            additions = 0;
+        }
+    }
+}
@@ -31,6 +31,7 @@ public class CorsConfig implements WebFluxConfigurer {
                 .allowedOrigins(allowedOrigins)
                 .allowedMethods(allowedMethods)
                 .allowedHeaders(allowedHeaders)
+                .exposedHeaders("X-Next-Cursor", "Retry-After")
                 .allowCredentials(allowCredentials)
                 .maxAge(maxAge);
 
@@ -1,31 +1,55 @@
 package com.sentinelpay.fraudengine.config;
 
+import com.sentinelpay.fraudengine.cache.BoundedCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Date;
 import java.util.List;
 
+/**
+ * Issues and verifies HMAC-signed JWTs. The signing key and parser are built once, and
+ * tokens that verified recently are remembered until they expire, so a client reusing
+ * its token costs a cache lookup instead of a signature check per request.
+ */
 @Component
 public class JwtTokenProvider {
     private static final Logger log = LoggerFactory.getLogger(JwtTokenProvider.class);
 
-    @Value("${security.jwt.secret:your-super-secret-jwt-key-min-256-bits-long-for-sentinelpay-fraud-engine}")
-    private String jwtSecret;
+    /**
+     * Claims of a token whose signature and expiry have been checked.
+     */
+    public record VerifiedToken(String username, List<String> roles, long expiresAtMillis) {
+    }
 
-    @Value("${security.jwt.expiration:86400000}")
-    private long jwtExpiration;
+    private final long jwtExpiration;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final BoundedCache<String, VerifiedToken> verified;
 
-    private SecretKey getSigningKey() {
+    public JwtTokenProvider(
+            MeterRegistry meterRegistry,
+            @Value("${security.jwt.secret:your-super-secret-jwt-key-min-256-bits-long-for-sentinelpay-fraud-engine}") String jwtSecret,
+            @Value("${security.jwt.expiration:86400000}") long jwtExpiration,
+            @Value("${security.jwt.verified-cache-size:10000}") int verifiedCacheSize) {
+        this.jwtExpiration = jwtExpiration;
         // Generates a SecretKey using the HMAC-SHA algorithm based on the byte representation of the secret string.
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.verified = new BoundedCache<>(verifiedCacheSize);
+        Gauge.builder("jwt.verified.cache.hit.ratio", verified, BoundedCache::hitRatio).register(meterRegistry);
     }
 
     public String generateToken(String username, List<String> roles) {
@@ -38,31 +62,46 @@ public class JwtTokenProvider {
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
                 // Using the modern signWith(Key) method
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
+    /**
+     * Verifies the token once and returns its claims, or null if it is invalid or expired.
+     * Valid tokens are cached until their {@code exp}; invalid ones are never cached.
+     */
+    public VerifiedToken verify(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verified.getIfPresent(token);
+        if (cached != null && cached.expiresAtMillis() > now) {
+            return cached;
+        }
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            Date expiration = claims.getExpiration();
+            VerifiedToken result = new VerifiedToken(claims.getSubject(), roles(claims),
+                    expiration == null ? now + jwtExpiration : expiration.getTime());
+            verified.put(token, result, Duration.ofMillis(result.expiresAtMillis() - now));
+            return result;
+        } catch (JwtException | IllegalArgumentException ex) {
+            log.error("JWT validation error: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    private static List<String> roles(Claims claims) {
+        if (!(claims.get("roles") instanceof List<?> roles)) {
+            return List.of();
+        }
+        return roles.stream().map(String::valueOf).toList();
+    }
+
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                // FIX: Use verifyWith(Key) and call .build() to get the parser instance
-                .verifyWith(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
+        VerifiedToken result = verify(token);
+        return result == null ? null : result.username();
     }
 
     public boolean validateToken(String token) {
-        try {
-            // FIX: Use verifyWith(Key) and call .build() to get the parser instance
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (Exception ex) {
-            log.error("JWT validation error: {}", ex.getMessage());
-            return false;
-        }
+        return verify(token) != null;
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,149 @@
 package com.sentinelpay.fraudengine.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.data.r2dbc.dialect.PostgresDialect;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.r2dbc.core.DatabaseClient;
 
+import java.time.Duration;
+
+/**
+ * Two connection pools, so that analyst activity cannot take connections from scoring.
+ *
+ * <p>The scoring pool is configured by {@code spring.r2dbc.*} and backs every repository
+ * in the {@code repository} package. The analytics pool is configured by
+ * {@code r2dbc.analytics.*}, defaults to the same database, and may point at a read
+ * replica instead; it backs the repositories in {@code repository.analytics}. Each pool
+ * has its own size, acquire timeout and statement timeout, and records the time callers
+ * wait for a connection as {@code r2dbc.pool.acquire} tagged with the pool name.
+ */
 @Configuration
 public class R2dbcConfig {
 
+    private static final Option<Duration> STATEMENT_TIMEOUT = Option.valueOf("statementTimeout");
+
     @Bean
     public R2dbcCustomConversions r2dbcCustomConversions() {
         return R2dbcCustomConversions.of(PostgresDialect.INSTANCE);
     }
-}
\ No newline at end of file
+
+    @Bean
+    @Primary
+    public ConnectionFactory connectionFactory(
+            MeterRegistry meterRegistry,
+            @Value("${spring.r2dbc.url}") String url,
+            @Value("${spring.r2dbc.username}") String username,
+            @Value("${spring.r2dbc.password}") String password,
+            @Value("${spring.r2dbc.pool.initial-size:5}") int initialSize,
+            @Value("${spring.r2dbc.pool.max-size:20}") int maxSize,
+            @Value("${spring.r2dbc.pool.max-idle-time:30m}") Duration maxIdleTime,
+            @Value("${spring.r2dbc.pool.max-acquire-time:2s}") Duration maxAcquireTime,
+            @Value("${spring.r2dbc.statement-timeout:5s}") Duration statementTimeout) {
+        return pool("scoring", meterRegistry, url, username, password,
+                initialSize, maxSize, maxIdleTime, maxAcquireTime, statementTimeout);
+    }
+
+    @Bean
+    public ConnectionFactory analyticsConnectionFactory(
+            MeterRegistry meterRegistry,
+            @Value("${r2dbc.analytics.url:${spring.r2dbc.url}}") String url,
+            @Value("${r2dbc.analytics.username:${spring.r2dbc.username}}") String username,
+            @Value("${r2dbc.analytics.password:${spring.r2dbc.password}}") String password,
+            @Value("${r2dbc.analytics.pool.initial-size:2}") int initialSize,
+            @Value("${r2dbc.analytics.pool.max-size:8}") int maxSize,
+            @Value("${r2dbc.analytics.pool.max-idle-time:30m}") Duration maxIdleTime,
+            @Value("${r2dbc.analytics.pool.max-acquire-time:10s}") Duration maxAcquireTime,
+            @Value("${r2dbc.analytics.statement-timeout:0s}") Duration statementTimeout) {
+        return pool("analytics", meterRegistry, url, username, password,
+                initialSize, maxSize, maxIdleTime, maxAcquireTime, statementTimeout);
+    }
+
+    @Bean
+    @Primary
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.builder()
+                .connectionFactory(connectionFactory)
+                .bindMarkers(PostgresDialect.INSTANCE.getBindMarkersFactory())
+                .build();
+    }
+
+    @Bean
+    public DatabaseClient analyticsDatabaseClient(@Qualifier("analyticsConnectionFactory") ConnectionFactory connectionFactory) {
+        return DatabaseClient.builder()
+                .connectionFactory(connectionFactory)
+                .bindMarkers(PostgresDialect.INSTANCE.getBindMarkersFactory())
+                .build();
+    }
+
+    @Bean
+    @Primary
+    public R2dbcEntityTemplate r2dbcEntityTemplate(DatabaseClient databaseClient, R2dbcConverter converter) {
+        return new R2dbcEntityTemplate(databaseClient, PostgresDialect.INSTANCE, converter);
+    }
+
+    @Bean
+    public R2dbcEntityTemplate analyticsEntityTemplate(
+            @Qualifier("analyticsDatabaseClient") DatabaseClient databaseClient,
+            R2dbcConverter converter) {
+        return new R2dbcEntityTemplate(databaseClient, PostgresDialect.INSTANCE, converter);
+    }
+
+    @Configuration
+    @EnableR2dbcRepositories(
+            basePackages = "com.sentinelpay.fraudengine.repository",
+            excludeFilters = @ComponentScan.Filter(type = FilterType.REGEX,
+                    pattern = "com\\.sentinelpay\\.fraudengine\\.repository\\.analytics\\..*"),
+            entityOperationsRef = "r2dbcEntityTemplate")
+    static class ScoringRepositories {
+    }
+
+    @Configuration
+    @EnableR2dbcRepositories(
+            basePackages = "com.sentinelpay.fraudengine.repository.analytics",
+            entityOperationsRef = "analyticsEntityTemplate")
+    static class AnalyticsRepositories {
+    }
+
+    private static ConnectionFactory pool(
+            String name,
+            MeterRegistry meterRegistry,
+            String url,
+            String username,
+            String password,
+            int initialSize,
+            int maxSize,
+            Duration maxIdleTime,
+            Duration maxAcquireTime,
+            Duration statementTimeout) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password);
+        if (!statementTimeout.isZero()) {
+            options.option(STATEMENT_TIMEOUT, statementTimeout);
+        }
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .name(name)
+                .initialSize(initialSize)
+                .maxSize(maxSize)
+                .maxIdleTime(maxIdleTime)
+                .maxAcquireTime(maxAcquireTime)
+                .build());
+        return new TimedConnectionFactory(pool, name, meterRegistry);
+    }
+}
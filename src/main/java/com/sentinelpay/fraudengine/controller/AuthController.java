@@ -2,16 +2,15 @@ package com.sentinelpay.fraudengine.controller;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import com.sentinelpay.fraudengine.config.JwtTokenProvider;
 import com.sentinelpay.fraudengine.dto.AuthResponse;
 import com.sentinelpay.fraudengine.dto.LoginRequest;
+import com.sentinelpay.fraudengine.security.UserCredentialService;
 import reactor.core.publisher.Mono;
 import jakarta.validation.Valid;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -19,31 +18,19 @@ import java.util.Map;
 public class AuthController {
 
     private final JwtTokenProvider tokenProvider;
-    private final PasswordEncoder passwordEncoder;
+    private final UserCredentialService credentialService;
 
-    public AuthController(JwtTokenProvider tokenProvider, PasswordEncoder passwordEncoder) {
+    public AuthController(JwtTokenProvider tokenProvider, UserCredentialService credentialService) {
         this.tokenProvider = tokenProvider;
-        this.passwordEncoder = passwordEncoder;
+        this.credentialService = credentialService;
     }
 
     @PostMapping("/login")
     public Mono<ResponseEntity<AuthResponse>> login(@RequestBody @Valid LoginRequest request) {
-        return validateUserCredentials(request.getUsername(), request.getPassword())
-                .map(valid -> {
-                    if (valid) {
-                        String token = tokenProvider.generateToken(request.getUsername(),
-                                List.of("ROLE_USER"));
-                        return ResponseEntity.ok(new AuthResponse(token, "Bearer"));
-                    } else {
-                        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials");
-                    }
-                });
-    }
-
-    private Mono<Boolean> validateUserCredentials(String username, String password) {
-        // Mock validation - replace with real user service
-        String mockStoredPassword = passwordEncoder.encode("password123");
-        return Mono.just(passwordEncoder.matches(password, mockStoredPassword));
+        return credentialService.authenticate(request.getUsername(), request.getPassword())
+                .map(roles -> ResponseEntity.ok(new AuthResponse(
+                        tokenProvider.generateToken(request.getUsername(), roles), "Bearer")))
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials")));
     }
 
     @PostMapping("/validate")
@@ -51,12 +38,13 @@ public class AuthController {
         return Mono.fromCallable(() -> {
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String token = authHeader.substring(7);
-                boolean isValid = tokenProvider.validateToken(token);
+                JwtTokenProvider.VerifiedToken verified = tokenProvider.verify(token);
 
                 Map<String, Object> response = new HashMap<>();
-                response.put("valid", isValid);
-                if (isValid) {
-                    response.put("username", tokenProvider.getUsernameFromToken(token));
+                response.put("valid", verified != null);
+                if (verified != null) {
+                    response.put("username", verified.username());
+                    response.put("roles", verified.roles());
                 }
                 return ResponseEntity.ok(response);
             }
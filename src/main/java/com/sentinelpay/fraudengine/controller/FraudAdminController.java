@@ -2,13 +2,39 @@
 package com.sentinelpay.fraudengine.controller;
 
 import com.sentinelpay.fraudengine.dto.*;
+import com.sentinelpay.fraudengine.repository.TransactionSearchCriteria;
 import com.sentinelpay.fraudengine.service.*;
+import com.sentinelpay.fraudengine.service.denylist.DenylistService;
+import com.sentinelpay.fraudengine.service.denylist.DenylistType;
+import com.sentinelpay.fraudengine.service.export.TransactionExportService;
+import com.sentinelpay.fraudengine.service.feed.DecisionFeedService;
+import com.sentinelpay.fraudengine.service.hitters.HeavyHitterService;
+import com.sentinelpay.fraudengine.service.hitters.HitterDimension;
+import com.sentinelpay.fraudengine.service.metrics.DecisionRollups;
+import com.sentinelpay.fraudengine.service.ml.FeatureDriftMonitor;
+import com.sentinelpay.fraudengine.service.replay.ReplayEngine;
+import com.sentinelpay.fraudengine.service.similarity.FraudSimilarityService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/v1/admin")
@@ -19,25 +45,122 @@ public class FraudAdminController {
     private final RuleService ruleService;
     private final UserProfileService userProfileService;
     private final TransactionSearchService transactionSearchService;
+    private final FeatureDriftMonitor featureDriftMonitor;
+    private final ReplayEngine replayEngine;
+    private final FraudSimilarityService fraudSimilarityService;
+    private final DenylistService denylistService;
+    private final HeavyHitterService heavyHitterService;
+    private final DecisionFeedService decisionFeedService;
+    private final TransactionExportService transactionExportService;
+    private final DecisionRollups decisionRollups;
 
-    // 2. Transaction Search
+    private static final Duration FEED_HEARTBEAT = Duration.ofSeconds(15);
+    private static final Duration DEFAULT_HOURLY_ROLLUP_RANGE = Duration.ofDays(7);
+    private static final Duration MAX_HOURLY_ROLLUP_RANGE = Duration.ofDays(90);
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    // 2. Transaction Search, newest first; the next page's cursor comes back in X-Next-Cursor
     @GetMapping("/transactions/search")
-    public Flux<TransactionResponse> searchTransactions(
+    public Mono<ResponseEntity<List<TransactionResponse>>> searchTransactions(
             @RequestParam Optional<String> userId,
             @RequestParam Optional<String> decision,
+            @RequestParam Optional<String> merchantId,
+            @RequestParam Optional<String> ipAddress,
+            @RequestParam Optional<Float> minScore,
+            @RequestParam Optional<Float> maxScore,
             @RequestParam Optional<String> fromDate,
             @RequestParam Optional<String> toDate,
-            @RequestParam Optional<Integer> limit) {
+            @RequestParam Optional<Integer> limit,
+            @RequestParam Optional<String> cursor) {
 
         SearchRequest searchRequest = new SearchRequest(
                 userId,
                 decision,
+                merchantId,
+                ipAddress,
+                minScore,
+                maxScore,
                 fromDate.map(Instant::parse),
                 toDate.map(Instant::parse),
-                limit
+                limit,
+                cursor
         );
 
-        return transactionSearchService.searchTransactions(searchRequest);
+        return transactionSearchService.searchTransactions(searchRequest)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (page.nextCursor() != null) {
+                        response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+                    }
+                    return response.body(page.transactions());
+                });
+    }
+
+    // Bulk export, oldest first; resume with the created_at and transaction_id of the last row received
+    @GetMapping("/transactions/export")
+    public ResponseEntity<Flux<DataBuffer>> exportTransactions(
+            @RequestParam Optional<String> format,
+            @RequestParam Optional<String> userId,
+            @RequestParam Optional<String> decision,
+            @RequestParam Optional<String> merchantId,
+            @RequestParam Optional<String> ipAddress,
+            @RequestParam Optional<Float> minScore,
+            @RequestParam Optional<Float> maxScore,
+            @RequestParam Optional<String> fromDate,
+            @RequestParam Optional<String> toDate,
+            @RequestParam Optional<String> afterCreatedAt,
+            @RequestParam Optional<String> afterTransactionId) {
+        TransactionExportService.Format exportFormat = exportFormat(format.orElse("ndjson"));
+        if (afterCreatedAt.isPresent() != afterTransactionId.isPresent()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "afterCreatedAt and afterTransactionId must be given together");
+        }
+        TransactionSearchCriteria criteria = new TransactionSearchCriteria(
+                userId.map(value -> uuid("userId", value)).orElse(null),
+                decision.map(value -> value.toUpperCase(Locale.ROOT)).orElse(null),
+                merchantId.orElse(null),
+                ipAddress.orElse(null),
+                minScore.orElse(null),
+                maxScore.orElse(null),
+                fromDate.map(Instant::parse).orElse(null),
+                toDate.map(Instant::parse).orElse(null),
+                afterCreatedAt.map(Instant::parse).orElse(null),
+                afterTransactionId.map(value -> uuid("afterTransactionId", value)).orElse(null),
+                0);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.mediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions." + exportFormat.extension() + "\"")
+                .body(transactionExportService.export(criteria, exportFormat));
+    }
+
+    // Live REVIEW and BLOCK decisions (or whichever are asked for), pushed as they are made
+    @GetMapping(value = "/transactions/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<DecisionEvent>> streamDecisions(
+            @RequestParam Optional<List<String>> decision,
+            @RequestParam Optional<String> merchantId,
+            @RequestParam Optional<Float> minScore,
+            @RequestParam Optional<Float> maxScore,
+            @RequestParam Optional<String> overflow) {
+        Set<String> decisions = decision
+                .map(values -> values.stream().map(value -> value.trim().toUpperCase(Locale.ROOT)).collect(Collectors.toSet()))
+                .orElse(Set.of("REVIEW", "BLOCK"));
+        DecisionFeedService.Filter filter = new DecisionFeedService.Filter(
+                decisions, merchantId.orElse(null), minScore.orElse(null), maxScore.orElse(null));
+
+        Flux<ServerSentEvent<DecisionEvent>> events = decisionFeedService.subscribe(filter, feedOverflow(overflow.orElse("drop-oldest")))
+                .map(event -> ServerSentEvent.builder(event).id(event.transactionId().toString()).event("decision").build());
+        // Keeps idle connections open through proxies
+        Flux<ServerSentEvent<DecisionEvent>> heartbeats = Flux.interval(FEED_HEARTBEAT)
+                .map(tick -> ServerSentEvent.<DecisionEvent>builder().comment("heartbeat").build());
+        return Flux.merge(events, heartbeats);
+    }
+
+    @PostMapping("/transactions/{transactionId}/label")
+    public Mono<FraudLabelResponse> labelTransaction(
+            @PathVariable UUID transactionId,
+            @RequestBody @Valid FraudLabelRequest request) {
+        return fraudSimilarityService.label(transactionId, request.fraud());
     }
 
     // 3. Rule Management
@@ -66,15 +189,134 @@ public class FraudAdminController {
         return ruleService.disableRule(id);
     }
 
+    // Denylists
+    @GetMapping("/denylist")
+    public Mono<DenylistStatus> getDenylistStatus() {
+        return Mono.fromCallable(denylistService::status);
+    }
+
+    @PostMapping("/denylist/{type}")
+    public Mono<DenylistStatus> addToDenylist(
+            @PathVariable String type,
+            @RequestBody @Valid DenylistRequest request) {
+        return denylistService.add(denylistType(type), request.values(), request.reason());
+    }
+
+    @DeleteMapping("/denylist/{type}/{value}")
+    public Mono<DenylistStatus> removeFromDenylist(@PathVariable String type, @PathVariable String value) {
+        return denylistService.remove(denylistType(type), value);
+    }
+
+    @PostMapping("/denylist/rebuild")
+    public Mono<DenylistStatus> rebuildDenylist() {
+        return denylistService.rebuild();
+    }
+
+    @GetMapping("/heavy-hitters")
+    public Mono<HeavyHittersReport> getHeavyHitters(
+            @RequestParam Optional<List<String>> dimension,
+            @RequestParam Optional<Integer> limit) {
+        EnumSet<HitterDimension> dimensions = EnumSet.allOf(HitterDimension.class);
+        if (dimension.isPresent()) {
+            dimensions = EnumSet.noneOf(HitterDimension.class);
+            for (String name : dimension.get()) {
+                dimensions.add(hitterDimension(name));
+            }
+        }
+        return Mono.just(heavyHitterService.report(dimensions, limit.orElse(20)));
+    }
+
     // 4. Metrics Dashboard
     @GetMapping("/metrics")
     public Mono<MetricsResponse> getMetrics() {
         return metricsService.getMetrics();
     }
 
+    @GetMapping("/metrics/rollups")
+    public Mono<DecisionRollupReport> getRecentRollups(
+            @RequestParam Optional<Integer> minutes,
+            @RequestParam Optional<Integer> step) {
+        int window = minutes.orElse(60);
+        int stepMinutes = step.orElse(1);
+        if (window < 1 || window > decisionRollups.windowMinutes()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "minutes must be between 1 and " + decisionRollups.windowMinutes());
+        }
+        if (stepMinutes < 1 || stepMinutes > window) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "step must be between 1 and minutes");
+        }
+        return decisionRollups.recent(window, stepMinutes, System.currentTimeMillis());
+    }
+
+    @GetMapping("/metrics/rollups/hourly")
+    public Mono<DecisionRollupReport> getHourlyRollups(
+            @RequestParam Optional<Instant> from,
+            @RequestParam Optional<Instant> to) {
+        Instant end = to.orElseGet(Instant::now);
+        Instant start = from.orElse(end.minus(DEFAULT_HOURLY_ROLLUP_RANGE));
+        if (!start.isBefore(end) || Duration.between(start, end).compareTo(MAX_HOURLY_ROLLUP_RANGE) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to and at most 90 days earlier");
+        }
+        return decisionRollups.hourly(start, end);
+    }
+
     // 5. User Profiling
     @GetMapping("/users/{userId}/profile")
     public Mono<UserProfile> getUserProfile(@PathVariable String userId) {
         return userProfileService.buildUserProfile(userId);
     }
+
+    // 6. Model Monitoring
+    @GetMapping("/model/drift")
+    public Mono<DriftReport> getModelDrift() {
+        return Mono.justOrEmpty(featureDriftMonitor.getLatestReport());
+    }
+
+    @PostMapping("/model/replay")
+    public Mono<ReplayReport> replay(@RequestBody @Valid ReplayRequest request) {
+        if (!request.from().isBefore(request.to())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to");
+        }
+        return replayEngine.replay(request);
+    }
+
+    private static HitterDimension hitterDimension(String dimension) {
+        try {
+            return HitterDimension.parse(dimension);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown heavy-hitter dimension " + dimension);
+        }
+    }
+
+    private static TransactionExportService.Format exportFormat(String format) {
+        try {
+            return TransactionExportService.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown export format " + format);
+        }
+    }
+
+    private static UUID uuid(String name, String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid " + name + " " + value);
+        }
+    }
+
+    private static DecisionFeedService.Overflow feedOverflow(String overflow) {
+        try {
+            return DecisionFeedService.Overflow.valueOf(overflow.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown overflow mode " + overflow);
+        }
+    }
+
+    private static DenylistType denylistType(String type) {
+        try {
+            return DenylistType.parse(type);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown denylist type " + type);
+        }
+    }
 }
\ No newline at end of file
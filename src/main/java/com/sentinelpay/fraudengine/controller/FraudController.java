@@ -19,8 +19,10 @@ public class FraudController {
     }
 
     @PostMapping
-    public Mono<ResponseEntity<TransactionResponse>> process(@Valid @RequestBody TransactionRequest request) {
-        return fraudService.evaluate(request)
+    public Mono<ResponseEntity<TransactionResponse>> process(
+            @Valid @RequestBody TransactionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return fraudService.evaluate(request, idempotencyKey)
                 .map(response -> ResponseEntity.accepted().body(response));
     }
 }
\ No newline at end of file
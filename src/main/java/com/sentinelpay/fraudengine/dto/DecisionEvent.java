@@ -0,0 +1,19 @@
+package com.sentinelpay.fraudengine.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One decision as pushed to live feed subscribers.
+ */
+public record DecisionEvent(
+        UUID transactionId,
+        UUID userId,
+        String merchantId,
+        BigDecimal amount,
+        String currency,
+        String decision,
+        float riskScore,
+        Instant timestamp
+) {}
@@ -0,0 +1,33 @@
+package com.sentinelpay.fraudengine.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Decisions over a time range, per bucket and in total. Latency percentiles are only kept
+ * for the recent window; the average risk score only comes from the database.
+ *
+ * @param source {@code cluster} for the recent window across all nodes, {@code memory} when
+ *               only this node's counts were available, or {@code continuous_aggregate}
+ */
+public record DecisionRollupReport(
+        String source,
+        Instant from,
+        Instant to,
+        int stepMinutes,
+        Bucket summary,
+        List<Bucket> buckets
+) {
+    public record Bucket(
+            Instant start,
+            long allowed,
+            long review,
+            long blocked,
+            long total,
+            double fraudRate,
+            Double p50Millis,
+            Double p95Millis,
+            Double p99Millis,
+            Double avgRiskScore
+    ) {}
+}
@@ -0,0 +1,9 @@
+package com.sentinelpay.fraudengine.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+
+public record DenylistRequest(
+        @NotEmpty List<String> values,
+        String reason
+) {}
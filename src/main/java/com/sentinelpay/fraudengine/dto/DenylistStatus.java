@@ -0,0 +1,14 @@
+package com.sentinelpay.fraudengine.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+public record DenylistStatus(
+        int entries,
+        Map<String, Integer> entriesByType,
+        int pendingChanges,
+        long bloomBytes,
+        long offHeapBytes,
+        Instant builtAt,
+        boolean rebuilding
+) {}
@@ -0,0 +1,14 @@
+package com.sentinelpay.fraudengine.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+public record DriftReport(
+        Instant windowStart,
+        Instant windowEnd,
+        long sampleCount,
+        Map<String, FeatureDrift> features,
+        boolean drifted
+) {
+    public record FeatureDrift(double psi, double ks, boolean drifted) { }
+}
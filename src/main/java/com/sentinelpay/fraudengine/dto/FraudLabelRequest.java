@@ -0,0 +1,7 @@
+package com.sentinelpay.fraudengine.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+public record FraudLabelRequest(
+        @NotNull Boolean fraud
+) {}
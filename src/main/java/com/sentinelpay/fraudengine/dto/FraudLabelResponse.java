@@ -0,0 +1,12 @@
+package com.sentinelpay.fraudengine.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record FraudLabelResponse(
+        UUID transactionId,
+        String userId,
+        boolean fraud,
+        int indexedFraudCases,
+        Instant labelledAt
+) {}
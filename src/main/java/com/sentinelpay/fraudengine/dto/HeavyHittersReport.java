@@ -0,0 +1,15 @@
+package com.sentinelpay.fraudengine.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public record HeavyHittersReport(
+        Instant generatedAt,
+        int windowMinutes,
+        Map<String, Dimension> dimensions
+) {
+    public record Dimension(long total, List<Hitter> hitters) {}
+
+    public record Hitter(String key, int count, double share) {}
+}
@@ -0,0 +1,15 @@
+package com.sentinelpay.fraudengine.dto;
+
+import java.util.Map;
+
+public record ReplayReport(
+        long transactions,
+        long changedDecisions,
+        long failed,
+        long denylisted,
+        Map<String, Map<String, Long>> decisionMatrix,
+        Map<String, Long> decisionDeltas,
+        double meanScoreDelta,
+        long durationMs,
+        double transactionsPerSecond
+) {}
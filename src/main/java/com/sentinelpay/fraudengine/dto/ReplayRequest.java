@@ -0,0 +1,19 @@
+package com.sentinelpay.fraudengine.dto;
+
+import jakarta.validation.constraints.NotNull;
+import java.time.Instant;
+
+/**
+ * A candidate decision policy to replay a range of history with. Weights and thresholds
+ * left null keep the live policy's values; the ML score always comes from the live model.
+ */
+public record ReplayRequest(
+        @NotNull Instant from,
+        @NotNull Instant to,
+        String source,
+        Float mlWeight,
+        Float ruleWeight,
+        Float ruleBlockThreshold,
+        Float blockThreshold,
+        Float reviewThreshold
+) {}
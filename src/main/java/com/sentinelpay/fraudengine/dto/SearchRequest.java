@@ -6,7 +6,12 @@ import java.util.Optional;
 public record SearchRequest(
         Optional<String> userId,
         Optional<String> decision,
+        Optional<String> merchantId,
+        Optional<String> ipAddress,
+        Optional<Float> minScore,
+        Optional<Float> maxScore,
         Optional<Instant> fromDate,
         Optional<Instant> toDate,
-        Optional<Integer> limit
-) {}
\ No newline at end of file
+        Optional<Integer> limit,
+        Optional<String> cursor
+) {}
@@ -0,0 +1,27 @@
+package com.sentinelpay.fraudengine.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One exported transaction. Device info is stored as JSON and written out as a nested
+ * object rather than a string, like the unpacked features.
+ */
+public record TransactionExportRow(
+        UUID transactionId,
+        UUID userId,
+        Instant createdAt,
+        Instant bucketHour,
+        BigDecimal amount,
+        String currency,
+        String merchantId,
+        String ipAddress,
+        String decision,
+        Float riskScore,
+        @JsonRawValue String deviceInfo,
+        Map<String, Object> features
+) {}
@@ -11,5 +11,6 @@ public record TransactionRequest(
         @NotBlank String currency,
         @NotBlank String merchantId,
         @NotBlank String ipAddress,
-        @NotNull Map<String, Object> deviceInfo
+        @NotNull Map<String, Object> deviceInfo,
+        @Pattern(regexp = "\\d{6,8}") String cardBin
 ) {}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.sentinelpay.fraudengine.dto;
+
+import java.util.List;
+
+/**
+ * One page of search results; {@code nextCursor} is null on the last page.
+ */
+public record TransactionSearchPage(
+        List<TransactionResponse> transactions,
+        String nextCursor
+) {}
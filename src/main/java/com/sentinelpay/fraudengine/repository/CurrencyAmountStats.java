@@ -0,0 +1,7 @@
+package com.sentinelpay.fraudengine.repository;
+
+/**
+ * Number and average amount of one user's transactions in one currency.
+ */
+public record CurrencyAmountStats(String currency, Long count, Double average) {
+}
@@ -0,0 +1,7 @@
+package com.sentinelpay.fraudengine.repository;
+
+/**
+ * Number of transactions with one decision.
+ */
+public record DecisionCount(String decision, Long count) {
+}
@@ -0,0 +1,32 @@
+package com.sentinelpay.fraudengine.repository;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+import java.time.Instant;
+import java.util.UUID;
+
+@Table("denylist_entries")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DenylistEntryEntity {
+
+    @Id
+    private UUID id;
+
+    @Column("entry_type")
+    private String entryType;
+
+    // Stored normalised, see DenylistType#normalise
+    @Column("value")
+    private String value;
+
+    @Column("reason")
+    private String reason;
+
+    @Column("created_at")
+    private Instant createdAt;
+}
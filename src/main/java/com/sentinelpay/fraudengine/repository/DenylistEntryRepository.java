@@ -0,0 +1,30 @@
+package com.sentinelpay.fraudengine.repository;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public interface DenylistEntryRepository extends ReactiveCrudRepository<DenylistEntryEntity, UUID> {
+
+    // Re-adding an entry only refreshes its reason
+    @Modifying
+    @Query("""
+        INSERT INTO denylist_entries (id, entry_type, value, reason, created_at)
+        VALUES (:id, :entryType, :value, :reason, :createdAt)
+        ON CONFLICT (entry_type, value) DO UPDATE SET reason = EXCLUDED.reason
+        """)
+    Mono<Integer> upsert(@Param("id") UUID id,
+                         @Param("entryType") String entryType,
+                         @Param("value") String value,
+                         @Param("reason") String reason,
+                         @Param("createdAt") Instant createdAt);
+
+    @Modifying
+    @Query("DELETE FROM denylist_entries WHERE entry_type = :entryType AND value = :value")
+    Mono<Integer> deleteByTypeAndValue(@Param("entryType") String entryType, @Param("value") String value);
+}
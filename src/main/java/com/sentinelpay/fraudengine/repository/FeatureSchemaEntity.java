@@ -0,0 +1,26 @@
+package com.sentinelpay.fraudengine.repository;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+import java.time.Instant;
+
+@Table("feature_schemas")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeatureSchemaEntity {
+
+    @Id
+    @Column("schema_id")
+    private Integer schemaId;
+
+    // Comma-separated feature names in the order their values are packed
+    @Column("names")
+    private String names;
+
+    @Column("created_at")
+    private Instant createdAt;
+}
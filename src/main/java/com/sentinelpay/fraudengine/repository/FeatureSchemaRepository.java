@@ -0,0 +1,17 @@
+package com.sentinelpay.fraudengine.repository;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+public interface FeatureSchemaRepository extends ReactiveCrudRepository<FeatureSchemaEntity, Integer> {
+
+    // Returns the existing id when another node registered the same names first
+    @Query("""
+        INSERT INTO feature_schemas (names) VALUES (:names)
+        ON CONFLICT (names) DO UPDATE SET names = EXCLUDED.names
+        RETURNING schema_id
+        """)
+    Mono<Integer> register(@Param("names") String names);
+}
@@ -0,0 +1,36 @@
+package com.sentinelpay.fraudengine.repository;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+import java.time.Instant;
+import java.util.UUID;
+
+@Table("fraud_labels")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FraudLabelEntity {
+
+    @Id
+    @Column("transaction_id")
+    private UUID transactionId;
+
+    @Column("user_id")
+    private UUID userId;
+
+    @Column("is_fraud")
+    private Boolean fraud;
+
+    // Packed little-endian floats, see FraudEmbedding
+    @Column("embedding")
+    private byte[] embedding;
+
+    @Column("embedding_version")
+    private Integer embeddingVersion;
+
+    @Column("labelled_at")
+    private Instant labelledAt;
+}
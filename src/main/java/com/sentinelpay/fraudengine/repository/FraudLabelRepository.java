@@ -0,0 +1,46 @@
+package com.sentinelpay.fraudengine.repository;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public interface FraudLabelRepository extends ReactiveCrudRepository<FraudLabelEntity, UUID> {
+
+    // Labels are keyed by transaction, so relabelling overwrites the previous verdict
+    @Modifying
+    @Query("""
+        INSERT INTO fraud_labels (transaction_id, user_id, is_fraud, embedding, embedding_version, labelled_at)
+        VALUES (:transactionId, :userId, :fraud, :embedding, :embeddingVersion, :labelledAt)
+        ON CONFLICT (transaction_id) DO UPDATE SET
+            is_fraud = EXCLUDED.is_fraud,
+            embedding = EXCLUDED.embedding,
+            embedding_version = EXCLUDED.embedding_version,
+            labelled_at = EXCLUDED.labelled_at
+        """)
+    Mono<Integer> upsert(@Param("transactionId") UUID transactionId,
+                         @Param("userId") UUID userId,
+                         @Param("fraud") boolean fraud,
+                         @Param("embedding") byte[] embedding,
+                         @Param("embeddingVersion") int embeddingVersion,
+                         @Param("labelledAt") Instant labelledAt);
+
+    // Users whose most recent label is fraud
+    @Query("""
+        SELECT user_id FROM (
+            SELECT DISTINCT ON (user_id) user_id, is_fraud
+            FROM fraud_labels
+            ORDER BY user_id, labelled_at DESC
+        ) latest
+        WHERE is_fraud
+        """)
+    Flux<UUID> findFraudUserIds();
+
+    @Query("SELECT * FROM fraud_labels WHERE is_fraud AND embedding_version = :version ORDER BY labelled_at")
+    Flux<FraudLabelEntity> findFraudByEmbeddingVersion(@Param("version") int version);
+}
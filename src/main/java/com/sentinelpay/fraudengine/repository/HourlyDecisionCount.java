@@ -0,0 +1,9 @@
+package com.sentinelpay.fraudengine.repository;
+
+import java.time.Instant;
+
+/**
+ * One row of the {@code transactions_hourly} continuous aggregate.
+ */
+public record HourlyDecisionCount(Instant hour, String decision, Long transactions, Double avgRiskScore) {
+}
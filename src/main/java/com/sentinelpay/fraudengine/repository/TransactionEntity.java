@@ -1,11 +1,20 @@
 package com.sentinelpay.fraudengine.repository;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Map;
 import java.util.UUID;
 
 @Table("transactions")
@@ -46,12 +55,28 @@ public class TransactionEntity {
     @Column("decision")
     private String decision;
 
+    // Packed by FeatureCodec; decode it to read the values
+    @JsonIgnore
     @Column("features")
-    private String features;
+    private byte[] packedFeatures;
+
+    // Set on the scoring path and by bulk readers after decoding. Published events keep
+    // carrying it as a JSON string, as they did when the column held JSON
+    @Transient
+    @JsonSerialize(using = FeaturesAsJsonString.class)
+    private Map<String, Object> features;
 
     @Column("created_at")
     private Instant createdAt;
 
     @Column("timestamp")
     private Instant timestamp;
-}
\ No newline at end of file
+
+    static class FeaturesAsJsonString extends JsonSerializer<Map<String, Object>> {
+        @Override
+        public void serialize(Map<String, Object> features, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeString(((ObjectMapper) generator.getCodec()).writeValueAsString(features));
+        }
+    }
+}
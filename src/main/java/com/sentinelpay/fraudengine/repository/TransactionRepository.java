@@ -31,36 +31,36 @@ public interface TransactionRepository extends ReactiveCrudRepository<Transactio
     // Find a transaction by its unique transaction ID
     Mono<TransactionEntity> findByTransactionId(UUID transactionId);
 
-    @Query("""
-        SELECT * FROM transactions 
-        WHERE (:userId IS NULL OR user_id = :userId::uuid)
-          AND (:decision IS NULL OR decision = :decision)
-          AND (:fromDate IS NULL OR created_at >= :fromDate)
-          AND (:toDate IS NULL OR created_at <= :toDate)
-        ORDER BY created_at DESC 
-        LIMIT :limit
-        """)
-    Flux<TransactionEntity> searchTransactions(
-            @Param("userId") String userId,
-            @Param("decision") String decision,
-            @Param("fromDate") Instant fromDate,
-            @Param("toDate") Instant toDate,
-            @Param("limit") Integer limit
-    );
-
-    @Query("SELECT COUNT(*) FROM transactions")
-    Mono<Long> countAll();
-
-    // Counts transactions based on the final fraud decision (e.g., 'ACCEPT', 'REJECT', 'REVIEW')
-    @Query("SELECT COUNT(*) FROM transactions WHERE decision = :decision")
-    Mono<Long> countByDecision(@Param("decision") String decision);
-
-
     // Finds all distinct IP addresses associated with a user
     @Query("SELECT DISTINCT ip_address FROM transactions WHERE user_id = :userId")
     Flux<String> findUserLocations(@Param("userId") UUID userId);
 
-    // Calculates the average transaction amount for a specific user
-    @Query("SELECT AVG(amount) FROM transactions WHERE user_id = :userId")
-    Mono<Double> findAverageAmount(@Param("userId") UUID userId);
-}
\ No newline at end of file
+    // Counts and averages a user's amounts per currency, since amounts in different currencies cannot be averaged
+    @Query("""
+        SELECT currency, COUNT(*) AS count, AVG(amount)::DOUBLE PRECISION AS average
+        FROM transactions
+        WHERE user_id = :userId
+        GROUP BY currency
+        """)
+    Flux<CurrencyAmountStats> findAmountStatsByCurrency(@Param("userId") UUID userId);
+
+    // Counts transactions per decision created before an instant (seeds the in-memory decision counters).
+    // Whole hours come from the hourly continuous aggregate and only the current hour is counted from
+    // raw rows, so this stays within the scoring pool's statement timeout however large the table is.
+    // Stays on the primary: the seed must include every row written before the watermark.
+    @Query("""
+        SELECT decision, SUM(count)::BIGINT AS count FROM (
+            SELECT decision, SUM(transactions) AS count
+            FROM transactions_hourly
+            WHERE hour < :hour
+            GROUP BY decision
+            UNION ALL
+            SELECT decision, COUNT(*) AS count
+            FROM transactions
+            WHERE bucket_hour >= :hour AND created_at < :before
+            GROUP BY decision
+        ) counts
+        GROUP BY decision
+        """)
+    Flux<DecisionCount> countByDecisionBefore(@Param("hour") Instant hour, @Param("before") Instant before);
+}
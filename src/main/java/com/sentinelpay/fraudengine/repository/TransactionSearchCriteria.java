@@ -0,0 +1,22 @@
+package com.sentinelpay.fraudengine.repository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Filters for a transaction search; null fields are not filtered on. The cursor fields,
+ * when set, resume after the last row of the previous page. A limit of zero means none.
+ */
+public record TransactionSearchCriteria(
+        UUID userId,
+        String decision,
+        String merchantId,
+        String ipAddress,
+        Float minRiskScore,
+        Float maxRiskScore,
+        Instant fromDate,
+        Instant toDate,
+        Instant afterCreatedAt,
+        UUID afterTransactionId,
+        int limit
+) {}
@@ -0,0 +1,32 @@
+package com.sentinelpay.fraudengine.repository;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+import java.time.Instant;
+
+@Table("app_users")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserAccountEntity {
+
+    @Id
+    private String username;
+
+    // BCrypt hash, never the password itself
+    @Column("password_hash")
+    private String passwordHash;
+
+    // Comma-separated, e.g. ROLE_USER,ROLE_ADMIN
+    @Column("roles")
+    private String roles;
+
+    @Column("enabled")
+    private boolean enabled;
+
+    @Column("created_at")
+    private Instant createdAt;
+}
@@ -0,0 +1,21 @@
+package com.sentinelpay.fraudengine.repository;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+public interface UserAccountRepository extends ReactiveCrudRepository<UserAccountEntity, String> {
+
+    // Leaves an existing account, including its password, untouched
+    @Modifying
+    @Query("""
+        INSERT INTO app_users (username, password_hash, roles, enabled)
+        VALUES (:username, :passwordHash, :roles, TRUE)
+        ON CONFLICT (username) DO NOTHING
+        """)
+    Mono<Integer> insertIfAbsent(@Param("username") String username,
+                                 @Param("passwordHash") String passwordHash,
+                                 @Param("roles") String roles);
+}
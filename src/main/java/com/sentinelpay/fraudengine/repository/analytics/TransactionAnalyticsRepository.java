@@ -0,0 +1,40 @@
+package com.sentinelpay.fraudengine.repository.analytics;
+
+import com.sentinelpay.fraudengine.repository.HourlyDecisionCount;
+import com.sentinelpay.fraudengine.repository.TransactionEntity;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Bulk and analytical reads of transactions: admin search, exports, replays and the hourly
+ * dashboard aggregate. Served by the analytics connection pool, which may point at a read replica,
+ * so these queries never hold connections the scoring path needs. Rows written moments
+ * ago may not be visible yet.
+ */
+public interface TransactionAnalyticsRepository extends Repository<TransactionEntity, UUID>, TransactionSearchRepository {
+
+    // Reads the hourly continuous aggregate instead of the raw rows
+    @Query("""
+        SELECT hour, decision, transactions, avg_risk_score
+        FROM transactions_hourly
+        WHERE hour >= :from AND hour < :to
+        ORDER BY hour
+        """)
+    Flux<HourlyDecisionCount> findHourlyDecisionCounts(@Param("from") Instant from, @Param("to") Instant to);
+
+    // Streams every transaction of one hourly bucket (used by the training-data exporter)
+    @Query("SELECT * FROM transactions WHERE bucket_hour = :bucketHour ORDER BY created_at")
+    Flux<TransactionEntity> findByBucketHour(@Param("bucketHour") Instant bucketHour);
+
+    @Query("SELECT MIN(bucket_hour) FROM transactions")
+    Mono<Instant> findEarliestBucketHour();
+
+    // Streams a time range of transactions without ordering (used by offline replays)
+    @Query("SELECT * FROM transactions WHERE bucket_hour >= :from AND bucket_hour < :to")
+    Flux<TransactionEntity> streamByBucketHourRange(@Param("from") Instant from, @Param("to") Instant to);
+}
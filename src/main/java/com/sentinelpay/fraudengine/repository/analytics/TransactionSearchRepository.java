@@ -0,0 +1,22 @@
+package com.sentinelpay.fraudengine.repository.analytics;
+
+import com.sentinelpay.fraudengine.repository.TransactionEntity;
+import com.sentinelpay.fraudengine.repository.TransactionSearchCriteria;
+import reactor.core.publisher.Flux;
+
+/**
+ * Dynamic transaction search, mixed into {@link TransactionAnalyticsRepository}.
+ */
+public interface TransactionSearchRepository {
+
+    /**
+     * Newest first, ordered by {@code (created_at, transaction_id)} descending.
+     */
+    Flux<TransactionEntity> search(TransactionSearchCriteria criteria);
+
+    /**
+     * Oldest first, resuming after the cursor, with no limit unless one is set. Rows are
+     * fetched {@code fetchSize} at a time, only as fast as the subscriber requests them.
+     */
+    Flux<TransactionEntity> export(TransactionSearchCriteria criteria, int fetchSize);
+}
@@ -0,0 +1,135 @@
+package com.sentinelpay.fraudengine.repository.analytics;
+
+import com.sentinelpay.fraudengine.repository.TransactionEntity;
+import com.sentinelpay.fraudengine.repository.TransactionSearchCriteria;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds the search query from only the filters that were supplied, so each one is a
+ * plain sargable predicate the planner can match to an index, instead of the
+ * {@code (:param IS NULL OR col = :param)} form that hides them.
+ *
+ * <p>Pages are keyed on {@code (created_at, transaction_id)} rather than offset, so a deep
+ * page seeks straight to its position in the index and costs the same as the first one.
+ * Every time bound is also applied to {@code bucket_hour}, the hypertable's partitioning
+ * column, which lets TimescaleDB skip chunks outside the range. A transaction's bucket is
+ * its creation time truncated to the hour, so the derived bounds never exclude a match.
+ *
+ * <p>Exports run the same query oldest first and without a limit, fetched through a
+ * server-side cursor a batch at a time as the consumer asks for more rows.
+ */
+class TransactionSearchRepositoryImpl implements TransactionSearchRepository {
+
+    private final R2dbcEntityTemplate template;
+
+    TransactionSearchRepositoryImpl(@Qualifier("analyticsEntityTemplate") R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Flux<TransactionEntity> search(TransactionSearchCriteria criteria) {
+        return query(criteria, false, 0);
+    }
+
+    @Override
+    public Flux<TransactionEntity> export(TransactionSearchCriteria criteria, int fetchSize) {
+        return query(criteria, true, fetchSize);
+    }
+
+    /**
+     * @param ascending oldest first, with the cursor as a lower bound; otherwise newest first
+     *                  with the cursor as an upper bound
+     * @param fetchSize rows per round trip when streaming through a cursor, 0 for the default
+     */
+    private Flux<TransactionEntity> query(TransactionSearchCriteria criteria, boolean ascending, int fetchSize) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM transactions WHERE TRUE");
+        Map<String, Object> parameters = new LinkedHashMap<>();
+
+        if (criteria.userId() != null) {
+            sql.append(" AND user_id = :userId");
+            parameters.put("userId", criteria.userId());
+        }
+        if (criteria.decision() != null) {
+            sql.append(" AND decision = :decision");
+            parameters.put("decision", criteria.decision());
+        }
+        if (criteria.merchantId() != null) {
+            sql.append(" AND merchant_id = :merchantId");
+            parameters.put("merchantId", criteria.merchantId());
+        }
+        if (criteria.ipAddress() != null) {
+            sql.append(" AND ip_address = :ipAddress");
+            parameters.put("ipAddress", criteria.ipAddress());
+        }
+        if (criteria.minRiskScore() != null) {
+            sql.append(" AND risk_score >= :minRiskScore");
+            parameters.put("minRiskScore", criteria.minRiskScore());
+        }
+        if (criteria.maxRiskScore() != null) {
+            sql.append(" AND risk_score <= :maxRiskScore");
+            parameters.put("maxRiskScore", criteria.maxRiskScore());
+        }
+
+        // Each time bound is the tighter of the date filter and the cursor
+        Instant lower = criteria.fromDate();
+        Instant upper = criteria.toDate();
+        if (criteria.fromDate() != null) {
+            sql.append(" AND created_at >= :fromDate");
+            parameters.put("fromDate", criteria.fromDate());
+        }
+        if (criteria.toDate() != null) {
+            sql.append(" AND created_at <= :toDate");
+            parameters.put("toDate", criteria.toDate());
+        }
+        if (criteria.afterCreatedAt() != null && criteria.afterTransactionId() != null) {
+            sql.append(ascending
+                    ? " AND (created_at, transaction_id) > (:afterCreatedAt, :afterTransactionId)"
+                    : " AND (created_at, transaction_id) < (:afterCreatedAt, :afterTransactionId)");
+            parameters.put("afterCreatedAt", criteria.afterCreatedAt());
+            parameters.put("afterTransactionId", criteria.afterTransactionId());
+            if (ascending && (lower == null || criteria.afterCreatedAt().isAfter(lower))) {
+                lower = criteria.afterCreatedAt();
+            } else if (!ascending && (upper == null || criteria.afterCreatedAt().isBefore(upper))) {
+                upper = criteria.afterCreatedAt();
+            }
+        }
+        if (lower != null) {
+            sql.append(" AND bucket_hour >= :fromBucket");
+            parameters.put("fromBucket", bucketOf(lower));
+        }
+        if (upper != null) {
+            sql.append(" AND bucket_hour <= :toBucket");
+            parameters.put("toBucket", bucketOf(upper));
+        }
+
+        sql.append(ascending
+                ? " ORDER BY created_at, transaction_id"
+                : " ORDER BY created_at DESC, transaction_id DESC");
+        if (criteria.limit() > 0) {
+            sql.append(" LIMIT :limit");
+            parameters.put("limit", criteria.limit());
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql.toString());
+        if (fetchSize > 0) {
+            spec = spec.filter(statement -> statement.fetchSize(fetchSize));
+        }
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec.map((row, metadata) -> template.getConverter().read(TransactionEntity.class, row, metadata))
+                .all();
+    }
+
+    private static Instant bucketOf(Instant instant) {
+        return instant.truncatedTo(ChronoUnit.HOURS);
+    }
+}
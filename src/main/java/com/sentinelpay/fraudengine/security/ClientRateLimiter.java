@@ -0,0 +1,298 @@
+package com.sentinelpay.fraudengine.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Per-client request limits that never block the calling thread.
+ *
+ * <p>The local limit is a token bucket kept as a single theoretical arrival time per
+ * client (GCRA) and updated by compare-and-set, so a decision is a few atomic operations
+ * with no lock and no waiting. Clients idle for longer than the idle timeout are evicted.
+ * Once {@code max-clients} buckets exist, a new client triggers an early eviction, at most
+ * once a second; if every bucket is still in use the new client is rejected until one
+ * frees up. Memory stays bounded under a flood of distinct ids, and no client ever shares
+ * a bucket, or a global lease, with another.
+ *
+ * <p>When the global quota is enabled, each node also leases permits from a per-minute
+ * counter in Redis in batches, so the quota holds across nodes while Redis is touched
+ * about once per lease. At most one lease request per client is in flight; requests that
+ * waited on it and find its permits taken, or find that the minute has rolled over, lease
+ * again, and only a lease that Redis answers with no permits rejects the rest of the
+ * minute. If Redis is unavailable the local limit alone applies.
+ */
+@Component
+public class ClientRateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(ClientRateLimiter.class);
+
+    private static final String GLOBAL_KEY = "ratelimit:%s:%d";
+    private static final long GLOBAL_WINDOW_MILLIS = 60_000;
+    private static final long FULL_SWEEP_INTERVAL_NANOS = 1_000_000_000L;
+    private static final int MAX_LEASE_ATTEMPTS = 3;
+
+    // Grants up to ARGV[1] permits from the window's remaining quota ARGV[2]
+    private static final RedisScript<Long> LEASE_SCRIPT = RedisScript.of("""
+            local used = tonumber(redis.call('GET', KEYS[1]) or '0')
+            local granted = math.min(tonumber(ARGV[1]), tonumber(ARGV[2]) - used)
+            if granted <= 0 then
+              return 0
+            end
+            redis.call('INCRBY', KEYS[1], granted)
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return granted
+            """, Long.class);
+
+    public enum Scope { LOCAL, GLOBAL }
+
+    /**
+     * Outcome of one request; {@code retryAfterMillis} is only meaningful when rejected.
+     */
+    public record Decision(boolean allowed, Scope scope, long retryAfterMillis) {
+        static final Decision ALLOWED = new Decision(true, null, 0);
+    }
+
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastFullSweepNanos;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxClients;
+    private final long idleNanos;
+    private final boolean globalEnabled;
+    private final long globalLimitPerMinute;
+    private final int leaseSize;
+    private final Counter localRejections;
+    private final Counter globalRejections;
+    private final Counter globalErrors;
+    private final Counter clientsFull;
+
+    public ClientRateLimiter(
+            ReactiveRedisTemplate<String, String> redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${ratelimit.limit-per-second:20}") double limitPerSecond,
+            @Value("${ratelimit.burst:40}") int burst,
+            @Value("${ratelimit.max-clients:100000}") int maxClients,
+            @Value("${ratelimit.idle-minutes:10}") int idleMinutes,
+            @Value("${ratelimit.global.enabled:false}") boolean globalEnabled,
+            @Value("${ratelimit.global.limit-per-minute:6000}") long globalLimitPerMinute,
+            @Value("${ratelimit.global.lease-size:20}") int leaseSize) {
+        this.redisTemplate = redisTemplate;
+        this.emissionIntervalNanos = (long) (1_000_000_000L / limitPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * Math.max(0, burst - 1);
+        this.maxClients = maxClients;
+        this.idleNanos = Duration.ofMinutes(idleMinutes).toNanos();
+        this.globalEnabled = globalEnabled;
+        this.globalLimitPerMinute = globalLimitPerMinute;
+        this.leaseSize = Math.max(1, leaseSize);
+        this.lastFullSweepNanos = new AtomicLong(System.nanoTime() - FULL_SWEEP_INTERVAL_NANOS);
+
+        this.localRejections = meterRegistry.counter("ratelimit.rejections", "scope", "local");
+        this.globalRejections = meterRegistry.counter("ratelimit.rejections", "scope", "global");
+        this.globalErrors = meterRegistry.counter("ratelimit.global.errors");
+        this.clientsFull = meterRegistry.counter("ratelimit.clients.full");
+        Gauge.builder("ratelimit.clients", buckets, ConcurrentMap::size).register(meterRegistry);
+    }
+
+    /**
+     * Takes one permit for the client. Completes immediately unless a global lease has to
+     * be fetched from Redis, and never parks a thread.
+     */
+    public Mono<Decision> acquire(String clientId) {
+        long now = System.nanoTime();
+        Bucket bucket = bucket(clientId, now);
+        if (bucket == null) {
+            clientsFull.increment();
+            localRejections.increment();
+            return Mono.just(new Decision(false, Scope.LOCAL, FULL_SWEEP_INTERVAL_NANOS / 1_000_000));
+        }
+        long waitNanos = bucket.tryAcquire(now, emissionIntervalNanos, burstToleranceNanos);
+        if (waitNanos > 0) {
+            localRejections.increment();
+            return Mono.just(new Decision(false, Scope.LOCAL, Math.max(1, waitNanos / 1_000_000)));
+        }
+        if (!globalEnabled) {
+            return Mono.just(Decision.ALLOWED);
+        }
+        return acquireGlobal(clientId, bucket, MAX_LEASE_ATTEMPTS);
+    }
+
+    @Scheduled(fixedDelayString = "${ratelimit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> now - bucket.lastSeenNanos > idleNanos);
+        int evicted = before - buckets.size();
+        if (evicted > 0) {
+            logger.debug("Evicted {} idle rate limit buckets", evicted);
+        }
+    }
+
+    /**
+     * The client's bucket, or null if it has none and there is no room for another.
+     */
+    private Bucket bucket(String clientId, long now) {
+        Bucket bucket = buckets.get(clientId);
+        if (bucket == null) {
+            if (buckets.size() >= maxClients) {
+                sweepWhenFull(now);
+                if (buckets.size() >= maxClients) {
+                    return null;
+                }
+            }
+            bucket = buckets.computeIfAbsent(clientId, id -> new Bucket(now));
+        }
+        bucket.lastSeenNanos = now;
+        return bucket;
+    }
+
+    // At most once a second, so that a flood of new ids does not make every request a full scan
+    private void sweepWhenFull(long now) {
+        long last = lastFullSweepNanos.get();
+        if (now - last >= FULL_SWEEP_INTERVAL_NANOS && lastFullSweepNanos.compareAndSet(last, now)) {
+            evictIdle();
+        }
+    }
+
+    private Mono<Decision> acquireGlobal(String clientId, Bucket bucket, int leaseAttempts) {
+        long window = System.currentTimeMillis() / GLOBAL_WINDOW_MILLIS;
+        if (bucket.tryTakeLease(window)) {
+            return Mono.just(Decision.ALLOWED);
+        }
+        if (leaseAttempts == 0 || bucket.isExhausted(window)) {
+            globalRejections.increment();
+            return Mono.just(new Decision(false, Scope.GLOBAL, retryAfterWindow()));
+        }
+        return bucket.lease(window, () -> fetchLease(clientId, window))
+                .flatMap(granted -> acquireGlobal(clientId, bucket, leaseAttempts - 1))
+                .onErrorResume(error -> {
+                    globalErrors.increment();
+                    logger.warn("Global rate limit unavailable for {}, applying the local limit only: {}",
+                            clientId, error.getMessage());
+                    return Mono.just(Decision.ALLOWED);
+                });
+    }
+
+    private Mono<Long> fetchLease(String clientId, long window) {
+        return redisTemplate.execute(LEASE_SCRIPT,
+                        List.of(GLOBAL_KEY.formatted(clientId, window)),
+                        List.of(Integer.toString(leaseSize),
+                                Long.toString(globalLimitPerMinute),
+                                Long.toString(2 * GLOBAL_WINDOW_MILLIS)))
+                .next()
+                .defaultIfEmpty(0L);
+    }
+
+    private static long retryAfterWindow() {
+        return GLOBAL_WINDOW_MILLIS - System.currentTimeMillis() % GLOBAL_WINDOW_MILLIS;
+    }
+
+    /**
+     * One client's local bucket and its share of the global quota.
+     */
+    static final class Bucket {
+        // Time at which the bucket would be full again if no further requests arrived
+        private final AtomicLong theoreticalArrival;
+        private final AtomicInteger leased = new AtomicInteger();
+        private final AtomicReference<Mono<Long>> pendingLease = new AtomicReference<>();
+        private volatile long leaseWindow = -1;
+        private volatile long exhaustedWindow = -1;
+        volatile long lastSeenNanos;
+
+        Bucket(long now) {
+            this.theoreticalArrival = new AtomicLong(now);
+            this.lastSeenNanos = now;
+        }
+
+        /**
+         * Takes a permit, returning 0 if allowed or else how long until one is available.
+         */
+        long tryAcquire(long now, long emissionInterval, long burstTolerance) {
+            while (true) {
+                long current = theoreticalArrival.get();
+                long next = Math.max(current - now, 0) + emissionInterval;
+                long wait = next - emissionInterval - burstTolerance;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (theoreticalArrival.compareAndSet(current, now + next)) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean tryTakeLease(long window) {
+            if (leaseWindow != window) {
+                return false;
+            }
+            while (true) {
+                int remaining = leased.get();
+                if (remaining <= 0) {
+                    return false;
+                }
+                if (leased.compareAndSet(remaining, remaining - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        // Redis granted nothing for this window, so leasing again would only repeat the round trip
+        boolean isExhausted(long window) {
+            return exhaustedWindow == window;
+        }
+
+        /**
+         * Joins the lease request in flight or starts one, crediting the granted permits
+         * to this bucket once it completes.
+         */
+        Mono<Long> lease(long window, Supplier<Mono<Long>> fetch) {
+            Mono<Long> pending = pendingLease.get();
+            if (pending != null) {
+                return pending;
+            }
+            Mono<Long> request = Mono.defer(fetch)
+                    .doOnNext(granted -> credit(window, granted.intValue()))
+                    .doFinally(signal -> pendingLease.set(null))
+                    .cache();
+            if (!pendingLease.compareAndSet(null, request)) {
+                Mono<Long> winner = pendingLease.get();
+                return winner != null ? winner : request;
+            }
+            return request;
+        }
+
+        private void credit(long window, int granted) {
+            if (granted <= 0) {
+                exhaustedWindow = Math.max(exhaustedWindow, window);
+                return;
+            }
+            if (window < leaseWindow) {
+                // A lease for a minute that has already rolled over
+                return;
+            }
+            if (leaseWindow != window) {
+                leased.set(granted);
+                leaseWindow = window;
+            } else {
+                leased.addAndGet(granted);
+            }
+        }
+    }
+}
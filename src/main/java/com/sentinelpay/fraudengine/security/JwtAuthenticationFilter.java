@@ -14,7 +14,6 @@ import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import com.sentinelpay.fraudengine.config.JwtTokenProvider;
 import reactor.core.publisher.Mono;
-import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter implements WebFilter {
@@ -38,11 +37,11 @@ public class JwtAuthenticationFilter implements WebFilter {
 
         String token = resolveToken(exchange.getRequest());
 
-        if (token != null && tokenProvider.validateToken(token)) {
-            String username = tokenProvider.getUsernameFromToken(token);
-
+        JwtTokenProvider.VerifiedToken verified = token == null ? null : tokenProvider.verify(token);
+        if (verified != null) {
+            // Roles are those of the account when the token was issued
             Authentication auth = new UsernamePasswordAuthenticationToken(
-                    username, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))
+                    verified.username(), null, verified.roles().stream().map(SimpleGrantedAuthority::new).toList()
             );
 
             return chain.filter(exchange)
@@ -0,0 +1,64 @@
+package com.sentinelpay.fraudengine.security;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+
+/**
+ * Applies {@link ClientRateLimiter} to transaction submissions. Runs after the security
+ * chain, so clients are identified by their authenticated name and fall back to the
+ * remote address. Rejected requests get a 429 with a {@code Retry-After} header.
+ */
+@Component
+public class RateLimitFilter implements WebFilter {
+
+    private static final String TRANSACTIONS_PATH = "/api/v1/transactions";
+
+    private final ClientRateLimiter rateLimiter;
+
+    public RateLimitFilter(ClientRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!HttpMethod.POST.equals(request.getMethod()) || !TRANSACTIONS_PATH.equals(request.getPath().value())) {
+            return chain.filter(exchange);
+        }
+
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty(remoteAddress(request))
+                .flatMap(rateLimiter::acquire)
+                .flatMap(decision -> decision.allowed()
+                        ? chain.filter(exchange)
+                        : reject(exchange.getResponse(), decision));
+    }
+
+    private static Mono<Void> reject(ServerHttpResponse response, ClientRateLimiter.Decision decision) {
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                Long.toString(Math.max(1, (decision.retryAfterMillis() + 999) / 1000)));
+        response.getHeaders().set("X-RateLimit-Scope", decision.scope().name().toLowerCase());
+        return response.setComplete();
+    }
+
+    private static String remoteAddress(ServerHttpRequest request) {
+        InetSocketAddress address = request.getRemoteAddress();
+        if (address == null || address.getAddress() == null) {
+            return "unknown";
+        }
+        return address.getAddress().getHostAddress();
+    }
+}
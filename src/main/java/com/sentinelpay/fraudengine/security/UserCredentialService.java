@@ -0,0 +1,209 @@
+package com.sentinelpay.fraudengine.security;
+
+import com.sentinelpay.fraudengine.cache.BoundedCache;
+import com.sentinelpay.fraudengine.repository.UserAccountEntity;
+import com.sentinelpay.fraudengine.repository.UserAccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks login credentials against the {@code app_users} table.
+ *
+ * <p>BCrypt is deliberately slow, so verification runs on its own small thread pool with a
+ * bounded queue rather than on the event loop; a login burst can use at most those
+ * threads and is turned away with 429 once the queue is full, leaving scoring traffic
+ * alone. Accounts are cached for a few minutes from when they were loaded, so a login
+ * normally costs one hash check and no database round trip, and a disabled account or a
+ * changed password or role takes effect within that time however often the user logs in. Unknown users are checked against a dummy hash so they
+ * take as long as known ones, and are remembered for a short while in a separate cache so
+ * that repeated guesses at one name stay off the database. Account lookups that miss both
+ * caches are limited in number, and a burst of guesses at many names beyond that is turned
+ * away with 429 too.
+ *
+ * <p>Without {@code auth.bootstrap.password} no account is created at startup; if the table
+ * is empty as well, nobody can log in until an account is inserted, which is logged.
+ */
+@Service
+public class UserCredentialService {
+    private static final Logger logger = LoggerFactory.getLogger(UserCredentialService.class);
+
+    private record UserAccount(String passwordHash, List<String> roles, boolean enabled) {
+    }
+
+    // Stands in for a user that does not exist, checked against the dummy hash
+    private static final UserAccount UNKNOWN = new UserAccount(null, List.of(), false);
+
+    private final UserAccountRepository repository;
+    private final PasswordEncoder passwordEncoder;
+    private final BoundedCache<String, UserAccount> accounts;
+    private final BoundedCache<String, UserAccount> unknownUsers;
+    private final Duration accountTtl;
+    private final Duration unknownTtl;
+    private final int maxLookups;
+    private final AtomicInteger lookupsInFlight = new AtomicInteger();
+    private final Scheduler verificationScheduler;
+    private final String dummyHash;
+    private final Counter rejectedLogins;
+    private final Counter failedLogins;
+    private final String bootstrapUsername;
+    private final String bootstrapPassword;
+
+    public UserCredentialService(
+            UserAccountRepository repository,
+            PasswordEncoder passwordEncoder,
+            MeterRegistry meterRegistry,
+            @Value("${auth.verification.threads:2}") int threads,
+            @Value("${auth.verification.queue-capacity:64}") int queueCapacity,
+            @Value("${auth.user-cache.size:10000}") int cacheSize,
+            @Value("${auth.user-cache.ttl-minutes:5}") int cacheTtlMinutes,
+            @Value("${auth.user-cache.unknown-ttl-seconds:30}") int unknownTtlSeconds,
+            @Value("${auth.user-lookup.max-concurrent:16}") int maxLookups,
+            @Value("${auth.bootstrap.username:admin}") String bootstrapUsername,
+            @Value("${auth.bootstrap.password:}") String bootstrapPassword) {
+        this.repository = repository;
+        this.passwordEncoder = passwordEncoder;
+        // Fixed lifetimes rather than expiry on access, so that neither frequent logins nor
+        // repeated guesses keep a stale entry past its TTL
+        this.accounts = new BoundedCache<>(cacheSize);
+        this.unknownUsers = new BoundedCache<>(cacheSize);
+        this.accountTtl = Duration.ofMinutes(cacheTtlMinutes);
+        this.unknownTtl = Duration.ofSeconds(unknownTtlSeconds);
+        this.maxLookups = Math.max(1, maxLookups);
+        this.dummyHash = passwordEncoder.encode("dummy-password-for-unknown-users");
+        this.bootstrapUsername = bootstrapUsername;
+        this.bootstrapPassword = bootstrapPassword;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "credential-verify-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        ExecutorService executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "auth.verification");
+        this.verificationScheduler = Schedulers.fromExecutorService(executor, "credential-verify");
+        this.rejectedLogins = meterRegistry.counter("auth.login.rejected", "reason", "overloaded");
+        this.failedLogins = meterRegistry.counter("auth.login.rejected", "reason", "invalid");
+    }
+
+    @PostConstruct
+    void bootstrapAccount() {
+        if (!StringUtils.hasText(bootstrapPassword)) {
+            repository.count()
+                    .filter(count -> count == 0)
+                    .subscribe(
+                            none -> logger.warn("No login accounts exist and auth.bootstrap.password is not set; "
+                                    + "every login will fail until an account is added to app_users"),
+                            error -> logger.warn("Failed to count login accounts: {}", error.getMessage()));
+            return;
+        }
+        repository.insertIfAbsent(bootstrapUsername, passwordEncoder.encode(bootstrapPassword), "ROLE_USER,ROLE_ADMIN")
+                .subscribe(
+                        inserted -> {
+                            if (inserted > 0) {
+                                invalidate(bootstrapUsername);
+                                logger.info("Created bootstrap account {}", bootstrapUsername);
+                            }
+                        },
+                        error -> logger.warn("Failed to create bootstrap account: {}", error.getMessage()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        verificationScheduler.dispose();
+    }
+
+    /**
+     * The user's roles if the credentials are valid, otherwise empty. Fails with 429 when
+     * the verification pool or the account lookups are saturated.
+     */
+    public Mono<List<String>> authenticate(String username, String password) {
+        return loadAccount(username)
+                .flatMap(account -> Mono.fromCallable(() -> verify(account, password))
+                        .subscribeOn(verificationScheduler)
+                        .onErrorMap(RejectedExecutionException.class, error -> {
+                            rejectedLogins.increment();
+                            return new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                                    "Too many concurrent logins, retry shortly");
+                        }))
+                .filter(roles -> !roles.isEmpty())
+                .switchIfEmpty(Mono.fromRunnable(failedLogins::increment));
+    }
+
+    /**
+     * Drops the cached account, e.g. after its password or roles change or it is created.
+     */
+    public void invalidate(String username) {
+        accounts.invalidate(username);
+        unknownUsers.invalidate(username);
+    }
+
+    private List<String> verify(UserAccount account, String password) {
+        if (account == UNKNOWN) {
+            passwordEncoder.matches(password, dummyHash);
+            return List.of();
+        }
+        boolean matches = passwordEncoder.matches(password, account.passwordHash());
+        return matches && account.enabled() ? account.roles() : List.of();
+    }
+
+    private Mono<UserAccount> loadAccount(String username) {
+        UserAccount cached = accounts.getIfPresent(username);
+        if (cached == null) {
+            cached = unknownUsers.getIfPresent(username);
+        }
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return Mono.defer(() -> {
+            if (lookupsInFlight.incrementAndGet() > maxLookups) {
+                lookupsInFlight.decrementAndGet();
+                rejectedLogins.increment();
+                return Mono.error(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                        "Too many concurrent logins, retry shortly"));
+            }
+            return repository.findById(username)
+                    .map(UserCredentialService::toAccount)
+                    .doOnNext(account -> accounts.put(username, account, accountTtl))
+                    .switchIfEmpty(Mono.fromSupplier(() -> {
+                        unknownUsers.put(username, UNKNOWN, unknownTtl);
+                        return UNKNOWN;
+                    }))
+                    .doFinally(signal -> lookupsInFlight.decrementAndGet());
+        });
+    }
+
+    private static UserAccount toAccount(UserAccountEntity entity) {
+        List<String> roles = Arrays.stream(entity.getRoles().split(","))
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .toList();
+        return new UserAccount(entity.getPasswordHash(), roles, entity.isEnabled());
+    }
+}
@@ -1,6 +1,8 @@
 package com.sentinelpay.fraudengine.service;
 
-import com.sentinelpay.fraudengine.repository.TransactionEntity;
+import com.sentinelpay.fraudengine.service.alert.Alert;
+import com.sentinelpay.fraudengine.service.alert.AlertChannel;
+import com.sentinelpay.fraudengine.service.alert.AlertDigest;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,9 +12,14 @@ import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Formats alert digests for Slack and email and sends them.
+ */
 @Service
 @RequiredArgsConstructor
 public class AlertService {
@@ -26,53 +33,62 @@ public class AlertService {
     @Value("${alerts.email.endpoint:}")
     private String emailEndpoint;
 
-    public Mono<Void> sendFraudAlert(TransactionEntity transaction) {
-        if (transaction.getRiskScore() > 0.8) {
-            return sendImmediateHighRiskAlert(transaction);
-        } else if (transaction.getRiskScore() > 0.6) {
-            return sendMediumRiskAlert(transaction);
-        }
-        return Mono.empty();
+    public boolean isConfigured(AlertChannel channel) {
+        return switch (channel) {
+            case SLACK -> slackWebhookUrl != null && !slackWebhookUrl.isEmpty();
+            case EMAIL -> emailEndpoint != null && !emailEndpoint.isEmpty();
+        };
     }
 
-    private Mono<Void> sendImmediateHighRiskAlert(TransactionEntity transaction) {
-        logger.warn("🚨 HIGH RISK FRAUD ALERT - Transaction: {}, Score: {}, User: {}",
-                transaction.getTransactionId(), transaction.getRiskScore(), transaction.getUserId());
-
-        return Mono.when(
-                sendSlackAlert(transaction, "🔴 HIGH RISK"),
-                sendEmailAlert(transaction, "HIGH_RISK"),
-                logToSecuritySystem(transaction)
-        ).then();
+    /**
+     * Sends one digest to one channel. Retries, rate limits and error handling are up to
+     * {@link com.sentinelpay.fraudengine.service.alert.AlertDispatcher}.
+     */
+    public Mono<Void> send(AlertChannel channel, AlertDigest digest) {
+        return switch (channel) {
+            case SLACK -> sendSlackAlert(digest);
+            case EMAIL -> sendEmailAlert(digest);
+        };
     }
 
-    private Mono<Void> sendMediumRiskAlert(TransactionEntity transaction) {
-        logger.info("⚠️ MEDIUM RISK ALERT - Transaction: {}, Score: {}, User: {}",
-                transaction.getTransactionId(), transaction.getRiskScore(), transaction.getUserId());
-
-        return sendSlackAlert(transaction, "🟡 MEDIUM RISK").then();
+    public void logToSecuritySystem(Alert alert) {
+        // Log to security information and event management (SIEM) system
+        logger.info("SECURITY_EVENT: FRAUD_DETECTED - severity: {}, transaction_id: {}, user_id: {}, risk_score: {}, amount: {}",
+                alert.severity().code(), alert.transactionId(), alert.userId(), alert.riskScore(), alert.amount());
     }
 
-    private Mono<Void> sendSlackAlert(TransactionEntity transaction, String severity) {
-        if (slackWebhookUrl == null || slackWebhookUrl.isEmpty()) {
-            logger.debug("Slack webhook not configured, skipping Slack alert");
-            return Mono.empty();
-        }
-
+    private Mono<Void> sendSlackAlert(AlertDigest digest) {
         Map<String, Object> slackMessage = new HashMap<>();
-        slackMessage.put("text", severity + " Fraud Detected - Transaction: " + transaction.getTransactionId());
-
         Map<String, Object> attachment = new HashMap<>();
-        attachment.put("color", severity.contains("HIGH") ? "danger" : "warning");
-        attachment.put("fields", new Object[]{
-                Map.of("title", "Transaction ID", "value", transaction.getTransactionId(), "short", true),
-                Map.of("title", "User ID", "value", transaction.getUserId(), "short", true),
-                Map.of("title", "Amount", "value", transaction.getAmount(), "short", true),
-                Map.of("title", "Risk Score", "value", transaction.getRiskScore(), "short", true),
-                Map.of("title", "Decision", "value", transaction.getDecision(), "short", true),
-                Map.of("title", "Merchant", "value", transaction.getMerchantId(), "short", true)
-        });
-
+        attachment.put("color", digest.severity().colour());
+
+        if (digest.isSingle()) {
+            Alert alert = digest.samples().get(0);
+            slackMessage.put("text", digest.severity().label() + " Fraud Detected - Transaction: " + alert.transactionId());
+            attachment.put("fields", new Object[]{
+                    Map.of("title", "Transaction ID", "value", alert.transactionId(), "short", true),
+                    Map.of("title", "User ID", "value", alert.userId(), "short", true),
+                    Map.of("title", "Amount", "value", alert.amount(), "short", true),
+                    Map.of("title", "Risk Score", "value", alert.riskScore(), "short", true),
+                    Map.of("title", "Decision", "value", alert.decision(), "short", true),
+                    Map.of("title", "Merchant", "value", alert.merchantId(), "short", true)
+            });
+        } else {
+            slackMessage.put("text", "%s %d alerts for %s %s between %s and %s".formatted(
+                    digest.severity().label(), digest.count(), digest.groupBy(), digest.key(),
+                    digest.firstAt(), digest.lastAt()));
+            List<Object> fields = new ArrayList<>();
+            fields.add(Map.of("title", "Alerts", "value", digest.count(), "short", true));
+            fields.add(Map.of("title", "Max Risk Score", "value", digest.maxRiskScore(), "short", true));
+            fields.add(Map.of("title", "Total Amount", "value", digest.totalAmount(), "short", true));
+            for (Alert alert : digest.samples()) {
+                fields.add(Map.of("title", "Transaction " + alert.transactionId(),
+                        "value", "user %s, merchant %s, %s, risk %.2f, %s".formatted(alert.userId(), alert.merchantId(),
+                                alert.amount(), alert.riskScore(), alert.decision()),
+                        "short", false));
+            }
+            attachment.put("fields", fields);
+        }
         slackMessage.put("attachments", new Object[]{attachment});
 
         return webClient.post()
@@ -81,44 +97,39 @@ public class AlertService {
                 .retrieve()
                 .bodyToMono(String.class)
                 .doOnSuccess(response -> logger.debug("Slack alert sent successfully"))
-                .doOnError(error -> logger.error("Failed to send Slack alert: {}", error.getMessage()))
                 .then();
     }
 
-    private Mono<Void> sendEmailAlert(TransactionEntity transaction, String alertLevel) {
-        if (emailEndpoint == null || emailEndpoint.isEmpty()) {
-            logger.debug("Email endpoint not configured, skipping email alert");
-            return Mono.empty();
-        }
-
-        Map<String, Object> emailData = Map.of(
-                "to", "fraud-team@sentinelpay.com",
-                "subject", "Fraud Alert - " + alertLevel + " - Transaction: " + transaction.getTransactionId(),
-                "transaction", Map.of(
-                        "id", transaction.getTransactionId(),
-                        "userId", transaction.getUserId(),
-                        "amount", transaction.getAmount(),
-                        "riskScore", transaction.getRiskScore(),
-                        "decision", transaction.getDecision(),
-                        "merchant", transaction.getMerchantId()
-                ),
-                "alertLevel", alertLevel,
-                "timestamp", Instant.now()
-        );
+    private Mono<Void> sendEmailAlert(AlertDigest digest) {
+        String subject = digest.isSingle()
+                ? "Fraud Alert - " + digest.severity().code() + " - Transaction: " + digest.samples().get(0).transactionId()
+                : "Fraud Alert - " + digest.severity().code() + " - " + digest.count() + " alerts for "
+                        + digest.groupBy() + " " + digest.key();
+        List<Map<String, Object>> transactions = digest.samples().stream()
+                .map(alert -> Map.<String, Object>of(
+                        "id", alert.transactionId(),
+                        "userId", alert.userId(),
+                        "amount", alert.amount(),
+                        "riskScore", alert.riskScore(),
+                        "decision", alert.decision(),
+                        "merchant", alert.merchantId()))
+                .toList();
+
+        Map<String, Object> emailData = new HashMap<>();
+        emailData.put("to", "fraud-team@sentinelpay.com");
+        emailData.put("subject", subject);
+        emailData.put("transaction", transactions.get(0));
+        emailData.put("transactions", transactions);
+        emailData.put("alertCount", digest.count());
+        emailData.put("totalAmount", digest.totalAmount());
+        emailData.put("alertLevel", digest.severity().code());
+        emailData.put("timestamp", Instant.now());
 
         return webClient.post()
                 .uri(emailEndpoint)  // Use full URL from configuration
                 .bodyValue(emailData)
                 .retrieve()
                 .bodyToMono(String.class)
-                .doOnError(error -> logger.error("Failed to send email alert: {}", error.getMessage()))
                 .then();
     }
-
-    private Mono<Void> logToSecuritySystem(TransactionEntity transaction) {
-        // Log to security information and event management (SIEM) system
-        logger.info("SECURITY_EVENT: FRAUD_DETECTED - transaction_id: {}, user_id: {}, risk_score: {}, amount: {}",
-                transaction.getTransactionId(), transaction.getUserId(), transaction.getRiskScore(), transaction.getAmount());
-        return Mono.empty();
-    }
-}
\ No newline at end of file
+}
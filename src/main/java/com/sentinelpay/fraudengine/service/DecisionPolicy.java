@@ -0,0 +1,44 @@
+package com.sentinelpay.fraudengine.service;
+
+/**
+ * Weights and thresholds used to fuse the ML and rule scores into a final decision.
+ * Live scoring uses {@link #DEFAULT}; replays can evaluate a candidate policy side by side.
+ */
+public record DecisionPolicy(
+        float mlWeight,
+        float ruleWeight,
+        float ruleBlockThreshold,
+        float blockThreshold,
+        float reviewThreshold
+) {
+    public static final DecisionPolicy DEFAULT = new DecisionPolicy(0.7f, 0.3f, 0.7f, 0.8f, 0.5f);
+
+    /**
+     * Fuses the ML score, Rule Engine score, and velocity into a single final risk score.
+     */
+    public float fuseScores(Float mlScore, float ruleScore, Long velocity) {
+        if (mlScore == null) {
+            mlScore = 0.0f;
+        }
+
+        float baseScore = (mlScore * mlWeight) + (ruleScore * ruleWeight);
+
+        if (velocity > 20) baseScore += 0.2f;
+        else if (velocity > 10) baseScore += 0.1f;
+
+        return Math.min(Math.max(baseScore, 0.0f), 1.0f);
+    }
+
+    /**
+     * Determines the final decision based on the fused risk score and rule results.
+     */
+    public String makeDecision(float riskScore, double ruleScore) {
+        if (ruleScore > ruleBlockThreshold) {
+            return "BLOCK";
+        }
+
+        if (riskScore > blockThreshold) return "BLOCK";
+        if (riskScore > reviewThreshold) return "REVIEW";
+        return "ALLOW";
+    }
+}
@@ -5,6 +5,19 @@ import com.sentinelpay.fraudengine.dto.TransactionRequest;
 import com.sentinelpay.fraudengine.dto.TransactionResponse;
 import com.sentinelpay.fraudengine.repository.TransactionEntity;
 import com.sentinelpay.fraudengine.repository.TransactionRepository;
+import com.sentinelpay.fraudengine.service.alert.AlertDispatcher;
+import com.sentinelpay.fraudengine.service.denylist.DenylistMatch;
+import com.sentinelpay.fraudengine.service.denylist.DenylistService;
+import com.sentinelpay.fraudengine.service.feed.DecisionFeedService;
+import com.sentinelpay.fraudengine.service.feature.FeatureCodec;
+import com.sentinelpay.fraudengine.service.feature.ScoredTransaction;
+import com.sentinelpay.fraudengine.service.feature.ScoredTransactionListener;
+import com.sentinelpay.fraudengine.service.feature.TransactionContext;
+import com.sentinelpay.fraudengine.service.feature.TransactionFeatureContributor;
+import com.sentinelpay.fraudengine.service.fx.FxRateService;
+import com.sentinelpay.fraudengine.service.idempotency.IdempotencyStore;
+import com.sentinelpay.fraudengine.service.metrics.DecisionCounters;
+import com.sentinelpay.fraudengine.service.metrics.DecisionRollups;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreaker;
@@ -20,6 +33,7 @@ import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.UUID;
 import java.util.Map;
 import java.util.HashMap;
@@ -38,7 +52,17 @@ public class FraudService {
     private final MLServiceClient mlServiceClient;
     private final RuleEngine ruleEngine;
     private final ReactiveCircuitBreaker fraudCircuitBreaker;
-    private final AlertService alertService;
+    private final AlertDispatcher alertDispatcher;
+    private final DecisionFeedService decisionFeedService;
+    private final DecisionCounters decisionCounters;
+    private final DecisionRollups decisionRollups;
+    private final FeatureCodec featureCodec;
+    private final List<TransactionFeatureContributor> featureContributors;
+    private final List<ScoredTransactionListener> scoredTransactionListeners;
+    private final DenylistService denylistService;
+    private final FxRateService fxRateService;
+    private final IdempotencyStore idempotencyStore;
+    private final DecisionPolicy decisionPolicy = DecisionPolicy.DEFAULT;
 
     public FraudService(
             TransactionRepository transactionRepository,
@@ -47,7 +71,16 @@ public class FraudService {
             ObjectMapper objectMapper,
             MLServiceClient mlServiceClient,
             RuleEngine ruleEngine,
-            AlertService alertService,
+            AlertDispatcher alertDispatcher,
+            DecisionFeedService decisionFeedService,
+            DecisionCounters decisionCounters,
+            DecisionRollups decisionRollups,
+            FeatureCodec featureCodec,
+            List<TransactionFeatureContributor> featureContributors,
+            List<ScoredTransactionListener> scoredTransactionListeners,
+            DenylistService denylistService,
+            FxRateService fxRateService,
+            IdempotencyStore idempotencyStore,
             ReactiveCircuitBreakerFactory circuitBreakerFactory) {
         this.transactionRepository = transactionRepository;
         this.redisTemplate = redisTemplate;
@@ -55,56 +88,46 @@ public class FraudService {
         this.objectMapper = objectMapper;
         this.mlServiceClient = mlServiceClient;
         this.ruleEngine = ruleEngine;
-        this.alertService = alertService;
+        this.alertDispatcher = alertDispatcher;
+        this.decisionFeedService = decisionFeedService;
+        this.decisionCounters = decisionCounters;
+        this.decisionRollups = decisionRollups;
+        this.featureCodec = featureCodec;
+        this.featureContributors = featureContributors;
+        this.scoredTransactionListeners = scoredTransactionListeners;
+        this.denylistService = denylistService;
+        this.fxRateService = fxRateService;
+        this.idempotencyStore = idempotencyStore;
         this.fraudCircuitBreaker = circuitBreakerFactory.create("fraudEngine");
     }
 
     /**
      * Evaluates a transaction request using velocity checks, the Rule Engine, and an ML Service.
+     * Denylisted users, devices, IPs and merchants are blocked before any of that runs.
      * The entire flow is wrapped in a Circuit Breaker for resilience.
+     * A retry of a request already decided gets the same decision back without being evaluated again,
+     * though it still counts toward the user's velocity.
      */
-    public Mono<TransactionResponse> evaluate(TransactionRequest request) {
+    public Mono<TransactionResponse> evaluate(TransactionRequest request, String idempotencyKey) {
+        return Mono.defer(() -> idempotencyStore.execute(
+                idempotencyStore.keyFor(request, idempotencyKey),
+                () -> evaluateOnce(request),
+                () -> checkVelocity(request.userId()).then()));
+    }
+
+    private Mono<IdempotencyStore.Outcome> evaluateOnce(TransactionRequest request) {
+        long started = System.nanoTime();
         Instant now = Instant.now();
         Instant bucketHour = now.truncatedTo(ChronoUnit.HOURS);
 
         return fraudCircuitBreaker.run(
-                checkVelocity(request.userId())
-                        .flatMap(velocity -> {
-                            // Build features for ML service
-                            Map<String, Object> mlFeatures = buildMLFeatures(request, velocity);
-
-                            return Mono.zip(
-                                    // Rule Engine: Let Resilience4j handle timeout
-                                    ruleEngine.evaluateRules(request),
-
-                                    // ML Service: Let Resilience4j handle timeout
-                                    mlServiceClient.getRiskScore(mlFeatures),
-
-                                    Mono.just(velocity),
-                                    Mono.just(mlFeatures)
-                            );
-                        })
-                        .flatMap(tuple -> {
-                            RuleEngine.RuleResult ruleResult = tuple.getT1();
-                            Float mlRiskScore = tuple.getT2();
-                            Long velocity = tuple.getT3();
-                            Map<String, Object> mlFeatures = tuple.getT4();
-
-                            // Fusion logic: Combine ML score and rule score
-                            float finalRiskScore = fuseScores(mlRiskScore, (float) ruleResult.totalScore(), velocity);
-                            String decision = makeDecision(finalRiskScore, ruleResult);
-
-                            logger.debug("Starting database save and Kafka publish...");
-                            long saveStartTime = System.currentTimeMillis();
-
-                            return saveAndProcessTransaction(request, bucketHour, now,
-                                    finalRiskScore, decision, mlFeatures)
-                                    .doOnSuccess(r -> {
-                                        long saveDuration = System.currentTimeMillis() - saveStartTime;
-                                        logger.debug("Database save and Kafka publish completed in {}ms", saveDuration);
-                                    });
-                        })
+                Mono.fromCallable(() -> TransactionContext.of(request,
+                                fxRateService.toBase(request.amount().doubleValue(), request.currency()), now))
+                        .flatMap(context -> denylistService.match(context)
+                                .map(match -> blockDenylisted(context, bucketHour, match))
+                                .orElseGet(() -> score(context, bucketHour)))
                         .doOnSuccess(r -> logger.info("Transaction {} evaluated: {}", r.transactionId(), r.decision()))
+                        .map(response -> new IdempotencyStore.Outcome(response, true))
                         .onErrorResume(error -> {
                             logger.error("Fraud evaluation failed (inner error), defaulting to REVIEW: {}", error.getMessage());
                             return createFallbackResponse(request, now);
@@ -114,28 +137,86 @@ public class FraudService {
                     logger.error("Fraud engine circuit breaker triggered, using fallback: {}", throwable.getMessage());
                     return createFallbackResponse(request, Instant.now());
                 }
-        );
+        ).doOnNext(outcome -> decisionRollups.record(
+                outcome.response().decision(), System.nanoTime() - started, System.currentTimeMillis()));
+    }
+
+    private Mono<TransactionResponse> score(TransactionContext context, Instant bucketHour) {
+        TransactionRequest request = context.request();
+
+        return checkVelocity(request.userId())
+                .flatMap(velocity -> {
+                    // Build features for ML service
+                    Map<String, Object> mlFeatures = buildMLFeatures(context, velocity);
+
+                    return Mono.zip(
+                            // Rule Engine: Let Resilience4j handle timeout
+                            ruleEngine.evaluateRules(request, mlFeatures),
+
+                            // ML Service: Let Resilience4j handle timeout
+                            mlServiceClient.getRiskScore(mlFeatures),
+
+                            Mono.just(velocity),
+                            Mono.just(mlFeatures)
+                    );
+                })
+                .flatMap(tuple -> {
+                    RuleEngine.RuleResult ruleResult = tuple.getT1();
+                    MLServiceClient.RiskScore mlRiskScore = tuple.getT2();
+                    Long velocity = tuple.getT3();
+                    Map<String, Object> mlFeatures = tuple.getT4();
+
+                    // Fusion logic: Combine ML score and rule score
+                    float finalRiskScore = decisionPolicy.fuseScores(mlRiskScore.value(), (float) ruleResult.totalScore(), velocity);
+                    String decision = decisionPolicy.makeDecision(finalRiskScore, ruleResult.totalScore());
+
+                    logger.debug("Starting database save and Kafka publish...");
+                    long saveStartTime = System.currentTimeMillis();
+
+                    // A fallback score says nothing about the model, so listeners do not see it as one
+                    return saveAndProcessTransaction(context, bucketHour,
+                            mlRiskScore.fromModel() ? mlRiskScore.value() : null, finalRiskScore, decision, mlFeatures, true)
+                            .doOnSuccess(r -> {
+                                long saveDuration = System.currentTimeMillis() - saveStartTime;
+                                logger.debug("Database save and Kafka publish completed in {}ms", saveDuration);
+                            });
+                });
+    }
+
+    /**
+     * Blocks a denylisted transaction without scoring it. It is still persisted and published
+     * so that it shows up in search and alerts, but the in-memory stores do not learn from it:
+     * a denylist hit says nothing about the user's behaviour, and flagging everyone who paid a
+     * denylisted merchant would poison the entity graph.
+     */
+    private Mono<TransactionResponse> blockDenylisted(TransactionContext context, Instant bucketHour, DenylistMatch match) {
+        Map<String, Object> features = new HashMap<>();
+        features.put("amount", context.amount());
+        features.put("denylist_type", match.type().name());
+        logger.debug("Transaction for user {} matched the {} denylist", context.userId(), match.type());
+        return saveAndProcessTransaction(context, bucketHour, null, 1.0f, "BLOCK", features, false);
     }
 
     /**
      * Helper method to persist the transaction result and publish to Kafka.
      */
     private Mono<TransactionResponse> saveAndProcessTransaction(
-            TransactionRequest request,
+            TransactionContext context,
             Instant bucketHour,
-            Instant now,
+            Float mlRiskScore,
             float finalRiskScore,
             String decision,
-            Map<String, Object> mlFeatures) {
+            Map<String, Object> mlFeatures,
+            boolean notifyListeners) {
+
+        TransactionRequest request = context.request();
+        Instant now = context.timestamp();
 
-        String featuresJson;
         String deviceInfoJson;
         try {
-            featuresJson = objectMapper.writeValueAsString(mlFeatures);
             deviceInfoJson = objectMapper.writeValueAsString(request.deviceInfo());
         } catch (Exception e) {
-            logger.warn("Failed to serialize features/deviceInfo, using empty JSON", e);
-            featuresJson = "{}";
+            logger.warn("Failed to serialize deviceInfo, using empty JSON", e);
             deviceInfoJson = "{}";
         }
 
@@ -144,11 +225,8 @@ public class FraudService {
                 (BigDecimal) request.amount() :
                 BigDecimal.valueOf(request.amount().doubleValue());
 
-        // Convert userId from String to UUID
-        UUID userId = UUID.fromString(request.userId());
-
-        TransactionEntity entity = TransactionEntity.builder()
-                .userId(userId)
+        TransactionEntity.TransactionEntityBuilder entity = TransactionEntity.builder()
+                .userId(context.userId())
                 .bucketHour(bucketHour)
                 .amount(amount)
                 .currency(request.currency())
@@ -157,12 +235,12 @@ public class FraudService {
                 .deviceInfo(deviceInfoJson)
                 .riskScore(finalRiskScore)
                 .decision(decision)
-                .features(featuresJson)
+                .features(mlFeatures)
                 .createdAt(now)
-                .timestamp(now)
-                .build();
+                .timestamp(now);
 
-        return transactionRepository.save(entity)
+        return featureCodec.encode(mlFeatures)
+                .flatMap(packed -> transactionRepository.save(entity.packedFeatures(packed).build()))
                 .flatMap(savedEntity -> {
                     TransactionResponse response = new TransactionResponse(
                             savedEntity.getTransactionId(),
@@ -173,55 +251,54 @@ public class FraudService {
                             now
                     );
 
-                    alertService.sendFraudAlert(savedEntity)
-                            .subscribe();
+                    decisionCounters.record(decision);
+                    alertDispatcher.submit(savedEntity);
+                    decisionFeedService.publish(savedEntity);
 
                     // Non-blocking Kafka publish - don't wait for completion
                     publishToKafkaNonBlocking(savedEntity);
+
+                    if (notifyListeners) {
+                        notifyScoredTransactionListeners(new ScoredTransaction(
+                                savedEntity.getTransactionId(), context, mlFeatures, mlRiskScore, finalRiskScore, decision));
+                    }
                     return Mono.just(response);
                 })
                 .doOnError(e -> logger.error("Error during save/publish for transaction: {}", e.getMessage()));
     }
 
-    private Map<String, Object> buildMLFeatures(TransactionRequest request, Long velocity) {
+    private Map<String, Object> buildMLFeatures(TransactionContext context, Long velocity) {
+        TransactionRequest request = context.request();
         Map<String, Object> features = new HashMap<>();
-        features.put("amount", request.amount().doubleValue());
+        features.put("amount", context.amount());
         features.put("velocity_1h", velocity);
         features.put("merchant_risk", getMerchantRisk(request.merchantId()));
         features.put("ip_risk", getIPRisk(request.ipAddress()));
         features.put("device_risk", getDeviceRisk(request.deviceInfo()));
         features.put("hour_of_day", Instant.now().atZone(ZoneId.systemDefault()).getHour());
         features.put("day_of_week", Instant.now().atZone(ZoneId.systemDefault()).getDayOfWeek().getValue());
-        return features;
-    }
 
-    /**
-     * Fuses the ML score, Rule Engine score, and velocity into a single final risk score.
-     */
-    private float fuseScores(Float mlScore, float ruleScore, Long velocity) {
-        if (mlScore == null) {
-            mlScore = 0.0f;
+        for (TransactionFeatureContributor contributor : featureContributors) {
+            try {
+                contributor.contribute(context, features);
+            } catch (Exception e) {
+                logger.warn("Feature contributor {} failed: {}", contributor.getClass().getSimpleName(), e.getMessage());
+            }
         }
-
-        float baseScore = (mlScore * 0.7f) + (ruleScore * 0.3f);
-
-        if (velocity > 20) baseScore += 0.2f;
-        else if (velocity > 10) baseScore += 0.1f;
-
-        return Math.min(Math.max(baseScore, 0.0f), 1.0f);
+        return features;
     }
 
     /**
-     * Determines the final decision based on the fused risk score and rule results.
+     * Feeds the in-memory stores that learn from every scored transaction.
      */
-    private String makeDecision(float riskScore, RuleEngine.RuleResult ruleResult) {
-        if (ruleResult.totalScore() > 0.7f) {
-            return "BLOCK";
+    private void notifyScoredTransactionListeners(ScoredTransaction transaction) {
+        for (ScoredTransactionListener listener : scoredTransactionListeners) {
+            try {
+                listener.onScored(transaction);
+            } catch (Exception e) {
+                logger.warn("Scored transaction listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage());
+            }
         }
-
-        if (riskScore > 0.8f) return "BLOCK";
-        if (riskScore > 0.5f) return "REVIEW";
-        return "ALLOW";
     }
 
     /**
@@ -259,22 +336,23 @@ public class FraudService {
 
     /**
      * Creates a safe default response when the fraud evaluation process fails (due to timeout or circuit breaker).
+     * Nothing is persisted, so the response is not kept for retries.
      */
-    private Mono<TransactionResponse> createFallbackResponse(TransactionRequest request, Instant now) {
+    private Mono<IdempotencyStore.Outcome> createFallbackResponse(TransactionRequest request, Instant now) {
         UUID transactionId = UUID.randomUUID();
         UUID userId = UUID.fromString(request.userId());
         BigDecimal amount = request.amount() instanceof BigDecimal ?
                 (BigDecimal) request.amount() :
                 BigDecimal.valueOf(request.amount().doubleValue());
 
-        return Mono.just(new TransactionResponse(
+        return Mono.just(new IdempotencyStore.Outcome(new TransactionResponse(
                 transactionId,
                 userId.toString(),
                 amount,
                 "REVIEW",
                 0.5f,
                 now
-        ));
+        ), false));
     }
 
     /**
@@ -26,18 +26,25 @@ public class MLServiceClient {
         this.tensorFlowService = tensorFlowService;
     }
 
-    public Mono<Float> getRiskScore(Map<String, Object> features) {
+    /**
+     * A risk score and whether the model produced it, as opposed to a fallback.
+     */
+    public record RiskScore(float value, boolean fromModel) {
+    }
+
+    public Mono<RiskScore> getRiskScore(Map<String, Object> features) {
         return mlCircuitBreaker.run(
                 // Use TensorFlow for real predictions
                 tensorFlowService.predictFraudRisk(features)
                         .timeout(Duration.ofMillis(100)) // TF should be fast
+                        .map(score -> new RiskScore(score, true))
                         .onErrorResume(error -> {
                             logger.warn("TensorFlow service failed, using fallback: {}", error.getMessage());
-                            return getFallbackScore(features); // Use old mock as fallback
+                            return getFallbackScore(features).map(score -> new RiskScore(score, false)); // Use old mock as fallback
                         }),
                 throwable -> {
                     logger.warn("ML Service circuit breaker fallback");
-                    return Mono.just(0.5f);
+                    return Mono.just(new RiskScore(0.5f, false));
                 }
         );
     }
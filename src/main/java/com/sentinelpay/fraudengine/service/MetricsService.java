@@ -2,7 +2,7 @@
 package com.sentinelpay.fraudengine.service;
 
 import com.sentinelpay.fraudengine.dto.MetricsResponse;
-import com.sentinelpay.fraudengine.repository.TransactionRepository;
+import com.sentinelpay.fraudengine.service.metrics.DecisionCounters;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
@@ -10,19 +10,17 @@ import reactor.core.publisher.Mono;
 @Service
 @RequiredArgsConstructor
 public class MetricsService {
-    private final TransactionRepository transactionRepository;
+    private final DecisionCounters decisionCounters;
 
+    /**
+     * Served from the in-memory decision counters; never queries the transactions table.
+     */
     public Mono<MetricsResponse> getMetrics() {
-        return Mono.zip(
-                transactionRepository.countAll(),
-                transactionRepository.countByDecision("BLOCK"),
-                transactionRepository.countByDecision("REVIEW"),
-                transactionRepository.countByDecision("ALLOW")
-        ).map(tuple -> {
-            long total = tuple.getT1();
-            long blocked = tuple.getT2();
-            long review = tuple.getT3();
-            long allowed = tuple.getT4();
+        return Mono.fromCallable(decisionCounters::counts).map(counts -> {
+            long total = counts.total();
+            long blocked = counts.blocked();
+            long review = counts.review();
+            long allowed = counts.allowed();
 
             double fraudRate = total > 0 ? (double) (blocked + review) / total * 100 : 0.0;
 
@@ -35,4 +33,4 @@ public class MetricsService {
             );
         });
     }
-}
\ No newline at end of file
+}
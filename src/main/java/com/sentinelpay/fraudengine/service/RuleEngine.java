@@ -10,51 +10,79 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
 public class RuleEngine {
     private static final Logger logger = LoggerFactory.getLogger(RuleEngine.class);
 
+    // "<feature> <op> <number>", evaluated against any numeric feature
+    private static final Pattern NUMERIC_CONDITION =
+            Pattern.compile("^\\s*([A-Za-z_][A-Za-z0-9_]*)\\s*(>=|<=|>|<)\\s*(-?\\d+(?:\\.\\d+)?)\\s*$");
+
     private final RuleRepository ruleRepository;
 
     public Mono<RuleResult> evaluateRules(TransactionRequest request) {
+        return evaluateRules(request, Map.of());
+    }
+
+    /**
+     * Evaluates the enabled rules with the features computed for scoring (velocity,
+     * profile deviations, ...) available to conditions alongside the request fields.
+     */
+    public Mono<RuleResult> evaluateRules(TransactionRequest request, Map<String, Object> scoringFeatures) {
         return ruleRepository.findByEnabledTrue()
                 .collectList()
-                .map(rules -> {
-                    logger.debug("Evaluating {} active rules", rules.size());
+                .map(rules -> evaluateRules(request, rules, scoringFeatures));
+    }
+
+    public RuleResult evaluateRules(TransactionRequest request, List<RuleEntity> rules) {
+        return evaluateRules(request, rules, Map.of());
+    }
 
-                    RuleResult result = new RuleResult();
+    /**
+     * Evaluates an already loaded rule set. Used directly by offline replays so that
+     * rules are fetched once rather than per transaction.
+     */
+    public RuleResult evaluateRules(TransactionRequest request, List<RuleEntity> rules,
+                                    Map<String, Object> scoringFeatures) {
+        logger.debug("Evaluating {} active rules", rules.size());
 
-                    // Extract features for rule evaluation
-                    Map<String, Object> features = extractFeatures(request);
+        RuleResult result = new RuleResult();
 
-                    // Evaluate each dynamic rule
-                    for (RuleEntity rule : rules) {
-                        if (evaluateRuleCondition(rule, features)) {
-                            result.addTriggeredRule(rule.getName(), rule.getScore());
-                            logger.debug("Rule triggered: {} (score: {})", rule.getName(), rule.getScore());
-                        }
-                    }
+        // Extract features for rule evaluation
+        Map<String, Object> features = extractFeatures(request, scoringFeatures);
 
-                    logger.debug("Rule Results - Total score: {}, Triggered rules: {}",
-                            result.totalScore(), result.triggeredRules().size());
+        // Evaluate each dynamic rule
+        for (RuleEntity rule : rules) {
+            if (evaluateRuleCondition(rule, features)) {
+                result.addTriggeredRule(rule.getName(), rule.getScore());
+                logger.debug("Rule triggered: {} (score: {})", rule.getName(), rule.getScore());
+            }
+        }
 
-                    return result;
-                });
+        logger.debug("Rule Results - Total score: {}, Triggered rules: {}",
+                result.totalScore(), result.triggeredRules().size());
+
+        return result;
     }
 
-    private Map<String, Object> extractFeatures(TransactionRequest request) {
+    private Map<String, Object> extractFeatures(TransactionRequest request, Map<String, Object> scoringFeatures) {
         // Extract features that rules can evaluate against
-        return Map.of(
-                "amount", request.amount().doubleValue(),
-                "merchantId", request.merchantId(),
-                "ipAddress", request.ipAddress(),
-                "deviceInfo", request.deviceInfo(),
-                // Add any other features your rules might need
-                "deviceRisk", calculateDeviceRisk(request.deviceInfo())
-        );
+        Map<String, Object> features = new HashMap<>(scoringFeatures);
+        // Scoring features carry the amount in the base currency; only fall back to the raw amount
+        features.putIfAbsent("amount", request.amount().doubleValue());
+        features.put("merchantId", request.merchantId());
+        features.put("ipAddress", request.ipAddress());
+        features.put("deviceInfo", request.deviceInfo());
+        // Add any other features your rules might need
+        features.put("deviceRisk", calculateDeviceRisk(request.deviceInfo()));
+        return features;
     }
 
     private boolean evaluateRuleCondition(RuleEntity rule, Map<String, Object> features) {
@@ -65,12 +93,12 @@ public class RuleEngine {
             // Basic condition evaluation (this is simplified - you might want a proper expression evaluator)
             if (condition.contains("amount >")) {
                 double threshold = extractNumber(condition);
-                double amount = (Double) features.get("amount");
+                double amount = ((Number) features.get("amount")).doubleValue();
                 return amount > threshold;
             }
             else if (condition.contains("deviceRisk >")) {
                 double threshold = extractNumber(condition);
-                double deviceRisk = (Double) features.get("deviceRisk");
+                double deviceRisk = ((Number) features.get("deviceRisk")).doubleValue();
                 return deviceRisk > threshold;
             }
             else if (condition.contains("merchantId ==") || condition.contains("merchantId.equals")) {
@@ -84,7 +112,17 @@ public class RuleEngine {
                 return isRiskyIP(ipAddress);
             }
 
-            // Add more condition types as needed
+            // Any other numeric feature, e.g. "amount_percentile > 0.95"
+            Matcher matcher = NUMERIC_CONDITION.matcher(condition);
+            if (matcher.matches() && features.get(matcher.group(1)) instanceof Number value) {
+                double threshold = Double.parseDouble(matcher.group(3));
+                return switch (matcher.group(2)) {
+                    case ">" -> value.doubleValue() > threshold;
+                    case ">=" -> value.doubleValue() >= threshold;
+                    case "<" -> value.doubleValue() < threshold;
+                    default -> value.doubleValue() <= threshold;
+                };
+            }
 
             return false;
         } catch (Exception e) {
@@ -3,24 +3,61 @@ package com.sentinelpay.fraudengine.service;
 
 import com.sentinelpay.fraudengine.dto.SearchRequest;
 import com.sentinelpay.fraudengine.dto.TransactionResponse;
-import com.sentinelpay.fraudengine.repository.TransactionRepository;
+import com.sentinelpay.fraudengine.dto.TransactionSearchPage;
+import com.sentinelpay.fraudengine.repository.TransactionSearchCriteria;
+import com.sentinelpay.fraudengine.repository.analytics.TransactionAnalyticsRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import reactor.core.publisher.Flux;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class TransactionSearchService {
-    private final TransactionRepository transactionRepository;
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+
+    private final TransactionAnalyticsRepository transactionAnalyticsRepository;
+
+    /**
+     * One page, newest first. Pass the returned cursor back to get the next page.
+     */
+    public Mono<TransactionSearchPage> searchTransactions(SearchRequest request) {
+        int limit = Math.min(Math.max(request.limit().orElse(DEFAULT_LIMIT), 1), MAX_LIMIT);
+        Cursor after = request.cursor().map(TransactionSearchService::decodeCursor).orElse(null);
 
-    public Flux<TransactionResponse> searchTransactions(SearchRequest request) {
-        return transactionRepository.searchTransactions(
-                request.userId().orElse(null),
-                request.decision().orElse(null),
+        TransactionSearchCriteria criteria = new TransactionSearchCriteria(
+                request.userId().map(TransactionSearchService::parseUserId).orElse(null),
+                request.decision().map(String::toUpperCase).orElse(null),
+                request.merchantId().orElse(null),
+                request.ipAddress().orElse(null),
+                request.minScore().orElse(null),
+                request.maxScore().orElse(null),
                 request.fromDate().orElse(null),
                 request.toDate().orElse(null),
-                request.limit().orElse(100)
-        ).map(this::toResponse);
+                after == null ? null : after.createdAt(),
+                after == null ? null : after.transactionId(),
+                // One extra row tells whether there is a next page
+                limit + 1);
+
+        return transactionAnalyticsRepository.search(criteria)
+                .map(this::toResponse)
+                .collectList()
+                .map(rows -> {
+                    if (rows.size() <= limit) {
+                        return new TransactionSearchPage(rows, null);
+                    }
+                    List<TransactionResponse> page = rows.subList(0, limit);
+                    TransactionResponse last = page.get(limit - 1);
+                    return new TransactionSearchPage(page, encodeCursor(last.timestamp(), last.transactionId()));
+                });
     }
 
     private TransactionResponse toResponse(com.sentinelpay.fraudengine.repository.TransactionEntity entity) {
@@ -33,4 +70,31 @@ public class TransactionSearchService {
                 entity.getCreatedAt()
         );
     }
-}
\ No newline at end of file
+
+    private record Cursor(Instant createdAt, UUID transactionId) {
+    }
+
+    // Opaque to clients: base64url of "<created_at>|<transaction_id>"
+    private static String encodeCursor(Instant createdAt, UUID transactionId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + "|" + transactionId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf('|');
+            return new Cursor(Instant.parse(decoded.substring(0, separator)), UUID.fromString(decoded.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    private static UUID parseUserId(String userId) {
+        try {
+            return UUID.fromString(userId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid userId " + userId);
+        }
+    }
+}
@@ -2,96 +2,42 @@
 package com.sentinelpay.fraudengine.service;
 
 import com.sentinelpay.fraudengine.dto.UserProfile;
-import com.sentinelpay.fraudengine.repository.TransactionRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelpay.fraudengine.model.Location;
+import com.sentinelpay.fraudengine.service.geo.IpGeolocationService;
+import com.sentinelpay.fraudengine.service.profile.UserProfileStore;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
-import java.math.BigDecimal;
-import java.time.Instant;
-import java.util.*;
+import java.util.List;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class UserProfileService {
-    private final TransactionRepository transactionRepository;
-    private final ObjectMapper objectMapper;
+    private final UserProfileStore userProfileStore;
+    private final IpGeolocationService ipGeolocationService;
 
+    /**
+     * Profiles are maintained incrementally from scored transactions, so this is a
+     * lookup rather than a scan of the user's history.
+     */
     public Mono<UserProfile> buildUserProfile(String userId) {
-        UUID userUuid = UUID.fromString(userId);
-        Instant thirtyDaysAgo = Instant.now().minusSeconds(30 * 24 * 60 * 60);
-
-        return Mono.zip(
-                transactionRepository.findAverageAmount(userUuid),
-                transactionRepository.findUserLocations(userUuid).collectList(),
-                transactionRepository.findRecentByUser(userUuid, thirtyDaysAgo).collectList()
-        ).map(tuple -> {
-            Double avgAmount = tuple.getT1();
-            List<String> locations = tuple.getT2();
-            List<com.sentinelpay.fraudengine.repository.TransactionEntity> transactions = tuple.getT3();
-
-            // Extract devices from transactions
-            List<String> devices = extractDevices(transactions);
-
-            // Build behavior patterns
-            Map<String, Object> patterns = buildBehaviorPatterns(transactions);
-
-            return new UserProfile(
-                    userId,
-                    BigDecimal.valueOf(avgAmount != null ? avgAmount : 0.0),
-                    locations,
-                    devices,
-                    patterns,
-                    Instant.now()
-            );
-        });
+        return userProfileStore.load(UUID.fromString(userId))
+                .map(aggregate -> aggregate.toUserProfile(userId))
+                .map(this::withLocations);
     }
 
-    private List<String> extractDevices(List<com.sentinelpay.fraudengine.repository.TransactionEntity> transactions) {
-        return transactions.stream()
-                .map(transaction -> {
-                    try {
-                        Map deviceInfo = objectMapper.readValue(transaction.getDeviceInfo(), Map.class);
-                        return (String) deviceInfo.getOrDefault("browser", "unknown");
-                    } catch (Exception e) {
-                        return "unknown";
-                    }
+    /**
+     * Annotates the user's recent IPs with the country they resolve to.
+     */
+    private UserProfile withLocations(UserProfile profile) {
+        List<String> locations = profile.commonLocations().stream()
+                .map(ip -> {
+                    Location location = ipGeolocationService.locate(ip);
+                    return location != null ? ip + " (" + location.getCountry() + ")" : ip;
                 })
-                .distinct()
                 .toList();
+        return new UserProfile(profile.userId(), profile.typicalAmount(), locations,
+                profile.preferredDevices(), profile.behaviorPatterns(), profile.profileUpdatedAt());
     }
-
-    private Map<String, Object> buildBehaviorPatterns(List<com.sentinelpay.fraudengine.repository.TransactionEntity> transactions) {
-        Map<String, Object> patterns = new HashMap<>();
-
-        if (transactions.isEmpty()) {
-            return patterns;
-        }
-
-        // Calculate transaction frequency
-        long transactionCount = transactions.size();
-        patterns.put("transactionCount", transactionCount);
-        patterns.put("transactionFrequency", transactionCount / 30.0); // per day
-
-        // Calculate risk pattern
-        long highRiskCount = transactions.stream()
-                .filter(t -> t.getRiskScore() != null && t.getRiskScore() > 0.7)
-                .count();
-        patterns.put("highRiskPercentage", (double) highRiskCount / transactionCount * 100);
-
-        // Most common decision
-        Map<String, Long> decisionCounts = transactions.stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        com.sentinelpay.fraudengine.repository.TransactionEntity::getDecision,
-                        java.util.stream.Collectors.counting()
-                ));
-        patterns.put("commonDecision",
-                decisionCounts.entrySet().stream()
-                        .max(Map.Entry.comparingByValue())
-                        .map(Map.Entry::getKey)
-                        .orElse("UNKNOWN")
-        );
-
-        return patterns;
-    }
-}
\ No newline at end of file
+}
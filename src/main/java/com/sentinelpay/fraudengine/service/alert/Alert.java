@@ -0,0 +1,28 @@
+package com.sentinelpay.fraudengine.service.alert;
+
+import com.sentinelpay.fraudengine.repository.TransactionEntity;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One alert-worthy transaction, copied out of the entity so that queued alerts do not
+ * hold on to the feature JSON.
+ */
+public record Alert(
+        UUID transactionId,
+        UUID userId,
+        String merchantId,
+        BigDecimal amount,
+        float riskScore,
+        String decision,
+        AlertSeverity severity,
+        Instant timestamp) {
+
+    public static Alert of(TransactionEntity transaction, AlertSeverity severity) {
+        return new Alert(transaction.getTransactionId(), transaction.getUserId(), transaction.getMerchantId(),
+                transaction.getAmount(), transaction.getRiskScore(), transaction.getDecision(), severity,
+                transaction.getTimestamp() != null ? transaction.getTimestamp() : Instant.now());
+    }
+}
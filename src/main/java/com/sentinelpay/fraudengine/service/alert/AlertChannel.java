@@ -0,0 +1,9 @@
+package com.sentinelpay.fraudengine.service.alert;
+
+/**
+ * Outbound destinations for fraud alerts, each rate-limited on its own.
+ */
+public enum AlertChannel {
+    SLACK,
+    EMAIL
+}
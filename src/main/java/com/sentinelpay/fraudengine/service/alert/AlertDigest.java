@@ -0,0 +1,28 @@
+package com.sentinelpay.fraudengine.service.alert;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Alerts of one severity for the same user or merchant within one coalescing window,
+ * sent as a single message. A digest a channel could not take yet also covers the windows
+ * it was carried over through. Only the riskiest few alerts are kept as samples.
+ *
+ * @param groupBy "user" or "merchant"
+ */
+public record AlertDigest(
+        AlertSeverity severity,
+        String groupBy,
+        String key,
+        int count,
+        float maxRiskScore,
+        BigDecimal totalAmount,
+        Instant firstAt,
+        Instant lastAt,
+        List<Alert> samples) {
+
+    public boolean isSingle() {
+        return count == 1;
+    }
+}
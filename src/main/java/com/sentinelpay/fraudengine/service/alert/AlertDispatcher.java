@@ -0,0 +1,297 @@
+package com.sentinelpay.fraudengine.service.alert;
+
+import com.sentinelpay.fraudengine.repository.TransactionEntity;
+import com.sentinelpay.fraudengine.service.AlertService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decouples fraud alerting from scoring.
+ *
+ * <p>Scoring only offers an alert to a bounded queue, which never blocks; when the queue is
+ * full the alert is dropped and counted. Every coalescing window the queue is drained and
+ * alerts are grouped per severity and user into digests. A merchant seen across many users
+ * in the same window gets one merchant digest instead. Digests are sent highest risk first,
+ * each channel limited to a number of messages per minute, with retries and backoff on
+ * transient failures and a cap on sends in flight. A digest that a channel cannot take
+ * because of its limit or the cap is carried over and merged into that channel's next
+ * flush, up to a bounded number per channel. An attack wave therefore turns into a
+ * handful of messages rather than thousands of outbound requests, without losing alerts.
+ */
+@Service
+public class AlertDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(AlertDispatcher.class);
+
+    private static final int MAX_SAMPLES = 5;
+
+    private static final Comparator<AlertDigest> PRIORITY = Comparator.comparing(AlertDigest::severity)
+            .thenComparing(AlertDigest::maxRiskScore, Comparator.reverseOrder());
+
+    private final AlertService alertService;
+    private final BlockingQueue<Alert> queue;
+    private final int merchantDigestThreshold;
+    private final int maxInFlight;
+    private final int maxDeferred;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration sendTimeout;
+    private final Map<AlertChannel, Integer> perMinuteLimits = new EnumMap<>(AlertChannel.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger deferredDigests = new AtomicInteger();
+
+    // Only touched by the flush, which never runs concurrently with itself
+    private final Map<AlertChannel, Integer> sentThisMinute = new EnumMap<>(AlertChannel.class);
+    private final Map<AlertChannel, Map<GroupKey, AlertDigest>> deferred = new EnumMap<>(AlertChannel.class);
+    private long currentMinute;
+
+    private final Counter droppedQueueFull;
+    private final Map<AlertChannel, Counter> deferredRateLimited = new EnumMap<>(AlertChannel.class);
+    private final Map<AlertChannel, Counter> deferredBackpressure = new EnumMap<>(AlertChannel.class);
+    private final Map<AlertChannel, Counter> droppedDeferredFull = new EnumMap<>(AlertChannel.class);
+    private final Map<AlertChannel, Counter> sent = new EnumMap<>(AlertChannel.class);
+    private final Map<AlertChannel, Counter> failed = new EnumMap<>(AlertChannel.class);
+    private final Counter coalesced;
+
+    public AlertDispatcher(
+            AlertService alertService,
+            MeterRegistry meterRegistry,
+            @Value("${alerts.queue-capacity:10000}") int queueCapacity,
+            @Value("${alerts.merchant-digest-threshold:5}") int merchantDigestThreshold,
+            @Value("${alerts.max-in-flight:16}") int maxInFlight,
+            @Value("${alerts.max-deferred-digests:1000}") int maxDeferred,
+            @Value("${alerts.retry.max-attempts:3}") int maxAttempts,
+            @Value("${alerts.retry.backoff-ms:500}") long backoffMillis,
+            @Value("${alerts.send-timeout-ms:10000}") long sendTimeoutMillis,
+            @Value("${alerts.rate-limit.slack-per-minute:30}") int slackPerMinute,
+            @Value("${alerts.rate-limit.email-per-minute:10}") int emailPerMinute) {
+        this.alertService = alertService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.merchantDigestThreshold = merchantDigestThreshold;
+        this.maxInFlight = maxInFlight;
+        this.maxDeferred = maxDeferred;
+        this.maxAttempts = maxAttempts;
+        this.backoff = Duration.ofMillis(backoffMillis);
+        this.sendTimeout = Duration.ofMillis(sendTimeoutMillis);
+        perMinuteLimits.put(AlertChannel.SLACK, slackPerMinute);
+        perMinuteLimits.put(AlertChannel.EMAIL, emailPerMinute);
+
+        this.droppedQueueFull = meterRegistry.counter("alerts.dropped", "reason", "queue_full", "channel", "none");
+        for (AlertChannel channel : AlertChannel.values()) {
+            String name = channel.name().toLowerCase();
+            deferredRateLimited.put(channel, meterRegistry.counter("alerts.deferred", "reason", "rate_limited", "channel", name));
+            deferredBackpressure.put(channel, meterRegistry.counter("alerts.deferred", "reason", "in_flight", "channel", name));
+            droppedDeferredFull.put(channel, meterRegistry.counter("alerts.dropped", "reason", "deferred_full", "channel", name));
+            sent.put(channel, meterRegistry.counter("alerts.sent", "channel", name));
+            failed.put(channel, meterRegistry.counter("alerts.failed", "channel", name));
+        }
+        this.coalesced = meterRegistry.counter("alerts.coalesced");
+        Gauge.builder("alerts.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("alerts.in.flight", inFlight, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("alerts.deferred.digests", deferredDigests, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Queues an alert for the transaction if its risk warrants one. Never blocks.
+     */
+    public void submit(TransactionEntity transaction) {
+        if (transaction.getRiskScore() == null) {
+            return;
+        }
+        AlertSeverity severity = AlertSeverity.of(transaction.getRiskScore());
+        if (severity == null) {
+            return;
+        }
+        Alert alert = Alert.of(transaction, severity);
+        alertService.logToSecuritySystem(alert);
+        if (!queue.offer(alert)) {
+            droppedQueueFull.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${alerts.coalesce-window-ms:5000}", initialDelayString = "${alerts.coalesce-window-ms:5000}")
+    public void flush() {
+        List<Alert> drained = new ArrayList<>(queue.size());
+        queue.drainTo(drained);
+        if (drained.isEmpty() && deferred.isEmpty()) {
+            return;
+        }
+        List<AlertDigest> digests = coalesce(drained);
+        coalesced.increment(drained.size() - digests.size());
+
+        long minute = System.currentTimeMillis() / 60_000;
+        if (minute != currentMinute) {
+            currentMinute = minute;
+            sentThisMinute.clear();
+        }
+
+        // Digests carried over from earlier windows absorb this window's alerts for the same group
+        Map<AlertChannel, Map<GroupKey, AlertDigest>> pending = new EnumMap<>(deferred);
+        deferred.clear();
+        for (AlertDigest digest : digests) {
+            for (AlertChannel channel : digest.severity().channels()) {
+                if (alertService.isConfigured(channel)) {
+                    pending.computeIfAbsent(channel, c -> new LinkedHashMap<>())
+                            .merge(GroupKey.of(digest), digest, AlertDispatcher::merge);
+                }
+            }
+        }
+        List<Map.Entry<AlertChannel, AlertDigest>> queued = new ArrayList<>();
+        pending.forEach((channel, byGroup) -> byGroup.values().forEach(digest -> queued.add(Map.entry(channel, digest))));
+        queued.sort(Map.Entry.comparingByValue(PRIORITY));
+
+        List<Mono<Void>> sends = new ArrayList<>();
+        for (Map.Entry<AlertChannel, AlertDigest> entry : queued) {
+            AlertChannel channel = entry.getKey();
+            AlertDigest digest = entry.getValue();
+            int used = sentThisMinute.getOrDefault(channel, 0);
+            if (used >= perMinuteLimits.get(channel)) {
+                defer(channel, digest, deferredRateLimited);
+                continue;
+            }
+            if (inFlight.get() + sends.size() >= maxInFlight) {
+                defer(channel, digest, deferredBackpressure);
+                continue;
+            }
+            sentThisMinute.put(channel, used + 1);
+            sends.add(send(channel, digest));
+        }
+        deferredDigests.set(deferred.values().stream().mapToInt(Map::size).sum());
+        Flux.merge(sends).subscribe();
+    }
+
+    // Digests arrive highest priority first, so once a channel's carry-over is full the rest are the least urgent
+    private void defer(AlertChannel channel, AlertDigest digest, Map<AlertChannel, Counter> reason) {
+        Map<GroupKey, AlertDigest> byGroup = deferred.computeIfAbsent(channel, c -> new LinkedHashMap<>());
+        if (byGroup.size() >= maxDeferred) {
+            droppedDeferredFull.get(channel).increment();
+            return;
+        }
+        byGroup.put(GroupKey.of(digest), digest);
+        reason.get(channel).increment();
+    }
+
+    /**
+     * Groups alerts into digests, highest severity and risk first.
+     */
+    List<AlertDigest> coalesce(List<Alert> alerts) {
+        // Merchants hit through many distinct users in this window are reported once
+        Map<AlertSeverity, Map<String, Set<UUID>>> usersByMerchant = new EnumMap<>(AlertSeverity.class);
+        for (Alert alert : alerts) {
+            usersByMerchant.computeIfAbsent(alert.severity(), s -> new HashMap<>())
+                    .computeIfAbsent(alert.merchantId(), m -> new HashSet<>())
+                    .add(alert.userId());
+        }
+
+        Map<GroupKey, List<Alert>> groups = new LinkedHashMap<>();
+        for (Alert alert : alerts) {
+            boolean byMerchant = alert.merchantId() != null
+                    && usersByMerchant.get(alert.severity()).get(alert.merchantId()).size() >= merchantDigestThreshold;
+            GroupKey key = byMerchant
+                    ? new GroupKey(alert.severity(), "merchant", alert.merchantId())
+                    : new GroupKey(alert.severity(), "user", String.valueOf(alert.userId()));
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(alert);
+        }
+
+        List<AlertDigest> digests = new ArrayList<>(groups.size());
+        groups.forEach((key, group) -> digests.add(digest(key, group)));
+        digests.sort(PRIORITY);
+        return digests;
+    }
+
+    private record GroupKey(AlertSeverity severity, String groupBy, String key) {
+        static GroupKey of(AlertDigest digest) {
+            return new GroupKey(digest.severity(), digest.groupBy(), digest.key());
+        }
+    }
+
+    private static AlertDigest digest(GroupKey key, List<Alert> alerts) {
+        float maxRisk = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        Alert first = alerts.get(0);
+        Alert last = first;
+        for (Alert alert : alerts) {
+            maxRisk = Math.max(maxRisk, alert.riskScore());
+            if (alert.amount() != null) {
+                total = total.add(alert.amount());
+            }
+            if (alert.timestamp().isBefore(first.timestamp())) {
+                first = alert;
+            }
+            if (alert.timestamp().isAfter(last.timestamp())) {
+                last = alert;
+            }
+        }
+        List<Alert> samples = alerts.stream()
+                .sorted(Comparator.comparing(Alert::riskScore).reversed())
+                .limit(MAX_SAMPLES)
+                .toList();
+        return new AlertDigest(key.severity(), key.groupBy(), key.key(), alerts.size(), maxRisk, total,
+                first.timestamp(), last.timestamp(), samples);
+    }
+
+    private static AlertDigest merge(AlertDigest earlier, AlertDigest later) {
+        List<Alert> samples = new ArrayList<>(earlier.samples());
+        samples.addAll(later.samples());
+        samples.sort(Comparator.comparing(Alert::riskScore).reversed());
+        return new AlertDigest(earlier.severity(), earlier.groupBy(), earlier.key(),
+                earlier.count() + later.count(),
+                Math.max(earlier.maxRiskScore(), later.maxRiskScore()),
+                earlier.totalAmount().add(later.totalAmount()),
+                earlier.firstAt().isBefore(later.firstAt()) ? earlier.firstAt() : later.firstAt(),
+                earlier.lastAt().isAfter(later.lastAt()) ? earlier.lastAt() : later.lastAt(),
+                List.copyOf(samples.subList(0, Math.min(MAX_SAMPLES, samples.size()))));
+    }
+
+    private Mono<Void> send(AlertChannel channel, AlertDigest digest) {
+        return Mono.defer(() -> {
+                    inFlight.incrementAndGet();
+                    return alertService.send(channel, digest)
+                            .timeout(sendTimeout)
+                            .retryWhen(Retry.backoff(Math.max(0, maxAttempts - 1), backoff).filter(AlertDispatcher::isTransient))
+                            .doFinally(signal -> inFlight.decrementAndGet());
+                })
+                .doOnSuccess(ignored -> sent.get(channel).increment())
+                .onErrorResume(error -> {
+                    failed.get(channel).increment();
+                    logger.error("Failed to send {} alert for {} {} after {} attempts: {}",
+                            channel, digest.groupBy(), digest.key(), maxAttempts, error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    // Client errors other than 429 will fail the same way on every attempt
+    private static boolean isTransient(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError()
+                    || response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,54 @@
+package com.sentinelpay.fraudengine.service.alert;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Alert levels by risk score and the channels each one goes to.
+ */
+public enum AlertSeverity {
+    HIGH(0.8, "🔴 HIGH RISK", "HIGH_RISK", "danger", EnumSet.of(AlertChannel.SLACK, AlertChannel.EMAIL)),
+    MEDIUM(0.6, "🟡 MEDIUM RISK", "MEDIUM_RISK", "warning", EnumSet.of(AlertChannel.SLACK));
+
+    private final double threshold;
+    private final String label;
+    private final String code;
+    private final String colour;
+    private final Set<AlertChannel> channels;
+
+    AlertSeverity(double threshold, String label, String code, String colour, Set<AlertChannel> channels) {
+        this.threshold = threshold;
+        this.label = label;
+        this.code = code;
+        this.colour = colour;
+        this.channels = channels;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public String code() {
+        return code;
+    }
+
+    public String colour() {
+        return colour;
+    }
+
+    public Set<AlertChannel> channels() {
+        return channels;
+    }
+
+    /**
+     * The severity for a risk score, or null if it does not warrant an alert.
+     */
+    public static AlertSeverity of(double riskScore) {
+        for (AlertSeverity severity : values()) {
+            if (riskScore > severity.threshold) {
+                return severity;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,87 @@
+package com.sentinelpay.fraudengine.service.denylist;
+
+/**
+ * 128-bit MurmurHash3 (x64 variant) of a normalised value, seeded by its type. The two
+ * halves drive the Bloom filter's double hashing and together form the exact key.
+ *
+ * <p>Hashes the string's UTF-16 code units directly so lookups on the scoring path do
+ * not encode the value to bytes first.
+ */
+record DenylistHash(long h1, long h2) {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    static DenylistHash of(DenylistType type, String value) {
+        long h1 = 0x9e3779b97f4a7c15L * (type.ordinal() + 1);
+        long h2 = h1;
+        int length = value.length();
+        int blocks = length / 8;
+
+        for (int b = 0; b < blocks; b++) {
+            int i = b * 8;
+            long k1 = chars(value, i, 4);
+            long k2 = chars(value, i + 4, 4);
+
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int tail = length - blocks * 8;
+        if (tail > 0) {
+            int i = blocks * 8;
+            long k1 = chars(value, i, Math.min(tail, 4));
+            if (tail > 4) {
+                long k2 = chars(value, i + 4, tail - 4);
+                k2 *= C2;
+                k2 = Long.rotateLeft(k2, 33);
+                k2 *= C1;
+                h2 ^= k2;
+            }
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+
+        h1 ^= length * 2L;
+        h2 ^= length * 2L;
+        h1 += h2;
+        h2 += h1;
+        h1 = mix(h1);
+        h2 = mix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new DenylistHash(h1, h2);
+    }
+
+    private static long chars(String value, int offset, int count) {
+        long k = 0;
+        for (int j = 0; j < count; j++) {
+            k |= (long) value.charAt(offset + j) << (16 * j);
+        }
+        return k;
+    }
+
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb34e53a87e9L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
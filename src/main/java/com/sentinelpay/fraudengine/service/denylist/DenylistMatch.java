@@ -0,0 +1,7 @@
+package com.sentinelpay.fraudengine.service.denylist;
+
+/**
+ * The first denylisted entity found on a transaction.
+ */
+public record DenylistMatch(DenylistType type, String value) {
+}
@@ -0,0 +1,238 @@
+package com.sentinelpay.fraudengine.service.denylist;
+
+import com.sentinelpay.fraudengine.dto.DenylistStatus;
+import com.sentinelpay.fraudengine.repository.DenylistEntryRepository;
+import com.sentinelpay.fraudengine.service.feature.TransactionContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Blocks transactions from denylisted users, devices, IPs and merchants before any
+ * scoring work is done.
+ *
+ * <p>Entries come from one file per type in the denylist directory and from the
+ * {@code denylist_entries} table. Both are compiled into a {@link DenylistSnapshot} in
+ * the background and swapped in atomically, so lookups never wait on a rebuild. Admin
+ * changes are written to the table and also kept in a small overlay that takes effect
+ * at once; an overlay entry is dropped by the first rebuild that started after it, which
+ * has then picked it up from the table. Entries from the files can only be removed by
+ * editing the files.
+ */
+@Service
+public class DenylistService {
+    private static final Logger logger = LoggerFactory.getLogger(DenylistService.class);
+
+    private final DenylistEntryRepository repository;
+    private final Path directory;
+    private final double falsePositiveRate;
+
+    private volatile DenylistSnapshot snapshot = DenylistSnapshot.EMPTY;
+    private final Map<OverlayKey, OverlayEntry> overlay = new ConcurrentHashMap<>();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final Map<DenylistType, Counter> hits = new EnumMap<>(DenylistType.class);
+    private final Counter bloomFalsePositives;
+
+    public DenylistService(
+            DenylistEntryRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${denylist.directory:data/denylist}") String directory,
+            @Value("${denylist.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.repository = repository;
+        this.directory = Paths.get(directory);
+        this.falsePositiveRate = falsePositiveRate;
+
+        for (DenylistType type : DenylistType.values()) {
+            hits.put(type, meterRegistry.counter("denylist.hits", "type", type.name()));
+        }
+        this.bloomFalsePositives = meterRegistry.counter("denylist.bloom.false.positives");
+        Gauge.builder("denylist.entries", this, service -> service.snapshot.size()).register(meterRegistry);
+        Gauge.builder("denylist.offheap.bytes", this, service -> service.snapshot.offHeapBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void initialBuild() {
+        rebuild().subscribe();
+    }
+
+    @Scheduled(fixedDelayString = "${denylist.rebuild-interval-ms:300000}", initialDelayString = "${denylist.rebuild-interval-ms:300000}")
+    public void scheduledRebuild() {
+        rebuild().subscribe();
+    }
+
+    /**
+     * Checks the transaction's user, device, IP and merchant in that order.
+     */
+    public Optional<DenylistMatch> match(TransactionContext context) {
+        if (isListed(DenylistType.USER, context.request().userId())) {
+            return hit(DenylistType.USER, context.request().userId());
+        }
+        String deviceId = context.deviceId();
+        if (isListed(DenylistType.DEVICE, deviceId)) {
+            return hit(DenylistType.DEVICE, deviceId);
+        }
+        if (isListed(DenylistType.IP, context.request().ipAddress())) {
+            return hit(DenylistType.IP, context.request().ipAddress());
+        }
+        if (isListed(DenylistType.MERCHANT, context.request().merchantId())) {
+            return hit(DenylistType.MERCHANT, context.request().merchantId());
+        }
+        return Optional.empty();
+    }
+
+    public boolean isListed(DenylistType type, String value) {
+        if (value == null) {
+            return false;
+        }
+        String normalised = type.normalise(value);
+        if (!overlay.isEmpty()) {
+            OverlayEntry pending = overlay.get(new OverlayKey(type, normalised));
+            if (pending != null) {
+                return pending.listed();
+            }
+        }
+
+        DenylistSnapshot current = snapshot;
+        DenylistHash hash = DenylistHash.of(type, normalised);
+        if (!current.mightContain(hash)) {
+            return false;
+        }
+        if (current.containsExact(hash)) {
+            return true;
+        }
+        bloomFalsePositives.increment();
+        return false;
+    }
+
+    public Mono<DenylistStatus> add(DenylistType type, List<String> values, String reason) {
+        return Flux.fromIterable(values)
+                .map(type::normalise)
+                .filter(value -> !value.isEmpty())
+                .concatMap(value -> repository.upsert(UUID.randomUUID(), type.name(), value, reason, Instant.now())
+                        .doOnSuccess(updated -> overlay.put(new OverlayKey(type, value),
+                                new OverlayEntry(true, System.currentTimeMillis()))))
+                .then(Mono.fromCallable(this::status));
+    }
+
+    public Mono<DenylistStatus> remove(DenylistType type, String value) {
+        String normalised = type.normalise(value);
+        return repository.deleteByTypeAndValue(type.name(), normalised)
+                .doOnSuccess(deleted -> overlay.put(new OverlayKey(type, normalised),
+                        new OverlayEntry(false, System.currentTimeMillis())))
+                .then(Mono.fromCallable(this::status));
+    }
+
+    /**
+     * Compiles the files and the table into a new snapshot and swaps it in. Returns the
+     * current status without starting another build if one is already running; a failed
+     * build keeps the previous snapshot.
+     */
+    public Mono<DenylistStatus> rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return Mono.fromCallable(this::status);
+        }
+        long startedAt = System.currentTimeMillis();
+        DenylistSnapshot.Builder builder = new DenylistSnapshot.Builder();
+
+        return Mono.fromRunnable(() -> loadFiles(builder))
+                .subscribeOn(Schedulers.boundedElastic())
+                .thenMany(repository.findAll())
+                .doOnNext(entry -> addEntry(builder, entry.getEntryType(), entry.getValue()))
+                .then(Mono.fromCallable(() -> builder.build(falsePositiveRate))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .map(built -> {
+                    snapshot = built;
+                    overlay.values().removeIf(entry -> entry.changedAtMillis() < startedAt);
+                    logger.info("Denylist rebuilt with {} entries in {}ms", built.size(), System.currentTimeMillis() - startedAt);
+                    return status();
+                })
+                .onErrorResume(error -> {
+                    logger.warn("Denylist rebuild failed, keeping the previous list: {}", error.getMessage());
+                    return Mono.fromCallable(this::status);
+                })
+                .doFinally(signal -> rebuilding.set(false));
+    }
+
+    public DenylistStatus status() {
+        DenylistSnapshot current = snapshot;
+        Map<String, Integer> byType = new LinkedHashMap<>();
+        for (DenylistType type : DenylistType.values()) {
+            byType.put(type.name(), current.count(type));
+        }
+        return new DenylistStatus(
+                current.size(),
+                byType,
+                overlay.size(),
+                current.bloomBytes(),
+                current.offHeapBytes(),
+                Instant.ofEpochMilli(current.builtAtMillis()),
+                rebuilding.get()
+        );
+    }
+
+    private Optional<DenylistMatch> hit(DenylistType type, String value) {
+        hits.get(type).increment();
+        return Optional.of(new DenylistMatch(type, value));
+    }
+
+    private void loadFiles(DenylistSnapshot.Builder builder) {
+        for (DenylistType type : DenylistType.values()) {
+            Path file = directory.resolve(type.fileName());
+            if (!Files.isRegularFile(file)) {
+                continue;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank() && !line.startsWith("#")) {
+                        builder.add(type, line);
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read denylist file " + file, e);
+            }
+        }
+    }
+
+    private void addEntry(DenylistSnapshot.Builder builder, String type, String value) {
+        try {
+            builder.add(DenylistType.parse(type), value);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Skipping denylist entry with unknown type {}", type);
+        }
+    }
+
+    private record OverlayKey(DenylistType type, String value) {
+    }
+
+    private record OverlayEntry(boolean listed, long changedAtMillis) {
+    }
+}
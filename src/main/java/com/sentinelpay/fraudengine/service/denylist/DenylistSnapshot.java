@@ -0,0 +1,229 @@
+package com.sentinelpay.fraudengine.service.denylist;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Immutable denylist built in the background and swapped in whole. Every entry is a
+ * 128-bit hash of its type and normalised value.
+ *
+ * <p>A blocked Bloom filter on the heap answers the common case, a value that is not
+ * listed: all of a key's bits sit in one 64-byte block, so a negative costs a single
+ * cache miss and no division. Positives are confirmed against the sorted hashes in a
+ * direct buffer, 16 bytes per entry outside the Java heap, so millions of entries add
+ * nothing to GC work. The buffer is released with the snapshot once it is swapped out.
+ */
+final class DenylistSnapshot {
+
+    static final DenylistSnapshot EMPTY = new Builder().build(0.001);
+
+    private static final int BLOCK_LONGS = 8;
+
+    private final long[] bloom;
+    private final long blockCount;
+    private final int hashCount;
+    private final ByteBuffer hashes;
+    private final int size;
+    private final int[] countsByType;
+    private final long builtAtMillis;
+
+    private DenylistSnapshot(long[] bloom, int hashCount, ByteBuffer hashes, int size, int[] countsByType) {
+        this.bloom = bloom;
+        this.blockCount = bloom.length / BLOCK_LONGS;
+        this.hashCount = hashCount;
+        this.hashes = hashes;
+        this.size = size;
+        this.countsByType = countsByType;
+        this.builtAtMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Bloom filter only; false means the value is certainly not listed.
+     */
+    boolean mightContain(DenylistHash hash) {
+        int base = blockOf(hash.h1(), blockCount);
+        long combined = hash.h1() << 32;
+        for (int i = 0; i < hashCount; i++) {
+            combined += hash.h2();
+            int bit = (int) (combined >>> 55);
+            if ((bloom[base + (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Exact membership by binary search over the sorted hashes.
+     */
+    boolean containsExact(DenylistHash hash) {
+        long h1 = hash.h1();
+        long h2 = hash.h2();
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(hashes.getLong(mid * 16), hashes.getLong(mid * 16 + 8), h1, h2);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int count(DenylistType type) {
+        return countsByType[type.ordinal()];
+    }
+
+    long bloomBytes() {
+        return (long) bloom.length * Long.BYTES;
+    }
+
+    long offHeapBytes() {
+        return hashes.capacity();
+    }
+
+    long builtAtMillis() {
+        return builtAtMillis;
+    }
+
+    /**
+     * First word of the key's block, from the high half of h1 by multiply-shift. The bit
+     * positions inside the block are derived from the low half so the two are independent.
+     */
+    private static int blockOf(long h1, long blockCount) {
+        return (int) (((h1 >>> 32) * blockCount) >>> 32) * BLOCK_LONGS;
+    }
+
+    private static int compare(long a1, long a2, long b1, long b2) {
+        int cmp = Long.compareUnsigned(a1, b1);
+        return cmp != 0 ? cmp : Long.compareUnsigned(a2, b2);
+    }
+
+    /**
+     * Collects entry hashes from any number of sources. Not thread-safe; a rebuild feeds
+     * it from one thread at a time.
+     */
+    static final class Builder {
+        private long[] pairs = new long[2 * 1024];
+        // Type of each pair, kept in step with it so that the counts can be taken after dedup
+        private byte[] types = new byte[1024];
+        private int count;
+
+        void add(DenylistType type, String value) {
+            String normalised = type.normalise(value);
+            if (normalised.isEmpty()) {
+                return;
+            }
+            if (count == types.length) {
+                pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                types = Arrays.copyOf(types, types.length * 2);
+            }
+            DenylistHash hash = DenylistHash.of(type, normalised);
+            pairs[2 * count] = hash.h1();
+            pairs[2 * count + 1] = hash.h2();
+            types[count] = (byte) type.ordinal();
+            count++;
+        }
+
+        int count() {
+            return count;
+        }
+
+        DenylistSnapshot build(double falsePositiveRate) {
+            heapSort(pairs, types, count);
+            int unique = 0;
+            int[] countsByType = new int[DenylistType.values().length];
+            for (int i = 0; i < count; i++) {
+                if (unique == 0 || compare(pairs[2 * i], pairs[2 * i + 1], pairs[2 * unique - 2], pairs[2 * unique - 1]) != 0) {
+                    pairs[2 * unique] = pairs[2 * i];
+                    pairs[2 * unique + 1] = pairs[2 * i + 1];
+                    countsByType[types[i]]++;
+                    unique++;
+                }
+            }
+
+            // Standard sizing, m = -n ln p / (ln 2)^2 bits and k = m/n ln 2 hash functions,
+            // plus a quarter more bits to make up for the uneven load of blocking
+            int expected = Math.max(unique, 1024);
+            double bitsPerKey = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+            long blockCount = (long) Math.ceil(expected * bitsPerKey * 1.25 / (BLOCK_LONGS * Long.SIZE));
+            long[] bloom = new long[(int) (blockCount * BLOCK_LONGS)];
+            int hashCount = Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+
+            ByteBuffer hashes = ByteBuffer.allocateDirect(Math.max(16, unique * 16)).order(ByteOrder.nativeOrder());
+            for (int i = 0; i < unique; i++) {
+                long h1 = pairs[2 * i];
+                long h2 = pairs[2 * i + 1];
+                hashes.putLong(i * 16, h1);
+                hashes.putLong(i * 16 + 8, h2);
+                int base = blockOf(h1, blockCount);
+                long combined = h1 << 32;
+                for (int k = 0; k < hashCount; k++) {
+                    combined += h2;
+                    int bit = (int) (combined >>> 55);
+                    bloom[base + (bit >>> 6)] |= 1L << bit;
+                }
+            }
+            return new DenylistSnapshot(bloom, hashCount, hashes, unique, countsByType);
+        }
+
+        /**
+         * In-place heap sort of {@code n} (h1, h2) pairs stored flat, and their types with
+         * them, so that building a list of millions of entries needs no boxing or index arrays.
+         */
+        private static void heapSort(long[] pairs, byte[] types, int n) {
+            for (int i = n / 2 - 1; i >= 0; i--) {
+                siftDown(pairs, types, i, n);
+            }
+            for (int end = n - 1; end > 0; end--) {
+                swap(pairs, types, 0, end);
+                siftDown(pairs, types, 0, end);
+            }
+        }
+
+        private static void siftDown(long[] pairs, byte[] types, int i, int n) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < n && greater(pairs, left, largest)) {
+                    largest = left;
+                }
+                if (right < n && greater(pairs, right, largest)) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(pairs, types, i, largest);
+                i = largest;
+            }
+        }
+
+        private static boolean greater(long[] pairs, int a, int b) {
+            return compare(pairs[2 * a], pairs[2 * a + 1], pairs[2 * b], pairs[2 * b + 1]) > 0;
+        }
+
+        private static void swap(long[] pairs, byte[] types, int a, int b) {
+            long h1 = pairs[2 * a];
+            long h2 = pairs[2 * a + 1];
+            pairs[2 * a] = pairs[2 * b];
+            pairs[2 * a + 1] = pairs[2 * b + 1];
+            pairs[2 * b] = h1;
+            pairs[2 * b + 1] = h2;
+            byte type = types[a];
+            types[a] = types[b];
+            types[b] = type;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.sentinelpay.fraudengine.service.denylist;
+
+import java.util.Locale;
+
+/**
+ * Kinds of entity that can be denylisted. The file name is the list's source file in the
+ * denylist directory; the prefix keeps equal values of different kinds apart in the hash.
+ */
+public enum DenylistType {
+    USER("users.txt"),
+    DEVICE("devices.txt"),
+    IP("ips.txt"),
+    MERCHANT("merchants.txt");
+
+    private final String fileName;
+
+    DenylistType(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String fileName() {
+        return fileName;
+    }
+
+    public static DenylistType parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Values are matched case-insensitively and without surrounding whitespace.
+     */
+    public String normalise(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
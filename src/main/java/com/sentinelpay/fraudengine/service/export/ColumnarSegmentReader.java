@@ -0,0 +1,179 @@
+package com.sentinelpay.fraudengine.service.export;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads segment files produced by {@link ColumnarSegmentWriter} one row group at a
+ * time. Column data stays compressed until a column is requested.
+ */
+public class ColumnarSegmentReader implements Closeable {
+
+    private final DataInputStream in;
+    private boolean finished;
+
+    private ColumnarSegmentReader(DataInputStream in) {
+        this.in = in;
+    }
+
+    public static ColumnarSegmentReader open(Path path) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024));
+        if (in.readInt() != ColumnarSegmentWriter.MAGIC) {
+            in.close();
+            throw new IOException("Not a transaction segment file: " + path);
+        }
+        short version = in.readShort();
+        if (version != ColumnarSegmentWriter.VERSION) {
+            in.close();
+            throw new IOException("Unsupported segment version " + version + " in " + path);
+        }
+        return new ColumnarSegmentReader(in);
+    }
+
+    /**
+     * Returns the next row group, or null once the segment is exhausted.
+     */
+    public RowGroup next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        int rows = in.readInt();
+        if (rows == 0) {
+            finished = true;
+            return null;
+        }
+
+        int columnCount = in.readInt();
+        Map<String, Column> columns = new LinkedHashMap<>();
+        for (int i = 0; i < columnCount; i++) {
+            String name = in.readUTF();
+            byte type = in.readByte();
+            int rawLength = in.readInt();
+            byte[] compressed = new byte[in.readInt()];
+            in.readFully(compressed);
+            columns.put(name, new Column(type, rawLength, compressed));
+        }
+        return new RowGroup(rows, columns);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private record Column(byte type, int rawLength, byte[] compressed) {
+
+        ByteBuffer inflate() {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                byte[] raw = new byte[rawLength];
+                int offset = 0;
+                while (offset < rawLength && !inflater.finished()) {
+                    offset += inflater.inflate(raw, offset, rawLength - offset);
+                }
+                return ByteBuffer.wrap(raw);
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt column data", e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    public static final class RowGroup {
+        private final int rowCount;
+        private final Map<String, Column> columns;
+
+        private RowGroup(int rowCount, Map<String, Column> columns) {
+            this.rowCount = rowCount;
+            this.columns = columns;
+        }
+
+        public int rowCount() {
+            return rowCount;
+        }
+
+        public Set<String> columns() {
+            return Collections.unmodifiableSet(columns.keySet());
+        }
+
+        public boolean isNumeric(String name) {
+            Column column = columns.get(name);
+            return column != null && column.type() != ColumnarSegmentWriter.TYPE_STRING;
+        }
+
+        /**
+         * Numeric column as doubles; missing values and absent columns read as NaN.
+         */
+        public double[] doubles(String name) {
+            double[] values = new double[rowCount];
+            Column column = columns.get(name);
+            if (column == null || column.type() == ColumnarSegmentWriter.TYPE_STRING) {
+                Arrays.fill(values, Double.NaN);
+                return values;
+            }
+            ByteBuffer data = column.inflate();
+            for (int i = 0; i < rowCount; i++) {
+                if (column.type() == ColumnarSegmentWriter.TYPE_LONG) {
+                    long value = data.getLong();
+                    values[i] = value == ColumnarSegmentWriter.NULL_LONG ? Double.NaN : value;
+                } else {
+                    values[i] = data.getDouble();
+                }
+            }
+            return values;
+        }
+
+        /**
+         * Integral column; missing values read as {@link Long#MIN_VALUE}.
+         */
+        public long[] longs(String name) {
+            long[] values = new long[rowCount];
+            Column column = columns.get(name);
+            if (column == null || column.type() != ColumnarSegmentWriter.TYPE_LONG) {
+                Arrays.fill(values, ColumnarSegmentWriter.NULL_LONG);
+                return values;
+            }
+            column.inflate().asLongBuffer().get(values);
+            return values;
+        }
+
+        public String[] strings(String name) {
+            String[] values = new String[rowCount];
+            Column column = columns.get(name);
+            if (column == null) {
+                return values;
+            }
+            if (column.type() != ColumnarSegmentWriter.TYPE_STRING) {
+                double[] numbers = doubles(name);
+                for (int i = 0; i < rowCount; i++) {
+                    values[i] = Double.isNaN(numbers[i]) ? null : String.valueOf(numbers[i]);
+                }
+                return values;
+            }
+            ByteBuffer data = column.inflate();
+            for (int i = 0; i < rowCount; i++) {
+                int length = data.getInt();
+                if (length >= 0) {
+                    values[i] = new String(data.array(), data.position(), length, StandardCharsets.UTF_8);
+                    data.position(data.position() + length);
+                }
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.sentinelpay.fraudengine.service.export;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Writes rows into a column-oriented segment file. Rows are buffered into row
+ * groups; each column of a row group is encoded contiguously and deflated on its
+ * own, so readers only inflate the columns they ask for.
+ *
+ * <pre>
+ * file      := MAGIC version:short rowGroup* end:int(0)
+ * rowGroup  := rows:int columns:int column*
+ * column    := name:utf type:byte rawLength:int compressedLength:int bytes
+ * </pre>
+ */
+public class ColumnarSegmentWriter implements Closeable {
+
+    static final int MAGIC = 0x53504353; // "SPCS"
+    static final short VERSION = 1;
+
+    static final byte TYPE_LONG = 1;
+    static final byte TYPE_DOUBLE = 2;
+    static final byte TYPE_STRING = 3;
+
+    static final long NULL_LONG = Long.MIN_VALUE;
+
+    private final DataOutputStream out;
+    private final int rowGroupSize;
+    private final List<Map<String, Object>> buffer;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private long rowsWritten;
+
+    public ColumnarSegmentWriter(Path path, int rowGroupSize) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024));
+        this.rowGroupSize = rowGroupSize;
+        this.buffer = new ArrayList<>(rowGroupSize);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    /**
+     * Appends one row. Values must be {@link Number}, {@link String} or null.
+     */
+    public void append(Map<String, Object> row) throws IOException {
+        buffer.add(row);
+        if (buffer.size() >= rowGroupSize) {
+            flushRowGroup();
+        }
+    }
+
+    public long rowsWritten() {
+        return rowsWritten + buffer.size();
+    }
+
+    private void flushRowGroup() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        Set<String> columns = new LinkedHashSet<>();
+        for (Map<String, Object> row : buffer) {
+            columns.addAll(row.keySet());
+        }
+
+        out.writeInt(buffer.size());
+        out.writeInt(columns.size());
+        for (String column : columns) {
+            byte type = columnType(column);
+            byte[] raw = encodeColumn(column, type);
+            byte[] compressed = deflate(raw);
+
+            out.writeUTF(column);
+            out.writeByte(type);
+            out.writeInt(raw.length);
+            out.writeInt(compressed.length);
+            out.write(compressed);
+        }
+
+        rowsWritten += buffer.size();
+        buffer.clear();
+    }
+
+    private byte columnType(String column) {
+        boolean allIntegral = true;
+        for (Map<String, Object> row : buffer) {
+            Object value = row.get(column);
+            if (value == null) {
+                continue;
+            }
+            if (!(value instanceof Number)) {
+                return TYPE_STRING;
+            }
+            if (!(value instanceof Long || value instanceof Integer || value instanceof Short)) {
+                allIntegral = false;
+            }
+        }
+        return allIntegral ? TYPE_LONG : TYPE_DOUBLE;
+    }
+
+    private byte[] encodeColumn(String column, byte type) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(buffer.size() * 8);
+        DataOutputStream data = new DataOutputStream(bytes);
+        for (Map<String, Object> row : buffer) {
+            Object value = row.get(column);
+            switch (type) {
+                case TYPE_LONG -> data.writeLong(value == null ? NULL_LONG : ((Number) value).longValue());
+                case TYPE_DOUBLE -> data.writeDouble(value == null ? Double.NaN : ((Number) value).doubleValue());
+                default -> {
+                    if (value == null) {
+                        data.writeInt(-1);
+                    } else {
+                        byte[] utf8 = value.toString().getBytes(StandardCharsets.UTF_8);
+                        data.writeInt(utf8.length);
+                        data.write(utf8);
+                    }
+                }
+            }
+        }
+        data.flush();
+        return bytes.toByteArray();
+    }
+
+    private byte[] deflate(byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(chunk);
+            compressed.write(chunk, 0, n);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushRowGroup();
+            out.writeInt(0);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+}
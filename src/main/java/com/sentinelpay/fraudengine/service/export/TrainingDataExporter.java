@@ -0,0 +1,238 @@
+package com.sentinelpay.fraudengine.service.export;
+
+import com.sentinelpay.fraudengine.repository.TransactionEntity;
+import com.sentinelpay.fraudengine.repository.analytics.TransactionAnalyticsRepository;
+import com.sentinelpay.fraudengine.service.feature.FeatureCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Exports scored transactions, their features and decisions into one columnar
+ * segment file per {@code bucket_hour}. Only closed hours are exported and the last
+ * exported hour is checkpointed, so each run picks up exactly where the previous
+ * one stopped.
+ */
+@Service
+public class TrainingDataExporter {
+    private static final Logger logger = LoggerFactory.getLogger(TrainingDataExporter.class);
+
+    private static final String CHECKPOINT_FILE = "_checkpoint";
+    private static final String SEGMENT_PREFIX = "transactions-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final DateTimeFormatter SEGMENT_HOUR =
+            DateTimeFormatter.ofPattern("yyyyMMddHH").withZone(ZoneOffset.UTC);
+
+    private final TransactionAnalyticsRepository transactionAnalyticsRepository;
+    private final FeatureCodec featureCodec;
+    private final Path exportDirectory;
+    private final boolean enabled;
+    private final Duration grace;
+    private final int rowGroupSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public TrainingDataExporter(
+            TransactionAnalyticsRepository transactionAnalyticsRepository,
+            FeatureCodec featureCodec,
+            @Value("${ml.export.directory:data/training}") String exportDirectory,
+            @Value("${ml.export.enabled:true}") boolean enabled,
+            @Value("${ml.export.grace-minutes:5}") long graceMinutes,
+            @Value("${ml.export.row-group-size:65536}") int rowGroupSize) {
+        this.transactionAnalyticsRepository = transactionAnalyticsRepository;
+        this.featureCodec = featureCodec;
+        this.exportDirectory = Paths.get(exportDirectory);
+        this.enabled = enabled;
+        this.grace = Duration.ofMinutes(graceMinutes);
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    @Scheduled(fixedRateString = "${ml.export.interval-ms:600000}", initialDelayString = "${ml.export.initial-delay-ms:60000}")
+    public void scheduledExport() {
+        if (enabled) {
+            exportPending()
+                    .subscribe(
+                            hours -> logger.info("Training data export completed: {} hour(s) exported", hours),
+                            error -> logger.error("Training data export failed: {}", error.getMessage())
+                    );
+        }
+    }
+
+    /**
+     * Exports every closed hour after the checkpoint. Returns the number of hours written.
+     */
+    public Mono<Long> exportPending() {
+        if (!running.compareAndSet(false, true)) {
+            logger.debug("Training data export already running, skipping");
+            return Mono.just(0L);
+        }
+
+        Instant lastClosedHour = Instant.now().minus(grace).truncatedTo(ChronoUnit.HOURS).minus(1, ChronoUnit.HOURS);
+
+        return featureCodec.reload()
+                .then(resumeFrom())
+                .flatMapMany(start -> Flux.fromStream(Stream.iterate(start,
+                        hour -> !hour.isAfter(lastClosedHour),
+                        hour -> hour.plus(1, ChronoUnit.HOURS))))
+                .concatMap(this::exportHour)
+                .count()
+                .doFinally(signal -> running.set(false));
+    }
+
+    /**
+     * Segment files covering {@code [from, to)}, oldest first.
+     */
+    public List<Path> listSegments(Instant from, Instant to) throws IOException {
+        if (!Files.isDirectory(exportDirectory)) {
+            return List.of();
+        }
+        Instant firstHour = from.truncatedTo(ChronoUnit.HOURS);
+        try (Stream<Path> files = Files.list(exportDirectory)) {
+            return files
+                    .filter(path -> {
+                        Instant hour = segmentHour(path);
+                        return hour != null && !hour.isBefore(firstHour) && hour.isBefore(to);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Mono<Instant> resumeFrom() {
+        return Mono.fromCallable(() -> {
+                    Path checkpoint = exportDirectory.resolve(CHECKPOINT_FILE);
+                    if (!Files.exists(checkpoint)) {
+                        return null;
+                    }
+                    String value = Files.readString(checkpoint, StandardCharsets.UTF_8).trim();
+                    return Instant.parse(value).plus(1, ChronoUnit.HOURS);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .switchIfEmpty(Mono.defer(transactionAnalyticsRepository::findEarliestBucketHour));
+    }
+
+    private Mono<Instant> exportHour(Instant hour) {
+        String name = SEGMENT_PREFIX + SEGMENT_HOUR.format(hour) + SEGMENT_SUFFIX;
+        Path target = exportDirectory.resolve(name);
+        Path temp = exportDirectory.resolve(name + ".tmp");
+
+        return Mono.fromCallable(() -> {
+                    Files.createDirectories(exportDirectory);
+                    return new ColumnarSegmentWriter(temp, rowGroupSize);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(writer -> transactionAnalyticsRepository.findByBucketHour(hour)
+                        .concatMap(this::withFeatures)
+                        .publishOn(Schedulers.boundedElastic())
+                        .doOnNext(entity -> append(writer, entity))
+                        .then(Mono.fromCallable(() -> {
+                            writer.close();
+                            long rows = writer.rowsWritten();
+                            if (rows > 0) {
+                                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                            } else {
+                                Files.deleteIfExists(temp);
+                            }
+                            writeCheckpoint(hour);
+                            return rows;
+                        }))
+                        .doOnError(error -> discard(writer, temp)))
+                .doOnNext(rows -> logger.debug("Exported {} transactions for bucket {}", rows, hour))
+                .thenReturn(hour);
+    }
+
+    // A schema that is still unknown after a reload fails the segment, so the hour is retried on the next run
+    private Mono<TransactionEntity> withFeatures(TransactionEntity entity) {
+        return featureCodec.read(entity.getPackedFeatures())
+                .map(features -> {
+                    entity.setFeatures(features);
+                    return entity;
+                })
+                .onErrorResume(IllegalArgumentException.class, error -> {
+                    logger.warn("Skipping unreadable features for transaction {}: {}",
+                            entity.getTransactionId(), error.getMessage());
+                    return Mono.just(entity);
+                });
+    }
+
+    private void append(ColumnarSegmentWriter writer, TransactionEntity entity) {
+        try {
+            writer.append(toRow(entity));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, Object> toRow(TransactionEntity entity) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("transaction_id", entity.getTransactionId() != null ? entity.getTransactionId().toString() : null);
+        row.put("user_id", entity.getUserId() != null ? entity.getUserId().toString() : null);
+        row.put("bucket_hour", entity.getBucketHour() != null ? entity.getBucketHour().toEpochMilli() : null);
+        row.put("created_at", entity.getCreatedAt() != null ? entity.getCreatedAt().toEpochMilli() : null);
+        row.put("amount", entity.getAmount() != null ? entity.getAmount().doubleValue() : null);
+        row.put("currency", entity.getCurrency());
+        row.put("merchant_id", entity.getMerchantId());
+        row.put("ip_address", entity.getIpAddress());
+        row.put("device_info", entity.getDeviceInfo());
+        row.put("risk_score", entity.getRiskScore());
+        row.put("decision", entity.getDecision());
+
+        if (entity.getFeatures() != null) {
+            entity.getFeatures().forEach((name, value) -> row.put("f." + name,
+                    value instanceof Number || value == null ? value : value.toString()));
+        }
+        return row;
+    }
+
+    private void writeCheckpoint(Instant hour) throws IOException {
+        Path checkpoint = exportDirectory.resolve(CHECKPOINT_FILE);
+        Path temp = exportDirectory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.writeString(temp, hour.toString(), StandardCharsets.UTF_8);
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void discard(ColumnarSegmentWriter writer, Path temp) {
+        try {
+            writer.close();
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            logger.warn("Failed to clean up partial segment {}: {}", temp, e.getMessage());
+        }
+    }
+
+    private static Instant segmentHour(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return null;
+        }
+        String hour = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+        try {
+            return SEGMENT_HOUR.parse(hour, temporal -> LocalDateTime.from(temporal).toInstant(ZoneOffset.UTC));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.sentinelpay.fraudengine.service.feature;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Rewrites features left in the JSON column by {@code migrations/001_pack_transaction_features.sql}
+ * into the packed column, a batch at a time, and drops the JSON column once it is empty.
+ * Does nothing on databases that never had it.
+ *
+ * <p>Each row is updated only while it still holds JSON, so nodes starting together may
+ * share the work. A row whose JSON does not parse loses its features rather than being
+ * retried forever.
+ */
+@Service
+public class FeatureBackfill {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureBackfill.class);
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private final DatabaseClient databaseClient;
+    private final FeatureCodec featureCodec;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Counter rewritten;
+    private final Counter malformed;
+
+    public FeatureBackfill(
+            DatabaseClient databaseClient,
+            FeatureCodec featureCodec,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${features.backfill-batch-size:500}") int batchSize) {
+        this.databaseClient = databaseClient;
+        this.featureCodec = featureCodec;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.rewritten = meterRegistry.counter("features.backfill.rows", "outcome", "rewritten");
+        this.malformed = meterRegistry.counter("features.backfill.rows", "outcome", "malformed");
+    }
+
+    @PostConstruct
+    public void start() {
+        hasJsonColumn()
+                .filter(present -> present)
+                .flatMap(present -> {
+                    logger.info("Rewriting JSON transaction features into the packed column");
+                    return rewriteAll();
+                })
+                .subscribe(
+                        rows -> logger.info("Rewrote the features of {} transactions, JSON column dropped", rows),
+                        error -> logger.warn("Feature backfill stopped, it resumes on the next start: {}",
+                                error.getMessage()));
+    }
+
+    private Mono<Boolean> hasJsonColumn() {
+        return databaseClient.sql("""
+                        SELECT COUNT(*) AS columns FROM information_schema.columns
+                        WHERE table_name = 'transactions' AND column_name = 'features_json'
+                        """)
+                .map((row, metadata) -> row.get("columns", Long.class))
+                .one()
+                .map(columns -> columns > 0);
+    }
+
+    private Mono<Long> rewriteAll() {
+        return Mono.defer(this::rewriteBatch)
+                .repeat()
+                .takeUntil(rows -> rows < batchSize)
+                .reduce(0L, Long::sum)
+                .flatMap(rows -> databaseClient.sql("ALTER TABLE transactions DROP COLUMN IF EXISTS features_json")
+                        .then()
+                        .thenReturn(rows));
+    }
+
+    private Mono<Long> rewriteBatch() {
+        return databaseClient.sql("""
+                        SELECT transaction_id, bucket_hour, features_json::TEXT AS features_json
+                        FROM transactions
+                        WHERE features_json IS NOT NULL
+                        LIMIT :limit
+                        """)
+                .bind("limit", batchSize)
+                .map((row, metadata) -> new JsonRow(
+                        row.get("transaction_id", UUID.class),
+                        row.get("bucket_hour", Instant.class),
+                        row.get("features_json", String.class)))
+                .all()
+                .concatMap(this::rewrite)
+                .count();
+    }
+
+    private Mono<Long> rewrite(JsonRow row) {
+        Map<String, Object> features;
+        try {
+            features = objectMapper.readValue(row.json(), MAP_TYPE);
+        } catch (IOException e) {
+            malformed.increment();
+            logger.warn("Dropping unreadable features of transaction {}: {}", row.transactionId(), e.getMessage());
+            return databaseClient.sql("""
+                            UPDATE transactions SET features_json = NULL
+                            WHERE transaction_id = :id AND bucket_hour = :bucket
+                            """)
+                    .bind("id", row.transactionId())
+                    .bind("bucket", row.bucketHour())
+                    .fetch()
+                    .rowsUpdated();
+        }
+        return featureCodec.encode(features)
+                .flatMap(packed -> databaseClient.sql("""
+                                UPDATE transactions SET features = :features, features_json = NULL
+                                WHERE transaction_id = :id AND bucket_hour = :bucket AND features_json IS NOT NULL
+                                """)
+                        .bind("features", packed)
+                        .bind("id", row.transactionId())
+                        .bind("bucket", row.bucketHour())
+                        .fetch()
+                        .rowsUpdated())
+                .doOnNext(rewritten::increment);
+    }
+
+    private record JsonRow(UUID transactionId, Instant bucketHour, String json) { }
+}
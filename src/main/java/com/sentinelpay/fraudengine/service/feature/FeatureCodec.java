@@ -0,0 +1,315 @@
+package com.sentinelpay.fraudengine.service.feature;
+
+import com.sentinelpay.fraudengine.repository.FeatureSchemaEntity;
+import com.sentinelpay.fraudengine.repository.FeatureSchemaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Packs a transaction's feature map into a compact binary vector for the
+ * {@code features} column, and unpacks it when a reader needs the values.
+ *
+ * <p>Feature names are stored once per distinct set of names, in the
+ * {@code feature_schemas} table, and each row only carries the id of its schema followed
+ * by the values in the schema's order. Every value has a one-byte type tag: integers are
+ * zigzag varints, decimals take four bytes when a float holds them exactly and eight
+ * otherwise, and strings are length-prefixed UTF-8. Any other value is stored as its string
+ * form. Decimals always read back as Double, as they did from JSON, whatever their width.
+ *
+ * <p>Layout: {@code [format version][schema id varint]([tag][value])*}.
+ *
+ * <p>All schemas are loaded at startup and reloaded periodically, so decoding never waits
+ * on the database. Only a row whose schema another node registered since the last reload
+ * needs one more.
+ */
+@Service
+public class FeatureCodec {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureCodec.class);
+
+    static final byte FORMAT_VERSION = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_INTEGER = 1;
+    private static final byte TAG_FLOAT = 2;
+    private static final byte TAG_DOUBLE = 3;
+    private static final byte TAG_STRING = 4;
+    private static final byte TAG_TRUE = 5;
+    private static final byte TAG_FALSE = 6;
+
+    /**
+     * Feature names in packing order, sorted so that equal sets of names share a schema.
+     */
+    record FeatureSchema(int id, String[] names) {
+
+        static String key(Set<String> names) {
+            String[] sorted = names.toArray(String[]::new);
+            Arrays.sort(sorted);
+            for (String name : sorted) {
+                if (name.indexOf(',') >= 0) {
+                    throw new IllegalArgumentException("Feature names cannot contain commas: " + name);
+                }
+            }
+            return String.join(",", sorted);
+        }
+    }
+
+    private final FeatureSchemaRepository schemaRepository;
+    private final Map<Set<String>, FeatureSchema> schemasByNames = new ConcurrentHashMap<>();
+    private final Map<Set<String>, Mono<FeatureSchema>> registering = new ConcurrentHashMap<>();
+    private volatile Map<Integer, FeatureSchema> schemasById = Map.of();
+    private final AtomicBoolean reloadingOnMiss = new AtomicBoolean();
+    private final Counter unknownSchemas;
+    private final DistributionSummary packedBytes;
+
+    public FeatureCodec(FeatureSchemaRepository schemaRepository, MeterRegistry meterRegistry) {
+        this.schemaRepository = schemaRepository;
+        this.unknownSchemas = meterRegistry.counter("features.schema.unknown");
+        this.packedBytes = DistributionSummary.builder("features.packed.bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("features.schemas", this, codec -> codec.schemasById.size()).register(meterRegistry);
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${features.schema-reload-interval-ms:60000}",
+            initialDelayString = "${features.schema-reload-interval-ms:60000}")
+    public void scheduledReload() {
+        reload().subscribe();
+    }
+
+    /**
+     * Loads every registered schema. Bulk readers wait for this before streaming rows, so
+     * that all schemas registered up to then decode.
+     */
+    public Mono<Void> reload() {
+        return schemaRepository.findAll()
+                .collectList()
+                .doOnNext(entities -> {
+                    // Schemas are never removed, so merging keeps any registered since the query
+                    Map<Integer, FeatureSchema> loaded = new HashMap<>(schemasById);
+                    for (FeatureSchemaEntity entity : entities) {
+                        FeatureSchema schema = toSchema(entity.getSchemaId(), entity.getNames());
+                        loaded.put(schema.id(), schema);
+                        schemasByNames.putIfAbsent(Set.of(schema.names()), schema);
+                    }
+                    schemasById = loaded;
+                })
+                .doOnError(error -> logger.warn("Failed to load feature schemas: {}", error.getMessage()))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * Packs the features, registering their set of names first if it is new.
+     */
+    public Mono<byte[]> encode(Map<String, Object> features) {
+        FeatureSchema schema = schemasByNames.get(features.keySet());
+        if (schema != null) {
+            return Mono.just(pack(schema, features));
+        }
+        Set<String> names = Set.copyOf(features.keySet());
+        return registering.computeIfAbsent(names, this::register)
+                .map(registered -> pack(registered, features));
+    }
+
+    /**
+     * Unpacks the values in schema order; numbers come back as Long or Double. A row whose
+     * schema is not loaded yet triggers a reload and fails with {@link IllegalStateException},
+     * so that a reader never mistakes it for a row without features.
+     */
+    public Map<String, Object> decode(byte[] packed) {
+        Map<String, Object> features = decodeIfKnown(packed);
+        if (features != null) {
+            return features;
+        }
+        unknownSchemas.increment();
+        if (reloadingOnMiss.compareAndSet(false, true)) {
+            logger.warn("Unknown feature schema {}, reloading schemas", schemaId(packed));
+            reload().doFinally(signal -> reloadingOnMiss.set(false)).subscribe();
+        }
+        throw new IllegalStateException("Unknown feature schema " + schemaId(packed));
+    }
+
+    /**
+     * Like {@link #decode} but reloads the schemas and tries again when the row's schema
+     * is not loaded yet, for rows that must not lose their features. Malformed rows fail
+     * with {@link IllegalArgumentException}.
+     */
+    public Mono<Map<String, Object>> read(byte[] packed) {
+        return Mono.defer(() -> {
+            Map<String, Object> features = decodeIfKnown(packed);
+            if (features != null) {
+                return Mono.just(features);
+            }
+            unknownSchemas.increment();
+            return reload().then(Mono.fromCallable(() -> {
+                Map<String, Object> reloaded = decodeIfKnown(packed);
+                if (reloaded == null) {
+                    throw new IllegalStateException("Unknown feature schema " + schemaId(packed));
+                }
+                return reloaded;
+            }));
+        });
+    }
+
+    private Map<String, Object> decodeIfKnown(byte[] packed) {
+        if (packed == null || packed.length == 0) {
+            return Map.of();
+        }
+        FeatureSchema schema = schemasById.get(schemaId(packed));
+        if (schema == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(packed);
+        buffer.get();
+        readVarint(buffer);
+        return unpack(schema, buffer);
+    }
+
+    private static int schemaId(byte[] packed) {
+        ByteBuffer buffer = ByteBuffer.wrap(packed);
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported feature format version " + version);
+        }
+        return (int) readVarint(buffer);
+    }
+
+    private Mono<FeatureSchema> register(Set<String> names) {
+        String key = FeatureSchema.key(names);
+        return schemaRepository.register(key)
+                .map(id -> {
+                    FeatureSchema schema = toSchema(id, key);
+                    Map<Integer, FeatureSchema> byId = new HashMap<>(schemasById);
+                    byId.put(id, schema);
+                    schemasById = byId;
+                    schemasByNames.put(names, schema);
+                    logger.info("Registered feature schema {} with {} features", id, schema.names().length);
+                    return schema;
+                })
+                .doFinally(signal -> registering.remove(names))
+                .cache();
+    }
+
+    private static FeatureSchema toSchema(int id, String names) {
+        return new FeatureSchema(id, names.isEmpty() ? new String[0] : names.split(","));
+    }
+
+    byte[] pack(FeatureSchema schema, Map<String, Object> features) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + schema.names().length * 5);
+        out.write(FORMAT_VERSION);
+        writeVarint(out, schema.id());
+        for (String name : schema.names()) {
+            writeValue(out, features.get(name));
+        }
+        byte[] packed = out.toByteArray();
+        packedBytes.record(packed.length);
+        return packed;
+    }
+
+    static Map<String, Object> unpack(FeatureSchema schema, ByteBuffer buffer) {
+        Map<String, Object> features = new LinkedHashMap<>(schema.names().length * 2);
+        for (String name : schema.names()) {
+            byte tag = buffer.get();
+            Object value = switch (tag) {
+                case TAG_NULL -> null;
+                case TAG_INTEGER -> zigzagDecode(readVarint(buffer));
+                case TAG_FLOAT -> (double) buffer.getFloat();
+                case TAG_DOUBLE -> buffer.getDouble();
+                case TAG_STRING -> {
+                    byte[] bytes = new byte[(int) readVarint(buffer)];
+                    buffer.get(bytes);
+                    yield new String(bytes, StandardCharsets.UTF_8);
+                }
+                case TAG_TRUE -> Boolean.TRUE;
+                case TAG_FALSE -> Boolean.FALSE;
+                default -> throw new IllegalArgumentException("Unknown feature value tag " + tag);
+            };
+            features.put(name, value);
+        }
+        return features;
+    }
+
+    private static void writeValue(ByteArrayOutputStream out, Object value) {
+        if (value == null) {
+            out.write(TAG_NULL);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.write(TAG_INTEGER);
+            writeVarint(out, zigzagEncode(((Number) value).longValue()));
+        } else if (value instanceof Number number) {
+            double d = number.doubleValue();
+            float f = (float) d;
+            if ((double) f == d || Double.isNaN(d)) {
+                out.write(TAG_FLOAT);
+                writeInt(out, Float.floatToIntBits(f));
+            } else {
+                out.write(TAG_DOUBLE);
+                long bits = Double.doubleToLongBits(d);
+                writeInt(out, (int) (bits >>> 32));
+                writeInt(out, (int) bits);
+            }
+        } else if (value instanceof Boolean bool) {
+            out.write(bool ? TAG_TRUE : TAG_FALSE);
+        } else {
+            byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+            out.write(TAG_STRING);
+            writeVarint(out, bytes.length);
+            out.writeBytes(bytes);
+        }
+    }
+
+    // Big-endian, to match ByteBuffer's default order on the way back
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
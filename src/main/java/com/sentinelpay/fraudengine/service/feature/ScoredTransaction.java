@@ -0,0 +1,30 @@
+package com.sentinelpay.fraudengine.service.feature;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A transaction after its decision has been made and persisted. {@code modelScore} is null
+ * when the model did not score it and a fallback score was used instead.
+ */
+public record ScoredTransaction(
+        UUID transactionId,
+        TransactionContext context,
+        Map<String, Object> features,
+        Float modelScore,
+        float riskScore,
+        String decision
+) {
+    public UUID userId() {
+        return context.userId();
+    }
+
+    public double amount() {
+        return context.amount();
+    }
+
+    public Instant timestamp() {
+        return context.timestamp();
+    }
+}
@@ -0,0 +1,10 @@
+package com.sentinelpay.fraudengine.service.feature;
+
+/**
+ * Notified once per transaction after it has been scored and saved. Used to keep
+ * in-memory state (profiles, sketches, monitors) up to date. Must not block.
+ */
+public interface ScoredTransactionListener {
+
+    void onScored(ScoredTransaction transaction);
+}
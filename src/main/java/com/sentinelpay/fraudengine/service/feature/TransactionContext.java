@@ -0,0 +1,50 @@
+package com.sentinelpay.fraudengine.service.feature;
+
+import com.sentinelpay.fraudengine.dto.TransactionRequest;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-transaction values resolved once at the start of scoring and shared by all
+ * feature contributors. {@code amount} is in the base currency; the request keeps the
+ * original amount and currency.
+ */
+public record TransactionContext(
+        TransactionRequest request,
+        UUID userId,
+        double amount,
+        Instant timestamp
+) {
+    public static TransactionContext of(TransactionRequest request, double baseAmount, Instant timestamp) {
+        return new TransactionContext(
+                request,
+                UUID.fromString(request.userId()),
+                baseAmount,
+                timestamp
+        );
+    }
+
+    public String deviceId() {
+        return deviceId(request.deviceInfo());
+    }
+
+    /**
+     * Best available device identity: an explicit fingerprint or device id, falling
+     * back to the browser/OS pair.
+     */
+    public static String deviceId(Map<String, Object> deviceInfo) {
+        if (deviceInfo == null) {
+            return "unknown";
+        }
+        Object fingerprint = deviceInfo.get("fingerprint");
+        if (fingerprint == null) {
+            fingerprint = deviceInfo.get("deviceId");
+        }
+        if (fingerprint != null) {
+            return fingerprint.toString();
+        }
+        return deviceInfo.getOrDefault("browser", "unknown") + "/" + deviceInfo.getOrDefault("os", "unknown");
+    }
+}
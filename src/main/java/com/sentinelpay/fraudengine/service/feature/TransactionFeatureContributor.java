@@ -0,0 +1,15 @@
+package com.sentinelpay.fraudengine.service.feature;
+
+import java.util.Map;
+
+/**
+ * Adds features to the vector passed to the rule engine and the model. Runs on the
+ * scoring path, so implementations must answer from memory and never block.
+ *
+ * <p>Contributors run in {@code @Order}; one that reads features added by others must
+ * declare a later order than they do.
+ */
+public interface TransactionFeatureContributor {
+
+    void contribute(TransactionContext context, Map<String, Object> features);
+}
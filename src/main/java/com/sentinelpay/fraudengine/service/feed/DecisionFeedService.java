@@ -0,0 +1,109 @@
+package com.sentinelpay.fraudengine.service.feed;
+
+import com.sentinelpay.fraudengine.dto.DecisionEvent;
+import com.sentinelpay.fraudengine.repository.TransactionEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pushes decisions to live subscribers straight from the scoring path, so watching
+ * REVIEW and BLOCK decisions costs no database queries however many dashboards are open.
+ *
+ * <p>Every saved transaction is emitted once into a multicast sink; subscribers filter on
+ * their own side. Each subscriber has its own bounded buffer and is delivered to on a
+ * separate scheduler, so a slow dashboard only loses its own events and never holds up
+ * scoring or the other subscribers. On overflow a subscriber either drops its oldest
+ * buffered events or, when conflating, keeps only the most recent one.
+ */
+@Service
+public class DecisionFeedService {
+
+    /**
+     * What a subscriber wants to see; null fields match everything.
+     */
+    public record Filter(Set<String> decisions, String merchantId, Float minScore, Float maxScore) {
+
+        boolean matches(DecisionEvent event) {
+            return (decisions == null || decisions.contains(event.decision()))
+                    && (merchantId == null || merchantId.equals(event.merchantId()))
+                    && (minScore == null || event.riskScore() >= minScore)
+                    && (maxScore == null || event.riskScore() <= maxScore);
+        }
+    }
+
+    public enum Overflow { DROP_OLDEST, CONFLATE }
+
+    private final Sinks.Many<DecisionEvent> sink = Sinks.many().multicast().directBestEffort();
+    private final FluxSink<DecisionEvent> emitter;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final Counter dropped;
+
+    public DecisionFeedService(
+            MeterRegistry meterRegistry,
+            @Value("${feed.max-subscribers:200}") int maxSubscribers,
+            @Value("${feed.buffer-size:256}") int bufferSize) {
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = bufferSize;
+        this.dropped = meterRegistry.counter("decision.feed.dropped");
+        Gauge.builder("decision.feed.subscribers", subscribers, AtomicInteger::get).register(meterRegistry);
+
+        // Scoring threads publish concurrently but a sink must be signalled serially. The
+        // FluxSink of create() serialises them through a lock-free queue, drained by
+        // whichever publisher gets there first, without blocking any of them.
+        AtomicReference<FluxSink<DecisionEvent>> created = new AtomicReference<>();
+        Flux.<DecisionEvent>create(created::set).subscribe(sink::tryEmitNext);
+        this.emitter = created.get();
+    }
+
+    /**
+     * Called once per saved transaction. Does nothing when nobody is subscribed.
+     */
+    public void publish(TransactionEntity transaction) {
+        if (subscribers.get() == 0) {
+            return;
+        }
+        DecisionEvent event = new DecisionEvent(
+                transaction.getTransactionId(),
+                transaction.getUserId(),
+                transaction.getMerchantId(),
+                transaction.getAmount(),
+                transaction.getCurrency(),
+                transaction.getDecision(),
+                transaction.getRiskScore() == null ? 0.0f : transaction.getRiskScore(),
+                transaction.getTimestamp());
+        emitter.next(event);
+    }
+
+    public Flux<DecisionEvent> subscribe(Filter filter, Overflow overflow) {
+        return Flux.defer(() -> {
+            if (subscribers.incrementAndGet() > maxSubscribers) {
+                subscribers.decrementAndGet();
+                return Flux.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Too many decision feed subscribers"));
+            }
+            Flux<DecisionEvent> matching = sink.asFlux().filter(filter::matches);
+            Flux<DecisionEvent> bounded = overflow == Overflow.CONFLATE
+                    ? matching.onBackpressureLatest()
+                    : matching.onBackpressureBuffer(bufferSize, event -> dropped.increment(), BufferOverflowStrategy.DROP_OLDEST);
+            return bounded
+                    .publishOn(Schedulers.parallel(), 32)
+                    .doFinally(signal -> subscribers.decrementAndGet());
+        });
+    }
+}
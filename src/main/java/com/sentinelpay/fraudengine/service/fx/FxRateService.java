@@ -0,0 +1,147 @@
+package com.sentinelpay.fraudengine.service.fx;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Converts transaction amounts into the base currency so that amount features, rule
+ * thresholds and spend aggregates compare like with like.
+ *
+ * <p>Rates come from a local file of {@code CURRENCY,rate} lines, the rate being units of
+ * base currency per unit of the currency, and fall back to a built-in stub table when
+ * there is no file. A refresh builds a new {@link FxRateTable} and publishes it through a
+ * volatile field, so conversions never lock and always see one consistent table.
+ * Unknown currencies are passed through unconverted and counted.
+ */
+@Service
+public class FxRateService {
+    private static final Logger logger = LoggerFactory.getLogger(FxRateService.class);
+
+    // Approximate USD value of one unit; only used when no rates file is configured
+    private static final Map<String, Double> STUB_USD_RATES = Map.ofEntries(
+            Map.entry("USD", 1.0),
+            Map.entry("EUR", 1.08),
+            Map.entry("GBP", 1.27),
+            Map.entry("CHF", 1.13),
+            Map.entry("CAD", 0.74),
+            Map.entry("AUD", 0.66),
+            Map.entry("JPY", 0.0067),
+            Map.entry("CNY", 0.14),
+            Map.entry("INR", 0.012),
+            Map.entry("BRL", 0.18),
+            Map.entry("MXN", 0.055),
+            Map.entry("SGD", 0.74),
+            Map.entry("HKD", 0.13),
+            Map.entry("SEK", 0.095),
+            Map.entry("NOK", 0.093),
+            Map.entry("ZAR", 0.055)
+    );
+
+    private final String baseCurrency;
+    private final Path ratesPath;
+    private final Counter unknownCurrency;
+    private volatile FxRateTable table;
+    private volatile FileTime loadedVersion;
+
+    public FxRateService(
+            MeterRegistry meterRegistry,
+            @Value("${fx.base-currency:USD}") String baseCurrency,
+            @Value("${fx.rates-path:data/fx/rates.csv}") String ratesPath) {
+        this.baseCurrency = baseCurrency;
+        this.ratesPath = Paths.get(ratesPath);
+        this.table = stubTable();
+        this.unknownCurrency = meterRegistry.counter("fx.unknown.currency");
+        Gauge.builder("fx.rates.age.seconds", this, service -> (System.currentTimeMillis() - service.table.loadedAtMillis()) / 1000.0)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${fx.refresh-interval-ms:60000}", initialDelayString = "${fx.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            if (!Files.isRegularFile(ratesPath)) {
+                return;
+            }
+            FileTime version = Files.getLastModifiedTime(ratesPath);
+            if (version.equals(loadedVersion)) {
+                return;
+            }
+            FxRateTable loaded = FxRateTable.of(baseCurrency, readRates(ratesPath));
+            table = loaded;
+            loadedVersion = version;
+            logger.info("Loaded {} FX rates into {} from {}", loaded.size(), baseCurrency, ratesPath);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to refresh FX rates, keeping the previous table: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * The amount in the base currency. Allocation-free: a table read and a multiply.
+     */
+    public double toBase(double amount, String currency) {
+        double rate = table.rate(currency);
+        if (Double.isNaN(rate)) {
+            unknownCurrency.increment();
+            return amount;
+        }
+        return amount * rate;
+    }
+
+    /**
+     * Units of base currency per unit of the currency, or NaN if it is unknown.
+     */
+    public double rate(String currency) {
+        return table.rate(currency);
+    }
+
+    public String baseCurrency() {
+        return baseCurrency;
+    }
+
+    private FxRateTable stubTable() {
+        // Rebase the USD stub if another base currency is configured
+        Double baseInUsd = STUB_USD_RATES.get(baseCurrency.toUpperCase(Locale.ROOT));
+        Map<String, Double> rates = new HashMap<>();
+        if (baseInUsd != null) {
+            STUB_USD_RATES.forEach((currency, usd) -> rates.put(currency, usd / baseInUsd));
+        }
+        return FxRateTable.of(baseCurrency, rates);
+    }
+
+    private static Map<String, Double> readRates(Path file) throws IOException {
+        Map<String, Double> rates = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comma = line.indexOf(',');
+                if (line.isBlank() || line.startsWith("#") || comma < 0) {
+                    continue;
+                }
+                try {
+                    rates.put(line.substring(0, comma).trim(), Double.parseDouble(line.substring(comma + 1).trim()));
+                } catch (NumberFormatException e) {
+                    logger.debug("Skipping FX rate line {}", line);
+                }
+            }
+        }
+        return rates;
+    }
+}
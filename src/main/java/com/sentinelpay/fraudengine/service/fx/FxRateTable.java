@@ -0,0 +1,94 @@
+package com.sentinelpay.fraudengine.service.fx;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable table of conversion rates into the base currency. An ISO 4217 code's three
+ * letters pack into 15 bits, which index a flat array of rates directly, so a lookup is
+ * a few character reads and one array load with no hashing, boxing or allocation.
+ */
+final class FxRateTable {
+
+    private static final int CODES = 1 << 15;
+
+    private final String baseCurrency;
+    private final double[] rates;
+    private final int size;
+    private final long loadedAtMillis;
+
+    private FxRateTable(String baseCurrency, double[] rates, int size) {
+        this.baseCurrency = baseCurrency;
+        this.rates = rates;
+        this.size = size;
+        this.loadedAtMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Builds a table from units of base currency per unit of each currency. The base
+     * currency always converts at 1.
+     */
+    static FxRateTable of(String baseCurrency, Map<String, Double> ratesToBase) {
+        double[] rates = new double[CODES];
+        Arrays.fill(rates, Double.NaN);
+        int size = 0;
+        for (Map.Entry<String, Double> entry : ratesToBase.entrySet()) {
+            int code = code(entry.getKey());
+            double rate = entry.getValue();
+            if (code >= 0 && rate > 0 && Double.isFinite(rate)) {
+                if (Double.isNaN(rates[code])) {
+                    size++;
+                }
+                rates[code] = rate;
+            }
+        }
+        int base = code(baseCurrency);
+        if (base < 0) {
+            throw new IllegalArgumentException("Invalid base currency " + baseCurrency);
+        }
+        if (Double.isNaN(rates[base])) {
+            size++;
+        }
+        rates[base] = 1.0;
+        return new FxRateTable(baseCurrency.toUpperCase(Locale.ROOT), rates, size);
+    }
+
+    /**
+     * Units of base currency per unit of the currency, or NaN if it is unknown.
+     */
+    double rate(String currency) {
+        int code = code(currency);
+        return code < 0 ? Double.NaN : rates[code];
+    }
+
+    String baseCurrency() {
+        return baseCurrency;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long loadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    /**
+     * Packs a three-letter code, case-insensitively, into 15 bits; -1 if it is not one.
+     */
+    static int code(String currency) {
+        if (currency == null || currency.length() != 3) {
+            return -1;
+        }
+        int code = 0;
+        for (int i = 0; i < 3; i++) {
+            int letter = (currency.charAt(i) | 0x20) - 'a';
+            if (letter < 0 || letter >= 26) {
+                return -1;
+            }
+            code = (code << 5) | letter;
+        }
+        return code;
+    }
+}
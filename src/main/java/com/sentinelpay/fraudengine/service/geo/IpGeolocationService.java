@@ -0,0 +1,103 @@
+package com.sentinelpay.fraudengine.service.geo;
+
+import com.sentinelpay.fraudengine.model.Location;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Resolves IPv4 addresses to a country and coordinates from a local range database.
+ *
+ * <p>The database is a CSV of {@code start_ip,end_ip,country,latitude,longitude} rows,
+ * compiled once into the binary {@link IpRangeTable} layout next to it and memory-mapped
+ * from there; it is recompiled whenever the CSV is newer. A replaced table is swapped in
+ * through a volatile field. Without a database every address is unknown and the travel
+ * features stay neutral.
+ */
+@Service
+public class IpGeolocationService {
+    private static final Logger logger = LoggerFactory.getLogger(IpGeolocationService.class);
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private final Path csvPath;
+    private final Path tablePath;
+    private volatile IpRangeTable table;
+    private volatile FileTime loadedVersion;
+
+    public IpGeolocationService(
+            @Value("${geo.csv-path:data/geo/ip-ranges.csv}") String csvPath,
+            @Value("${geo.table-path:data/geo/ip-ranges.bin}") String tablePath) {
+        this.csvPath = Paths.get(csvPath);
+        this.tablePath = Paths.get(tablePath);
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${geo.reload-interval-ms:60000}", initialDelayString = "${geo.reload-interval-ms:60000}")
+    public void reload() {
+        try {
+            if (Files.isRegularFile(csvPath)
+                    && (!Files.isRegularFile(tablePath)
+                        || Files.getLastModifiedTime(csvPath).compareTo(Files.getLastModifiedTime(tablePath)) > 0)) {
+                long start = System.currentTimeMillis();
+                int ranges = IpRangeTable.compile(csvPath, tablePath);
+                logger.info("Compiled {} IP ranges from {} in {}ms", ranges, csvPath, System.currentTimeMillis() - start);
+            }
+            if (!Files.isRegularFile(tablePath)) {
+                return;
+            }
+            FileTime version = Files.getLastModifiedTime(tablePath);
+            if (version.equals(loadedVersion)) {
+                return;
+            }
+            table = IpRangeTable.map(tablePath);
+            loadedVersion = version;
+            logger.info("Mapped IP geolocation table {} with {} ranges", tablePath, table.size());
+        } catch (IOException e) {
+            logger.warn("Failed to load IP geolocation table, keeping the previous one: {}", e.getMessage());
+        }
+    }
+
+    public boolean isAvailable() {
+        return table != null;
+    }
+
+    /**
+     * Location of the address, or null if it is unknown or not IPv4.
+     */
+    public Location locate(String ipAddress) {
+        IpRangeTable current = table;
+        if (current == null) {
+            return null;
+        }
+        int index = current.find(ipAddress);
+        if (index == IpRangeTable.NOT_FOUND) {
+            return null;
+        }
+        return Location.builder()
+                .country(current.country(index))
+                .lat(current.latitude(index))
+                .lng(current.longitude(index))
+                .build();
+    }
+
+    /**
+     * Great-circle distance by the haversine formula.
+     */
+    public static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
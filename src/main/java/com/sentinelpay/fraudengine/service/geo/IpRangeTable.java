@@ -0,0 +1,266 @@
+package com.sentinelpay.fraudengine.service.geo;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Sorted, non-overlapping IPv4 ranges with a location each, read straight from a
+ * memory-mapped file. A lookup is a binary search with absolute reads on the mapping, so
+ * it allocates nothing and only the pages it touches are ever loaded; the table costs no
+ * heap however many ranges it has.
+ *
+ * <p>File layout: magic {@code SPGT}, version, range count, then fixed 16-byte records
+ * sorted by start address: start and end (unsigned, inclusive), latitude and longitude
+ * in 1e-4 degree units packed into three bytes each, and a two-letter country code.
+ * Lookups return a record index that the accessors read from.
+ *
+ * <p>A 256KB on-heap index of the first record for every /16 prefix narrows each search
+ * to the few records of one prefix, so a lookup touches a couple of pages instead of
+ * walking the whole mapping.
+ */
+final class IpRangeTable {
+
+    static final int NOT_FOUND = -1;
+
+    private static final int MAGIC = 0x53504754; // "SPGT"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int RECORD_BYTES = 16;
+
+    private static final int PREFIXES = 1 << 16;
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final int[] firstByPrefix;
+
+    private IpRangeTable(MappedByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+        this.firstByPrefix = new int[PREFIXES + 1];
+        int record = 0;
+        for (int prefix = 0; prefix < PREFIXES; prefix++) {
+            long prefixStart = (long) prefix << 16;
+            while (record < size && end(record) < prefixStart) {
+                record++;
+            }
+            firstByPrefix[prefix] = record;
+        }
+        firstByPrefix[PREFIXES] = size;
+    }
+
+    static IpRangeTable map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (channel.size() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not an IP range table: " + file);
+            }
+            int size = buffer.getInt(8);
+            if (HEADER_BYTES + (long) size * RECORD_BYTES > channel.size()) {
+                throw new IOException("Truncated IP range table: " + file);
+            }
+            return new IpRangeTable(buffer, size);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Index of the range containing the address, or {@link #NOT_FOUND}.
+     */
+    int find(String ipAddress) {
+        long address = parseIpv4(ipAddress);
+        if (address < 0) {
+            return NOT_FOUND;
+        }
+        int prefix = (int) (address >>> 16);
+        int low = firstByPrefix[prefix];
+        int high = Math.min(firstByPrefix[prefix + 1], size - 1);
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (start(mid) > address) {
+                high = mid - 1;
+            } else if (end(mid) < address) {
+                low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    private long start(int index) {
+        return Integer.toUnsignedLong(buffer.getInt(HEADER_BYTES + index * RECORD_BYTES));
+    }
+
+    private long end(int index) {
+        return Integer.toUnsignedLong(buffer.getInt(HEADER_BYTES + index * RECORD_BYTES + 4));
+    }
+
+    double latitude(int index) {
+        return readCoordinate(HEADER_BYTES + index * RECORD_BYTES + 8) / 10_000.0;
+    }
+
+    double longitude(int index) {
+        return readCoordinate(HEADER_BYTES + index * RECORD_BYTES + 11) / 10_000.0;
+    }
+
+    String country(int index) {
+        int offset = HEADER_BYTES + index * RECORD_BYTES + 14;
+        return new String(new char[] {(char) buffer.get(offset), (char) buffer.get(offset + 1)});
+    }
+
+    private int readCoordinate(int offset) {
+        // The first byte is read signed, which sign-extends the 24-bit value
+        return (buffer.get(offset) << 16) | ((buffer.get(offset + 1) & 0xFF) << 8) | (buffer.get(offset + 2) & 0xFF);
+    }
+
+    /**
+     * Parses a dotted-quad IPv4 address without allocating. Returns -1 for anything else,
+     * including IPv6.
+     */
+    static long parseIpv4(String ip) {
+        if (ip == null) {
+            return -1;
+        }
+        long address = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                address = (address << 8) | octet;
+                octet = -1;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || octet < 0) {
+            return -1;
+        }
+        return (address << 8) | octet;
+    }
+
+    /**
+     * Compiles a CSV of {@code start_ip,end_ip,country,latitude,longitude} rows into the
+     * binary layout. IPv6 rows, a header row and malformed lines are skipped; overlapping
+     * ranges keep the one that starts first. Writes to a temporary file and moves it into
+     * place so a running reader never sees a partial table.
+     */
+    static int compile(Path csv, Path target) throws IOException {
+        long[] starts = new long[1024];
+        long[] ends = new long[1024];
+        int[] lats = new int[1024];
+        int[] lngs = new int[1024];
+        short[] countries = new short[1024];
+        int count = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(",");
+                if (columns.length < 5) {
+                    continue;
+                }
+                long start = parseIpv4(unquote(columns[0]));
+                long end = parseIpv4(unquote(columns[1]));
+                String country = unquote(columns[2]);
+                if (start < 0 || end < start || country.length() != 2) {
+                    continue;
+                }
+                double lat;
+                double lng;
+                try {
+                    lat = Double.parseDouble(unquote(columns[3]));
+                    lng = Double.parseDouble(unquote(columns[4]));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (count == starts.length) {
+                    int grown = count * 2;
+                    starts = Arrays.copyOf(starts, grown);
+                    ends = Arrays.copyOf(ends, grown);
+                    lats = Arrays.copyOf(lats, grown);
+                    lngs = Arrays.copyOf(lngs, grown);
+                    countries = Arrays.copyOf(countries, grown);
+                }
+                starts[count] = start;
+                ends[count] = end;
+                lats[count] = (int) Math.round(Math.max(-90, Math.min(90, lat)) * 10_000);
+                lngs[count] = (int) Math.round(Math.max(-180, Math.min(180, lng)) * 10_000);
+                countries[count] = (short) ((Character.toUpperCase(country.charAt(0)) << 8) | Character.toUpperCase(country.charAt(1)));
+                count++;
+            }
+        }
+
+        // Sort record indices by start address: 32 bits of address and 31 of index fit a positive long
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (starts[i] << 31) | i;
+        }
+        Arrays.sort(order);
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        int written = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(0);
+            long previousEnd = -1;
+            for (long packed : order) {
+                int i = (int) (packed & 0x7FFFFFFFL);
+                if (starts[i] <= previousEnd) {
+                    continue;
+                }
+                out.writeInt((int) starts[i]);
+                out.writeInt((int) ends[i]);
+                writeCoordinate(out, lats[i]);
+                writeCoordinate(out, lngs[i]);
+                out.writeShort(countries[i]);
+                previousEnd = ends[i];
+                written++;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, written), 8);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    private static void writeCoordinate(DataOutputStream out, int value) throws IOException {
+        out.writeByte(value >> 16);
+        out.writeByte(value >> 8);
+        out.writeByte(value);
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        return trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")
+                ? trimmed.substring(1, trimmed.length() - 1)
+                : trimmed;
+    }
+}
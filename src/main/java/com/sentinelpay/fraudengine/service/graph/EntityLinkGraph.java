@@ -0,0 +1,408 @@
+package com.sentinelpay.fraudengine.service.graph;
+
+import com.sentinelpay.fraudengine.service.feature.ScoredTransaction;
+import com.sentinelpay.fraudengine.service.feature.ScoredTransactionListener;
+import com.sentinelpay.fraudengine.service.feature.TransactionContext;
+import com.sentinelpay.fraudengine.service.feature.TransactionFeatureContributor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Links users to the devices, IPs and merchants they transact with so that scoring can
+ * see entities shared across accounts. Edges remember when they were last seen and
+ * count for less as they age; edges older than the horizon are ignored.
+ *
+ * <p>Fraud is propagated only from users with a confirmed fraud label, never from the
+ * engine's own BLOCK decisions: those feed back into scoring, so one false positive would
+ * raise the risk of everything linked to it.
+ * Merchants connect too many unrelated users to be useful for paths, so they are only
+ * used for their own recent-fraud share and never traversed.
+ *
+ * <p>Scored transactions are queued and applied by a single scheduled writer, a chunk
+ * per write lock, so scoring threads never wait on each other for the lock. The graph
+ * therefore trails the stream by up to one apply interval; updates are dropped when the
+ * queue is full.
+ */
+@Service
+@Order(0)
+public class EntityLinkGraph implements TransactionFeatureContributor, ScoredTransactionListener {
+    private static final Logger logger = LoggerFactory.getLogger(EntityLinkGraph.class);
+
+    static final int MAX_HOPS = 4;
+    private static final int NO_PATH = MAX_HOPS + 1;
+    private static final int MAX_VISITED = 512;
+    private static final int DAY_MINUTES = 24 * 60;
+    private static final double DECAY_MINUTES = 7 * DAY_MINUTES;
+    // Updates applied per write lock, so that readers are never held up for long
+    private static final int UPDATES_PER_LOCK = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BlockingQueue<GraphUpdate> updates;
+    private final Counter droppedUpdates;
+    private final Path snapshotPath;
+    private final int horizonMinutes;
+    private LinkGraph graph;
+
+    public EntityLinkGraph(
+            MeterRegistry meterRegistry,
+            @Value("${graph.max-nodes:500000}") int maxNodes,
+            @Value("${graph.max-degree:32}") int maxDegree,
+            @Value("${graph.horizon-days:30}") int horizonDays,
+            @Value("${graph.update-queue-capacity:100000}") int updateQueueCapacity,
+            @Value("${graph.snapshot-path:data/graph/entity-graph.bin}") String snapshotPath) {
+        this.snapshotPath = Paths.get(snapshotPath);
+        this.horizonMinutes = horizonDays * DAY_MINUTES;
+        this.updates = new ArrayBlockingQueue<>(updateQueueCapacity);
+        this.droppedUpdates = meterRegistry.counter("graph.updates.dropped");
+        Gauge.builder("graph.updates.queued", updates, BlockingQueue::size).register(meterRegistry);
+        this.graph = restore(maxNodes, maxDegree);
+    }
+
+    @Override
+    public void contribute(TransactionContext context, Map<String, Object> features) {
+        int now = minuteOf(context.timestamp().toEpochMilli());
+        long userKey = userKey(context.userId());
+        long deviceKey = entityKey(LinkGraph.DEVICE, context.deviceId());
+        long ipKey = entityKey(LinkGraph.IP, context.request().ipAddress());
+        long merchantKey = entityKey(LinkGraph.MERCHANT, context.request().merchantId());
+
+        lock.readLock().lock();
+        try {
+            int user = graph.find(userKey);
+            int device = graph.find(deviceKey);
+            int ip = graph.find(ipKey);
+            int merchant = graph.find(merchantKey);
+
+            features.put("graph_device_users_24h", otherUsers(device, user, now, DAY_MINUTES));
+            features.put("graph_ip_users_24h", otherUsers(ip, user, now, DAY_MINUTES));
+            features.put("graph_user_devices_24h", user >= 0 ? recentNeighbours(user, LinkGraph.DEVICE, now, DAY_MINUTES) : 0);
+            features.put("graph_merchant_fraud_share", fraudShare(merchant, now));
+
+            PathResult path = nearestFraud(user, device, ip, now);
+            features.put("graph_fraud_hops", path.hops);
+            features.put("graph_fraud_proximity", path.proximity);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Queues the transaction's links for the writer. Never blocks.
+     */
+    @Override
+    public void onScored(ScoredTransaction transaction) {
+        TransactionContext context = transaction.context();
+        GraphUpdate update = new GraphUpdate(
+                userKey(transaction.userId()),
+                entityKey(LinkGraph.DEVICE, context.deviceId()),
+                entityKey(LinkGraph.IP, context.request().ipAddress()),
+                entityKey(LinkGraph.MERCHANT, context.request().merchantId()),
+                minuteOf(transaction.timestamp().toEpochMilli()));
+        if (!updates.offer(update)) {
+            droppedUpdates.increment();
+        }
+    }
+
+    /**
+     * The single writer: applies the queued updates. Scheduled runs of one method never
+     * overlap.
+     */
+    @Scheduled(fixedDelayString = "${graph.apply-interval-ms:50}")
+    public void applyQueued() {
+        List<GraphUpdate> chunk = new ArrayList<>(UPDATES_PER_LOCK);
+        while (updates.drainTo(chunk, UPDATES_PER_LOCK) > 0) {
+            lock.writeLock().lock();
+            try {
+                for (GraphUpdate update : chunk) {
+                    apply(update);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            chunk.clear();
+        }
+    }
+
+    private void apply(GraphUpdate update) {
+        try {
+            int user = graph.getOrCreate(update.userKey(), LinkGraph.USER);
+            int device = graph.getOrCreate(update.deviceKey(), LinkGraph.DEVICE);
+            graph.link(user, device, update.minute());
+            int ip = graph.getOrCreate(update.ipKey(), LinkGraph.IP);
+            graph.link(user, ip, update.minute());
+            int merchant = graph.getOrCreate(update.merchantKey(), LinkGraph.MERCHANT);
+            graph.link(user, merchant, update.minute());
+        } finally {
+            graph.releasePins();
+        }
+    }
+
+    /**
+     * Flags or clears a user as known fraud, e.g. from a confirmed chargeback.
+     */
+    public void labelUser(UUID userId, boolean isFraud) {
+        lock.writeLock().lock();
+        try {
+            int user = graph.getOrCreate(userKey(userId), LinkGraph.USER);
+            graph.fraud[user] = isFraud;
+        } finally {
+            graph.releasePins();
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int nodeCount() {
+        lock.readLock().lock();
+        try {
+            return graph.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int otherUsers(int entity, int user, int now, int windowMinutes) {
+        if (entity < 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < graph.degrees[entity]; i++) {
+            int neighbour = graph.neighbour(entity, i);
+            if (neighbour != user && graph.types[neighbour] == LinkGraph.USER
+                    && now - graph.edgeMinute(entity, i) <= windowMinutes) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int recentNeighbours(int node, byte type, int now, int windowMinutes) {
+        int count = 0;
+        for (int i = 0; i < graph.degrees[node]; i++) {
+            if (graph.types[graph.neighbour(node, i)] == type && now - graph.edgeMinute(node, i) <= windowMinutes) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private double fraudShare(int merchant, int now) {
+        if (merchant < 0) {
+            return 0.0;
+        }
+        int users = 0;
+        int fraudulent = 0;
+        for (int i = 0; i < graph.degrees[merchant]; i++) {
+            int neighbour = graph.neighbour(merchant, i);
+            if (now - graph.edgeMinute(merchant, i) <= horizonMinutes) {
+                users++;
+                if (graph.fraud[neighbour]) {
+                    fraudulent++;
+                }
+            }
+        }
+        return users == 0 ? 0.0 : (double) fraudulent / users;
+    }
+
+    /**
+     * Breadth-first search from the user and the entities of the transaction being
+     * scored, through devices and IPs only, for the closest user flagged as fraud.
+     * Proximity is the product of edge weights along the path, so links that have not
+     * been seen for a while count for less.
+     */
+    private PathResult nearestFraud(int user, int device, int ip, int now) {
+        if (user >= 0 && graph.fraud[user]) {
+            return new PathResult(0, 1.0);
+        }
+
+        int[] queue = new int[MAX_VISITED];
+        int[] depth = new int[MAX_VISITED];
+        double[] weight = new double[MAX_VISITED];
+        VisitedSet visited = new VisitedSet(MAX_VISITED * 2);
+        int tail = 0;
+
+        if (user >= 0) {
+            visited.add(user);
+            queue[tail] = user;
+            depth[tail] = 0;
+            weight[tail++] = 1.0;
+        }
+        for (int entity : new int[]{device, ip}) {
+            if (entity >= 0 && visited.add(entity)) {
+                queue[tail] = entity;
+                depth[tail] = 1;
+                weight[tail++] = 1.0;
+            }
+        }
+
+        for (int head = 0; head < tail; head++) {
+            int node = queue[head];
+            if (depth[head] >= MAX_HOPS) {
+                continue;
+            }
+            for (int i = 0; i < graph.degrees[node]; i++) {
+                int neighbour = graph.neighbour(node, i);
+                int age = now - graph.edgeMinute(node, i);
+                if (age > horizonMinutes || graph.types[neighbour] == LinkGraph.MERCHANT || !visited.add(neighbour)) {
+                    continue;
+                }
+                double pathWeight = weight[head] * Math.exp(-Math.max(age, 0) / DECAY_MINUTES);
+                if (graph.fraud[neighbour]) {
+                    return new PathResult(depth[head] + 1, pathWeight);
+                }
+                if (tail == MAX_VISITED) {
+                    return new PathResult(NO_PATH, 0.0);
+                }
+                queue[tail] = neighbour;
+                depth[tail] = depth[head] + 1;
+                weight[tail++] = pathWeight;
+            }
+        }
+        return new PathResult(NO_PATH, 0.0);
+    }
+
+    /**
+     * Writes the graph to disk so a restart does not begin with an empty graph. Only the
+     * copy of the arrays is taken under the lock; scoring is not held up by the write.
+     */
+    @Scheduled(fixedDelayString = "${graph.snapshot-interval-ms:300000}", initialDelayString = "${graph.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        Path temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(snapshotPath.toAbsolutePath().getParent());
+            LinkGraph.Snapshot copy;
+            lock.readLock().lock();
+            try {
+                copy = graph.snapshot();
+            } finally {
+                lock.readLock().unlock();
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                copy.writeTo(out);
+            }
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Wrote entity graph snapshot to {}", snapshotPath);
+        } catch (IOException e) {
+            logger.warn("Failed to write entity graph snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Applies whatever is still queued before the last snapshot.
+     */
+    @PreDestroy
+    void close() {
+        applyQueued();
+        snapshot();
+    }
+
+    private LinkGraph restore(int maxNodes, int maxDegree) {
+        if (!Files.exists(snapshotPath)) {
+            return new LinkGraph(maxNodes, maxDegree);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath), 1 << 16))) {
+            LinkGraph restored = LinkGraph.readFrom(in);
+            if (restored.capacity != maxNodes || restored.maxDegree != maxDegree) {
+                logger.info("Entity graph snapshot has a different size ({} x {}), starting empty",
+                        restored.capacity, restored.maxDegree);
+                return new LinkGraph(maxNodes, maxDegree);
+            }
+            logger.info("Restored entity graph with {} nodes from {}", restored.size(), snapshotPath);
+            return restored;
+        } catch (IOException e) {
+            logger.warn("Failed to read entity graph snapshot {}: {}", snapshotPath, e.getMessage());
+            return new LinkGraph(maxNodes, maxDegree);
+        }
+    }
+
+    private static int minuteOf(long epochMillis) {
+        return (int) (epochMillis / 60_000);
+    }
+
+    private static long userKey(UUID userId) {
+        return nonZero(mix(userId.getMostSignificantBits() ^ Long.rotateLeft(userId.getLeastSignificantBits(), 29))
+                ^ LinkGraph.USER);
+    }
+
+    /**
+     * 64-bit FNV-1a of the value, salted with the entity type so a device and an IP with
+     * the same text are different nodes.
+     */
+    private static long entityKey(byte type, String value) {
+        long hash = 0xcbf29ce484222325L ^ type;
+        byte[] bytes = (value == null ? "unknown" : value).getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return nonZero(mix(hash));
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long nonZero(long key) {
+        return key == 0 ? 1 : key;
+    }
+
+    private record PathResult(int hops, double proximity) { }
+
+    private record GraphUpdate(long userKey, long deviceKey, long ipKey, long merchantKey, int minute) { }
+
+    /**
+     * Small open-addressing set of node ids for one search.
+     */
+    private static final class VisitedSet {
+        private final int[] slots;
+        private final int mask;
+
+        VisitedSet(int capacity) {
+            int size = Integer.highestOneBit(capacity - 1) << 1;
+            this.slots = new int[size];
+            this.mask = size - 1;
+        }
+
+        boolean add(int node) {
+            int value = node + 1;
+            for (int slot = (node * 0x9e3779b9 >>> 16) & mask; ; slot = (slot + 1) & mask) {
+                if (slots[slot] == value) {
+                    return false;
+                }
+                if (slots[slot] == 0) {
+                    slots[slot] = value;
+                    return true;
+                }
+            }
+        }
+    }
+}
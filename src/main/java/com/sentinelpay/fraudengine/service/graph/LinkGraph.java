@@ -0,0 +1,325 @@
+package com.sentinelpay.fraudengine.service.graph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity undirected graph over 64-bit entity keys, stored entirely in primitive
+ * arrays. Each node has at most {@code maxDegree} edges, each stamped with the minute it
+ * was last seen; a full adjacency list replaces its stalest edge. When the node table is
+ * full, a CLOCK sweep evicts a node that has not been touched since the hand last passed.
+ * Nodes returned by {@link #getOrCreate} stay pinned until {@link #releasePins()}, so one
+ * update cannot evict a node it has just created or looked up.
+ *
+ * <p>Not thread-safe; {@link EntityLinkGraph} guards it with a read/write lock.
+ */
+final class LinkGraph {
+
+    static final byte USER = 1;
+    static final byte DEVICE = 2;
+    static final byte IP = 3;
+    static final byte MERCHANT = 4;
+
+    private static final int MAGIC = 0x53504c47; // "SPLG"
+    private static final int VERSION = 2;
+    private static final int TOMBSTONE = -1;
+    private static final int MAX_PINS = 8;
+
+    final int capacity;
+    final int maxDegree;
+
+    final long[] keys;
+    final byte[] types;
+    final boolean[] fraud;
+    final int[] degrees;
+    final int[] neighbors;
+    final int[] edgeMinutes;
+    private final boolean[] referenced;
+    private final int[] pins = new int[MAX_PINS];
+    private int pinCount;
+
+    // Open-addressing index from key to node + 1; 0 is empty, -1 a deleted slot
+    private final int[] index;
+    private final int indexMask;
+    private int tombstones;
+
+    private int highWater;
+    private int size;
+    private int clockHand;
+
+    LinkGraph(int capacity, int maxDegree) {
+        this.capacity = capacity;
+        this.maxDegree = maxDegree;
+        this.keys = new long[capacity];
+        this.types = new byte[capacity];
+        this.fraud = new boolean[capacity];
+        this.degrees = new int[capacity];
+        this.neighbors = new int[capacity * maxDegree];
+        this.edgeMinutes = new int[capacity * maxDegree];
+        this.referenced = new boolean[capacity];
+        int indexSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        this.index = new int[indexSize];
+        this.indexMask = indexSize - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int find(long key) {
+        for (int slot = slotFor(key); ; slot = (slot + 1) & indexMask) {
+            int entry = index[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (entry > 0 && keys[entry - 1] == key) {
+                return entry - 1;
+            }
+        }
+    }
+
+    int getOrCreate(long key, byte type) {
+        int node = find(key);
+        if (node >= 0) {
+            referenced[node] = true;
+            pin(node);
+            return node;
+        }
+
+        if (highWater < capacity) {
+            node = highWater++;
+        } else {
+            node = evictOne();
+        }
+        keys[node] = key;
+        types[node] = type;
+        fraud[node] = false;
+        degrees[node] = 0;
+        referenced[node] = true;
+        insertIndex(key, node);
+        size++;
+        pin(node);
+        return node;
+    }
+
+    /**
+     * Ends an update; nodes it created or looked up may be evicted again.
+     */
+    void releasePins() {
+        pinCount = 0;
+    }
+
+    /**
+     * Adds or refreshes the edge between two nodes.
+     */
+    void link(int a, int b, int minute) {
+        if (a == b) {
+            return;
+        }
+        int existing = edgeIndex(a, b);
+        if (existing >= 0) {
+            edgeMinutes[existing] = minute;
+            edgeMinutes[edgeIndex(b, a)] = minute;
+            return;
+        }
+        makeRoom(a);
+        makeRoom(b);
+        append(a, b, minute);
+        append(b, a, minute);
+    }
+
+    int neighbour(int node, int i) {
+        return neighbors[node * maxDegree + i];
+    }
+
+    int edgeMinute(int node, int i) {
+        return edgeMinutes[node * maxDegree + i];
+    }
+
+    /**
+     * Copies the used part of the arrays, so that the copy can be written out without
+     * holding the lock.
+     */
+    Snapshot snapshot() {
+        int edges = highWater * maxDegree;
+        return new Snapshot(capacity, maxDegree, highWater,
+                Arrays.copyOf(keys, highWater), Arrays.copyOf(types, highWater), Arrays.copyOf(fraud, highWater),
+                Arrays.copyOf(degrees, highWater), Arrays.copyOf(neighbors, edges), Arrays.copyOf(edgeMinutes, edges));
+    }
+
+    record Snapshot(int capacity, int maxDegree, int highWater, long[] keys, byte[] types, boolean[] fraud,
+                    int[] degrees, int[] neighbors, int[] edgeMinutes) {
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(capacity);
+            out.writeInt(maxDegree);
+            out.writeInt(highWater);
+            for (int node = 0; node < highWater; node++) {
+                out.writeLong(keys[node]);
+                out.writeByte(types[node]);
+                out.writeBoolean(fraud[node]);
+                out.writeShort(degrees[node]);
+                int base = node * maxDegree;
+                for (int i = 0; i < degrees[node]; i++) {
+                    out.writeInt(neighbors[base + i]);
+                    out.writeInt(edgeMinutes[base + i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores a snapshot written by a graph of the same capacity and degree.
+     */
+    static LinkGraph readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an entity graph snapshot");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported entity graph snapshot version " + version);
+        }
+        LinkGraph graph = new LinkGraph(in.readInt(), in.readInt());
+        graph.highWater = in.readInt();
+        for (int node = 0; node < graph.highWater; node++) {
+            graph.keys[node] = in.readLong();
+            graph.types[node] = in.readByte();
+            graph.fraud[node] = in.readBoolean();
+            graph.degrees[node] = in.readShort();
+            int base = node * graph.maxDegree;
+            for (int i = 0; i < graph.degrees[node]; i++) {
+                graph.neighbors[base + i] = in.readInt();
+                graph.edgeMinutes[base + i] = in.readInt();
+            }
+            if (graph.types[node] != 0) {
+                graph.insertIndex(graph.keys[node], node);
+                graph.size++;
+            }
+        }
+        return graph;
+    }
+
+    private int evictOne() {
+        while ((referenced[clockHand] && types[clockHand] != 0) || isPinned(clockHand)) {
+            referenced[clockHand] = false;
+            clockHand = (clockHand + 1) % capacity;
+        }
+        int victim = clockHand;
+        clockHand = (clockHand + 1) % capacity;
+
+        int base = victim * maxDegree;
+        for (int i = 0; i < degrees[victim]; i++) {
+            removeHalfEdge(neighbors[base + i], victim);
+        }
+        degrees[victim] = 0;
+        if (types[victim] != 0) {
+            types[victim] = 0;
+            removeIndex(keys[victim]);
+            size--;
+        }
+        return victim;
+    }
+
+    private void pin(int node) {
+        if (pinCount < MAX_PINS) {
+            pins[pinCount++] = node;
+        }
+    }
+
+    private boolean isPinned(int node) {
+        for (int i = 0; i < pinCount; i++) {
+            if (pins[i] == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Frees one edge slot if the node is at its degree limit by dropping its stalest edge.
+     */
+    private void makeRoom(int node) {
+        if (degrees[node] < maxDegree) {
+            return;
+        }
+        int base = node * maxDegree;
+        int oldest = 0;
+        for (int i = 1; i < maxDegree; i++) {
+            if (edgeMinutes[base + i] < edgeMinutes[base + oldest]) {
+                oldest = i;
+            }
+        }
+        int other = neighbors[base + oldest];
+        removeHalfEdge(node, other);
+        removeHalfEdge(other, node);
+    }
+
+    private void append(int from, int to, int minute) {
+        int position = from * maxDegree + degrees[from]++;
+        neighbors[position] = to;
+        edgeMinutes[position] = minute;
+    }
+
+    private int edgeIndex(int from, int to) {
+        int base = from * maxDegree;
+        for (int i = 0; i < degrees[from]; i++) {
+            if (neighbors[base + i] == to) {
+                return base + i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeHalfEdge(int from, int to) {
+        int position = edgeIndex(from, to);
+        if (position < 0) {
+            return;
+        }
+        int last = from * maxDegree + --degrees[from];
+        neighbors[position] = neighbors[last];
+        edgeMinutes[position] = edgeMinutes[last];
+    }
+
+    private void insertIndex(long key, int node) {
+        int slot = slotFor(key);
+        while (index[slot] > 0) {
+            slot = (slot + 1) & indexMask;
+        }
+        if (index[slot] == TOMBSTONE) {
+            tombstones--;
+        }
+        index[slot] = node + 1;
+    }
+
+    private void removeIndex(long key) {
+        for (int slot = slotFor(key); index[slot] != 0; slot = (slot + 1) & indexMask) {
+            int entry = index[slot];
+            if (entry > 0 && keys[entry - 1] == key) {
+                index[slot] = TOMBSTONE;
+                if (++tombstones > index.length / 4) {
+                    rebuildIndex();
+                }
+                return;
+            }
+        }
+    }
+
+    private void rebuildIndex() {
+        Arrays.fill(index, 0);
+        tombstones = 0;
+        for (int node = 0; node < highWater; node++) {
+            if (types[node] != 0) {
+                insertIndex(keys[node], node);
+            }
+        }
+    }
+
+    private int slotFor(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & indexMask;
+    }
+}
@@ -0,0 +1,138 @@
+package com.sentinelpay.fraudengine.service.hitters;
+
+import com.sentinelpay.fraudengine.dto.HeavyHittersReport;
+import com.sentinelpay.fraudengine.service.feature.TransactionContext;
+import com.sentinelpay.fraudengine.service.feature.TransactionFeatureContributor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts recent transactions per merchant, IP, card BIN and amount across all users, to
+ * catch attacks spread over many accounts such as card testing, where one merchant or IP
+ * sees a burst of small amounts. Per-user velocity cannot see these.
+ *
+ * <p>Every scored transaction is counted in one {@link HeavyHitterSketch} per dimension
+ * and the windowed counts are contributed as features. Memory is fixed by the sketch
+ * size, however many distinct keys there are.
+ */
+@Service
+@Order(0)
+public class HeavyHitterService implements TransactionFeatureContributor {
+
+    private static final int LOG_BUCKETS = 64;
+
+    private final Map<HitterDimension, HeavyHitterSketch> sketches = new EnumMap<>(HitterDimension.class);
+    private final int windowMinutes;
+    private final long smallAmountCents;
+    private final String[] amountLabels;
+
+    public HeavyHitterService(
+            MeterRegistry meterRegistry,
+            @Value("${hitters.window-minutes:10}") int windowMinutes,
+            @Value("${hitters.sub-windows:10}") int subWindows,
+            @Value("${hitters.depth:4}") int depth,
+            @Value("${hitters.width:4096}") int width,
+            @Value("${hitters.top-k:20}") int topK,
+            @Value("${hitters.small-amount:10.00}") BigDecimal smallAmount) {
+        this.windowMinutes = windowMinutes;
+        this.smallAmountCents = smallAmount.movePointRight(2).longValue();
+        long subWindowMillis = Math.max(1, windowMinutes * 60_000L / subWindows);
+        for (HitterDimension dimension : HitterDimension.values()) {
+            sketches.put(dimension, new HeavyHitterSketch(depth, width, subWindows, subWindowMillis, topK));
+        }
+
+        // Small amounts are bucketed to the cent, larger ones by power of two
+        this.amountLabels = new String[(int) smallAmountCents + LOG_BUCKETS];
+        for (int cents = 0; cents < smallAmountCents; cents++) {
+            amountLabels[cents] = BigDecimal.valueOf(cents, 2).toPlainString();
+        }
+        for (int bits = 0; bits < LOG_BUCKETS; bits++) {
+            amountLabels[(int) smallAmountCents + bits] = ">=" + BigDecimal.valueOf(1L << Math.min(bits, 62), 2).toPlainString();
+        }
+
+        Gauge.builder("hitters.memory.bytes", sketches, HeavyHitterService::memoryBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void contribute(TransactionContext context, Map<String, Object> features) {
+        long now = context.timestamp().toEpochMilli();
+        String merchantId = context.request().merchantId();
+        String ipAddress = context.request().ipAddress();
+        String cardBin = context.request().cardBin();
+        long cents = Math.max(0, Math.round(context.amount() * 100));
+        int amountBucket = amountBucket(cents);
+
+        long merchantHash = HeavyHitterSketch.hash(merchantId);
+        features.put(HitterDimension.MERCHANT.featureName(),
+                sketches.get(HitterDimension.MERCHANT).add(merchantHash, merchantId, now));
+        features.put(HitterDimension.IP.featureName(),
+                sketches.get(HitterDimension.IP).add(HeavyHitterSketch.hash(ipAddress), ipAddress, now));
+        features.put(HitterDimension.BIN.featureName(), cardBin == null ? 0
+                : sketches.get(HitterDimension.BIN).add(HeavyHitterSketch.hash(cardBin), cardBin, now));
+        features.put(HitterDimension.AMOUNT.featureName(),
+                sketches.get(HitterDimension.AMOUNT).add(HeavyHitterSketch.hash(amountBucket), amountLabels[amountBucket], now));
+
+        HeavyHitterSketch small = sketches.get(HitterDimension.SMALL_AMOUNT_MERCHANT);
+        features.put(HitterDimension.SMALL_AMOUNT_MERCHANT.featureName(), cents < smallAmountCents
+                ? small.add(merchantHash, merchantId, now)
+                : small.estimate(merchantHash, now));
+    }
+
+    /**
+     * Clears each sketch's next sub-window before traffic reaches it, keeping the clear off
+     * the scoring path.
+     */
+    @Scheduled(fixedDelayString = "${hitters.prepare-interval-ms:1000}")
+    public void prepareSubWindows() {
+        long now = System.currentTimeMillis();
+        for (HeavyHitterSketch sketch : sketches.values()) {
+            sketch.prepareNext(now);
+        }
+    }
+
+    public HeavyHittersReport report(Collection<HitterDimension> dimensions, int limit) {
+        long now = System.currentTimeMillis();
+        Map<String, HeavyHittersReport.Dimension> report = new LinkedHashMap<>();
+        for (HitterDimension dimension : dimensions) {
+            HeavyHitterSketch sketch = sketches.get(dimension);
+            long total = sketch.total(now);
+            List<HeavyHittersReport.Hitter> hitters = new ArrayList<>();
+            for (HeavyHitterSketch.Hitter hitter : sketch.top(limit, now)) {
+                hitters.add(new HeavyHittersReport.Hitter(hitter.key(), hitter.count(),
+                        total == 0 ? 0.0 : (double) hitter.count() / total));
+            }
+            report.put(dimension.name(), new HeavyHittersReport.Dimension(total, hitters));
+        }
+        return new HeavyHittersReport(Instant.ofEpochMilli(now), windowMinutes, report);
+    }
+
+    private int amountBucket(long cents) {
+        if (cents < smallAmountCents) {
+            return (int) cents;
+        }
+        return (int) smallAmountCents + (63 - Long.numberOfLeadingZeros(cents));
+    }
+
+    private static double memoryBytes(Map<HitterDimension, HeavyHitterSketch> sketches) {
+        long bytes = 0;
+        for (HeavyHitterSketch sketch : sketches.values()) {
+            bytes += sketch.memoryBytes();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,289 @@
+package com.sentinelpay.fraudengine.service.hitters;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sliding-window Count-Min sketch with a top-K candidate table, for one kind of key.
+ *
+ * <p>The window is a ring of sub-windows over a {@code depth x width} counter matrix; each
+ * cell keeps one counter per sub-window side by side, so reading a key's window costs one
+ * cache line per row. Adding a key increments one counter per row in the current
+ * sub-window with an atomic add, so the scoring path never takes a lock. A key's estimate is the minimum
+ * over rows of its counters summed across the live sub-windows; it never undercounts and
+ * overcounts by at most about {@code e / width} of the window's total with high
+ * probability. The ring holds one spare sub-window beyond the window, which
+ * {@link #prepareNext} clears in the background before traffic moves into it; a thread
+ * only clears a sub-window itself when that has not happened in time. The few increments
+ * that race with a clear are lost, which the estimate tolerates.
+ *
+ * <p>The top-K table is only touched when a key's estimate exceeds the smallest estimate
+ * in the table, and then only if no other thread holds it, so under normal traffic it
+ * stays off the hot path. Memory is fixed by the configuration whatever the number of
+ * distinct keys.
+ */
+final class HeavyHitterSketch {
+
+    private final int depth;
+    private final int mask;
+    private final int subWindows;
+    private final int slots;
+    private final long subWindowMillis;
+    private final AtomicIntegerArray counters;
+    private final AtomicLongArray epochs;
+    private final AtomicLongArray cleared;
+    private final AtomicLongArray totals;
+
+    private final int k;
+    private final long[] topHashes;
+    private final String[] topKeys;
+    private final int[] topEstimates;
+    private final ReentrantLock topLock = new ReentrantLock();
+    private int topSize;
+    private volatile int floor;
+    private volatile long floorEpoch;
+
+    HeavyHitterSketch(int depth, int width, int subWindows, long subWindowMillis, int k) {
+        if (subWindows < 1 || subWindows >= Long.SIZE) {
+            throw new IllegalArgumentException("subWindows must be between 1 and 63");
+        }
+        int roundedWidth = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.depth = depth;
+        this.mask = roundedWidth - 1;
+        this.subWindows = subWindows;
+        this.slots = subWindows + 1;
+        this.subWindowMillis = subWindowMillis;
+        this.counters = new AtomicIntegerArray(slots * depth * roundedWidth);
+        this.epochs = new AtomicLongArray(slots);
+        this.cleared = new AtomicLongArray(slots);
+        this.totals = new AtomicLongArray(slots);
+        this.k = k;
+        this.topHashes = new long[k];
+        this.topKeys = new String[k];
+        this.topEstimates = new int[k];
+    }
+
+    /**
+     * Counts one occurrence of the key and returns its windowed estimate, including this one.
+     */
+    int add(long hash, String key, long nowMillis) {
+        long epoch = nowMillis / subWindowMillis;
+        int slot = (int) (epoch % slots);
+        if (!advance(slot, epoch)) {
+            // Timestamp from a sub-window that has already been recycled
+            return estimate(hash, nowMillis);
+        }
+
+        int low = (int) hash;
+        int high = (int) (hash >>> 32) | 1;
+        for (int row = 0; row < depth; row++) {
+            counters.incrementAndGet(cell(row, (low + row * high) & mask) + slot);
+        }
+        totals.incrementAndGet(slot);
+
+        int estimate = estimate(hash, nowMillis);
+        if ((estimate > floor || floorEpoch != epoch) && topLock.tryLock()) {
+            try {
+                offer(hash, key, estimate, epoch, nowMillis);
+            } finally {
+                topLock.unlock();
+            }
+        }
+        return estimate;
+    }
+
+    int estimate(long hash, long nowMillis) {
+        long epoch = nowMillis / subWindowMillis;
+        int low = (int) hash;
+        int high = (int) (hash >>> 32) | 1;
+        long live = liveSlots(epoch);
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int cell = cell(row, (low + row * high) & mask);
+            int sum = 0;
+            for (long slots = live; slots != 0; slots &= slots - 1) {
+                sum += counters.get(cell + Long.numberOfTrailingZeros(slots));
+            }
+            min = Math.min(min, sum);
+        }
+        return min;
+    }
+
+    long total(long nowMillis) {
+        long epoch = nowMillis / subWindowMillis;
+        long total = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (isLive(slot, epoch)) {
+                total += totals.get(slot);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Current heavy hitters, re-estimated against the window and largest first.
+     */
+    List<Hitter> top(int limit, long nowMillis) {
+        List<Hitter> hitters;
+        topLock.lock();
+        try {
+            hitters = new ArrayList<>(topSize);
+            for (int i = 0; i < topSize; i++) {
+                int count = estimate(topHashes[i], nowMillis);
+                if (count > 0) {
+                    hitters.add(new Hitter(topKeys[i], count));
+                }
+            }
+        } finally {
+            topLock.unlock();
+        }
+        hitters.sort(Comparator.comparingInt(Hitter::count).reversed());
+        return hitters.size() > limit ? hitters.subList(0, limit) : hitters;
+    }
+
+    /**
+     * Clears the sub-window after the current one ahead of time, so that the first add in it
+     * does not have to. Called periodically, well within a sub-window.
+     */
+    void prepareNext(long nowMillis) {
+        long next = nowMillis / subWindowMillis + 1;
+        int slot = (int) (next % slots);
+        if (cleared.get(slot) == next || epochs.get(slot) >= next) {
+            return;
+        }
+        clear(slot);
+        cleared.set(slot, next);
+    }
+
+    long memoryBytes() {
+        return (long) counters.length() * Integer.BYTES + (long) k * (Long.BYTES + Integer.BYTES + 8);
+    }
+
+    private int cell(int row, int column) {
+        return (row * (mask + 1) + column) * slots;
+    }
+
+    private long liveSlots(long epoch) {
+        long live = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (isLive(slot, epoch)) {
+                live |= 1L << slot;
+            }
+        }
+        return live;
+    }
+
+    private boolean isLive(int slot, long epoch) {
+        long age = epoch - epochs.get(slot);
+        return age >= 0 && age < subWindows;
+    }
+
+    /**
+     * Makes {@code slot} current for {@code epoch}, clearing it if it still holds an older
+     * sub-window and {@link #prepareNext} has not cleared it already. Returns false if the
+     * slot already belongs to a newer one.
+     */
+    private boolean advance(int slot, long epoch) {
+        while (true) {
+            long seen = epochs.get(slot);
+            if (seen == epoch) {
+                return true;
+            }
+            if (seen > epoch) {
+                return false;
+            }
+            if (epochs.compareAndSet(slot, seen, epoch)) {
+                if (cleared.get(slot) != epoch) {
+                    clear(slot);
+                }
+                return true;
+            }
+        }
+    }
+
+    private void clear(int slot) {
+        for (int i = slot; i < counters.length(); i += slots) {
+            counters.set(i, 0);
+        }
+        totals.set(slot, 0);
+    }
+
+    /**
+     * Admits the key to the top-K table, replacing the weakest entry once full. Stored
+     * estimates are refreshed from the sketch once per sub-window so that keys from an
+     * earlier burst age out and the floor follows the window down. Callers hold
+     * {@code topLock}.
+     */
+    private void offer(long hash, String key, int estimate, long epoch, long nowMillis) {
+        if (floorEpoch != epoch) {
+            for (int i = 0; i < topSize; i++) {
+                topEstimates[i] = estimate(topHashes[i], nowMillis);
+            }
+            floorEpoch = epoch;
+        }
+
+        int found = -1;
+        int weakest = -1;
+        for (int i = 0; i < topSize; i++) {
+            if (topHashes[i] == hash) {
+                found = i;
+                break;
+            }
+            if (weakest < 0 || topEstimates[i] < topEstimates[weakest]) {
+                weakest = i;
+            }
+        }
+        if (found >= 0) {
+            topEstimates[found] = estimate;
+        } else if (topSize < k) {
+            put(topSize++, hash, key, estimate);
+        } else if (estimate > topEstimates[weakest]) {
+            put(weakest, hash, key, estimate);
+        }
+
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < topSize; i++) {
+            min = Math.min(min, topEstimates[i]);
+        }
+        floor = topSize < k ? 0 : min;
+    }
+
+    private void put(int index, long hash, String key, int estimate) {
+        topHashes[index] = hash;
+        topKeys[index] = key;
+        topEstimates[index] = estimate;
+    }
+
+    /**
+     * 64-bit FNV-1a over the string's characters, finished with a 64-bit mix so both
+     * halves are usable as independent row hashes.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb34e53a87e9L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    static long hash(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        h ^= h >>> 32;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 29;
+        return h;
+    }
+
+    record Hitter(String key, int count) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.sentinelpay.fraudengine.service.hitters;
+
+import java.util.Locale;
+
+/**
+ * Keys counted by {@link HeavyHitterService}. Small-amount merchant counts only include
+ * transactions below the small-amount threshold, the typical card-testing pattern.
+ */
+public enum HitterDimension {
+    MERCHANT("hitter_merchant_count"),
+    IP("hitter_ip_count"),
+    BIN("hitter_bin_count"),
+    AMOUNT("hitter_amount_count"),
+    SMALL_AMOUNT_MERCHANT("hitter_merchant_small_count");
+
+    private final String featureName;
+
+    HitterDimension(String featureName) {
+        this.featureName = featureName;
+    }
+
+    public String featureName() {
+        return featureName;
+    }
+
+    public static HitterDimension parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
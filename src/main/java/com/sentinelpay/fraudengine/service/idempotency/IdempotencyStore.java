@@ -0,0 +1,321 @@
+package com.sentinelpay.fraudengine.service.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sentinelpay.fraudengine.cache.BoundedCache;
+import com.sentinelpay.fraudengine.dto.TransactionRequest;
+import com.sentinelpay.fraudengine.dto.TransactionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Makes transaction evaluation idempotent, so that a gateway retrying a request gets the
+ * decision it already had instead of a second evaluation that bumps velocity, writes
+ * another row and may alert again.
+ *
+ * <p>A request is identified by its {@code Idempotency-Key} header, scoped to the user.
+ * Requests without one are always evaluated unless {@code idempotency.derive-keys} is set,
+ * in which case a hash of the body is used for a short window. That is off by default: the
+ * request carries no gateway reference, so rapid identical repeats, which is what card
+ * testing looks like, would otherwise be answered from the first decision. A key is only
+ * ever paired with one request body: reusing it for a different one is rejected.
+ *
+ * <p>A duplicate is not evaluated, but the caller's {@code onDuplicate} still runs for it,
+ * so that retries keep counting toward velocity.
+ *
+ * <p>Completed decisions are kept in a bounded in-process cache in front of Redis, which
+ * all nodes share. Duplicates arriving on the same node while the first is still being
+ * evaluated share its evaluation. A node that finds the key claimed by another node polls
+ * Redis for the decision for a short while before answering 409. Only persisted decisions
+ * are kept: a fallback has no transaction behind it, so its claim is released and a retry
+ * is evaluated afresh. If Redis is unavailable requests are evaluated without it.
+ */
+@Service
+public class IdempotencyStore {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private static final String KEY = "idempotency:%s";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    /**
+     * Identifies a request; {@code fingerprint} is the hash of its body.
+     */
+    public record IdempotencyKey(String id, String fingerprint, Duration ttl) {
+    }
+
+    /**
+     * The response to an evaluation, and whether it was persisted and may be replayed.
+     */
+    public record Outcome(TransactionResponse response, boolean persisted) {
+    }
+
+    /**
+     * What Redis holds for a key: the request's fingerprint, and the decision once there is one.
+     */
+    record StoredDecision(String fingerprint, TransactionResponse response) {
+    }
+
+    private record InFlight(String fingerprint, Mono<Decided> decided) {
+    }
+
+    /**
+     * A decision, and whether it was made for an earlier request rather than evaluated now.
+     */
+    private record Decided(TransactionResponse response, boolean replayed) {
+    }
+
+    private static final class StillPending extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private StillPending() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final StillPending STILL_PENDING = new StillPending();
+
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter fingerprintWriter;
+    private final BoundedCache<String, StoredDecision> completed;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final boolean deriveKeys;
+    private final Duration keyTtl;
+    private final Duration derivedKeyTtl;
+    private final Duration claimTtl;
+    private final Duration pollInterval;
+    private final int pollAttempts;
+
+    private final Counter evaluated;
+    private final Counter replayedLocal;
+    private final Counter replayedRedis;
+    private final Counter joined;
+    private final Counter conflicts;
+    private final Counter mismatches;
+    private final Counter redisErrors;
+
+    public IdempotencyStore(
+            ReactiveRedisTemplate<String, String> redisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${idempotency.derive-keys:false}") boolean deriveKeys,
+            @Value("${idempotency.key-ttl:24h}") Duration keyTtl,
+            @Value("${idempotency.derived-key-ttl:2m}") Duration derivedKeyTtl,
+            @Value("${idempotency.claim-ttl:30s}") Duration claimTtl,
+            @Value("${idempotency.pending-wait:2s}") Duration pendingWait,
+            @Value("${idempotency.poll-interval:50ms}") Duration pollInterval,
+            @Value("${idempotency.cache.maximum-size:50000}") int maximumSize) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.fingerprintWriter = objectMapper.writer(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        // Plain LRU: frequency-based admission could turn away a decision just made, and a
+        // retry would then only be replayed if Redis had stored it too
+        this.completed = BoundedCache.lru(maximumSize);
+        this.deriveKeys = deriveKeys;
+        this.keyTtl = keyTtl;
+        this.derivedKeyTtl = derivedKeyTtl;
+        this.claimTtl = claimTtl;
+        this.pollInterval = pollInterval;
+        this.pollAttempts = (int) Math.max(1, pendingWait.toMillis() / Math.max(1, pollInterval.toMillis()));
+
+        this.evaluated = meterRegistry.counter("idempotency.requests", "outcome", "evaluated");
+        this.replayedLocal = meterRegistry.counter("idempotency.requests", "outcome", "replayed_local");
+        this.replayedRedis = meterRegistry.counter("idempotency.requests", "outcome", "replayed_redis");
+        this.joined = meterRegistry.counter("idempotency.requests", "outcome", "joined");
+        this.conflicts = meterRegistry.counter("idempotency.requests", "outcome", "conflict");
+        this.mismatches = meterRegistry.counter("idempotency.requests", "outcome", "mismatch");
+        this.redisErrors = meterRegistry.counter("idempotency.redis.errors");
+        Gauge.builder("idempotency.cache.size", completed, BoundedCache::size).register(meterRegistry);
+        Gauge.builder("idempotency.inflight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * The key for a request, from its header if it has one. Null when the request has no
+     * header and keys are not derived, in which case it is always evaluated.
+     */
+    public IdempotencyKey keyFor(TransactionRequest request, String header) {
+        if (header != null && !header.isBlank()) {
+            if (header.length() > MAX_KEY_LENGTH) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+            }
+            return new IdempotencyKey("key:" + request.userId() + ":" + header, fingerprint(request), keyTtl);
+        }
+        if (!deriveKeys) {
+            return null;
+        }
+        String fingerprint = fingerprint(request);
+        return new IdempotencyKey("body:" + fingerprint, fingerprint, derivedKeyTtl);
+    }
+
+    /**
+     * Returns the decision already made for the key, running {@code onDuplicate} first, or
+     * runs the evaluation and keeps its decision if it was persisted.
+     */
+    public Mono<TransactionResponse> execute(
+            IdempotencyKey key,
+            Supplier<Mono<Outcome>> evaluation,
+            Supplier<Mono<Void>> onDuplicate) {
+        if (key == null) {
+            return Mono.defer(evaluation).map(Outcome::response);
+        }
+        StoredDecision cached = completed.getIfPresent(key.id());
+        if (cached != null) {
+            return Mono.fromCallable(() -> replay(key, cached, replayedLocal))
+                    .flatMap(response -> onDuplicate.get().thenReturn(response));
+        }
+
+        InFlight created = new InFlight(key.fingerprint(), executeOnce(key, evaluation));
+        InFlight current = inFlight.putIfAbsent(key.id(), created);
+        if (current == null) {
+            return created.decided().flatMap(decided -> decided.replayed()
+                    ? onDuplicate.get().thenReturn(decided.response())
+                    : Mono.just(decided.response()));
+        }
+        if (!current.fingerprint().equals(key.fingerprint())) {
+            mismatches.increment();
+            return Mono.error(mismatch());
+        }
+        joined.increment();
+        return current.decided().flatMap(decided -> onDuplicate.get().thenReturn(decided.response()));
+    }
+
+    private Mono<Decided> executeOnce(IdempotencyKey key, Supplier<Mono<Outcome>> evaluation) {
+        return claimOrReplay(key, evaluation)
+                .doFinally(signal -> inFlight.remove(key.id()))
+                .cache();
+    }
+
+    private Mono<Decided> claimOrReplay(IdempotencyKey key, Supplier<Mono<Outcome>> evaluation) {
+        String redisKey = KEY.formatted(key.id());
+        return claim(redisKey, key)
+                .flatMap(claimed -> claimed
+                        ? evaluate(redisKey, key, evaluation).map(response -> new Decided(response, false))
+                        : awaitDecision(redisKey, key)
+                                .map(stored -> new Decided(replay(key, stored, replayedRedis), true))
+                                // The other evaluation gave up its claim, so this one takes over
+                                .switchIfEmpty(Mono.defer(() -> claimOrReplay(key, evaluation))));
+    }
+
+    /**
+     * Claims the key for this node, or reports that it already exists. Fails open: without
+     * Redis the request is evaluated as if it were new.
+     */
+    private Mono<Boolean> claim(String redisKey, IdempotencyKey key) {
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(new StoredDecision(key.fingerprint(), null)))
+                .flatMap(pending -> redisTemplate.opsForValue().setIfAbsent(redisKey, pending, claimTtl))
+                .defaultIfEmpty(true)
+                .onErrorResume(error -> {
+                    redisErrors.increment();
+                    logger.warn("Idempotency claim failed for {}, evaluating anyway: {}", key.id(), error.getMessage());
+                    return Mono.just(true);
+                });
+    }
+
+    private Mono<TransactionResponse> evaluate(String redisKey, IdempotencyKey key, Supplier<Mono<Outcome>> evaluation) {
+        evaluated.increment();
+        return Mono.defer(evaluation)
+                .flatMap(outcome -> outcome.persisted()
+                        ? store(redisKey, key, outcome.response())
+                        : release(redisKey).thenReturn(outcome.response()))
+                .onErrorResume(error -> release(redisKey).then(Mono.error(error)));
+    }
+
+    private Mono<TransactionResponse> store(String redisKey, IdempotencyKey key, TransactionResponse response) {
+        StoredDecision stored = new StoredDecision(key.fingerprint(), response);
+        completed.put(key.id(), stored, key.ttl());
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(stored))
+                .flatMap(json -> redisTemplate.opsForValue().set(redisKey, json, key.ttl()))
+                .onErrorResume(error -> {
+                    redisErrors.increment();
+                    logger.warn("Failed to store idempotent decision for {}: {}", key.id(), error.getMessage());
+                    return Mono.empty();
+                })
+                .thenReturn(response);
+    }
+
+    private Mono<Void> release(String redisKey) {
+        return redisTemplate.delete(redisKey)
+                .onErrorResume(error -> {
+                    redisErrors.increment();
+                    logger.warn("Failed to release idempotency claim {}: {}", redisKey, error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Polls Redis until the node holding the claim stores its decision. Empty if the claim
+     * is released or expires first, 409 if it is still held when the wait is over.
+     */
+    private Mono<StoredDecision> awaitDecision(String redisKey, IdempotencyKey key) {
+        return redisTemplate.opsForValue().get(redisKey)
+                .map(this::read)
+                .flatMap(stored -> {
+                    if (!stored.fingerprint().equals(key.fingerprint())) {
+                        mismatches.increment();
+                        return Mono.error(mismatch());
+                    }
+                    return stored.response() != null ? Mono.just(stored) : Mono.error(STILL_PENDING);
+                })
+                .retryWhen(Retry.fixedDelay(pollAttempts, pollInterval)
+                        .filter(error -> error == STILL_PENDING)
+                        .onRetryExhaustedThrow((spec, signal) -> {
+                            conflicts.increment();
+                            return new ResponseStatusException(HttpStatus.CONFLICT,
+                                    "A request with this idempotency key is still being evaluated");
+                        }));
+    }
+
+    private TransactionResponse replay(IdempotencyKey key, StoredDecision stored, Counter counter) {
+        if (!stored.fingerprint().equals(key.fingerprint())) {
+            mismatches.increment();
+            throw mismatch();
+        }
+        counter.increment();
+        completed.put(key.id(), stored, key.ttl());
+        return stored.response();
+    }
+
+    private StoredDecision read(String json) {
+        try {
+            return objectMapper.readValue(json, StoredDecision.class);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable idempotent decision", e);
+        }
+    }
+
+    private String fingerprint(TransactionRequest request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fingerprintWriter.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot fingerprint transaction request", e);
+        }
+    }
+
+    private static ResponseStatusException mismatch() {
+        return new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "Idempotency key was already used for a different request");
+    }
+}
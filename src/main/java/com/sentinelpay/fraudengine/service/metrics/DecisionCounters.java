@@ -0,0 +1,267 @@
+package com.sentinelpay.fraudengine.service.metrics;
+
+import com.sentinelpay.fraudengine.repository.DecisionCount;
+import com.sentinelpay.fraudengine.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts decisions as they are made, so the dashboard metrics never query the
+ * transactions table.
+ *
+ * <p>Each node counts its own decisions in striped {@link LongAdder}s, which scoring
+ * threads update without contending. Every checkpoint adds what was counted since the
+ * previous one to a cluster-wide Redis hash and reads back the totals of all nodes. A read
+ * is that snapshot plus the local counts not yet checkpointed, so it costs a few additions.
+ *
+ * <p>The hash is seeded once from the database with the counts of everything created
+ * before a watermark, read from the hourly continuous aggregate plus the raw rows of the
+ * current hour. A node started before the watermark drops what it had counted so
+ * far, since the seed already includes it. If the hash is lost, the next checkpoint seeds
+ * it again.
+ */
+@Service
+public class DecisionCounters {
+    private static final Logger logger = LoggerFactory.getLogger(DecisionCounters.class);
+
+    private static final String KEY = "metrics:decisions";
+    private static final String SEEDED_AT = "seeded_at";
+
+    private static final int ALLOW = 0;
+    private static final int REVIEW = 1;
+    private static final int BLOCK = 2;
+    private static final int OTHER = 3;
+    private static final String[] FIELDS = {"ALLOW", "REVIEW", "BLOCK", "OTHER"};
+
+    // ARGV: watermark, then field/count pairs. Returns the whole hash.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SEED_SCRIPT = RedisScript.of("""
+            if redis.call('HEXISTS', KEYS[1], 'seeded_at') == 0 then
+              redis.call('DEL', KEYS[1])
+              for i = 2, #ARGV, 2 do
+                redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+              end
+              redis.call('HSET', KEYS[1], 'seeded_at', ARGV[1])
+            end
+            return redis.call('HGETALL', KEYS[1])
+            """, List.class);
+
+    // ARGV: field/delta pairs. Returns the whole hash, or nothing if it has not been seeded.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CHECKPOINT_SCRIPT = RedisScript.of("""
+            if redis.call('HEXISTS', KEYS[1], 'seeded_at') == 0 then
+              return {}
+            end
+            for i = 1, #ARGV, 2 do
+              redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            return redis.call('HGETALL', KEYS[1])
+            """, List.class);
+
+    public record Counts(long allowed, long review, long blocked, long total) {
+    }
+
+    /**
+     * Cluster totals as of a checkpoint, and the local sums that were included in them.
+     */
+    private record Snapshot(long[] totals, long[] checkpointed) {
+    }
+
+    private final TransactionRepository transactionRepository;
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+    private final LongAdder[] counts = new LongAdder[FIELDS.length];
+    private final long startedAtMillis = System.currentTimeMillis();
+    private final AtomicBoolean checkpointing = new AtomicBoolean();
+    private final Counter checkpointErrors;
+
+    // Null until the first seed; kept for reads while a lost hash is seeded again
+    private volatile Snapshot snapshot;
+    // Only touched by the checkpoint, which never runs concurrently with itself
+    private boolean seeded;
+
+    public DecisionCounters(
+            TransactionRepository transactionRepository,
+            ReactiveRedisTemplate<String, String> redisTemplate,
+            MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.redisTemplate = redisTemplate;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+        this.checkpointErrors = meterRegistry.counter("decision.counters.checkpoint.errors");
+    }
+
+    /**
+     * Called once per saved transaction.
+     */
+    public void record(String decision) {
+        counts[index(decision)].increment();
+    }
+
+    /**
+     * The cluster-wide counts, including this node's decisions since the last checkpoint
+     * and other nodes' decisions up to theirs.
+     */
+    public Counts counts() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Decision counters are still being seeded");
+        }
+        long[] values = new long[FIELDS.length];
+        long total = 0;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = current.totals()[i] + counts[i].sum() - current.checkpointed()[i];
+            total += values[i];
+        }
+        return new Counts(values[ALLOW], values[REVIEW], values[BLOCK], total);
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${decision-counters.checkpoint-interval-ms:5000}",
+            initialDelayString = "${decision-counters.checkpoint-interval-ms:5000}")
+    public void checkpoint() {
+        if (!checkpointing.compareAndSet(false, true)) {
+            return;
+        }
+        Mono.defer(() -> seeded ? flush() : seed())
+                .doOnError(error -> {
+                    checkpointErrors.increment();
+                    logger.warn("Decision counter checkpoint failed, retrying on the next one: {}", error.getMessage());
+                })
+                .onErrorResume(error -> Mono.empty())
+                .doFinally(signal -> checkpointing.set(false))
+                .subscribe();
+    }
+
+    private Mono<Void> flush() {
+        long[] sums = sums();
+        long[] previous = snapshot.checkpointed();
+        List<String> deltas = new ArrayList<>();
+        for (int i = 0; i < sums.length; i++) {
+            if (sums[i] != previous[i]) {
+                deltas.add(FIELDS[i]);
+                deltas.add(Long.toString(sums[i] - previous[i]));
+            }
+        }
+        return run(CHECKPOINT_SCRIPT, deltas)
+                .doOnNext(hash -> {
+                    if (hash.isEmpty()) {
+                        logger.warn("Decision counters are missing from Redis, seeding them again");
+                        seeded = false;
+                    } else {
+                        snapshot = new Snapshot(totals(hash), sums);
+                    }
+                })
+                .then();
+    }
+
+    private Mono<Void> seed() {
+        return run(CHECKPOINT_SCRIPT, List.of())
+                .flatMap(hash -> hash.isEmpty() ? seedFromDatabase() : Mono.fromRunnable(() -> join(hash, -1, null)))
+                .then();
+    }
+
+    private Mono<Void> seedFromDatabase() {
+        Instant watermark = Instant.now();
+        long[] sumsAtWatermark = sums();
+        return transactionRepository.countByDecisionBefore(watermark.truncatedTo(ChronoUnit.HOURS), watermark)
+                .collectList()
+                .flatMap(rows -> {
+                    long[] seed = new long[FIELDS.length];
+                    for (DecisionCount row : rows) {
+                        seed[index(row.decision())] += row.count();
+                    }
+                    List<String> args = new ArrayList<>();
+                    args.add(Long.toString(watermark.toEpochMilli()));
+                    for (int i = 0; i < seed.length; i++) {
+                        args.add(FIELDS[i]);
+                        args.add(Long.toString(seed[i]));
+                    }
+                    logger.info("Seeding decision counters from the database as of {}", watermark);
+                    return run(SEED_SCRIPT, args);
+                })
+                .doOnNext(hash -> join(hash, watermark.toEpochMilli(), sumsAtWatermark))
+                .then();
+    }
+
+    /**
+     * Starts checkpointing into a seeded hash. Decisions counted here before its watermark
+     * are already in the seed and are never added.
+     */
+    private void join(Map<String, String> hash, long ownWatermark, long[] sumsAtOwnWatermark) {
+        long watermark = Long.parseLong(hash.get(SEEDED_AT));
+        long[] checkpointed;
+        if (watermark <= startedAtMillis) {
+            checkpointed = new long[FIELDS.length];
+        } else if (watermark == ownWatermark) {
+            checkpointed = sumsAtOwnWatermark;
+        } else {
+            checkpointed = sums();
+        }
+        snapshot = new Snapshot(totals(hash), checkpointed);
+        seeded = true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Mono<Map<String, String>> run(@SuppressWarnings("rawtypes") RedisScript<List> script, List<String> args) {
+        return redisTemplate.execute(script, List.of(KEY), args)
+                .next()
+                .defaultIfEmpty(List.of())
+                .map(reply -> {
+                    // HGETALL replies with alternating fields and values
+                    Map<String, String> hash = new HashMap<>();
+                    for (int i = 0; i + 1 < reply.size(); i += 2) {
+                        hash.put(String.valueOf(reply.get(i)), String.valueOf(reply.get(i + 1)));
+                    }
+                    return hash;
+                });
+    }
+
+    private long[] sums() {
+        long[] sums = new long[FIELDS.length];
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] = counts[i].sum();
+        }
+        return sums;
+    }
+
+    private static long[] totals(Map<String, String> hash) {
+        long[] totals = new long[FIELDS.length];
+        for (int i = 0; i < totals.length; i++) {
+            String value = hash.get(FIELDS[i]);
+            totals[i] = value == null ? 0 : Long.parseLong(value);
+        }
+        return totals;
+    }
+
+    private static int index(String decision) {
+        if (decision == null) {
+            return OTHER;
+        }
+        return switch (decision) {
+            case "ALLOW" -> ALLOW;
+            case "REVIEW" -> REVIEW;
+            case "BLOCK" -> BLOCK;
+            default -> OTHER;
+        };
+    }
+}
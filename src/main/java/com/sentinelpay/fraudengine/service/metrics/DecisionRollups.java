@@ -0,0 +1,431 @@
+package com.sentinelpay.fraudengine.service.metrics;
+
+import com.sentinelpay.fraudengine.dto.DecisionRollupReport;
+import com.sentinelpay.fraudengine.repository.HourlyDecisionCount;
+import com.sentinelpay.fraudengine.repository.analytics.TransactionAnalyticsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+
+/**
+ * Per-minute decision counts and latency histograms for the recent past, with hourly
+ * counts from a TimescaleDB continuous aggregate for anything longer.
+ *
+ * <p>The recent window is a ring of one slot per minute, allocated up front as flat
+ * arrays: recording a decision is two atomic increments and never allocates. A slot is
+ * cleared when the clock first comes round to it again. Latencies are counted in
+ * log-linear buckets, eight per power of two of microseconds, so a percentile is off by at
+ * most one sixteenth of its value however many decisions a range covers.
+ *
+ * <p>Every checkpoint adds what this node counted since the previous one to a Redis hash
+ * per minute, shared by all nodes, as {@link DecisionCounters} does for the totals. A
+ * report sums those hashes plus this node's counts not yet checkpointed, so it covers the
+ * cluster and is labelled {@code cluster}. If Redis cannot be read it falls back to this
+ * node's counts alone, labelled {@code memory}.
+ *
+ * <p>Latency is measured for every response, including fallbacks returned when scoring
+ * fails, and those fallbacks count as REVIEW. The hourly counts are of persisted
+ * transactions only and carry no latency.
+ */
+@Service
+public class DecisionRollups {
+    private static final Logger logger = LoggerFactory.getLogger(DecisionRollups.class);
+
+    private static final String KEY = "rollups:minute:%d";
+
+    private static final int DECISIONS = 4;
+    private static final int ALLOW = 0;
+    private static final int REVIEW = 1;
+    private static final int BLOCK = 2;
+    private static final int OTHER = 3;
+
+    // Below 16 microseconds every value has its own bucket, above it eight per power of two
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int MAX_EXPONENT = 26;
+    static final int LATENCY_BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - 4) * (1 << SUB_BUCKET_BITS);
+    private static final long MAX_MICROS = (1L << MAX_EXPONENT) - 1;
+
+    // A minute's values as checkpointed: the decision counts, then the latency histogram
+    private static final int FIELDS = DECISIONS + LATENCY_BUCKETS;
+    private static final String[] FIELD_NAMES = fieldNames();
+    // Only the previous and the current minute are still being checkpointed
+    private static final int PUSHED_MINUTES = 4;
+
+    // KEYS[1]: the minute's hash. ARGV: expiry in milliseconds, then field/delta pairs
+    private static final RedisScript<Long> PUSH_SCRIPT = RedisScript.of("""
+            for i = 2, #ARGV, 2 do
+              redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    private final TransactionAnalyticsRepository transactionAnalyticsRepository;
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+    private final int slots;
+    private final AtomicLongArray minutes;
+    private final AtomicLongArray decisions;
+    private final AtomicLongArray latencies;
+    private final AtomicLongArray pushedMinutes = new AtomicLongArray(PUSHED_MINUTES);
+    private final AtomicLongArray pushed = new AtomicLongArray(PUSHED_MINUTES * FIELDS);
+    private final AtomicBoolean checkpointing = new AtomicBoolean();
+    private final Counter checkpointErrors;
+
+    // Minutes before this one are entirely in Redis
+    private volatile long unpushedFrom = System.currentTimeMillis() / 60_000;
+
+    public DecisionRollups(
+            TransactionAnalyticsRepository transactionAnalyticsRepository,
+            ReactiveRedisTemplate<String, String> redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${rollups.minutes:1440}") int slots) {
+        this.transactionAnalyticsRepository = transactionAnalyticsRepository;
+        this.redisTemplate = redisTemplate;
+        this.slots = slots;
+        this.minutes = new AtomicLongArray(slots);
+        for (int slot = 0; slot < slots; slot++) {
+            minutes.set(slot, -1);
+        }
+        this.decisions = new AtomicLongArray(slots * DECISIONS);
+        this.latencies = new AtomicLongArray(slots * LATENCY_BUCKETS);
+        for (int i = 0; i < PUSHED_MINUTES; i++) {
+            pushedMinutes.set(i, -1);
+        }
+        this.checkpointErrors = meterRegistry.counter("rollups.checkpoint.errors");
+        Gauge.builder("rollups.memory.bytes", this, rollups -> 8.0 * (rollups.minutes.length()
+                        + rollups.decisions.length() + rollups.latencies.length() + rollups.pushed.length()))
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Called once per response, with the time it took from receiving the request.
+     */
+    public void record(String decision, long latencyNanos, long nowMillis) {
+        long minute = nowMillis / 60_000;
+        int slot = (int) (minute % slots);
+        if (minutes.get(slot) != minute && !claim(slot, minute)) {
+            return;
+        }
+        decisions.incrementAndGet(slot * DECISIONS + index(decision));
+        latencies.incrementAndGet(slot * LATENCY_BUCKETS + latencyBucket(latencyNanos / 1000));
+    }
+
+    public int windowMinutes() {
+        return slots;
+    }
+
+    /**
+     * The last {@code minutes} minutes across the cluster, including the current one, in
+     * buckets of {@code stepMinutes}.
+     */
+    public Mono<DecisionRollupReport> recent(int minutes, int stepMinutes, long nowMillis) {
+        long last = nowMillis / 60_000;
+        long first = last - minutes + 1;
+        return Flux.fromStream(LongStream.rangeClosed(first, last).boxed())
+                .flatMapSequential(minute -> redisTemplate.<String, String>opsForHash().entries(KEY.formatted(minute))
+                        .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                        .map(DecisionRollups::parse), 64)
+                .collectList()
+                .map(cluster -> report("cluster", first, last, stepMinutes, minute -> {
+                    long[] values = cluster.get((int) (minute - first));
+                    addUnpushed(minute, values);
+                    return values;
+                }))
+                .onErrorResume(error -> {
+                    logger.warn("Cluster rollups unavailable, reporting this node only: {}", error.getMessage());
+                    return Mono.just(report("memory", first, last, stepMinutes, minute -> {
+                        long[] values = new long[FIELDS];
+                        addLocal(minute, values);
+                        return values;
+                    }));
+                });
+    }
+
+    /**
+     * Adds what this node counted since the last checkpoint to the minutes' shared hashes.
+     */
+    @Scheduled(fixedDelayString = "${rollups.checkpoint-interval-ms:5000}",
+            initialDelayString = "${rollups.checkpoint-interval-ms:5000}")
+    public void checkpoint() {
+        if (!checkpointing.compareAndSet(false, true)) {
+            return;
+        }
+        long now = System.currentTimeMillis() / 60_000;
+        long from = Math.max(unpushedFrom, now - slots + 1);
+        Flux.fromStream(LongStream.rangeClosed(from, now).boxed())
+                .concatMap(minute -> push(minute)
+                        // The previous minute may still see a late increment, so it is pushed once more next time
+                        .then(Mono.fromRunnable(() -> unpushedFrom = Math.min(minute + 1, now - 1))))
+                .doOnError(error -> {
+                    checkpointErrors.increment();
+                    logger.warn("Rollup checkpoint failed, retrying on the next one: {}", error.getMessage());
+                })
+                .onErrorResume(error -> Mono.empty())
+                .doFinally(signal -> checkpointing.set(false))
+                .subscribe();
+    }
+
+    private Mono<Void> push(long minute) {
+        long[] local = new long[FIELDS];
+        if (!addLocal(minute, local)) {
+            return Mono.empty();
+        }
+        int index = (int) (minute % PUSHED_MINUTES);
+        boolean known = pushedMinutes.get(index) == minute;
+        List<String> args = new ArrayList<>();
+        args.add(Long.toString((slots + 10) * 60_000L));
+        for (int i = 0; i < FIELDS; i++) {
+            long delta = local[i] - (known ? pushed.get(index * FIELDS + i) : 0);
+            if (delta != 0) {
+                args.add(FIELD_NAMES[i]);
+                args.add(Long.toString(delta));
+            }
+        }
+        if (args.size() == 1) {
+            return Mono.empty();
+        }
+        return redisTemplate.execute(PUSH_SCRIPT, List.of(KEY.formatted(minute)), args)
+                .then(Mono.fromRunnable(() -> {
+                    for (int i = 0; i < FIELDS; i++) {
+                        pushed.set(index * FIELDS + i, local[i]);
+                    }
+                    pushedMinutes.set(index, minute);
+                }));
+    }
+
+    private DecisionRollupReport report(String source, long first, long last, int stepMinutes, LongFunction<long[]> values) {
+        // Align buckets to the step so that successive refreshes line up
+        long start = Math.floorDiv(first, stepMinutes) * stepMinutes;
+
+        long[] totalCounts = new long[DECISIONS];
+        long[] totalLatencies = new long[LATENCY_BUCKETS];
+        List<DecisionRollupReport.Bucket> buckets = new ArrayList<>();
+        for (long bucketStart = start; bucketStart <= last; bucketStart += stepMinutes) {
+            long[] counts = new long[DECISIONS];
+            long[] histogram = new long[LATENCY_BUCKETS];
+            for (long minute = Math.max(bucketStart, first); minute < bucketStart + stepMinutes && minute <= last; minute++) {
+                long[] minuteValues = values.apply(minute);
+                for (int i = 0; i < DECISIONS; i++) {
+                    counts[i] += minuteValues[i];
+                }
+                for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                    histogram[i] += minuteValues[DECISIONS + i];
+                }
+            }
+            for (int i = 0; i < DECISIONS; i++) {
+                totalCounts[i] += counts[i];
+            }
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                totalLatencies[i] += histogram[i];
+            }
+            buckets.add(bucket(Instant.ofEpochSecond(bucketStart * 60), counts, histogram, null));
+        }
+        return new DecisionRollupReport(source, Instant.ofEpochSecond(first * 60), Instant.ofEpochSecond((last + 1) * 60),
+                stepMinutes, bucket(Instant.ofEpochSecond(first * 60), totalCounts, totalLatencies, null), buckets);
+    }
+
+    /**
+     * Hourly counts between two instants, read from the continuous aggregate.
+     */
+    public Mono<DecisionRollupReport> hourly(Instant from, Instant to) {
+        Instant start = from.truncatedTo(ChronoUnit.HOURS);
+        return transactionAnalyticsRepository.findHourlyDecisionCounts(start, to)
+                .collectList()
+                .map(rows -> {
+                    Map<Instant, long[]> counts = new LinkedHashMap<>();
+                    Map<Instant, double[]> riskSums = new LinkedHashMap<>();
+                    for (HourlyDecisionCount row : rows) {
+                        long transactions = row.transactions() == null ? 0 : row.transactions();
+                        counts.computeIfAbsent(row.hour(), hour -> new long[DECISIONS])[index(row.decision())] += transactions;
+                        if (row.avgRiskScore() != null) {
+                            double[] sum = riskSums.computeIfAbsent(row.hour(), hour -> new double[2]);
+                            sum[0] += row.avgRiskScore() * transactions;
+                            sum[1] += transactions;
+                        }
+                    }
+
+                    long[] totalCounts = new long[DECISIONS];
+                    double[] totalRisk = new double[2];
+                    List<DecisionRollupReport.Bucket> buckets = new ArrayList<>(counts.size());
+                    counts.forEach((hour, hourCounts) -> {
+                        double[] risk = riskSums.get(hour);
+                        for (int i = 0; i < DECISIONS; i++) {
+                            totalCounts[i] += hourCounts[i];
+                        }
+                        if (risk != null) {
+                            totalRisk[0] += risk[0];
+                            totalRisk[1] += risk[1];
+                        }
+                        buckets.add(bucket(hour, hourCounts, null, averageRisk(risk)));
+                    });
+                    return new DecisionRollupReport("continuous_aggregate", start, to, 60,
+                            bucket(start, totalCounts, null, averageRisk(totalRisk)), buckets);
+                });
+    }
+
+    private boolean claim(int slot, long minute) {
+        // Taken once per slot per cycle round the ring, so a lock costs nothing measurable
+        synchronized (this) {
+            long held = minutes.get(slot);
+            if (held == minute) {
+                return true;
+            }
+            if (held > minute) {
+                // Older than the whole window
+                return false;
+            }
+            for (int i = slot * DECISIONS; i < (slot + 1) * DECISIONS; i++) {
+                decisions.set(i, 0);
+            }
+            for (int i = slot * LATENCY_BUCKETS; i < (slot + 1) * LATENCY_BUCKETS; i++) {
+                latencies.set(i, 0);
+            }
+            minutes.set(slot, minute);
+            return true;
+        }
+    }
+
+    /**
+     * Adds this node's counts for the minute, returning false if its slot holds no counts
+     * for that minute.
+     */
+    private boolean addLocal(long minute, long[] values) {
+        int slot = (int) (minute % slots);
+        if (minutes.get(slot) != minute) {
+            return false;
+        }
+        for (int i = 0; i < DECISIONS; i++) {
+            values[i] += decisions.get(slot * DECISIONS + i);
+        }
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            values[DECISIONS + i] += latencies.get(slot * LATENCY_BUCKETS + i);
+        }
+        return true;
+    }
+
+    private void addUnpushed(long minute, long[] values) {
+        if (minute < unpushedFrom) {
+            return;
+        }
+        long[] local = new long[FIELDS];
+        if (!addLocal(minute, local)) {
+            return;
+        }
+        int index = (int) (minute % PUSHED_MINUTES);
+        boolean known = pushedMinutes.get(index) == minute;
+        for (int i = 0; i < FIELDS; i++) {
+            values[i] += local[i] - (known ? pushed.get(index * FIELDS + i) : 0);
+        }
+    }
+
+    private static long[] parse(Map<String, String> hash) {
+        long[] values = new long[FIELDS];
+        for (int i = 0; i < FIELDS; i++) {
+            String value = hash.get(FIELD_NAMES[i]);
+            if (value != null) {
+                values[i] = Long.parseLong(value);
+            }
+        }
+        return values;
+    }
+
+    private static String[] fieldNames() {
+        String[] names = new String[FIELDS];
+        String[] decisionNames = {"ALLOW", "REVIEW", "BLOCK", "OTHER"};
+        System.arraycopy(decisionNames, 0, names, 0, DECISIONS);
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            names[DECISIONS + i] = "l" + i;
+        }
+        return names;
+    }
+
+    private static DecisionRollupReport.Bucket bucket(Instant start, long[] counts, long[] histogram, Double avgRiskScore) {
+        long total = counts[ALLOW] + counts[REVIEW] + counts[BLOCK] + counts[OTHER];
+        double fraudRate = total > 0 ? (double) (counts[BLOCK] + counts[REVIEW]) / total * 100 : 0.0;
+        return new DecisionRollupReport.Bucket(start, counts[ALLOW], counts[REVIEW], counts[BLOCK], total,
+                Math.round(fraudRate * 100.0) / 100.0,
+                percentileMillis(histogram, 0.50), percentileMillis(histogram, 0.95), percentileMillis(histogram, 0.99),
+                avgRiskScore);
+    }
+
+    private static Double averageRisk(double[] sum) {
+        return sum == null || sum[1] == 0 ? null : sum[0] / sum[1];
+    }
+
+    static Double percentileMillis(long[] histogram, double quantile) {
+        if (histogram == null) {
+            return null;
+        }
+        long count = 0;
+        for (long bucket : histogram) {
+            count += bucket;
+        }
+        if (count == 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                return bucketMidpointMicros(i) / 1000.0;
+            }
+        }
+        return bucketMidpointMicros(histogram.length - 1) / 1000.0;
+    }
+
+    static int latencyBucket(long micros) {
+        long value = Math.min(Math.max(micros, 0), MAX_MICROS);
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return LINEAR_BUCKETS + (exponent - 4) * (1 << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    static double bucketMidpointMicros(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = 4 + (bucket - LINEAR_BUCKETS) / (1 << SUB_BUCKET_BITS);
+        int subBucket = (bucket - LINEAR_BUCKETS) % (1 << SUB_BUCKET_BITS);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lower = ((1L << SUB_BUCKET_BITS) + subBucket) * width;
+        return lower + width / 2.0;
+    }
+
+    private static int index(String decision) {
+        if (decision == null) {
+            return OTHER;
+        }
+        return switch (decision) {
+            case "ALLOW" -> ALLOW;
+            case "REVIEW" -> REVIEW;
+            case "BLOCK" -> BLOCK;
+            default -> OTHER;
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package com.sentinelpay.fraudengine.service.ml;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Baseline feature distributions stored next to the model files. Drift is
+ * measured by comparing each closed window against these counts.
+ */
+public record DriftReference(
+        Instant capturedAt,
+        long sampleCount,
+        Map<String, Bins> features
+) {
+    public record Bins(double[] edges, long[] counts) { }
+}
@@ -0,0 +1,214 @@
+package com.sentinelpay.fraudengine.service.ml;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelpay.fraudengine.dto.DriftReport;
+import com.sentinelpay.fraudengine.service.feature.ScoredTransaction;
+import com.sentinelpay.fraudengine.service.feature.ScoredTransactionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the distribution of every model input and of the model output score in
+ * fixed-bucket histograms, one set per time window. When a window closes it is
+ * compared against the reference snapshot stored with the model (PSI and KS).
+ */
+@Service
+public class FeatureDriftMonitor implements ScoredTransactionListener {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureDriftMonitor.class);
+
+    static final String SCORE_FEATURE = "model_score";
+    private static final String REFERENCE_FILE = "drift_reference.json";
+
+    private static final double[] PROBABILITY_EDGES = {
+            0.05, 0.1, 0.15, 0.2, 0.25, 0.3, 0.35, 0.4, 0.45, 0.5,
+            0.55, 0.6, 0.65, 0.7, 0.75, 0.8, 0.85, 0.9, 0.95
+    };
+    private static final double[] DEFAULT_EDGES = {
+            -1000, -100, -10, -1, -0.1, 0, 0.1, 0.25, 0.5, 0.75, 1, 2, 5, 10, 20, 50, 100, 1000, 10000
+    };
+    private static final Map<String, double[]> FEATURE_EDGES = Map.of(
+            "amount", new double[]{10, 25, 50, 100, 250, 500, 1000, 1500, 2500, 5000, 10000, 25000, 50000, 100000},
+            "velocity_1h", new double[]{1, 2, 3, 5, 8, 13, 21, 34, 55},
+            "merchant_risk", PROBABILITY_EDGES,
+            "ip_risk", PROBABILITY_EDGES,
+            "device_risk", PROBABILITY_EDGES,
+            "hour_of_day", new double[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22},
+            "day_of_week", new double[]{1, 2, 3, 4, 5, 6},
+            SCORE_FEATURE, PROBABILITY_EDGES
+    );
+
+    private final ObjectMapper objectMapper;
+    private final Path referencePath;
+    private final double psiThreshold;
+    private final double ksThreshold;
+    private final long minSamples;
+
+    private volatile Window current = new Window(Instant.now());
+    private volatile DriftReference reference;
+    private volatile DriftReport latestReport;
+
+    public FeatureDriftMonitor(
+            ObjectMapper objectMapper,
+            @Value("${tensorflow.model.path:src/main/resources/models/fraud_model}") String modelPath,
+            @Value("${ml.drift.psi-threshold:0.25}") double psiThreshold,
+            @Value("${ml.drift.ks-threshold:0.2}") double ksThreshold,
+            @Value("${ml.drift.min-samples:1000}") long minSamples) {
+        this.objectMapper = objectMapper;
+        this.referencePath = Paths.get(modelPath).resolve(REFERENCE_FILE);
+        this.psiThreshold = psiThreshold;
+        this.ksThreshold = ksThreshold;
+        this.minSamples = minSamples;
+        this.reference = loadReference();
+    }
+
+    @Override
+    public void onScored(ScoredTransaction transaction) {
+        record(transaction.features(), transaction.modelScore());
+    }
+
+    /**
+     * Records one scored transaction. Called on the scoring path, so it only does
+     * a map lookup and an atomic increment per feature. A null model score, from a
+     * fallback, is left out of the score histogram.
+     */
+    public void record(Map<String, Object> features, Float modelScore) {
+        Window window = current;
+        for (Map.Entry<String, Object> entry : features.entrySet()) {
+            if (entry.getValue() instanceof Number number) {
+                window.histogram(entry.getKey()).record(number.doubleValue());
+            }
+        }
+        if (modelScore != null) {
+            window.histogram(SCORE_FEATURE).record(modelScore);
+        }
+    }
+
+    /**
+     * Closes the current window and compares it against the reference snapshot.
+     */
+    @Scheduled(fixedRateString = "${ml.drift.window-ms:3600000}", initialDelayString = "${ml.drift.window-ms:3600000}")
+    public void rotateWindow() {
+        Window closed = current;
+        current = new Window(Instant.now());
+
+        long samples = closed.histogram(SCORE_FEATURE).total();
+        if (samples < minSamples) {
+            logger.debug("Drift window closed with {} samples, below minimum of {}", samples, minSamples);
+            return;
+        }
+
+        if (reference == null) {
+            reference = closed.toReference(samples);
+            saveReference(reference);
+            logger.info("Captured drift reference snapshot from {} samples", samples);
+            return;
+        }
+
+        latestReport = compare(closed, samples, reference);
+        if (latestReport.drifted()) {
+            logger.warn("Feature drift detected in window starting {}: {}", closed.start, latestReport.features());
+        }
+    }
+
+    private DriftReport compare(Window window, long samples, DriftReference reference) {
+        Map<String, DriftReport.FeatureDrift> drift = new HashMap<>();
+        boolean anyDrifted = false;
+
+        for (Map.Entry<String, DriftReference.Bins> entry : reference.features().entrySet()) {
+            StreamingHistogram histogram = window.histograms.get(entry.getKey());
+            if (histogram == null) {
+                continue;
+            }
+            long[] expected = entry.getValue().counts();
+            long[] actual = histogram.snapshot();
+            if (expected.length != actual.length) {
+                logger.warn("Skipping drift for {}: bucket layout differs from reference", entry.getKey());
+                continue;
+            }
+
+            double psi = StreamingHistogram.psi(expected, actual);
+            double ks = StreamingHistogram.ks(expected, actual);
+            boolean drifted = psi > psiThreshold || ks > ksThreshold;
+            anyDrifted |= drifted;
+            drift.put(entry.getKey(), new DriftReport.FeatureDrift(psi, ks, drifted));
+        }
+
+        return new DriftReport(window.start, Instant.now(), samples, drift, anyDrifted);
+    }
+
+    public DriftReport getLatestReport() {
+        return latestReport;
+    }
+
+    /**
+     * Drops the reference snapshot after a new model is deployed so the next
+     * full window becomes the baseline for that model.
+     */
+    public void resetReference() {
+        reference = null;
+        latestReport = null;
+        try {
+            Files.deleteIfExists(referencePath);
+        } catch (Exception e) {
+            logger.warn("Could not delete drift reference {}: {}", referencePath, e.getMessage());
+        }
+    }
+
+    private DriftReference loadReference() {
+        if (!Files.exists(referencePath)) {
+            logger.info("No drift reference found at {}, first full window will be used", referencePath);
+            return null;
+        }
+        try {
+            return objectMapper.readValue(referencePath.toFile(), DriftReference.class);
+        } catch (Exception e) {
+            logger.warn("Failed to read drift reference {}: {}", referencePath, e.getMessage());
+            return null;
+        }
+    }
+
+    private void saveReference(DriftReference snapshot) {
+        try {
+            Files.createDirectories(referencePath.getParent());
+            objectMapper.writeValue(referencePath.toFile(), snapshot);
+        } catch (Exception e) {
+            logger.warn("Failed to write drift reference {}: {}", referencePath, e.getMessage());
+        }
+    }
+
+    private static final class Window {
+        private final Instant start;
+        private final Map<String, StreamingHistogram> histograms = new ConcurrentHashMap<>();
+
+        private Window(Instant start) {
+            this.start = start;
+        }
+
+        private StreamingHistogram histogram(String feature) {
+            StreamingHistogram histogram = histograms.get(feature);
+            if (histogram == null) {
+                histogram = histograms.computeIfAbsent(feature,
+                        name -> new StreamingHistogram(FEATURE_EDGES.getOrDefault(name, DEFAULT_EDGES)));
+            }
+            return histogram;
+        }
+
+        private DriftReference toReference(long samples) {
+            Map<String, DriftReference.Bins> bins = new HashMap<>();
+            histograms.forEach((name, histogram) ->
+                    bins.put(name, new DriftReference.Bins(histogram.edges(), histogram.snapshot())));
+            return new DriftReference(Instant.now(), samples, bins);
+        }
+    }
+}
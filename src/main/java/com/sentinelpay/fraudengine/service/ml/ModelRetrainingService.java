@@ -1,5 +1,6 @@
 package com.sentinelpay.fraudengine.service.ml;
 
+import com.sentinelpay.fraudengine.dto.DriftReport;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,12 +20,15 @@ public class ModelRetrainingService {
     private static final Logger logger = LoggerFactory.getLogger(ModelRetrainingService.class);
 
     private final WebClient trainingWebClient;  // Use the injected WebClient
+    private final FeatureDriftMonitor featureDriftMonitor;
 
     @Value("${ml.retraining.enabled:true}")
     private boolean retrainingEnabled;
 
     private LocalDateTime lastRetraining;
 
+    private DriftReport lastHandledDriftReport;
+
     /**
      * Retrain model every 24 hours
      */
@@ -53,6 +57,7 @@ public class ModelRetrainingService {
                     logger.info("Model retraining completed: {}", response);
                     lastRetraining = LocalDateTime.now();
                     // Trigger model reload in TensorFlow service
+                    featureDriftMonitor.resetReference();
                 })
                 .doOnError(error -> logger.error("Model retraining failed: {}", error.getMessage()));
     }
@@ -64,6 +69,8 @@ public class ModelRetrainingService {
     public void checkModelPerformance() {
         // Implement model performance monitoring
         if (retrainingEnabled) {
+            evaluateFeatureDrift(featureDriftMonitor.getLatestReport());
+
             getModelMetrics()
                     .subscribe(
                             metrics -> evaluateModelPerformance(metrics),
@@ -81,6 +88,19 @@ public class ModelRetrainingService {
         }
     }
 
+    /**
+     * Retrain once per drifted window reported by the in-process drift monitor
+     */
+    private void evaluateFeatureDrift(DriftReport report) {
+        if (report == null || !report.drifted() || report == lastHandledDriftReport) {
+            return;
+        }
+        lastHandledDriftReport = report;
+        logger.warn("Feature drift detected for window {} - {}, triggering retraining",
+                report.windowStart(), report.windowEnd());
+        retrainModel().subscribe();
+    }
+
     public LocalDateTime getLastRetraining() {
         return lastRetraining;
     }
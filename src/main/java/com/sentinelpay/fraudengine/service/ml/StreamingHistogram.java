@@ -0,0 +1,90 @@
+package com.sentinelpay.fraudengine.service.ml;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket histogram that can be updated from any thread without locking.
+ * Bucket {@code i} counts values in {@code (edges[i-1], edges[i]]}; the last bucket
+ * collects everything above the highest edge.
+ */
+public class StreamingHistogram {
+
+    private final double[] edges;
+    private final AtomicLongArray counts;
+
+    public StreamingHistogram(double[] edges) {
+        this.edges = edges.clone();
+        this.counts = new AtomicLongArray(edges.length + 1);
+    }
+
+    public void record(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        counts.incrementAndGet(bucketOf(value));
+    }
+
+    private int bucketOf(double value) {
+        int low = 0;
+        int high = edges.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (value > edges[mid]) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    public double[] edges() {
+        return edges.clone();
+    }
+
+    public long[] snapshot() {
+        long[] copy = new long[counts.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+        }
+        return copy;
+    }
+
+    public long total() {
+        return Arrays.stream(snapshot()).sum();
+    }
+
+    /**
+     * Population Stability Index of {@code actual} against {@code expected}.
+     * Empty buckets are smoothed so the log term stays finite.
+     */
+    public static double psi(long[] expected, long[] actual) {
+        double expectedTotal = Math.max(1, Arrays.stream(expected).sum());
+        double actualTotal = Math.max(1, Arrays.stream(actual).sum());
+        double psi = 0.0;
+        for (int i = 0; i < expected.length; i++) {
+            double e = Math.max(expected[i] / expectedTotal, 1e-4);
+            double a = Math.max(actual[i] / actualTotal, 1e-4);
+            psi += (a - e) * Math.log(a / e);
+        }
+        return psi;
+    }
+
+    /**
+     * Kolmogorov-Smirnov distance between the two bucketed distributions.
+     */
+    public static double ks(long[] expected, long[] actual) {
+        double expectedTotal = Math.max(1, Arrays.stream(expected).sum());
+        double actualTotal = Math.max(1, Arrays.stream(actual).sum());
+        double expectedCdf = 0.0;
+        double actualCdf = 0.0;
+        double max = 0.0;
+        for (int i = 0; i < expected.length; i++) {
+            expectedCdf += expected[i] / expectedTotal;
+            actualCdf += actual[i] / actualTotal;
+            max = Math.max(max, Math.abs(expectedCdf - actualCdf));
+        }
+        return max;
+    }
+}
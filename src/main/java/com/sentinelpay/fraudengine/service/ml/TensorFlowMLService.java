@@ -60,54 +60,80 @@ public class TensorFlowMLService {
         return Mono.fromCallable(() -> {
             logger.debug("🤖 Enhanced mock ML prediction for {} features", features.size());
 
-            // Extract features with null checks
-            double amount = getDoubleSafe(features, "amount");
-            long velocity = getLongSafe(features, "velocity_1h");
-            float merchantRisk = getFloatSafe(features, "merchant_risk");
-            float ipRisk = getFloatSafe(features, "ip_risk");
-            float deviceRisk = getFloatSafe(features, "device_risk");
-            int hour = getIntSafe(features, "hour_of_day");
-            int dayOfWeek = getIntSafe(features, "day_of_week");
-
-            logger.debug("Features - Amount: {}, Velocity: {}, MerchantRisk: {}, IPRisk: {}, DeviceRisk: {}, Hour: {}, Day: {}",
-                    amount, velocity, merchantRisk, ipRisk, deviceRisk, hour, dayOfWeek);
-
-            // Enhanced neural network simulation
-            double baseScore = 0.0;
-
-            // Non-linear amount contribution (sigmoid-like)
-            baseScore += 1.0 / (1.0 + Math.exp(-(amount - 1500) / 800)) * 0.4;
-
-            // Velocity with diminishing returns (tanh-like)
-            baseScore += Math.tanh(velocity / 15.0) * 0.3;
-
-            // Interactive features
-            baseScore += merchantRisk * 0.25;
-            baseScore += ipRisk * 0.2;
-            baseScore += deviceRisk * 0.15;
-
-            // Amount-risk interactions (feature crosses)
-            if (amount > 5000 && merchantRisk > 0.6) baseScore += 0.15;
-            if (amount > 10000 && velocity > 5) baseScore += 0.2;
-            if (deviceRisk > 0.5 && ipRisk > 0.6) baseScore += 0.1;
-
-            // Time-based patterns
-            boolean isWeekend = dayOfWeek >= 5;
-            boolean isNight = hour < 6 || hour > 22;
-            boolean isRushHour = (hour >= 8 && hour <= 10) || (hour >= 17 && hour <= 19);
-
-            if (isWeekend) baseScore += 0.08;
-            if (isNight) baseScore += 0.12;
-            if (isRushHour) baseScore -= 0.05; // Lower risk during business hours
-
-            // Ensure score is between 0 and 1
-            float finalScore = (float) Math.min(Math.max(baseScore, 0.0), 1.0);
+            float finalScore = score(features);
 
             logger.debug("📊 Enhanced mock prediction score: {}", finalScore);
             return finalScore;
         }).subscribeOn(Schedulers.boundedElastic());
     }
 
+    /**
+     * Scores a feature vector synchronously. Shared by live scoring and offline replays.
+     */
+    public float score(Map<String, Object> features) {
+        // Extract features with null checks
+        double amount = getDoubleSafe(features, "amount");
+        long velocity = getLongSafe(features, "velocity_1h");
+        float merchantRisk = getFloatSafe(features, "merchant_risk");
+        float ipRisk = getFloatSafe(features, "ip_risk");
+        float deviceRisk = getFloatSafe(features, "device_risk");
+        int hour = getIntSafe(features, "hour_of_day");
+        int dayOfWeek = getIntSafe(features, "day_of_week");
+
+        logger.debug("Features - Amount: {}, Velocity: {}, MerchantRisk: {}, IPRisk: {}, DeviceRisk: {}, Hour: {}, Day: {}",
+                amount, velocity, merchantRisk, ipRisk, deviceRisk, hour, dayOfWeek);
+
+        // Enhanced neural network simulation
+        double baseScore = 0.0;
+
+        // Non-linear amount contribution (sigmoid-like)
+        baseScore += 1.0 / (1.0 + Math.exp(-(amount - 1500) / 800)) * 0.4;
+
+        // Velocity with diminishing returns (tanh-like)
+        baseScore += Math.tanh(velocity / 15.0) * 0.3;
+
+        // Interactive features
+        baseScore += merchantRisk * 0.25;
+        baseScore += ipRisk * 0.2;
+        baseScore += deviceRisk * 0.15;
+
+        // Amount-risk interactions (feature crosses)
+        if (amount > 5000 && merchantRisk > 0.6) baseScore += 0.15;
+        if (amount > 10000 && velocity > 5) baseScore += 0.2;
+        if (deviceRisk > 0.5 && ipRisk > 0.6) baseScore += 0.1;
+
+        // Time-based patterns
+        boolean isWeekend = dayOfWeek >= 5;
+        boolean isNight = hour < 6 || hour > 22;
+        boolean isRushHour = (hour >= 8 && hour <= 10) || (hour >= 17 && hour <= 19);
+
+        if (isWeekend) baseScore += 0.08;
+        if (isNight) baseScore += 0.12;
+        if (isRushHour) baseScore -= 0.05; // Lower risk during business hours
+
+        // Deviation from the user's own history (absent for replays of older transactions)
+        double amountPercentile = getOptionalDouble(features, "amount_percentile", 0.5);
+        double rateZScore = getOptionalDouble(features, "txn_rate_zscore", 0.0);
+        double merchantShare = getOptionalDouble(features, "merchant_share", 1.0);
+        if (amountPercentile > 0.95) baseScore += 0.1;
+        baseScore += Math.max(0.0, Math.tanh(rateZScore / 4.0)) * 0.1;
+        if (merchantShare < 0.05 && amountPercentile > 0.8) baseScore += 0.05;
+
+        // Location jumps faster than the user could have travelled
+        if (getOptionalDouble(features, "impossible_travel", 0.0) > 0) baseScore += 0.2;
+
+        // Bursts of small amounts at one merchant across many users (card testing)
+        double merchantSmallCount = getOptionalDouble(features, "hitter_merchant_small_count", 0.0);
+        if (amount < 10) baseScore += Math.tanh(Math.max(0.0, merchantSmallCount - 20) / 100.0) * 0.25;
+
+        // Resemblance to confirmed fraud cases
+        double fraudSimilarity = getOptionalDouble(features, "fraud_similarity", 0.0);
+        baseScore += Math.max(0.0, fraudSimilarity - 0.5) * 0.3;
+
+        // Ensure score is between 0 and 1
+        return (float) Math.min(Math.max(baseScore, 0.0), 1.0);
+    }
+
     // Safe getter methods
     private double getDoubleSafe(Map<String, Object> features, String key) {
         Object value = features.get(key);
@@ -118,6 +144,10 @@ public class TensorFlowMLService {
         return (value instanceof Number) ? ((Number) value).doubleValue() : 0.0;
     }
 
+    private double getOptionalDouble(Map<String, Object> features, String key, double defaultValue) {
+        return features.get(key) instanceof Number number ? number.doubleValue() : defaultValue;
+    }
+
     private long getLongSafe(Map<String, Object> features, String key) {
         Object value = features.get(key);
         if (value == null) {
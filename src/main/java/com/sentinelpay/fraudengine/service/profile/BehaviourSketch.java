@@ -0,0 +1,188 @@
+package com.sentinelpay.fraudengine.service.profile;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Fixed-size summary of how a user spends: a log-bucketed amount histogram for
+ * percentiles, exponentially decayed transaction and spend rates over a short and a
+ * long horizon, and hashed merchant and hour-of-day distributions.
+ *
+ * <p>All counters are unsigned bytes in one array; when a counter saturates its whole
+ * section is halved, which keeps the distributions biased towards recent behaviour.
+ * The sketch is about 150 bytes regardless of history. It is not thread-safe; the
+ * owning {@link UserProfileAggregate} guards it.
+ */
+public class BehaviourSketch {
+
+    static final int AMOUNT_BUCKETS = 32;
+    static final int MERCHANT_BUCKETS = 16;
+    static final int HOURS = 24;
+
+    private static final int AMOUNT_OFFSET = 0;
+    private static final int MERCHANT_OFFSET = AMOUNT_OFFSET + AMOUNT_BUCKETS;
+    private static final int HOUR_OFFSET = MERCHANT_OFFSET + MERCHANT_BUCKETS;
+    private static final int SIZE = HOUR_OFFSET + HOURS;
+    private static final int MAX_COUNT = 0xFF;
+
+    // Buckets grow by ~1.56x so 32 of them span 1 to ~1,000,000
+    private static final double LOG_BUCKET_WIDTH = Math.log(1_000_000) / (AMOUNT_BUCKETS - 1);
+
+    private static final double SHORT_HORIZON_MILLIS = 3_600_000.0;        // 1 hour
+    private static final double LONG_HORIZON_MILLIS = 7 * 86_400_000.0;    // 7 days
+
+    private final byte[] counts = new byte[SIZE];
+    private float shortCount;
+    private float shortSpend;
+    private float longCount;
+    private float longSpend;
+    private long lastEventMillis;
+
+    public void record(double amount, String merchantId, long timestampMillis) {
+        increment(AMOUNT_OFFSET, AMOUNT_BUCKETS, amountBucket(amount));
+        increment(MERCHANT_OFFSET, MERCHANT_BUCKETS, merchantBucket(merchantId));
+        increment(HOUR_OFFSET, HOURS, hourOf(timestampMillis));
+
+        double shortDecay = decay(timestampMillis, SHORT_HORIZON_MILLIS);
+        double longDecay = decay(timestampMillis, LONG_HORIZON_MILLIS);
+        shortCount = (float) (shortCount * shortDecay + 1);
+        shortSpend = (float) (shortSpend * shortDecay + amount);
+        longCount = (float) (longCount * longDecay + 1);
+        longSpend = (float) (longSpend * longDecay + amount);
+        lastEventMillis = Math.max(lastEventMillis, timestampMillis);
+    }
+
+    /**
+     * Share of past amounts below this one, counting half of its own bucket.
+     */
+    public double amountPercentile(double amount) {
+        int bucket = amountBucket(amount);
+        double below = 0;
+        long total = 0;
+        for (int i = 0; i < AMOUNT_BUCKETS; i++) {
+            int count = count(AMOUNT_OFFSET + i);
+            total += count;
+            if (i < bucket) {
+                below += count;
+            } else if (i == bucket) {
+                below += count / 2.0;
+            }
+        }
+        return total == 0 ? 0.5 : below / total;
+    }
+
+    /**
+     * How unusual the last hour's transaction count is, including the transaction being
+     * scored, given the rate over the last week. Counts are treated as Poisson.
+     */
+    public double rateZScore(long timestampMillis) {
+        double recent = shortCount * decay(timestampMillis, SHORT_HORIZON_MILLIS) + 1;
+        double expected = expectedShortCount(timestampMillis);
+        return (recent - expected) / Math.sqrt(Math.max(expected, 1.0));
+    }
+
+    /**
+     * Same as {@link #rateZScore(long)} for the amount spent, scaled by the typical amount.
+     */
+    public double spendZScore(double amount, long timestampMillis) {
+        double longDecay = decay(timestampMillis, LONG_HORIZON_MILLIS);
+        double recent = shortSpend * decay(timestampMillis, SHORT_HORIZON_MILLIS) + amount;
+        double expectedCount = expectedShortCount(timestampMillis);
+        double typicalAmount = longCount > 0 ? longSpend / longCount : 0.0;
+        double expected = longSpend * longDecay * SHORT_HORIZON_MILLIS / LONG_HORIZON_MILLIS;
+        return (recent - expected) / (Math.sqrt(Math.max(expectedCount, 1.0)) * Math.max(typicalAmount, 1.0));
+    }
+
+    /**
+     * Share of past transactions at this merchant (or one hashing to the same bucket).
+     */
+    public double merchantShare(String merchantId) {
+        return share(MERCHANT_OFFSET, MERCHANT_BUCKETS, merchantBucket(merchantId));
+    }
+
+    /**
+     * Share of past transactions in this UTC hour of day.
+     */
+    public double hourShare(long timestampMillis) {
+        return share(HOUR_OFFSET, HOURS, hourOf(timestampMillis));
+    }
+
+    public boolean isEmpty() {
+        return lastEventMillis == 0;
+    }
+
+    static long estimatedBytes() {
+        return 16 + 16 + SIZE + 4 * 4 + 8 + 4;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.write(counts);
+        out.writeFloat(shortCount);
+        out.writeFloat(shortSpend);
+        out.writeFloat(longCount);
+        out.writeFloat(longSpend);
+        out.writeLong(lastEventMillis);
+    }
+
+    void readFrom(DataInputStream in) throws IOException {
+        in.readFully(counts);
+        shortCount = in.readFloat();
+        shortSpend = in.readFloat();
+        longCount = in.readFloat();
+        longSpend = in.readFloat();
+        lastEventMillis = in.readLong();
+    }
+
+    private double expectedShortCount(long timestampMillis) {
+        return longCount * decay(timestampMillis, LONG_HORIZON_MILLIS) * SHORT_HORIZON_MILLIS / LONG_HORIZON_MILLIS;
+    }
+
+    private double decay(long timestampMillis, double horizonMillis) {
+        if (lastEventMillis == 0 || timestampMillis <= lastEventMillis) {
+            return 1.0;
+        }
+        return Math.exp(-(timestampMillis - lastEventMillis) / horizonMillis);
+    }
+
+    private double share(int offset, int length, int index) {
+        long total = 0;
+        for (int i = 0; i < length; i++) {
+            total += count(offset + i);
+        }
+        return total == 0 ? 0.0 : (double) count(offset + index) / total;
+    }
+
+    private void increment(int offset, int length, int index) {
+        if (count(offset + index) == MAX_COUNT) {
+            for (int i = offset; i < offset + length; i++) {
+                counts[i] = (byte) (count(i) >>> 1);
+            }
+        }
+        counts[offset + index] = (byte) (count(offset + index) + 1);
+    }
+
+    private int count(int index) {
+        return counts[index] & 0xFF;
+    }
+
+    static int amountBucket(double amount) {
+        if (amount <= 1.0) {
+            return 0;
+        }
+        return (int) Math.min(AMOUNT_BUCKETS - 1, Math.floor(Math.log(amount) / LOG_BUCKET_WIDTH));
+    }
+
+    private static int merchantBucket(String merchantId) {
+        if (merchantId == null) {
+            return 0;
+        }
+        int hash = merchantId.hashCode();
+        hash ^= hash >>> 16;
+        return (hash * 0x9e3779b9 >>> 28) & (MERCHANT_BUCKETS - 1);
+    }
+
+    private static int hourOf(long timestampMillis) {
+        return Math.floorMod(timestampMillis / 3_600_000L, HOURS);
+    }
+}
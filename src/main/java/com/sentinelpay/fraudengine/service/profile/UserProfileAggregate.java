@@ -0,0 +1,381 @@
+package com.sentinelpay.fraudengine.service.profile;
+
+import com.sentinelpay.fraudengine.dto.UserProfile;
+import com.sentinelpay.fraudengine.model.Location;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Streaming aggregates of one user's behaviour. Every scored transaction updates it
+ * in O(1): amount mean and variance (Welford), the most recent distinct IPs and
+ * devices, the decision mix, a {@link BehaviourSketch} of amounts, rates, merchants
+ * and hours, and the last geolocated position. Its size does not depend on the user's
+ * history.
+ *
+ * <p>Transactions may arrive out of order, e.g. concurrent ones for the same user. A
+ * transaction is recognised by its id among the last few applied, so that one seen both
+ * in the database seed and as a live event is only counted once.
+ */
+public class UserProfileAggregate {
+
+    static final int MAX_DISTINCT = 8;
+    static final int RECENT_IDS = 8;
+    private static final byte FORMAT_VERSION = 4;
+
+    // Amount statistics; may cover the full history when seeded from the database
+    private long count;
+    private double mean;
+    private double m2;
+    // Transactions applied through record(), which the decision and risk counts cover
+    private long recordedCount;
+    private long allowCount;
+    private long reviewCount;
+    private long blockCount;
+    private long highRiskCount;
+    private long firstSeenMillis;
+    private long lastSeenMillis;
+    private final String[] ips = new String[MAX_DISTINCT];
+    private final String[] devices = new String[MAX_DISTINCT];
+    private final long[] recentIds = new long[RECENT_IDS];
+    private int nextId;
+    private final BehaviourSketch sketch = new BehaviourSketch();
+    private String lastCountry;
+    private double lastLatitude;
+    private double lastLongitude;
+    private long lastLocatedMillis;
+    // Version of the Redis copy this was read from or last written as; not part of the encoding
+    private long storedVersion;
+
+    /**
+     * Applies one transaction, in any order. Returns false, changing nothing, for a
+     * transaction id among the last {@value #RECENT_IDS} applied.
+     */
+    public synchronized boolean record(UUID transactionId, double amount, String ipAddress, String device,
+                                       String merchantId, String decision, float riskScore, long timestampMillis) {
+        if (transactionId != null && !remember(transactionId)) {
+            return false;
+        }
+
+        count++;
+        recordedCount++;
+        double delta = amount - mean;
+        mean += delta / count;
+        m2 += delta * (amount - mean);
+
+        switch (decision == null ? "" : decision) {
+            case "ALLOW" -> allowCount++;
+            case "REVIEW" -> reviewCount++;
+            case "BLOCK" -> blockCount++;
+            default -> { }
+        }
+        if (riskScore > 0.7f) {
+            highRiskCount++;
+        }
+
+        if (firstSeenMillis == 0 || timestampMillis < firstSeenMillis) {
+            firstSeenMillis = timestampMillis;
+        }
+        lastSeenMillis = Math.max(lastSeenMillis, timestampMillis);
+        touch(ips, ipAddress);
+        touch(devices, device);
+        sketch.record(amount, merchantId, timestampMillis);
+        return true;
+    }
+
+    private boolean remember(UUID transactionId) {
+        long id = idHash(transactionId);
+        for (long recent : recentIds) {
+            if (recent == id) {
+                return false;
+            }
+        }
+        recentIds[nextId] = id;
+        nextId = (nextId + 1) % RECENT_IDS;
+        return true;
+    }
+
+    private static long idHash(UUID transactionId) {
+        long hash = transactionId.getMostSignificantBits() ^ Long.rotateLeft(transactionId.getLeastSignificantBits(), 31);
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Remembers where the user transacted from; older fixes than the current one are ignored.
+     */
+    public synchronized void recordLocation(Location location, long timestampMillis) {
+        if (location == null || timestampMillis <= lastLocatedMillis) {
+            return;
+        }
+        lastCountry = location.getCountry();
+        lastLatitude = location.getLat();
+        lastLongitude = location.getLng();
+        lastLocatedMillis = timestampMillis;
+    }
+
+    /**
+     * Last geolocated position, or null if none has been recorded.
+     */
+    public synchronized Location lastLocation() {
+        if (lastLocatedMillis == 0) {
+            return null;
+        }
+        return Location.builder().country(lastCountry).lat(lastLatitude).lng(lastLongitude).build();
+    }
+
+    public synchronized long lastLocatedMillis() {
+        return lastLocatedMillis;
+    }
+
+    /**
+     * Overrides the amount statistics with values computed over the full history.
+     */
+    synchronized void seedAmountStats(long totalCount, double totalMean) {
+        if (totalCount <= count) {
+            return;
+        }
+        double variance = count > 1 ? m2 / (count - 1) : 0.0;
+        count = totalCount;
+        mean = totalMean;
+        m2 = variance * (totalCount - 1);
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    public synchronized double mean() {
+        return mean;
+    }
+
+    public synchronized double stdDev() {
+        return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0.0;
+    }
+
+    public synchronized boolean knowsIp(String ipAddress) {
+        return indexOf(ips, ipAddress) >= 0;
+    }
+
+    public synchronized boolean knowsDevice(String device) {
+        return indexOf(devices, device) >= 0;
+    }
+
+    /**
+     * Whether the behaviour sketch has seen any transactions.
+     */
+    public synchronized boolean hasBehaviour() {
+        return !sketch.isEmpty();
+    }
+
+    public synchronized double amountPercentile(double amount) {
+        return sketch.amountPercentile(amount);
+    }
+
+    public synchronized double rateZScore(long timestampMillis) {
+        return sketch.rateZScore(timestampMillis);
+    }
+
+    public synchronized double spendZScore(double amount, long timestampMillis) {
+        return sketch.spendZScore(amount, timestampMillis);
+    }
+
+    public synchronized double merchantShare(String merchantId) {
+        return sketch.merchantShare(merchantId);
+    }
+
+    public synchronized double hourShare(long timestampMillis) {
+        return sketch.hourShare(timestampMillis);
+    }
+
+    synchronized long storedVersion() {
+        return storedVersion;
+    }
+
+    synchronized void storedVersion(long version) {
+        storedVersion = version;
+    }
+
+    /**
+     * Rough heap footprint: object header and fields, the two arrays and the retained strings.
+     */
+    public synchronized long estimatedBytes() {
+        long bytes = 16 + 18 * 8 + 2 * (16 + MAX_DISTINCT * 4L) + (16 + RECENT_IDS * 8L) + BehaviourSketch.estimatedBytes();
+        for (String ip : ips) {
+            bytes += ip != null ? 40 + ip.length() : 0;
+        }
+        for (String device : devices) {
+            bytes += device != null ? 40 + device.length() : 0;
+        }
+        return bytes;
+    }
+
+    public synchronized UserProfile toUserProfile(String userId) {
+        Map<String, Object> patterns = new HashMap<>();
+        if (count > 0) {
+            double days = Math.max(1.0, (lastSeenMillis - firstSeenMillis) / 86_400_000.0);
+            patterns.put("transactionCount", count);
+            patterns.put("transactionFrequency", count / days); // per day
+            patterns.put("amountStdDev", stdDev());
+            patterns.put("highRiskPercentage", recordedCount > 0 ? (double) highRiskCount / recordedCount * 100 : 0.0);
+            patterns.put("decisionMix", Map.of("ALLOW", allowCount, "REVIEW", reviewCount, "BLOCK", blockCount));
+            patterns.put("commonDecision", commonDecision());
+            patterns.put("firstSeen", Instant.ofEpochMilli(firstSeenMillis));
+            patterns.put("lastSeen", Instant.ofEpochMilli(lastSeenMillis));
+        }
+
+        return new UserProfile(
+                userId,
+                BigDecimal.valueOf(mean),
+                present(ips),
+                present(devices),
+                patterns,
+                Instant.now()
+        );
+    }
+
+    private String commonDecision() {
+        if (allowCount == 0 && reviewCount == 0 && blockCount == 0) {
+            return "UNKNOWN";
+        }
+        if (allowCount >= reviewCount && allowCount >= blockCount) {
+            return "ALLOW";
+        }
+        return reviewCount >= blockCount ? "REVIEW" : "BLOCK";
+    }
+
+    /**
+     * Compact binary form used for the shared Redis copy.
+     */
+    public synchronized String encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(count);
+            out.writeDouble(mean);
+            out.writeDouble(m2);
+            out.writeLong(allowCount);
+            out.writeLong(reviewCount);
+            out.writeLong(blockCount);
+            out.writeLong(highRiskCount);
+            out.writeLong(firstSeenMillis);
+            out.writeLong(lastSeenMillis);
+            writeValues(out, ips);
+            writeValues(out, devices);
+            sketch.writeTo(out);
+            out.writeLong(lastLocatedMillis);
+            if (lastLocatedMillis != 0) {
+                out.writeUTF(lastCountry);
+                out.writeDouble(lastLatitude);
+                out.writeDouble(lastLongitude);
+            }
+            out.writeLong(recordedCount);
+            out.writeByte(nextId);
+            for (long id : recentIds) {
+                out.writeLong(id);
+            }
+            out.flush();
+            return Base64.getEncoder().encodeToString(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode user profile", e);
+        }
+    }
+
+    public static UserProfileAggregate decode(String encoded) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(encoded)));
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported profile format " + version);
+            }
+            UserProfileAggregate aggregate = new UserProfileAggregate();
+            aggregate.count = in.readLong();
+            aggregate.mean = in.readDouble();
+            aggregate.m2 = in.readDouble();
+            aggregate.allowCount = in.readLong();
+            aggregate.reviewCount = in.readLong();
+            aggregate.blockCount = in.readLong();
+            aggregate.highRiskCount = in.readLong();
+            aggregate.firstSeenMillis = in.readLong();
+            aggregate.lastSeenMillis = in.readLong();
+            readValues(in, aggregate.ips);
+            readValues(in, aggregate.devices);
+            aggregate.sketch.readFrom(in);
+            aggregate.lastLocatedMillis = in.readLong();
+            if (aggregate.lastLocatedMillis != 0) {
+                aggregate.lastCountry = in.readUTF();
+                aggregate.lastLatitude = in.readDouble();
+                aggregate.lastLongitude = in.readDouble();
+            }
+            aggregate.recordedCount = in.readLong();
+            aggregate.nextId = in.readByte() % RECENT_IDS;
+            for (int i = 0; i < RECENT_IDS; i++) {
+                aggregate.recentIds[i] = in.readLong();
+            }
+            return aggregate;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt user profile", e);
+        }
+    }
+
+    /**
+     * Moves the value to the front, evicting the least recently seen one when full.
+     */
+    private static void touch(String[] values, String value) {
+        if (value == null) {
+            return;
+        }
+        int index = indexOf(values, value);
+        int shiftFrom = index >= 0 ? index : values.length - 1;
+        System.arraycopy(values, 0, values, 1, shiftFrom);
+        values[0] = value;
+    }
+
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                return -1;
+            }
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> present(String[] values) {
+        List<String> list = new ArrayList<>(values.length);
+        for (String value : values) {
+            if (value != null) {
+                list.add(value);
+            }
+        }
+        return list;
+    }
+
+    private static void writeValues(DataOutputStream out, String[] values) throws IOException {
+        List<String> present = present(values);
+        out.writeByte(present.size());
+        for (String value : present) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static void readValues(DataInputStream in, String[] target) throws IOException {
+        int size = Math.min(in.readByte(), target.length);
+        for (int i = 0; i < size; i++) {
+            target[i] = in.readUTF();
+        }
+    }
+}
@@ -0,0 +1,588 @@
+package com.sentinelpay.fraudengine.service.profile;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelpay.fraudengine.cache.BoundedCache;
+import com.sentinelpay.fraudengine.model.Location;
+import com.sentinelpay.fraudengine.repository.CurrencyAmountStats;
+import com.sentinelpay.fraudengine.repository.TransactionEntity;
+import com.sentinelpay.fraudengine.repository.TransactionRepository;
+import com.sentinelpay.fraudengine.service.feature.ScoredTransaction;
+import com.sentinelpay.fraudengine.service.feature.ScoredTransactionListener;
+import com.sentinelpay.fraudengine.service.feature.TransactionContext;
+import com.sentinelpay.fraudengine.service.feature.TransactionFeatureContributor;
+import com.sentinelpay.fraudengine.service.fx.FxRateService;
+import com.sentinelpay.fraudengine.service.geo.IpGeolocationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the per-user {@link UserProfileAggregate}s in two levels: a bounded in-process
+ * cache (L1) in front of the shared Redis copy (L2), with the database as the seed of
+ * last resort. Concurrent misses for one user share a single load, and database seeds
+ * run from a bounded queue a few at a time, so a burst of new users cannot flood the
+ * database from the scoring path. Aggregates are updated from every scored transaction,
+ * written back to Redis in the background, and other nodes are told to drop their L1
+ * copy once the new state is in Redis.
+ *
+ * <p>The Redis copy carries a version. A write only succeeds against the version the
+ * aggregate was read from; when another node got there first, the transactions applied
+ * here since are replayed on top of its copy and the write is retried, so neither node's
+ * updates are lost.
+ */
+@Service
+@Order(0)
+public class UserProfileStore implements TransactionFeatureContributor, ScoredTransactionListener {
+    private static final Logger logger = LoggerFactory.getLogger(UserProfileStore.class);
+
+    private static final String PROFILE_KEY = "profile:user:%s";
+    private static final String INVALIDATION_CHANNEL = "profile:invalidate";
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    // Stored as "<version>:<encoded aggregate>". Returns the new version, or the stored
+    // value when its version is not the expected one
+    private static final RedisScript<String> WRITE_SCRIPT = RedisScript.of("""
+            local current = redis.call('GET', KEYS[1])
+            if current then
+              local version = tonumber(string.match(current, '^(%d+):')) or 0
+              if version ~= tonumber(ARGV[1]) then
+                return current
+              end
+            end
+            local written = tostring(tonumber(ARGV[1]) + 1)
+            redis.call('SET', KEYS[1], written .. ':' .. ARGV[2], 'PX', ARGV[3])
+            return written
+            """, String.class);
+
+    // IP geolocation is city-level at best; shorter hops and gaps are noise
+    private static final double MIN_TRAVEL_KM = 50.0;
+    private static final double MIN_TRAVEL_HOURS = 5 / 60.0;
+    private static final double IMPOSSIBLE_DISTANCE_KM = 500.0;
+    private static final double IMPOSSIBLE_SPEED_KMH = 1000.0;
+
+    private final TransactionRepository transactionRepository;
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final IpGeolocationService geolocation;
+    private final FxRateService fxRateService;
+    private final Duration ttl;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final BoundedCache<UUID, UserProfileAggregate> profiles;
+    private final Map<UUID, Mono<UserProfileAggregate>> inFlight = new ConcurrentHashMap<>();
+    private final Map<UUID, PendingProfile> dirty = new ConcurrentHashMap<>();
+    private final Sinks.Many<Mono<Void>> seedQueue;
+    private final int seedConcurrency;
+
+    private final Counter l2Hits;
+    private final Counter databaseSeeds;
+    private final Counter writeConflicts;
+    private final Timer loadTimer;
+    private Disposable invalidations;
+    private Disposable seeds;
+
+    public UserProfileStore(
+            TransactionRepository transactionRepository,
+            ReactiveRedisTemplate<String, String> redisTemplate,
+            ObjectMapper objectMapper,
+            IpGeolocationService geolocation,
+            FxRateService fxRateService,
+            MeterRegistry meterRegistry,
+            @Value("${profiles.ttl-days:90}") long ttlDays,
+            @Value("${profiles.cache.maximum-size:100000}") int maximumSize,
+            @Value("${profiles.cache.expire-after-access-minutes:30}") long expireAfterAccessMinutes,
+            @Value("${profiles.seed.concurrency:4}") int seedConcurrency,
+            @Value("${profiles.seed.queue-size:10000}") int seedQueueSize) {
+        this.transactionRepository = transactionRepository;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.geolocation = geolocation;
+        this.fxRateService = fxRateService;
+        this.ttl = Duration.ofDays(ttlDays);
+        this.profiles = new BoundedCache<>(maximumSize, Duration.ofMinutes(expireAfterAccessMinutes),
+                UserProfileAggregate::estimatedBytes);
+        this.seedQueue = Sinks.many().unicast().onBackpressureBuffer(Queues.<Mono<Void>>get(seedQueueSize).get());
+        this.seedConcurrency = seedConcurrency;
+
+        this.l2Hits = meterRegistry.counter("profile.cache.loads", "source", "redis");
+        this.databaseSeeds = meterRegistry.counter("profile.cache.loads", "source", "database");
+        this.writeConflicts = meterRegistry.counter("profile.flush.conflicts");
+        this.loadTimer = Timer.builder("profile.cache.load.latency")
+                .description("Time to load a profile on an L1 miss")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("profile.cache.hit.ratio", profiles, BoundedCache::hitRatio).register(meterRegistry);
+        Gauge.builder("profile.cache.size", profiles, BoundedCache::size).register(meterRegistry);
+        Gauge.builder("profile.cache.estimated.bytes", profiles, BoundedCache::weightedSize)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("profile.cache.evictions", profiles, BoundedCache::evictionCount).register(meterRegistry);
+        Gauge.builder("profile.cache.inflight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void subscribeToInvalidations() {
+        invalidations = redisTemplate.listenToChannel(INVALIDATION_CHANNEL)
+                .map(message -> message.getMessage())
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofMinutes(1)))
+                .subscribe(this::onInvalidation,
+                        error -> logger.warn("Profile invalidation listener stopped: {}", error.getMessage()));
+    }
+
+    @PostConstruct
+    void startSeeding() {
+        seeds = seedQueue.asFlux()
+                .flatMap(seed -> seed, seedConcurrency)
+                .subscribe();
+    }
+
+    @PreDestroy
+    void unsubscribeFromInvalidations() {
+        if (invalidations != null) {
+            invalidations.dispose();
+        }
+        if (seeds != null) {
+            seeds.dispose();
+        }
+    }
+
+    /**
+     * Returns the user's aggregate from L1, otherwise from Redis, otherwise seeded from
+     * the database. Callers missing on the same user at the same time share one load.
+     */
+    public Mono<UserProfileAggregate> load(UUID userId) {
+        UserProfileAggregate cached = profiles.getIfPresent(userId);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return inFlight.computeIfAbsent(userId, this::loadOnce);
+    }
+
+    private Mono<UserProfileAggregate> loadOnce(UUID userId) {
+        return Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return fetch(userId)
+                            .doOnTerminate(() -> loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+                })
+                .doOnNext(aggregate -> profiles.put(userId, aggregate))
+                .doFinally(signal -> inFlight.remove(userId))
+                .cache();
+    }
+
+    private Mono<UserProfileAggregate> fetch(UUID userId) {
+        PendingProfile pending = dirty.get(userId);
+        if (pending != null) {
+            return Mono.just(pending.aggregate());
+        }
+        return loadFromRedis(userId)
+                .doOnNext(aggregate -> l2Hits.increment())
+                .switchIfEmpty(Mono.defer(() -> seedFromDatabase(userId)));
+    }
+
+    @Override
+    public void contribute(TransactionContext context, Map<String, Object> features) {
+        UserProfileAggregate profile = profiles.getIfPresent(context.userId());
+        if (profile == null) {
+            warmUp(context.userId());
+            features.put("profile_txn_count", 0L);
+            features.put("amount_zscore", 0.0);
+            features.put("new_ip", 0);
+            features.put("new_device", 0);
+            putNeutralBehaviour(features);
+            putNeutralTravel(features);
+            return;
+        }
+
+        long count = profile.count();
+        double zScore = count >= 5
+                ? (context.amount() - profile.mean()) / Math.max(profile.stdDev(), 1.0)
+                : 0.0;
+        features.put("profile_txn_count", count);
+        features.put("amount_zscore", zScore);
+        features.put("new_ip", count > 0 && !profile.knowsIp(context.request().ipAddress()) ? 1 : 0);
+        features.put("new_device", count > 0 && !profile.knowsDevice(context.deviceId()) ? 1 : 0);
+        putTravel(profile, context, features);
+
+        if (!profile.hasBehaviour()) {
+            putNeutralBehaviour(features);
+            return;
+        }
+        long now = context.timestamp().toEpochMilli();
+        features.put("amount_percentile", profile.amountPercentile(context.amount()));
+        features.put("txn_rate_zscore", profile.rateZScore(now));
+        features.put("spend_rate_zscore", profile.spendZScore(context.amount(), now));
+        features.put("merchant_share", profile.merchantShare(context.request().merchantId()));
+        features.put("hour_share", profile.hourShare(now));
+    }
+
+    /**
+     * Values for users without history: nothing is unusual for someone we know nothing about.
+     */
+    private static void putNeutralBehaviour(Map<String, Object> features) {
+        features.put("amount_percentile", 0.5);
+        features.put("txn_rate_zscore", 0.0);
+        features.put("spend_rate_zscore", 0.0);
+        features.put("merchant_share", 1.0);
+        features.put("hour_share", 1.0);
+    }
+
+    /**
+     * Distance and implied speed from the user's last geolocated transaction. Travel is
+     * impossible when the hop is long and faster than a passenger flight.
+     */
+    private void putTravel(UserProfileAggregate profile, TransactionContext context, Map<String, Object> features) {
+        Location previous = profile.lastLocation();
+        Location current = previous != null ? geolocation.locate(context.request().ipAddress()) : null;
+        if (current == null) {
+            putNeutralTravel(features);
+            return;
+        }
+
+        double km = IpGeolocationService.distanceKm(previous.getLat(), previous.getLng(), current.getLat(), current.getLng());
+        double hours = Math.max((context.timestamp().toEpochMilli() - profile.lastLocatedMillis()) / 3_600_000.0, MIN_TRAVEL_HOURS);
+        double speed = km >= MIN_TRAVEL_KM ? km / hours : 0.0;
+        features.put("geo_distance_km", km);
+        features.put("geo_speed_kmh", speed);
+        features.put("geo_country_change", previous.getCountry().equals(current.getCountry()) ? 0 : 1);
+        features.put("impossible_travel", km >= IMPOSSIBLE_DISTANCE_KM && speed > IMPOSSIBLE_SPEED_KMH ? 1 : 0);
+    }
+
+    private static void putNeutralTravel(Map<String, Object> features) {
+        features.put("geo_distance_km", 0.0);
+        features.put("geo_speed_kmh", 0.0);
+        features.put("geo_country_change", 0);
+        features.put("impossible_travel", 0);
+    }
+
+    @Override
+    public void onScored(ScoredTransaction transaction) {
+        UserProfileAggregate profile = profiles.getIfPresent(transaction.userId());
+        ProfileUpdate update = ProfileUpdate.of(transaction, geolocation);
+        if (profile != null) {
+            apply(transaction.userId(), profile, update);
+            return;
+        }
+        load(transaction.userId())
+                .subscribe(
+                        loaded -> apply(transaction.userId(), loaded, update),
+                        error -> logger.warn("Failed to load profile for user {}: {}", transaction.userId(), error.getMessage())
+                );
+    }
+
+    private void apply(UUID userId, UserProfileAggregate profile, ProfileUpdate update) {
+        if (update.applyTo(profile)) {
+            dirty.compute(userId, (id, pending) -> (pending != null ? pending : new PendingProfile(profile)).add(profile, update));
+            profiles.put(userId, profile);
+        }
+    }
+
+    private void warmUp(UUID userId) {
+        load(userId)
+                .subscribe(
+                        loaded -> { },
+                        error -> logger.debug("Profile warm-up failed for user {}: {}", userId, error.getMessage())
+                );
+    }
+
+    /**
+     * Writes changed aggregates back to Redis so other nodes and restarts pick them up,
+     * then tells other nodes to drop their now stale L1 copies. Dirty aggregates are held
+     * here rather than looked up in L1 so an eviction cannot lose an update. Aggregates
+     * that still conflict after a few attempts, or fail to write, wait for the next flush.
+     */
+    @Scheduled(fixedDelayString = "${profiles.flush-interval-ms:5000}")
+    public void flushDirtyProfiles() {
+        profiles.cleanUp();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<UUID, PendingProfile>> batch = new ArrayList<>(dirty.entrySet());
+        batch.forEach(entry -> dirty.remove(entry.getKey(), entry.getValue()));
+
+        Flux.fromIterable(batch)
+                .flatMap(entry -> write(entry.getKey(), entry.getValue(), MAX_WRITE_ATTEMPTS), 32)
+                .filter(Boolean::booleanValue)
+                .count()
+                .subscribe(
+                        written -> logger.debug("Flushed {} user profiles to Redis", written),
+                        error -> logger.warn("Profile flush failed: {}", error.getMessage())
+                );
+    }
+
+    private Mono<Boolean> write(UUID userId, PendingProfile pending, int attempts) {
+        UserProfileAggregate aggregate = pending.aggregate();
+        List<String> args = List.of(Long.toString(aggregate.storedVersion()), aggregate.encode(),
+                Long.toString(ttl.toMillis()));
+        return redisTemplate.execute(WRITE_SCRIPT, List.of(PROFILE_KEY.formatted(userId)), args)
+                .next()
+                .flatMap(reply -> {
+                    if (reply.indexOf(':') < 0) {
+                        aggregate.storedVersion(Long.parseLong(reply));
+                        return redisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + ":" + userId)
+                                .thenReturn(true);
+                    }
+                    writeConflicts.increment();
+                    PendingProfile rebased;
+                    try {
+                        rebased = pending.rebaseOnto(decodeStored(reply));
+                    } catch (IllegalArgumentException e) {
+                        logger.warn("Overwriting unreadable profile of user {}: {}", userId, e.getMessage());
+                        aggregate.storedVersion(versionOf(reply));
+                        rebased = pending;
+                    }
+                    profiles.put(userId, rebased.aggregate());
+                    if (attempts > 1) {
+                        return write(userId, rebased, attempts - 1);
+                    }
+                    requeue(userId, rebased);
+                    return Mono.just(false);
+                })
+                .onErrorResume(error -> {
+                    logger.debug("Failed to write profile for user {}: {}", userId, error.getMessage());
+                    requeue(userId, pending);
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * Puts an unwritten aggregate back for the next flush, together with anything applied
+     * to the user since it was taken.
+     */
+    private void requeue(UUID userId, PendingProfile pending) {
+        PendingProfile merged = dirty.merge(userId, pending, (newer, older) -> older.absorb(newer));
+        profiles.put(userId, merged.aggregate());
+    }
+
+    private void onInvalidation(String message) {
+        int separator = message.lastIndexOf(':');
+        if (separator < 0 || message.substring(0, separator).equals(nodeId)) {
+            return;
+        }
+        try {
+            UUID userId = UUID.fromString(message.substring(separator + 1));
+            if (!dirty.containsKey(userId)) {
+                profiles.invalidate(userId);
+            }
+        } catch (IllegalArgumentException e) {
+            logger.debug("Ignoring malformed profile invalidation: {}", message);
+        }
+    }
+
+    private Mono<UserProfileAggregate> loadFromRedis(UUID userId) {
+        return redisTemplate.opsForValue().get(PROFILE_KEY.formatted(userId))
+                .map(UserProfileStore::decodeStored)
+                .onErrorResume(error -> {
+                    logger.warn("Failed to read profile for user {} from Redis: {}", userId, error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Decodes a stored "{@code <version>:<encoded>}" value. A value without a version
+     * counts as version 0.
+     */
+    static UserProfileAggregate decodeStored(String stored) {
+        UserProfileAggregate aggregate = UserProfileAggregate.decode(stored.substring(stored.indexOf(':') + 1));
+        aggregate.storedVersion(versionOf(stored));
+        return aggregate;
+    }
+
+    private static long versionOf(String stored) {
+        int separator = stored.indexOf(':');
+        try {
+            return separator > 0 ? Long.parseLong(stored.substring(0, separator)) : 0L;
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Queues the database seed of a user without a stored aggregate. Fails at once when
+     * the queue is full; the next transaction of the user tries again.
+     */
+    private Mono<UserProfileAggregate> seedFromDatabase(UUID userId) {
+        Sinks.One<UserProfileAggregate> seeded = Sinks.one();
+        Mono<Void> seed = seed(userId)
+                .doOnNext(seeded::tryEmitValue)
+                .doOnError(seeded::tryEmitError)
+                .onErrorResume(error -> Mono.empty())
+                .then();
+        Sinks.EmitResult result;
+        synchronized (seedQueue) {
+            result = seedQueue.tryEmitNext(seed);
+        }
+        if (result.isFailure()) {
+            return Mono.error(new IllegalStateException("Profile seed queue is full"));
+        }
+        return seeded.asMono();
+    }
+
+    /**
+     * One-off seed: the recent rows give the distinct IPs/devices and decision mix, the
+     * full-history count and average fix up the amount statistics. The average is taken
+     * per currency and converted, like every other amount the profile sees.
+     */
+    private Mono<UserProfileAggregate> seed(UUID userId) {
+        Instant thirtyDaysAgo = Instant.now().minus(Duration.ofDays(30));
+
+        return Mono.zip(
+                transactionRepository.findAmountStatsByCurrency(userId).collectList(),
+                transactionRepository.findRecentByUser(userId, thirtyDaysAgo).collectList()
+        ).map(tuple -> {
+            UserProfileAggregate aggregate = new UserProfileAggregate();
+            tuple.getT2().stream()
+                    .sorted(Comparator.comparing(TransactionEntity::getCreatedAt,
+                            Comparator.nullsFirst(Comparator.naturalOrder())))
+                    .forEach(entity -> {
+                        long timestamp = entity.getCreatedAt() != null ? entity.getCreatedAt().toEpochMilli() : 0L;
+                        aggregate.record(
+                                entity.getTransactionId(),
+                                entity.getAmount() != null
+                                        ? fxRateService.toBase(entity.getAmount().doubleValue(), entity.getCurrency())
+                                        : 0.0,
+                                entity.getIpAddress(),
+                                deviceOf(entity),
+                                entity.getMerchantId(),
+                                entity.getDecision(),
+                                entity.getRiskScore() != null ? entity.getRiskScore() : 0.0f,
+                                timestamp);
+                        aggregate.recordLocation(geolocation.locate(entity.getIpAddress()), timestamp);
+                    });
+            long totalCount = 0;
+            double totalBase = 0.0;
+            for (CurrencyAmountStats stats : tuple.getT1()) {
+                if (stats.count() == null || stats.average() == null) {
+                    continue;
+                }
+                totalCount += stats.count();
+                totalBase += fxRateService.toBase(stats.average(), stats.currency()) * stats.count();
+            }
+            aggregate.seedAmountStats(totalCount, totalCount > 0 ? totalBase / totalCount : 0.0);
+            dirty.put(userId, new PendingProfile(aggregate));
+            databaseSeeds.increment();
+            return aggregate;
+        });
+    }
+
+    /**
+     * The inputs of one {@link UserProfileAggregate#record} call, kept so that the
+     * transaction can be applied again to another copy of the aggregate.
+     */
+    private record ProfileUpdate(UUID transactionId, double amount, String ipAddress, String device,
+                                 String merchantId, String decision, float riskScore, long timestampMillis,
+                                 Location location) {
+
+        static ProfileUpdate of(ScoredTransaction transaction, IpGeolocationService geolocation) {
+            TransactionContext context = transaction.context();
+            return new ProfileUpdate(
+                    transaction.transactionId(),
+                    transaction.amount(),
+                    context.request().ipAddress(),
+                    context.deviceId(),
+                    context.request().merchantId(),
+                    transaction.decision(),
+                    transaction.riskScore(),
+                    transaction.timestamp().toEpochMilli(),
+                    geolocation.locate(context.request().ipAddress()));
+        }
+
+        boolean applyTo(UserProfileAggregate aggregate) {
+            boolean changed = aggregate.record(transactionId, amount, ipAddress, device, merchantId,
+                    decision, riskScore, timestampMillis);
+            if (changed) {
+                aggregate.recordLocation(location, timestampMillis);
+            }
+            return changed;
+        }
+    }
+
+    /**
+     * A dirty aggregate and the updates applied to it since it was read from Redis.
+     */
+    private static final class PendingProfile {
+        private final UserProfileAggregate aggregate;
+        private final List<ProfileUpdate> updates = new ArrayList<>();
+
+        PendingProfile(UserProfileAggregate aggregate) {
+            this.aggregate = aggregate;
+        }
+
+        UserProfileAggregate aggregate() {
+            return aggregate;
+        }
+
+        /**
+         * Records an update already applied to {@code profile}, which may be an older copy
+         * than the one held here after a rebase.
+         */
+        synchronized PendingProfile add(UserProfileAggregate profile, ProfileUpdate update) {
+            if (profile != aggregate) {
+                update.applyTo(aggregate);
+            }
+            updates.add(update);
+            return this;
+        }
+
+        synchronized PendingProfile absorb(PendingProfile newer) {
+            for (ProfileUpdate update : newer.snapshot()) {
+                add(newer.aggregate, update);
+            }
+            return this;
+        }
+
+        /**
+         * Replays the updates on top of another node's copy; transactions that copy has
+         * already seen are skipped by the aggregate itself.
+         */
+        PendingProfile rebaseOnto(UserProfileAggregate stored) {
+            PendingProfile rebased = new PendingProfile(stored);
+            for (ProfileUpdate update : snapshot()) {
+                update.applyTo(stored);
+                rebased.updates.add(update);
+            }
+            return rebased;
+        }
+
+        private synchronized List<ProfileUpdate> snapshot() {
+            return List.copyOf(updates);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private String deviceOf(TransactionEntity entity) {
+        try {
+            Map<String, Object> deviceInfo = objectMapper.readValue(entity.getDeviceInfo(), Map.class);
+            return TransactionContext.deviceId(deviceInfo);
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
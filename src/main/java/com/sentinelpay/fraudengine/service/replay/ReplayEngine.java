@@ -0,0 +1,357 @@
+package com.sentinelpay.fraudengine.service.replay;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelpay.fraudengine.dto.ReplayReport;
+import com.sentinelpay.fraudengine.dto.ReplayRequest;
+import com.sentinelpay.fraudengine.dto.TransactionRequest;
+import com.sentinelpay.fraudengine.repository.RuleEntity;
+import com.sentinelpay.fraudengine.repository.RuleRepository;
+import com.sentinelpay.fraudengine.repository.TransactionEntity;
+import com.sentinelpay.fraudengine.repository.analytics.TransactionAnalyticsRepository;
+import com.sentinelpay.fraudengine.service.DecisionPolicy;
+import com.sentinelpay.fraudengine.service.RuleEngine;
+import com.sentinelpay.fraudengine.service.export.ColumnarSegmentReader;
+import com.sentinelpay.fraudengine.service.export.TrainingDataExporter;
+import com.sentinelpay.fraudengine.service.feature.FeatureCodec;
+import com.sentinelpay.fraudengine.service.ml.TensorFlowMLService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Re-scores historical transactions through the rule, ML and fusion pipeline with a
+ * candidate {@link DecisionPolicy} and reports how decisions would shift.
+ *
+ * <p>Only the policy is a candidate: ML scores come from the live
+ * {@link TensorFlowMLService}, which scores with a built-in function rather than a
+ * loadable model, so there is no other model to select yet.
+ *
+ * <p>Replays use the features stored with each transaction, so stateful sources
+ * (Redis velocity, profiles) are neither read nor updated, and nothing is saved,
+ * published to Kafka or alerted on. Denylist blocks are counted separately rather than
+ * replayed, and rows that cannot be replayed are counted as failed.
+ */
+@Service
+public class ReplayEngine {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayEngine.class);
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+    private static final String DENYLIST_FEATURE = "denylist_type";
+
+    private final TransactionAnalyticsRepository transactionAnalyticsRepository;
+    private final RuleRepository ruleRepository;
+    private final RuleEngine ruleEngine;
+    private final TensorFlowMLService tensorFlowMLService;
+    private final TrainingDataExporter trainingDataExporter;
+    private final FeatureCodec featureCodec;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public ReplayEngine(
+            TransactionAnalyticsRepository transactionAnalyticsRepository,
+            RuleRepository ruleRepository,
+            RuleEngine ruleEngine,
+            TensorFlowMLService tensorFlowMLService,
+            TrainingDataExporter trainingDataExporter,
+            FeatureCodec featureCodec,
+            ObjectMapper objectMapper,
+            @Value("${replay.batch-size:2048}") int batchSize) {
+        this.transactionAnalyticsRepository = transactionAnalyticsRepository;
+        this.ruleRepository = ruleRepository;
+        this.ruleEngine = ruleEngine;
+        this.tensorFlowMLService = tensorFlowMLService;
+        this.trainingDataExporter = trainingDataExporter;
+        this.featureCodec = featureCodec;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    public Mono<ReplayReport> replay(ReplayRequest request) {
+        DecisionPolicy policy = candidatePolicy(request);
+        long startNanos = System.nanoTime();
+
+        return ruleRepository.findByEnabledTrue()
+                .collectList()
+                .flatMap(rules -> source(request)
+                        .buffer(batchSize)
+                        .parallel()
+                        .runOn(Schedulers.parallel())
+                        .map(batch -> replayBatch(batch, rules, policy))
+                        .reduce(DecisionMatrix::merge))
+                .defaultIfEmpty(new DecisionMatrix())
+                .map(matrix -> matrix.toReport(System.nanoTime() - startNanos))
+                .doOnSuccess(report -> logger.info("Replay of {} transactions finished in {}ms ({} tx/s), {} decisions changed",
+                        report.transactions(), report.durationMs(),
+                        Math.round(report.transactionsPerSecond()), report.changedDecisions()));
+    }
+
+    private DecisionPolicy candidatePolicy(ReplayRequest request) {
+        DecisionPolicy base = DecisionPolicy.DEFAULT;
+        return new DecisionPolicy(
+                request.mlWeight() != null ? request.mlWeight() : base.mlWeight(),
+                request.ruleWeight() != null ? request.ruleWeight() : base.ruleWeight(),
+                request.ruleBlockThreshold() != null ? request.ruleBlockThreshold() : base.ruleBlockThreshold(),
+                request.blockThreshold() != null ? request.blockThreshold() : base.blockThreshold(),
+                request.reviewThreshold() != null ? request.reviewThreshold() : base.reviewThreshold()
+        );
+    }
+
+    private Flux<ReplayRecord> source(ReplayRequest request) {
+        if ("export".equalsIgnoreCase(request.source())) {
+            return Mono.fromCallable(() -> trainingDataExporter.listSegments(request.from(), request.to()))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMapMany(Flux::fromIterable)
+                    .concatMap(this::readSegment);
+        }
+        return featureCodec.reload()
+                .thenMany(transactionAnalyticsRepository.streamByBucketHourRange(request.from(), request.to()))
+                .map(this::fromEntity);
+    }
+
+    private Flux<ReplayRecord> readSegment(Path segment) {
+        return Flux.using(
+                        () -> ColumnarSegmentReader.open(segment),
+                        reader -> Flux.<ColumnarSegmentReader.RowGroup>generate(sink -> {
+                            try {
+                                ColumnarSegmentReader.RowGroup group = reader.next();
+                                if (group == null) {
+                                    sink.complete();
+                                } else {
+                                    sink.next(group);
+                                }
+                            } catch (IOException e) {
+                                sink.error(new UncheckedIOException(e));
+                            }
+                        }),
+                        reader -> {
+                            try {
+                                reader.close();
+                            } catch (IOException e) {
+                                logger.warn("Failed to close segment {}: {}", segment, e.getMessage());
+                            }
+                        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapIterable(this::fromRowGroup);
+    }
+
+    private ReplayRecord fromEntity(TransactionEntity entity) {
+        return new ReplayRecord(
+                entity.getUserId() != null ? entity.getUserId().toString() : null,
+                entity.getAmount(),
+                entity.getCurrency(),
+                entity.getMerchantId(),
+                entity.getIpAddress(),
+                entity.getDeviceInfo(),
+                null,
+                entity.getPackedFeatures(),
+                entity.getDecision(),
+                entity.getRiskScore()
+        );
+    }
+
+    private List<ReplayRecord> fromRowGroup(ColumnarSegmentReader.RowGroup group) {
+        int rows = group.rowCount();
+        String[] userIds = group.strings("user_id");
+        double[] amounts = group.doubles("amount");
+        String[] currencies = group.strings("currency");
+        String[] merchants = group.strings("merchant_id");
+        String[] ips = group.strings("ip_address");
+        String[] devices = group.strings("device_info");
+        String[] decisions = group.strings("decision");
+        double[] scores = group.doubles("risk_score");
+
+        Map<String, Object[]> featureColumns = new HashMap<>();
+        for (String column : group.columns()) {
+            if (!column.startsWith("f.")) {
+                continue;
+            }
+            Object[] values = new Object[rows];
+            if (group.isNumeric(column)) {
+                double[] numbers = group.doubles(column);
+                for (int i = 0; i < rows; i++) {
+                    values[i] = Double.isNaN(numbers[i]) ? null : numbers[i];
+                }
+            } else {
+                System.arraycopy(group.strings(column), 0, values, 0, rows);
+            }
+            featureColumns.put(column.substring(2), values);
+        }
+
+        List<ReplayRecord> records = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> features = new HashMap<>();
+            for (Map.Entry<String, Object[]> column : featureColumns.entrySet()) {
+                Object value = column.getValue()[i];
+                if (value != null) {
+                    features.put(column.getKey(), value);
+                }
+            }
+            records.add(new ReplayRecord(
+                    userIds[i],
+                    Double.isNaN(amounts[i]) ? BigDecimal.ZERO : BigDecimal.valueOf(amounts[i]),
+                    currencies[i],
+                    merchants[i],
+                    ips[i],
+                    devices[i],
+                    features,
+                    null,
+                    decisions[i],
+                    Double.isNaN(scores[i]) ? null : (float) scores[i]
+            ));
+        }
+        return records;
+    }
+
+    private DecisionMatrix replayBatch(List<ReplayRecord> batch, List<RuleEntity> rules, DecisionPolicy policy) {
+        DecisionMatrix matrix = new DecisionMatrix();
+        for (ReplayRecord record : batch) {
+            try {
+                // Stored features are only unpacked here, on the parallel rails; a row whose
+                // schema is not loaded yet fails and is counted rather than replayed without features
+                Map<String, Object> features = record.features() != null
+                        ? record.features()
+                        : featureCodec.decode(record.packedFeatures());
+                // Denylist blocks were never scored, so the candidate policy has nothing to change
+                if (features.containsKey(DENYLIST_FEATURE)) {
+                    matrix.denylisted++;
+                    continue;
+                }
+                TransactionRequest request = new TransactionRequest(
+                        record.userId(),
+                        record.amount(),
+                        record.currency(),
+                        record.merchantId() != null ? record.merchantId() : "",
+                        record.ipAddress() != null ? record.ipAddress() : "",
+                        parse(record.deviceInfoJson()),
+                        null
+                );
+
+                RuleEngine.RuleResult ruleResult = ruleEngine.evaluateRules(request, rules, features);
+                float mlScore = tensorFlowMLService.score(features);
+                long velocity = features.get("velocity_1h") instanceof Number number ? number.longValue() : 0L;
+
+                float replayedScore = policy.fuseScores(mlScore, (float) ruleResult.totalScore(), velocity);
+                String decision = policy.makeDecision(replayedScore, ruleResult.totalScore());
+                float originalScore = record.riskScore() != null ? record.riskScore() : replayedScore;
+
+                matrix.add(record.decision(), decision, replayedScore - originalScore);
+            } catch (Exception e) {
+                matrix.failed++;
+            }
+        }
+        return matrix;
+    }
+
+    private Map<String, Object> parse(String json) throws IOException {
+        if (json == null || json.isEmpty()) {
+            return new HashMap<>();
+        }
+        return objectMapper.readValue(json, MAP_TYPE);
+    }
+
+    private record ReplayRecord(
+            String userId,
+            BigDecimal amount,
+            String currency,
+            String merchantId,
+            String ipAddress,
+            String deviceInfoJson,
+            Map<String, Object> features,
+            byte[] packedFeatures,
+            String decision,
+            Float riskScore
+    ) { }
+
+    /**
+     * Original-versus-replayed decision counts. Each parallel rail fills its own
+     * instance and the rails are merged at the end, so no counters are shared.
+     */
+    private static final class DecisionMatrix {
+        private static final String[] LABELS = {"ALLOW", "REVIEW", "BLOCK", "OTHER"};
+
+        private final long[][] counts = new long[LABELS.length][LABELS.length];
+        private double scoreDeltaSum;
+        private long failed;
+        private long denylisted;
+
+        void add(String original, String replayed, double scoreDelta) {
+            counts[index(original)][index(replayed)]++;
+            scoreDeltaSum += scoreDelta;
+        }
+
+        DecisionMatrix merge(DecisionMatrix other) {
+            for (int i = 0; i < LABELS.length; i++) {
+                for (int j = 0; j < LABELS.length; j++) {
+                    counts[i][j] += other.counts[i][j];
+                }
+            }
+            scoreDeltaSum += other.scoreDeltaSum;
+            failed += other.failed;
+            denylisted += other.denylisted;
+            return this;
+        }
+
+        ReplayReport toReport(long elapsedNanos) {
+            long total = 0;
+            long unchanged = 0;
+            Map<String, Map<String, Long>> matrix = new LinkedHashMap<>();
+            Map<String, Long> deltas = new LinkedHashMap<>();
+
+            for (int i = 0; i < LABELS.length; i++) {
+                Map<String, Long> row = new LinkedHashMap<>();
+                for (int j = 0; j < LABELS.length; j++) {
+                    row.put(LABELS[j], counts[i][j]);
+                    total += counts[i][j];
+                    deltas.merge(LABELS[j], counts[i][j], Long::sum);
+                    deltas.merge(LABELS[i], -counts[i][j], Long::sum);
+                }
+                unchanged += counts[i][i];
+                matrix.put(LABELS[i], row);
+            }
+            if (failed > 0) {
+                logger.warn("{} transactions could not be replayed", failed);
+            }
+
+            long durationMs = elapsedNanos / 1_000_000;
+            double perSecond = elapsedNanos > 0 ? total * 1_000_000_000.0 / elapsedNanos : 0.0;
+            return new ReplayReport(
+                    total,
+                    total - unchanged,
+                    failed,
+                    denylisted,
+                    matrix,
+                    deltas,
+                    total > 0 ? scoreDeltaSum / total : 0.0,
+                    durationMs,
+                    perSecond
+            );
+        }
+
+        private static int index(String decision) {
+            if (decision == null) {
+                return 3;
+            }
+            return switch (decision) {
+                case "ALLOW" -> 0;
+                case "REVIEW" -> 1;
+                case "BLOCK" -> 2;
+                default -> 3;
+            };
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.sentinelpay.fraudengine.service.sequence;
+
+import com.sentinelpay.fraudengine.service.feature.ScoredTransaction;
+import com.sentinelpay.fraudengine.service.feature.ScoredTransactionListener;
+import com.sentinelpay.fraudengine.service.feature.TransactionContext;
+import com.sentinelpay.fraudengine.service.feature.TransactionFeatureContributor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps the last few transactions of each recently active user in a ring buffer and
+ * derives sequence features from them (repeated attempts, amount laddering, merchant
+ * switching) without touching the database.
+ *
+ * <p>Events are stored column-wise in primitive arrays, one set per shard, so a user
+ * costs a fixed ~25 bytes per event and no objects per transaction. Each shard holds a
+ * bounded number of users and reclaims slots with a CLOCK sweep.
+ */
+@Service
+@Order(0)
+public class RecentTransactionBuffer implements TransactionFeatureContributor, ScoredTransactionListener {
+
+    static final byte DECISION_ALLOW = 0;
+    static final byte DECISION_REVIEW = 1;
+    static final byte DECISION_BLOCK = 2;
+
+    private static final long REPEAT_WINDOW_MILLIS = 60_000;
+    private static final long ATTEMPT_WINDOW_MILLIS = 10 * 60_000;
+    private static final long LADDER_WINDOW_MILLIS = 30 * 60_000;
+    private static final long IP_WINDOW_MILLIS = 60 * 60_000;
+
+    private final Shard[] shards;
+
+    public RecentTransactionBuffer(
+            @Value("${sequence.shards:64}") int shardCount,
+            @Value("${sequence.max-users:200000}") int maxUsers,
+            @Value("${sequence.events-per-user:16}") int eventsPerUser) {
+        int shardsRoundedUp = Integer.highestOneBit(Math.max(1, shardCount - 1)) << 1;
+        this.shards = new Shard[shardsRoundedUp];
+        int usersPerShard = Math.max(1, maxUsers / shardsRoundedUp);
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(usersPerShard, eventsPerUser);
+        }
+    }
+
+    @Override
+    public void contribute(TransactionContext context, Map<String, Object> features) {
+        shardFor(context.userId()).contribute(
+                context.userId(),
+                context.timestamp().toEpochMilli(),
+                toCents(context.amount()),
+                hash(context.request().merchantId()),
+                hash(context.request().ipAddress()),
+                features);
+    }
+
+    @Override
+    public void onScored(ScoredTransaction transaction) {
+        TransactionContext context = transaction.context();
+        shardFor(transaction.userId()).record(
+                transaction.userId(),
+                transaction.timestamp().toEpochMilli(),
+                toCents(transaction.amount()),
+                hash(context.request().merchantId()),
+                hash(context.request().ipAddress()),
+                decisionCode(transaction.decision()));
+    }
+
+    public int trackedUsers() {
+        int users = 0;
+        for (Shard shard : shards) {
+            users += shard.size();
+        }
+        return users;
+    }
+
+    private Shard shardFor(UUID userId) {
+        int hash = userId.hashCode();
+        hash ^= hash >>> 16;
+        return shards[hash & (shards.length - 1)];
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static int hash(String value) {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    private static byte decisionCode(String decision) {
+        return switch (decision == null ? "" : decision) {
+            case "BLOCK" -> DECISION_BLOCK;
+            case "REVIEW" -> DECISION_REVIEW;
+            default -> DECISION_ALLOW;
+        };
+    }
+
+    /**
+     * Fixed-capacity store for a subset of users. Slot {@code s} owns events
+     * {@code [s * eventsPerUser, (s + 1) * eventsPerUser)} in the column arrays.
+     */
+    static final class Shard {
+        private final int eventsPerUser;
+        private final Map<UUID, Integer> slots = new HashMap<>();
+        private final UUID[] owners;
+        private final boolean[] referenced;
+        private final int[] heads;
+        private final int[] sizes;
+
+        private final long[] timestamps;
+        private final long[] amountCents;
+        private final int[] merchantHashes;
+        private final int[] ipHashes;
+        private final byte[] decisions;
+
+        private int clockHand;
+
+        Shard(int users, int eventsPerUser) {
+            this.eventsPerUser = eventsPerUser;
+            this.owners = new UUID[users];
+            this.referenced = new boolean[users];
+            this.heads = new int[users];
+            this.sizes = new int[users];
+            int events = users * eventsPerUser;
+            this.timestamps = new long[events];
+            this.amountCents = new long[events];
+            this.merchantHashes = new int[events];
+            this.ipHashes = new int[events];
+            this.decisions = new byte[events];
+        }
+
+        synchronized int size() {
+            return slots.size();
+        }
+
+        synchronized void record(UUID userId, long timestamp, long cents, int merchant, int ip, byte decision) {
+            Integer slot = slots.get(userId);
+            if (slot == null) {
+                slot = claimSlot(userId);
+            }
+            referenced[slot] = true;
+
+            int base = slot * eventsPerUser;
+            int head = heads[slot];
+            int index = base + head;
+            timestamps[index] = timestamp;
+            amountCents[index] = cents;
+            merchantHashes[index] = merchant;
+            ipHashes[index] = ip;
+            decisions[index] = decision;
+
+            heads[slot] = (head + 1) % eventsPerUser;
+            sizes[slot] = Math.min(sizes[slot] + 1, eventsPerUser);
+        }
+
+        /**
+         * Computes the sequence features for a transaction about to be scored, walking
+         * the user's events from newest to oldest.
+         */
+        synchronized void contribute(UUID userId, long now, long cents, int merchant, int ip,
+                                     Map<String, Object> features) {
+            int sameAmountMerchant = 0;
+            int attempts = 0;
+            int declined = 0;
+            int merchantSwitches = 0;
+            int distinctIps = 1;
+            int increasingRun = 1;
+            int decreasingRun = 1;
+            boolean increasing = true;
+            boolean decreasing = true;
+
+            Integer slot = slots.get(userId);
+            if (slot != null) {
+                referenced[slot] = true;
+                int base = slot * eventsPerUser;
+                int size = sizes[slot];
+                long laterCents = cents;
+                int laterMerchant = merchant;
+
+                for (int i = 0; i < size; i++) {
+                    int index = base + Math.floorMod(heads[slot] - 1 - i, eventsPerUser);
+                    long age = now - timestamps[index];
+                    if (age > IP_WINDOW_MILLIS) {
+                        break;
+                    }
+
+                    if (age <= REPEAT_WINDOW_MILLIS && amountCents[index] == cents && merchantHashes[index] == merchant) {
+                        sameAmountMerchant++;
+                    }
+                    if (age <= ATTEMPT_WINDOW_MILLIS) {
+                        attempts++;
+                        if (decisions[index] != DECISION_ALLOW) {
+                            declined++;
+                        }
+                        if (merchantHashes[index] != laterMerchant) {
+                            merchantSwitches++;
+                        }
+                        laterMerchant = merchantHashes[index];
+                    }
+                    if (age <= LADDER_WINDOW_MILLIS) {
+                        increasing &= amountCents[index] < laterCents;
+                        decreasing &= amountCents[index] > laterCents;
+                        if (increasing) {
+                            increasingRun++;
+                        }
+                        if (decreasing) {
+                            decreasingRun++;
+                        }
+                        laterCents = amountCents[index];
+                    }
+                    if (ipHashes[index] != ip && isFirstOccurrence(base, slot, i, ipHashes[index])) {
+                        distinctIps++;
+                    }
+                }
+            }
+
+            features.put("seq_same_amount_merchant_60s", sameAmountMerchant);
+            features.put("seq_attempts_10m", attempts);
+            features.put("seq_declined_10m", declined);
+            features.put("seq_merchant_switches_10m", merchantSwitches);
+            features.put("seq_amount_ladder", Math.max(increasingRun, decreasingRun));
+            features.put("seq_distinct_ips_1h", distinctIps);
+        }
+
+        private boolean isFirstOccurrence(int base, int slot, int position, int ipHash) {
+            for (int j = 0; j < position; j++) {
+                if (ipHashes[base + Math.floorMod(heads[slot] - 1 - j, eventsPerUser)] == ipHash) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Finds a slot for a new user, evicting the first one not referenced since the
+         * clock hand last passed it.
+         */
+        private int claimSlot(UUID userId) {
+            int slot;
+            if (slots.size() < owners.length) {
+                slot = slots.size();
+            } else {
+                while (referenced[clockHand]) {
+                    referenced[clockHand] = false;
+                    clockHand = (clockHand + 1) % owners.length;
+                }
+                slot = clockHand;
+                clockHand = (clockHand + 1) % owners.length;
+                slots.remove(owners[slot]);
+            }
+            owners[slot] = userId;
+            heads[slot] = 0;
+            sizes[slot] = 0;
+            slots.put(userId, slot);
+            return slot;
+        }
+    }
+}
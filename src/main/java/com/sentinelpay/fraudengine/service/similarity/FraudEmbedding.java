@@ -0,0 +1,65 @@
+package com.sentinelpay.fraudengine.service.similarity;
+
+import java.util.Map;
+
+/**
+ * Maps a scoring feature vector to a fixed-length float vector in which every component
+ * is roughly in [0, 1], so that Euclidean distance weighs features comparably. Missing
+ * features take the same neutral values the contributors use for unknown users.
+ *
+ * <p>Changing the layout invalidates stored embeddings; bump {@link #VERSION} with it.
+ */
+public final class FraudEmbedding {
+
+    public static final int VERSION = 1;
+    public static final int DIMENSION = 24;
+
+    private FraudEmbedding() {
+    }
+
+    public static float[] embed(Map<String, Object> features) {
+        float[] v = new float[DIMENSION];
+        int hour = (int) value(features, "hour_of_day", 12);
+
+        v[0] = (float) (Math.log1p(Math.max(0.0, value(features, "amount", 0))) / 12.0);
+        v[1] = squash(value(features, "velocity_1h", 0), 10);
+        v[2] = (float) value(features, "merchant_risk", 0.3);
+        v[3] = (float) value(features, "ip_risk", 0.4);
+        v[4] = (float) value(features, "device_risk", 0.2);
+        v[5] = (float) (0.5 + 0.5 * Math.sin(2 * Math.PI * hour / 24.0));
+        v[6] = (float) (0.5 + 0.5 * Math.cos(2 * Math.PI * hour / 24.0));
+        v[7] = (float) (value(features, "day_of_week", 1) / 7.0);
+        v[8] = squash(value(features, "amount_zscore", 0), 3);
+        v[9] = (float) value(features, "amount_percentile", 0.5);
+        v[10] = squash(value(features, "txn_rate_zscore", 0), 3);
+        v[11] = squash(value(features, "spend_rate_zscore", 0), 3);
+        v[12] = (float) value(features, "merchant_share", 1.0);
+        v[13] = (float) value(features, "hour_share", 1.0);
+        v[14] = (float) value(features, "new_ip", 0);
+        v[15] = (float) value(features, "new_device", 0);
+        v[16] = squash(value(features, "seq_attempts_10m", 0), 5);
+        v[17] = squash(value(features, "seq_same_amount_merchant_60s", 0), 2);
+        v[18] = squash(value(features, "seq_merchant_switches_10m", 0), 5);
+        v[19] = squash(value(features, "seq_amount_ladder", 1) - 1, 4);
+        v[20] = squash(value(features, "graph_device_users_24h", 0), 3);
+        v[21] = squash(value(features, "graph_ip_users_24h", 0), 5);
+        v[22] = (float) value(features, "graph_fraud_proximity", 0);
+        v[23] = (float) value(features, "graph_merchant_fraud_share", 0);
+        return v;
+    }
+
+    /**
+     * Similarity in (0, 1] from a squared Euclidean distance.
+     */
+    public static double similarity(float squaredDistance) {
+        return Math.exp(-Math.sqrt(squaredDistance));
+    }
+
+    private static float squash(double value, double scale) {
+        return (float) Math.tanh(Math.max(0.0, value) / scale);
+    }
+
+    private static double value(Map<String, Object> features, String name, double defaultValue) {
+        return features.get(name) instanceof Number number ? number.doubleValue() : defaultValue;
+    }
+}
@@ -0,0 +1,210 @@
+package com.sentinelpay.fraudengine.service.similarity;
+
+import com.sentinelpay.fraudengine.dto.FraudLabelResponse;
+import com.sentinelpay.fraudengine.repository.FraudLabelRepository;
+import com.sentinelpay.fraudengine.repository.TransactionRepository;
+import com.sentinelpay.fraudengine.service.feature.FeatureCodec;
+import com.sentinelpay.fraudengine.service.feature.TransactionContext;
+import com.sentinelpay.fraudengine.service.feature.TransactionFeatureContributor;
+import com.sentinelpay.fraudengine.service.graph.EntityLinkGraph;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Scores how close a transaction is to confirmed fraud cases. Labelled fraud is embedded
+ * with {@link FraudEmbedding} and kept in an in-memory {@link HnswIndex}; every scoring
+ * queries it for the nearest cases.
+ *
+ * <p>Runs after the other contributors because the embedding reads their features. The
+ * index is rebuilt from the stored embeddings at startup and updated as labels arrive.
+ */
+@Service
+@Order(100)
+public class FraudSimilarityService implements TransactionFeatureContributor {
+    private static final Logger logger = LoggerFactory.getLogger(FraudSimilarityService.class);
+
+    private final FraudLabelRepository labelRepository;
+    private final TransactionRepository transactionRepository;
+    private final EntityLinkGraph entityLinkGraph;
+    private final FeatureCodec featureCodec;
+    private final int neighbours;
+    private final int efSearch;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final HnswIndex index;
+    private final Map<UUID, Integer> nodesByCase = new HashMap<>();
+    private UUID[] casesByNode = new UUID[1024];
+
+    public FraudSimilarityService(
+            FraudLabelRepository labelRepository,
+            TransactionRepository transactionRepository,
+            EntityLinkGraph entityLinkGraph,
+            FeatureCodec featureCodec,
+            @Value("${similarity.neighbours:3}") int neighbours,
+            @Value("${similarity.m:16}") int m,
+            @Value("${similarity.ef-construction:100}") int efConstruction,
+            @Value("${similarity.ef-search:64}") int efSearch) {
+        this.labelRepository = labelRepository;
+        this.transactionRepository = transactionRepository;
+        this.entityLinkGraph = entityLinkGraph;
+        this.featureCodec = featureCodec;
+        this.neighbours = neighbours;
+        this.efSearch = efSearch;
+        this.index = new HnswIndex(FraudEmbedding.DIMENSION, m, efConstruction, 1024);
+    }
+
+    @PostConstruct
+    void rebuildIndex() {
+        labelRepository.findFraudByEmbeddingVersion(FraudEmbedding.VERSION)
+                .doOnNext(label -> index(label.getTransactionId(), unpack(label.getEmbedding())))
+                .count()
+                .subscribe(
+                        count -> logger.info("Loaded {} fraud cases into the similarity index", count),
+                        error -> logger.warn("Failed to load fraud cases into the similarity index: {}", error.getMessage())
+                );
+        // The graph snapshot may predate labels, or come from a version that did not keep them
+        labelRepository.findFraudUserIds()
+                .doOnNext(userId -> entityLinkGraph.labelUser(userId, true))
+                .count()
+                .subscribe(
+                        count -> logger.info("Flagged {} labelled fraud users in the entity graph", count),
+                        error -> logger.warn("Failed to flag labelled fraud users in the entity graph: {}", error.getMessage())
+                );
+    }
+
+    @Override
+    public void contribute(TransactionContext context, Map<String, Object> features) {
+        float[] query = FraudEmbedding.embed(features);
+        HnswIndex.SearchResult result;
+        UUID[] cases;
+
+        lock.readLock().lock();
+        try {
+            if (index.liveSize() == 0) {
+                features.put("fraud_similarity", 0.0);
+                return;
+            }
+            result = index.search(query, neighbours, efSearch);
+            cases = new UUID[result.nodes().length];
+            for (int i = 0; i < cases.length; i++) {
+                cases[i] = casesByNode[result.nodes()[i]];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        features.put("fraud_similarity", cases.length == 0 ? 0.0 : FraudEmbedding.similarity(result.distances()[0]));
+        if (cases.length > 0) {
+            StringBuilder ids = new StringBuilder(cases.length * 37);
+            for (UUID id : cases) {
+                if (!ids.isEmpty()) {
+                    ids.append(',');
+                }
+                ids.append(id);
+            }
+            features.put("similar_fraud_cases", ids.toString());
+        }
+    }
+
+    /**
+     * Records an analyst verdict. Fraud is added to the index and flags the user in the
+     * entity graph; a non-fraud verdict removes an earlier fraud label from the index.
+     */
+    public Mono<FraudLabelResponse> label(UUID transactionId, boolean fraud) {
+        return transactionRepository.findByTransactionId(transactionId)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown transaction " + transactionId)))
+                .flatMap(transaction -> featureCodec.read(transaction.getPackedFeatures()).flatMap(features -> {
+                    float[] embedding = FraudEmbedding.embed(features);
+                    Instant labelledAt = Instant.now();
+                    return labelRepository.upsert(transactionId, transaction.getUserId(), fraud,
+                                    pack(embedding), FraudEmbedding.VERSION, labelledAt)
+                            .then(Mono.fromCallable(() -> {
+                                if (fraud) {
+                                    index(transactionId, embedding);
+                                } else {
+                                    unindex(transactionId);
+                                }
+                                entityLinkGraph.labelUser(transaction.getUserId(), fraud);
+                                return new FraudLabelResponse(transactionId, transaction.getUserId().toString(),
+                                        fraud, indexedCases(), labelledAt);
+                            }));
+                }));
+    }
+
+    public int indexedCases() {
+        lock.readLock().lock();
+        try {
+            return index.liveSize();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(UUID transactionId, float[] embedding) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = nodesByCase.get(transactionId);
+            if (existing != null && !index.isDeleted(existing)) {
+                return;
+            }
+            if (existing != null) {
+                // Relabelled as fraud: the old node stays deleted, the case gets a fresh one
+                nodesByCase.remove(transactionId);
+            }
+            int node = index.add(embedding);
+            if (node >= casesByNode.length) {
+                casesByNode = Arrays.copyOf(casesByNode, casesByNode.length * 2);
+            }
+            casesByNode[node] = transactionId;
+            nodesByCase.put(transactionId, node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(UUID transactionId) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodesByCase.get(transactionId);
+            if (node != null) {
+                index.markDeleted(node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static byte[] pack(float[] embedding) {
+        ByteBuffer buffer = ByteBuffer.allocate(embedding.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (float value : embedding) {
+            buffer.putFloat(value);
+        }
+        return buffer.array();
+    }
+
+    static float[] unpack(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        float[] embedding = new float[bytes.length / Float.BYTES];
+        for (int i = 0; i < embedding.length; i++) {
+            embedding[i] = buffer.getFloat();
+        }
+        return embedding;
+    }
+}
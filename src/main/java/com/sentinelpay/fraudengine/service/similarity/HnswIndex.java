@@ -0,0 +1,499 @@
+package com.sentinelpay.fraudengine.service.similarity;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Hierarchical navigable small world graph for approximate nearest-neighbour search
+ * under squared Euclidean distance.
+ *
+ * <p>Vectors and level-0 adjacency live in flat primitive arrays indexed by node id, so a
+ * million 24-dimensional vectors take roughly 100 MB of vectors plus 130 MB of links.
+ * Nodes are only ever appended; removal marks a node deleted so it is skipped in results
+ * but still routes searches.
+ *
+ * <p>Not thread-safe: callers serialise {@link #add} against searches.
+ */
+public final class HnswIndex {
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random;
+
+    private float[] vectors;
+    private int[] level0;
+    private int[][] upperLinks;
+    private int[] levels;
+    private boolean[] deleted;
+
+    private int size;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswIndex(int dimension, int m, int efConstruction, int initialCapacity) {
+        this(dimension, m, efConstruction, initialCapacity, 42L);
+    }
+
+    public HnswIndex(int dimension, int m, int efConstruction, int initialCapacity, long seed) {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.random = new SplittableRandom(seed);
+
+        int capacity = Math.max(16, initialCapacity);
+        this.vectors = new float[capacity * dimension];
+        this.level0 = new int[capacity * (maxM0 + 1)];
+        this.upperLinks = new int[capacity][];
+        this.levels = new int[capacity];
+        this.deleted = new boolean[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int liveSize() {
+        return size - deletedCount;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Inserts a vector and returns its node id. Ids are dense and assigned in order.
+     */
+    public int add(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " dimensions, got " + vector.length);
+        }
+        ensureCapacity(size + 1);
+
+        int node = size++;
+        System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+        int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+        levels[node] = level;
+        if (level > 0) {
+            upperLinks[node] = new int[level * (m + 1)];
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return node;
+        }
+
+        int current = entryPoint;
+        float currentDistance = distance(vector, current);
+        for (int l = maxLevel; l > level; l--) {
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                int[] links = links(current, l);
+                int offset = offset(current, l);
+                for (int i = 1; i <= links[offset]; i++) {
+                    int candidate = links[offset + i];
+                    float d = distance(vector, candidate);
+                    if (d < currentDistance) {
+                        currentDistance = d;
+                        current = candidate;
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            NodeHeap nearest = searchLayer(vector, current, currentDistance, efConstruction, l);
+            int count = nearest.size();
+            int[] candidates = new int[count];
+            float[] candidateDistances = new float[count];
+            nearest.drainAscending(candidates, candidateDistances);
+
+            int maxLinks = l == 0 ? maxM0 : m;
+            int[] selected = selectNeighbours(candidates, candidateDistances, count, maxLinks);
+
+            int[] links = links(node, l);
+            int offset = offset(node, l);
+            links[offset] = selected.length;
+            System.arraycopy(selected, 0, links, offset + 1, selected.length);
+
+            for (int neighbour : selected) {
+                connect(neighbour, node, l, maxLinks);
+            }
+            current = candidates[0];
+            currentDistance = candidateDistances[0];
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        return node;
+    }
+
+    public void markDeleted(int node) {
+        if (node >= 0 && node < size && !deleted[node]) {
+            deleted[node] = true;
+            deletedCount++;
+        }
+    }
+
+    public boolean isDeleted(int node) {
+        return deleted[node];
+    }
+
+    /**
+     * Returns up to {@code k} live nodes closest to the query, nearest first.
+     */
+    public SearchResult search(float[] query, int k, int ef) {
+        if (entryPoint < 0 || liveSize() == 0) {
+            return new SearchResult(new int[0], new float[0]);
+        }
+
+        int current = entryPoint;
+        float currentDistance = distance(query, current);
+        for (int l = maxLevel; l > 0; l--) {
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                int[] links = links(current, l);
+                int offset = offset(current, l);
+                for (int i = 1; i <= links[offset]; i++) {
+                    int candidate = links[offset + i];
+                    float d = distance(query, candidate);
+                    if (d < currentDistance) {
+                        currentDistance = d;
+                        current = candidate;
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        NodeHeap found = searchLayer(query, current, currentDistance, Math.max(ef, k), 0);
+        int[] candidates = new int[found.size()];
+        float[] candidateDistances = new float[found.size()];
+        found.drainAscending(candidates, candidateDistances);
+
+        int count = 0;
+        int[] nodes = new int[Math.min(k, candidates.length)];
+        float[] distances = new float[nodes.length];
+        for (int i = 0; i < candidates.length && count < nodes.length; i++) {
+            if (!deleted[candidates[i]]) {
+                nodes[count] = candidates[i];
+                distances[count++] = candidateDistances[i];
+            }
+        }
+        return new SearchResult(Arrays.copyOf(nodes, count), Arrays.copyOf(distances, count));
+    }
+
+    /**
+     * Exact search over every live node; used to measure recall.
+     */
+    public SearchResult bruteForce(float[] query, int k) {
+        NodeHeap best = NodeHeap.max(k + 1);
+        for (int node = 0; node < size; node++) {
+            if (deleted[node]) {
+                continue;
+            }
+            float d = distance(query, node);
+            if (best.size() < k || d < best.peekDistance()) {
+                best.push(node, d);
+                if (best.size() > k) {
+                    best.pop();
+                }
+            }
+        }
+        int[] nodes = new int[best.size()];
+        float[] distances = new float[best.size()];
+        best.drainAscending(nodes, distances);
+        return new SearchResult(nodes, distances);
+    }
+
+    private NodeHeap searchLayer(float[] query, int entry, float entryDistance, int ef, int level) {
+        VisitedSet visited = new VisitedSet(ef * 8);
+        NodeHeap candidates = NodeHeap.min(ef * 2);
+        NodeHeap results = NodeHeap.max(ef + 1);
+
+        visited.add(entry);
+        candidates.push(entry, entryDistance);
+        results.push(entry, entryDistance);
+
+        while (candidates.size() > 0) {
+            float candidateDistance = candidates.peekDistance();
+            int candidate = candidates.pop();
+            if (candidateDistance > results.peekDistance() && results.size() >= ef) {
+                break;
+            }
+
+            int[] links = links(candidate, level);
+            int offset = offset(candidate, level);
+            for (int i = 1; i <= links[offset]; i++) {
+                int neighbour = links[offset + i];
+                if (!visited.add(neighbour)) {
+                    continue;
+                }
+                float d = distance(query, neighbour);
+                if (results.size() < ef || d < results.peekDistance()) {
+                    candidates.push(neighbour, d);
+                    results.push(neighbour, d);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour selection heuristic: keep a candidate only if it is closer to the base
+     * than to every neighbour already kept, which spreads links across directions.
+     * Remaining slots are filled with the closest pruned candidates.
+     */
+    private int[] selectNeighbours(int[] candidates, float[] distances, int length, int maxLinks) {
+        int[] selected = new int[Math.min(maxLinks, length)];
+        boolean[] taken = new boolean[length];
+        int count = 0;
+
+        for (int i = 0; i < length && count < maxLinks; i++) {
+            int node = candidates[i];
+            float distanceToBase = distances[i];
+            boolean diverse = true;
+            for (int j = 0; j < count; j++) {
+                if (distanceBetween(node, selected[j]) < distanceToBase) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = node;
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < length && count < selected.length; i++) {
+            if (!taken[i]) {
+                selected[count++] = candidates[i];
+            }
+        }
+        return selected;
+    }
+
+    private void connect(int node, int newNeighbour, int level, int maxLinks) {
+        int[] links = links(node, level);
+        int offset = offset(node, level);
+        int count = links[offset];
+        if (count < maxLinks) {
+            links[offset + 1 + count] = newNeighbour;
+            links[offset] = count + 1;
+            return;
+        }
+
+        NodeHeap candidates = NodeHeap.max(count + 1);
+        candidates.push(newNeighbour, distanceBetween(node, newNeighbour));
+        for (int i = 1; i <= count; i++) {
+            int existing = links[offset + i];
+            candidates.push(existing, distanceBetween(node, existing));
+        }
+        int[] nodes = new int[count + 1];
+        float[] distances = new float[count + 1];
+        candidates.drainAscending(nodes, distances);
+        int[] selected = selectNeighbours(nodes, distances, count + 1, maxLinks);
+        links[offset] = selected.length;
+        System.arraycopy(selected, 0, links, offset + 1, selected.length);
+    }
+
+    private int[] links(int node, int level) {
+        return level == 0 ? level0 : upperLinks[node];
+    }
+
+    private int offset(int node, int level) {
+        return level == 0 ? node * (maxM0 + 1) : (level - 1) * (m + 1);
+    }
+
+    private float distance(float[] query, int node) {
+        int base = node * dimension;
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            float diff = query[i] - vectors[base + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private float distanceBetween(int a, int b) {
+        int baseA = a * dimension;
+        int baseB = b * dimension;
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            float diff = vectors[baseA + i] - vectors[baseB + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private void ensureCapacity(int required) {
+        int capacity = levels.length;
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(required, capacity + (capacity >> 1));
+        vectors = Arrays.copyOf(vectors, newCapacity * dimension);
+        level0 = Arrays.copyOf(level0, newCapacity * (maxM0 + 1));
+        upperLinks = Arrays.copyOf(upperLinks, newCapacity);
+        levels = Arrays.copyOf(levels, newCapacity);
+        deleted = Arrays.copyOf(deleted, newCapacity);
+    }
+
+    public record SearchResult(int[] nodes, float[] distances) { }
+
+    /**
+     * Binary heap of (node, distance) pairs in primitive arrays; min- or max-ordered.
+     */
+    static final class NodeHeap {
+        private final boolean max;
+        private int[] nodes;
+        private float[] distances;
+        private int size;
+
+        private NodeHeap(boolean max, int capacity) {
+            this.max = max;
+            this.nodes = new int[Math.max(4, capacity)];
+            this.distances = new float[nodes.length];
+        }
+
+        static NodeHeap min(int capacity) {
+            return new NodeHeap(false, capacity);
+        }
+
+        static NodeHeap max(int capacity) {
+            return new NodeHeap(true, capacity);
+        }
+
+        int size() {
+            return size;
+        }
+
+        float peekDistance() {
+            return distances[0];
+        }
+
+        void push(int node, float distance) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(distance, distances[parent])) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                distances[i] = distances[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            distances[i] = distance;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastDistance = distances[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(distances[child + 1], distances[child])) {
+                    child++;
+                }
+                if (!before(distances[child], lastDistance)) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            distances[i] = lastDistance;
+            return top;
+        }
+
+        /**
+         * Empties the heap into the arrays in ascending distance order.
+         */
+        void drainAscending(int[] outNodes, float[] outDistances) {
+            int total = size;
+            while (size > 0) {
+                float distance = distances[0];
+                int node = pop();
+                int position = max ? size : total - 1 - size;
+                outNodes[position] = node;
+                outDistances[position] = distance;
+            }
+        }
+
+        private boolean before(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+
+    /**
+     * Growable open-addressing set of node ids visited during one search.
+     */
+    private static final class VisitedSet {
+        private int[] slots;
+        private int mask;
+        private int size;
+
+        VisitedSet(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected) - 1) << 2;
+            this.slots = new int[capacity];
+            this.mask = capacity - 1;
+        }
+
+        boolean add(int node) {
+            if (size * 2 >= slots.length) {
+                grow();
+            }
+            if (insert(slots, mask, node + 1)) {
+                size++;
+                return true;
+            }
+            return false;
+        }
+
+        private void grow() {
+            int[] old = slots;
+            slots = new int[old.length * 2];
+            mask = slots.length - 1;
+            for (int value : old) {
+                if (value != 0) {
+                    insert(slots, mask, value);
+                }
+            }
+        }
+
+        private static boolean insert(int[] slots, int mask, int value) {
+            for (int slot = (value * 0x9e3779b9 >>> 7) & mask; ; slot = (slot + 1) & mask) {
+                if (slots[slot] == value) {
+                    return false;
+                }
+                if (slots[slot] == 0) {
+                    slots[slot] = value;
+                    return true;
+                }
+            }
+        }
+    }
+}
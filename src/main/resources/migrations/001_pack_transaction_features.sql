@@ -0,0 +1,31 @@
+-- Upgrades a database created before transaction features were packed by FeatureCodec.
+-- New databases get the same layout from schema.sql and do not need it. Safe to run twice.
+--
+-- The JSON column is kept as features_json and the application rewrites its rows into the
+-- packed column in the background (FeatureBackfill), then drops it. Until a row has been
+-- rewritten, readers see it without features.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'transactions' AND column_name = 'features' AND data_type = 'jsonb') THEN
+        ALTER TABLE transactions RENAME COLUMN features TO features_json;
+        ALTER TABLE transactions ADD COLUMN features BYTEA;
+    END IF;
+END $$;
+
+CREATE TABLE IF NOT EXISTS feature_schemas (
+    schema_id SERIAL PRIMARY KEY,
+    names TEXT NOT NULL UNIQUE,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+-- Same compression and retention as schema.sql. Rows in chunks compressed before the
+-- backfill reaches them are still rewritten, which needs TimescaleDB 2.11 or later.
+ALTER TABLE transactions SET (
+    timescaledb.compress,
+    timescaledb.compress_segmentby = 'decision',
+    timescaledb.compress_orderby = 'created_at DESC, transaction_id DESC, bucket_hour DESC'
+);
+SELECT add_compression_policy('transactions', INTERVAL '7 days', if_not_exists => TRUE);
+SELECT add_retention_policy('transactions', INTERVAL '395 days', if_not_exists => TRUE);
@@ -10,10 +10,15 @@ CREATE TABLE transactions (
     amount DECIMAL(19,4) NOT NULL,
     currency TEXT NOT NULL,
     merchant_id TEXT NOT NULL,
+    ip_address TEXT,
+    device_info JSONB,
     risk_score FLOAT,
     decision TEXT NOT NULL,
-    features JSONB,
+    -- Packed by FeatureCodec: schema id, then the values in the schema's order. Databases
+    -- created when this column was JSONB are upgraded by migrations/001_pack_transaction_features.sql
+    features BYTEA,
     created_at TIMESTAMPTZ DEFAULT NOW(),
+    timestamp TIMESTAMPTZ,
 
     -- Composite primary key for TimescaleDB
     PRIMARY KEY (transaction_id, bucket_hour)
@@ -22,9 +27,87 @@ CREATE TABLE transactions (
 -- Convert to hypertable
 SELECT create_hypertable('transactions', 'bucket_hour', if_not_exists => TRUE);
 
+-- Feature names of each packed features layout, shared by every row that uses it
+CREATE TABLE IF NOT EXISTS feature_schemas (
+    schema_id SERIAL PRIMARY KEY,
+    names TEXT NOT NULL UNIQUE,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
 -- Unique constraint for Spring Data
 CREATE UNIQUE INDEX idx_transactions_unique_id ON transactions(transaction_id);
 
 -- Other indexes
 CREATE INDEX IF NOT EXISTS idx_transactions_user_bucket ON transactions(user_id, bucket_hour DESC);
-CREATE INDEX IF NOT EXISTS idx_transactions_merchant ON transactions(merchant_id);
\ No newline at end of file
+
+-- Search: every filter leads an index that ends in the keyset order, so a filtered page is
+-- an index range scan that stops after LIMIT rows however deep the cursor is
+CREATE INDEX IF NOT EXISTS idx_transactions_created ON transactions(created_at DESC, transaction_id DESC);
+CREATE INDEX IF NOT EXISTS idx_transactions_user_created ON transactions(user_id, created_at DESC, transaction_id DESC);
+CREATE INDEX IF NOT EXISTS idx_transactions_decision_created ON transactions(decision, created_at DESC, transaction_id DESC);
+CREATE INDEX IF NOT EXISTS idx_transactions_merchant_created ON transactions(merchant_id, created_at DESC, transaction_id DESC);
+CREATE INDEX IF NOT EXISTS idx_transactions_ip_created ON transactions(ip_address, created_at DESC, transaction_id DESC);
+-- High-risk ranges are small, so scanning them by score and sorting is cheap
+CREATE INDEX IF NOT EXISTS idx_transactions_risk_created ON transactions(risk_score DESC, created_at DESC);
+
+-- Hourly decision counts for dashboards over longer horizons than the in-memory rollups.
+-- Refreshed in the background; recent hours not yet materialised are computed on read.
+CREATE MATERIALIZED VIEW IF NOT EXISTS transactions_hourly
+WITH (timescaledb.continuous, timescaledb.materialized_only = false) AS
+SELECT time_bucket(INTERVAL '1 hour', bucket_hour) AS hour,
+       decision,
+       COUNT(*) AS transactions,
+       AVG(risk_score) AS avg_risk_score
+FROM transactions
+GROUP BY time_bucket(INTERVAL '1 hour', bucket_hour), decision
+WITH NO DATA;
+
+SELECT add_continuous_aggregate_policy('transactions_hourly',
+    start_offset => INTERVAL '3 days',
+    end_offset => INTERVAL '1 hour',
+    schedule_interval => INTERVAL '30 minutes',
+    if_not_exists => TRUE);
+
+-- Chunks older than a week are compressed column by column. Segmenting by decision keeps
+-- segments large, and ordering by the keyset lets searches and exports read them in order.
+-- Every column of a unique index must be segmented or ordered by, hence bucket_hour.
+ALTER TABLE transactions SET (
+    timescaledb.compress,
+    timescaledb.compress_segmentby = 'decision',
+    timescaledb.compress_orderby = 'created_at DESC, transaction_id DESC, bucket_hour DESC'
+);
+SELECT add_compression_policy('transactions', INTERVAL '7 days', if_not_exists => TRUE);
+
+-- Raw rows are dropped after 13 months; the hourly aggregate keeps its materialised history
+SELECT add_retention_policy('transactions', INTERVAL '395 days', if_not_exists => TRUE);
+
+-- Analyst verdicts on individual transactions; fraud labels feed the similarity index
+CREATE TABLE IF NOT EXISTS fraud_labels (
+    transaction_id UUID PRIMARY KEY,
+    user_id UUID NOT NULL,
+    is_fraud BOOLEAN NOT NULL,
+    embedding BYTEA NOT NULL,
+    embedding_version INT NOT NULL,
+    labelled_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_fraud_labels_fraud ON fraud_labels(embedding_version, labelled_at) WHERE is_fraud;
+
+-- Admin-managed denylist entries; merged with the list files on every denylist rebuild
+CREATE TABLE IF NOT EXISTS denylist_entries (
+    id UUID PRIMARY KEY,
+    entry_type TEXT NOT NULL,
+    value TEXT NOT NULL,
+    reason TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    UNIQUE (entry_type, value)
+);
+
+-- Login accounts; password_hash is BCrypt
+CREATE TABLE IF NOT EXISTS app_users (
+    username TEXT PRIMARY KEY,
+    password_hash TEXT NOT NULL,
+    roles TEXT NOT NULL DEFAULT 'ROLE_USER',
+    enabled BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
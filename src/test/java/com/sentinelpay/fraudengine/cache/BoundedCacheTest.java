@@ -0,0 +1,70 @@
+package com.sentinelpay.fraudengine.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedCacheTest {
+
+    @Test
+    void staysWithinItsBoundAndKeepsFrequentKeys() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(16);
+        for (int i = 0; i < 1_000; i++) {
+            cache.put("cold-" + i, i);
+            assertTrue(cache.size() <= 16);
+        }
+        // Cold keys were never read, so once segments fill up newcomers are turned away
+        assertTrue(cache.rejectedCount() > 0);
+
+        for (int i = 0; i < 5; i++) {
+            cache.getIfPresent("hot");
+        }
+        assertTrue(cache.put("hot", 1));
+        assertEquals(1, cache.getIfPresent("hot"));
+        assertTrue(cache.size() <= 16);
+    }
+
+    @Test
+    void replacingAKeyIsAlwaysAccepted() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(16);
+        cache.put("key", 1);
+        assertTrue(cache.put("key", 2));
+        assertEquals(2, cache.getIfPresent("key"));
+        assertEquals(2, cache.invalidate("key"));
+        assertNull(cache.getIfPresent("key"));
+    }
+
+    @Test
+    void weightsFollowValuesMutatedInPlace() {
+        BoundedCache<String, AtomicLong> cache = new BoundedCache<>(16, Duration.ZERO, AtomicLong::get);
+        AtomicLong value = new AtomicLong(10);
+        cache.put("key", value);
+        assertEquals(10, cache.weightedSize());
+
+        value.set(25);
+        assertEquals(25, cache.weightedSize());
+
+        cache.invalidate("key");
+        assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    void entriesExpireAfterTheirTimeToLive() throws InterruptedException {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(16);
+        cache.put("short", 1, Duration.ofMillis(1));
+        cache.put("long", 2, Duration.ofMinutes(1));
+        Thread.sleep(20);
+
+        cache.cleanUp();
+
+        assertEquals(1, cache.evictionCount());
+        assertNull(cache.getIfPresent("short"));
+        assertEquals(2, cache.getIfPresent("long"));
+        assertEquals(0.5, cache.hitRatio(), 1e-9);
+    }
+}
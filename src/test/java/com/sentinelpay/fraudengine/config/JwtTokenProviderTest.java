@@ -0,0 +1,40 @@
+package com.sentinelpay.fraudengine.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "test-secret-that-is-long-enough-for-hmac-sha-512-signatures-0123456789";
+
+    private final JwtTokenProvider provider = new JwtTokenProvider(new SimpleMeterRegistry(), SECRET, 60_000, 100);
+
+    @Test
+    void verifiedTokensCarryTheirRoles() {
+        String token = provider.generateToken("admin", List.of("ROLE_USER", "ROLE_ADMIN"));
+
+        JwtTokenProvider.VerifiedToken verified = provider.verify(token);
+
+        assertEquals("admin", verified.username());
+        assertEquals(List.of("ROLE_USER", "ROLE_ADMIN"), verified.roles());
+        assertTrue(verified.expiresAtMillis() > System.currentTimeMillis());
+        // Verified once, then served from the cache
+        assertSame(verified, provider.verify(token));
+    }
+
+    @Test
+    void tokensSignedWithAnotherKeyAreRejected() {
+        JwtTokenProvider other = new JwtTokenProvider(new SimpleMeterRegistry(), SECRET.replace('0', 'x'), 60_000, 100);
+        String token = other.generateToken("admin", List.of("ROLE_ADMIN"));
+
+        assertNull(provider.verify(token));
+        assertNull(provider.verify("not-a-token"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.sentinelpay.fraudengine.config;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * CPU cost per authenticated request for {@link JwtTokenProvider}. Not part of the test
+ * suite; run it by hand, e.g. with {@code java ... JwtVerificationBenchmark 200000 1000}.
+ *
+ * <p>Compares the previous path, which built a key and parser and verified the token twice
+ * per request, with a single verification and with a verified-cache hit. Requests are
+ * spread over a pool of distinct tokens as clients reuse theirs.
+ */
+public final class JwtVerificationBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-min-256-bits-long-for-sentinelpay-fraud-engine";
+
+    public static void main(String[] args) {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+
+        JwtTokenProvider cached = new JwtTokenProvider(new SimpleMeterRegistry(), SECRET, 3_600_000, clients * 2);
+        JwtTokenProvider uncached = new JwtTokenProvider(new SimpleMeterRegistry(), SECRET, 3_600_000, 1);
+        String[] tokens = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            tokens[i] = cached.generateToken("user-" + i, List.of("ROLE_USER"));
+        }
+
+        // Each pass doubles as JIT warm-up for the next
+        for (int pass = 0; pass < 2; pass++) {
+            report("previous (parse twice)", requests / 10, tokens, token -> {
+                if (legacyValidate(token)) {
+                    sink ^= legacyUsername(token).length();
+                }
+            });
+            report("single verify", requests, tokens, token -> {
+                // A one-entry cache cannot hold the rotating tokens, so every request verifies
+                sink ^= uncached.verify(token).username().length();
+            });
+            report("verified cache hit", requests, tokens, token -> sink ^= cached.verify(token).username().length());
+        }
+        System.out.println("sink " + sink);
+    }
+
+    private static volatile int sink;
+
+    private interface Request {
+        void run(String token);
+    }
+
+    private static void report(String label, int requests, String[] tokens, Request request) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        long wallStart = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            request.run(tokens[i % tokens.length]);
+        }
+        long cpu = threads.getCurrentThreadCpuTime() - cpuStart;
+        long wall = System.nanoTime() - wallStart;
+        System.out.printf("%-24s %,10d requests  cpu %8.2fus/request  wall %8.2fus/request%n",
+                label, requests, cpu / 1e3 / requests, wall / 1e3 / requests);
+    }
+
+    private static boolean legacyValidate(String token) {
+        Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token);
+        return true;
+    }
+
+    private static String legacyUsername(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload()
+                .getSubject();
+    }
+}
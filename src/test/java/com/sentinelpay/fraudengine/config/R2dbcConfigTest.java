@@ -0,0 +1,72 @@
+package com.sentinelpay.fraudengine.config;
+
+import com.sentinelpay.fraudengine.repository.TransactionRepository;
+import com.sentinelpay.fraudengine.repository.analytics.TransactionAnalyticsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class R2dbcConfigTest {
+
+    @Test
+    void analyticsRepositoriesAreOnlyBackedByTheAnalyticsPool() {
+        EnableR2dbcRepositories scoring = R2dbcConfig.ScoringRepositories.class.getAnnotation(EnableR2dbcRepositories.class);
+        EnableR2dbcRepositories analytics = R2dbcConfig.AnalyticsRepositories.class.getAnnotation(EnableR2dbcRepositories.class);
+        String excluded = scoring.excludeFilters()[0].pattern()[0];
+
+        assertEquals("r2dbcEntityTemplate", scoring.entityOperationsRef());
+        assertEquals("analyticsEntityTemplate", analytics.entityOperationsRef());
+        assertTrue(TransactionAnalyticsRepository.class.getName().matches(excluded));
+        assertFalse(TransactionRepository.class.getName().matches(excluded));
+        assertEquals(TransactionAnalyticsRepository.class.getPackageName(), analytics.basePackages()[0]);
+    }
+
+    @Test
+    void acquireWaitsAreTimedByOutcome() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Connection connection = proxy(Connection.class);
+        ConnectionFactory pool = factory(Mono.just(connection));
+        TimedConnectionFactory timed = new TimedConnectionFactory(pool, "analytics", registry);
+
+        assertSame(connection, Mono.from(timed.create()).block());
+        assertSame(pool, timed.unwrap());
+
+        TimedConnectionFactory exhausted = new TimedConnectionFactory(factory(Mono.error(new TimeoutException())), "scoring", registry);
+        assertThrows(RuntimeException.class, () -> Mono.from(exhausted.create()).block());
+
+        assertEquals(1, registry.get("r2dbc.pool.acquire").tags("pool", "analytics", "outcome", "success").timer().count());
+        assertEquals(0, registry.get("r2dbc.pool.acquire").tags("pool", "analytics", "outcome", "failure").timer().count());
+        assertEquals(1, registry.get("r2dbc.pool.acquire").tags("pool", "scoring", "outcome", "failure").timer().count());
+    }
+
+    private static ConnectionFactory factory(Mono<Connection> connections) {
+        return (ConnectionFactory) Proxy.newProxyInstance(
+                R2dbcConfigTest.class.getClassLoader(), new Class<?>[] {ConnectionFactory.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("create")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return connections;
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type) {
+        return (T) Proxy.newProxyInstance(R2dbcConfigTest.class.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
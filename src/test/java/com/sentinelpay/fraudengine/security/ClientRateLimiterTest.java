@@ -0,0 +1,54 @@
+package com.sentinelpay.fraudengine.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientRateLimiterTest {
+
+    @Test
+    void burstIsAllowedThenLimited() {
+        ClientRateLimiter limiter = limiter(10, 10);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.acquire("client-a").block().allowed());
+        }
+        ClientRateLimiter.Decision rejected = limiter.acquire("client-a").block();
+
+        assertFalse(rejected.allowed());
+        assertEquals(ClientRateLimiter.Scope.LOCAL, rejected.scope());
+        assertTrue(rejected.retryAfterMillis() > 0);
+        assertTrue(limiter.acquire("client-b").block().allowed());
+    }
+
+    @Test
+    void newClientsAreRejectedWhileEveryBucketIsInUse() {
+        ClientRateLimiter limiter = limiter(2, 10);
+        assertTrue(limiter.acquire("client-a").block().allowed());
+        assertTrue(limiter.acquire("client-b").block().allowed());
+
+        ClientRateLimiter.Decision rejected = limiter.acquire("client-c").block();
+
+        assertFalse(rejected.allowed());
+        assertEquals(ClientRateLimiter.Scope.LOCAL, rejected.scope());
+        // Known clients keep their own buckets
+        assertTrue(limiter.acquire("client-a").block().allowed());
+    }
+
+    @Test
+    void idleBucketsMakeRoomForNewClients() throws InterruptedException {
+        ClientRateLimiter limiter = limiter(2, 0);
+        assertTrue(limiter.acquire("client-a").block().allowed());
+        assertTrue(limiter.acquire("client-b").block().allowed());
+        Thread.sleep(2);
+
+        assertTrue(limiter.acquire("client-c").block().allowed());
+    }
+
+    private static ClientRateLimiter limiter(int maxClients, int idleMinutes) {
+        return new ClientRateLimiter(null, new SimpleMeterRegistry(), 1.0, 5, maxClients, idleMinutes, false, 6000, 20);
+    }
+}
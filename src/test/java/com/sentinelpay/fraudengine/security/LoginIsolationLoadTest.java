@@ -0,0 +1,100 @@
+package com.sentinelpay.fraudengine.security;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test against a running instance, showing that a login burst does not slow down
+ * transaction scoring. Not part of the test suite; run it by hand, e.g. with
+ * {@code java ... LoginIsolationLoadTest http://localhost:8080 admin <password> 2000 200}.
+ *
+ * <p>Transactions are submitted one at a time and their latency recorded, first alone and
+ * then while logins are fired with the given concurrency. Rejected logins (429) are
+ * expected under the burst and counted separately. Raise {@code ratelimit.limit-per-second}
+ * on the instance first, or the probe itself is throttled.
+ */
+public final class LoginIsolationLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        String username = args.length > 1 ? args[1] : "admin";
+        String password = args.length > 2 ? args[2] : "";
+        int transactions = args.length > 3 ? Integer.parseInt(args[3]) : 2_000;
+        int loginConcurrency = args.length > 4 ? Integer.parseInt(args[4]) : 200;
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpResponse<String> login = client.send(loginRequest(baseUrl, username, password), HttpResponse.BodyHandlers.ofString());
+        if (login.statusCode() != 200) {
+            throw new IllegalStateException("Login failed with " + login.statusCode() + ": " + login.body());
+        }
+        String token = login.body().replaceAll(".*\"token\"\\s*:\\s*\"([^\"]+)\".*", "$1");
+
+        // Warm up before measuring
+        probe(client, baseUrl, token, transactions / 4);
+        report("transactions alone", probe(client, baseUrl, token, transactions));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Map<Integer, LongAdder> loginStatuses = new ConcurrentHashMap<>();
+        Semaphore inFlight = new Semaphore(loginConcurrency);
+        Thread burst = new Thread(() -> {
+            while (running.get()) {
+                inFlight.acquireUninterruptibly();
+                client.sendAsync(loginRequest(baseUrl, username, password), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, error) -> {
+                            int status = response == null ? -1 : response.statusCode();
+                            loginStatuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+                            inFlight.release();
+                        });
+            }
+        });
+        burst.start();
+        Thread.sleep(1_000);
+        report("transactions during login burst", probe(client, baseUrl, token, transactions));
+        running.set(false);
+        burst.join();
+        System.out.println("login responses by status: " + loginStatuses);
+    }
+
+    private static long[] probe(HttpClient client, String baseUrl, String token, int count) throws Exception {
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/transactions"))
+                    .header("Authorization", "Bearer " + token)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("""
+                            {"userId":"%s","amount":42.50,"currency":"USD","merchantId":"merchant-1",
+                             "ipAddress":"10.0.0.1","deviceInfo":{"deviceId":"load-test"}}
+                            """.formatted(UUID.randomUUID())))
+                    .build();
+            long start = System.nanoTime();
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static HttpRequest loginRequest(String baseUrl, String username, String password) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"%s\",\"password\":\"%s\"}".formatted(username, password)))
+                .build();
+    }
+
+    private static void report(String label, long[] latencies) {
+        int n = latencies.length;
+        System.out.printf("%-34s p50=%.2fms p99=%.2fms max=%.2fms%n", label,
+                latencies[n / 2] / 1e6, latencies[(int) (n * 0.99)] / 1e6, latencies[n - 1] / 1e6);
+    }
+}
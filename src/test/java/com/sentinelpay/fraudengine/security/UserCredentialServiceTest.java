@@ -0,0 +1,95 @@
+package com.sentinelpay.fraudengine.security;
+
+import com.sentinelpay.fraudengine.repository.UserAccountEntity;
+import com.sentinelpay.fraudengine.repository.UserAccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserCredentialServiceTest {
+
+    private final PasswordEncoder encoder = new BCryptPasswordEncoder(4);
+    private final Map<String, UserAccountEntity> accounts = new HashMap<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @Test
+    void validCredentialsReturnTheAccountRoles() {
+        account("alice", "secret", "ROLE_USER, ROLE_ADMIN", true);
+        UserCredentialService service = service();
+        try {
+            assertEquals(List.of("ROLE_USER", "ROLE_ADMIN"), service.authenticate("alice", "secret").block());
+            assertNull(service.authenticate("alice", "wrong").block());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void disabledAndUnknownAccountsCannotLogIn() {
+        account("bob", "secret", "ROLE_USER", false);
+        UserCredentialService service = service();
+        try {
+            assertNull(service.authenticate("bob", "secret").block());
+            assertNull(service.authenticate("mallory", "secret").block());
+            assertNull(service.authenticate("mallory", "guess").block());
+            // The unknown name is remembered, so the second guess did not reach the database
+            assertEquals(2, lookups.get());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void accountsAreCachedUntilInvalidated() {
+        account("carol", "secret", "ROLE_USER", true);
+        UserCredentialService service = service();
+        try {
+            service.authenticate("carol", "secret").block();
+            account("carol", "changed", "ROLE_USER", true);
+            assertEquals(List.of("ROLE_USER"), service.authenticate("carol", "secret").block());
+            assertEquals(1, lookups.get());
+
+            service.invalidate("carol");
+
+            assertNull(service.authenticate("carol", "secret").block());
+            assertEquals(List.of("ROLE_USER"), service.authenticate("carol", "changed").block());
+            assertEquals(2, lookups.get());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private void account(String username, String password, String roles, boolean enabled) {
+        accounts.put(username, UserAccountEntity.builder()
+                .username(username)
+                .passwordHash(encoder.encode(password))
+                .roles(roles)
+                .enabled(enabled)
+                .build());
+    }
+
+    private UserCredentialService service() {
+        UserAccountRepository repository = (UserAccountRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {UserAccountRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findById")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    lookups.incrementAndGet();
+                    return Mono.justOrEmpty(accounts.get((String) args[0]));
+                });
+        return new UserCredentialService(repository, encoder, new SimpleMeterRegistry(),
+                1, 4, 100, 5, 30, 4, "admin", "");
+    }
+}
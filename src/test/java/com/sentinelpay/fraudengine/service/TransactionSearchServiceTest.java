@@ -0,0 +1,110 @@
+package com.sentinelpay.fraudengine.service;
+
+import com.sentinelpay.fraudengine.dto.SearchRequest;
+import com.sentinelpay.fraudengine.dto.TransactionSearchPage;
+import com.sentinelpay.fraudengine.repository.TransactionEntity;
+import com.sentinelpay.fraudengine.repository.TransactionSearchCriteria;
+import com.sentinelpay.fraudengine.repository.analytics.TransactionAnalyticsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransactionSearchServiceTest {
+
+    private static final Instant T0 = Instant.parse("2026-03-02T12:00:00Z");
+
+    private final List<TransactionEntity> rows = new ArrayList<>();
+    private final List<TransactionSearchCriteria> searches = new ArrayList<>();
+    private final TransactionSearchService service = new TransactionSearchService(repository());
+
+    @Test
+    void fullPageCarriesACursorToTheNextOne() {
+        for (int i = 0; i < 3; i++) {
+            rows.add(row(T0.minusSeconds(i)));
+        }
+
+        TransactionSearchPage first = service.searchTransactions(request(2, null)).block();
+
+        assertEquals(3, searches.get(0).limit());
+        assertNull(searches.get(0).afterCreatedAt());
+        assertEquals(2, first.transactions().size());
+        assertNotNull(first.nextCursor());
+
+        service.searchTransactions(request(2, first.nextCursor())).block();
+
+        TransactionSearchCriteria next = searches.get(1);
+        assertEquals(rows.get(1).getCreatedAt(), next.afterCreatedAt());
+        assertEquals(rows.get(1).getTransactionId(), next.afterTransactionId());
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        rows.add(row(T0));
+
+        TransactionSearchPage page = service.searchTransactions(request(2, null)).block();
+
+        assertEquals(1, page.transactions().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void limitIsClamped() {
+        service.searchTransactions(request(50_000, null)).block();
+        service.searchTransactions(request(0, null)).block();
+
+        assertEquals(1001, searches.get(0).limit());
+        assertEquals(2, searches.get(1).limit());
+    }
+
+    @Test
+    void malformedCursorIsABadRequest() {
+        ResponseStatusException error = assertThrows(ResponseStatusException.class,
+                () -> service.searchTransactions(request(10, "not-a-cursor")));
+
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatusCode());
+    }
+
+    private static SearchRequest request(int limit, String cursor) {
+        return new SearchRequest(Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
+                Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
+                Optional.of(limit), Optional.ofNullable(cursor));
+    }
+
+    private static TransactionEntity row(Instant createdAt) {
+        return TransactionEntity.builder()
+                .transactionId(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .amount(new BigDecimal("10.00"))
+                .decision("ALLOW")
+                .riskScore(0.1f)
+                .createdAt(createdAt)
+                .build();
+    }
+
+    private TransactionAnalyticsRepository repository() {
+        return (TransactionAnalyticsRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {TransactionAnalyticsRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("search")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    TransactionSearchCriteria criteria = (TransactionSearchCriteria) args[0];
+                    searches.add(criteria);
+                    return Flux.fromIterable(rows).take(criteria.limit());
+                });
+    }
+}
@@ -0,0 +1,46 @@
+package com.sentinelpay.fraudengine.service.denylist;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DenylistSnapshotTest {
+
+    @Test
+    void duplicatesAreCountedOnce() {
+        DenylistSnapshot.Builder builder = new DenylistSnapshot.Builder();
+        builder.add(DenylistType.MERCHANT, "casino-1");
+        builder.add(DenylistType.MERCHANT, " Casino-1 ");
+        builder.add(DenylistType.MERCHANT, "casino-2");
+        builder.add(DenylistType.IP, "10.0.0.1");
+        builder.add(DenylistType.IP, "10.0.0.1");
+
+        DenylistSnapshot snapshot = builder.build(0.001);
+
+        assertEquals(3, snapshot.size());
+        assertEquals(2, snapshot.count(DenylistType.MERCHANT));
+        assertEquals(1, snapshot.count(DenylistType.IP));
+        assertEquals(0, snapshot.count(DenylistType.USER));
+    }
+
+    @Test
+    void listedValuesAreFoundAfterSorting() {
+        DenylistSnapshot.Builder builder = new DenylistSnapshot.Builder();
+        for (int i = 0; i < 5_000; i++) {
+            builder.add(i % 2 == 0 ? DenylistType.DEVICE : DenylistType.MERCHANT, "value-" + i);
+        }
+
+        DenylistSnapshot snapshot = builder.build(0.001);
+
+        assertEquals(2_500, snapshot.count(DenylistType.DEVICE));
+        assertEquals(2_500, snapshot.count(DenylistType.MERCHANT));
+        for (int i = 0; i < 5_000; i++) {
+            DenylistHash hash = DenylistHash.of(i % 2 == 0 ? DenylistType.DEVICE : DenylistType.MERCHANT, "value-" + i);
+            assertTrue(snapshot.mightContain(hash));
+            assertTrue(snapshot.containsExact(hash));
+        }
+        assertFalse(snapshot.containsExact(DenylistHash.of(DenylistType.MERCHANT, "value-0")));
+    }
+}
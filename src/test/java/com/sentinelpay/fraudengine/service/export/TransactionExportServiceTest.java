@@ -0,0 +1,136 @@
+package com.sentinelpay.fraudengine.service.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelpay.fraudengine.repository.FeatureSchemaRepository;
+import com.sentinelpay.fraudengine.repository.TransactionEntity;
+import com.sentinelpay.fraudengine.repository.TransactionSearchCriteria;
+import com.sentinelpay.fraudengine.repository.analytics.TransactionAnalyticsRepository;
+import com.sentinelpay.fraudengine.service.feature.FeatureCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionExportServiceTest {
+
+    private static final Instant T0 = Instant.parse("2026-03-02T12:00:00Z");
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<TransactionEntity> rows = new ArrayList<>();
+
+    @Test
+    void csvStartsWithAHeaderAndQuotesFieldsThatNeedIt() {
+        rows.add(row("merchant, with comma", "{\"os\":\"ios\"}"));
+        rows.add(row("plain", null));
+
+        List<String> chunks = export(criteria(null), TransactionExportService.Format.CSV, 10);
+        String[] lines = String.join("", chunks).split("\n");
+
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("transaction_id,user_id,created_at"));
+        assertTrue(lines[1].contains(",\"merchant, with comma\","));
+        assertTrue(lines[1].contains(",\"{\"\"os\"\":\"\"ios\"\"}\","));
+        assertTrue(lines[2].contains(",plain,"));
+        assertTrue(lines[2].endsWith(",,{}"));
+    }
+
+    @Test
+    void resumedCsvHasNoHeader() {
+        rows.add(row("plain", null));
+
+        List<String> chunks = export(criteria(T0), TransactionExportService.Format.CSV, 10);
+
+        assertEquals(1, chunks.size());
+        assertTrue(chunks.get(0).startsWith(rows.get(0).getTransactionId().toString()));
+    }
+
+    @Test
+    void ndjsonChunksEndOnRowBoundaries() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            rows.add(row("merchant-" + i, "{\"os\":\"ios\"}"));
+        }
+
+        List<String> chunks = export(criteria(null), TransactionExportService.Format.NDJSON, 2);
+
+        assertEquals(3, chunks.size());
+        int line = 0;
+        for (String chunk : chunks) {
+            assertTrue(chunk.endsWith("\n"));
+            for (String json : chunk.split("\n")) {
+                JsonNode node = objectMapper.readTree(json);
+                assertEquals(rows.get(line).getTransactionId().toString(), node.get("transactionId").asText());
+                assertEquals("ios", node.get("deviceInfo").get("os").asText());
+                line++;
+            }
+        }
+        assertEquals(5, line);
+    }
+
+    private List<String> export(TransactionSearchCriteria criteria, TransactionExportService.Format format, int rowsPerChunk) {
+        TransactionExportService service = new TransactionExportService(repository(), objectMapper,
+                new FeatureCodec(schemaRepository(), new SimpleMeterRegistry()), new SimpleMeterRegistry(), 100, rowsPerChunk);
+        return service.export(criteria, format)
+                .map(TransactionExportServiceTest::text)
+                .collectList()
+                .block();
+    }
+
+    private static String text(DataBuffer buffer) {
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    private static TransactionSearchCriteria criteria(Instant after) {
+        return new TransactionSearchCriteria(null, null, null, null, null, null, null, null,
+                after, after == null ? null : UUID.randomUUID(), 0);
+    }
+
+    private TransactionEntity row(String merchantId, String deviceInfo) {
+        return TransactionEntity.builder()
+                .transactionId(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .amount(new BigDecimal("12.50"))
+                .currency("USD")
+                .merchantId(merchantId)
+                .ipAddress("10.0.0.1")
+                .decision("ALLOW")
+                .riskScore(0.2f)
+                .deviceInfo(deviceInfo)
+                .createdAt(T0.plusSeconds(rows.size()))
+                .bucketHour(T0)
+                .build();
+    }
+
+    private TransactionAnalyticsRepository repository() {
+        return (TransactionAnalyticsRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {TransactionAnalyticsRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("export")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return Flux.fromIterable(rows);
+                });
+    }
+
+    private FeatureSchemaRepository schemaRepository() {
+        return (FeatureSchemaRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {FeatureSchemaRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findAll")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return Flux.empty();
+                });
+    }
+}
@@ -0,0 +1,121 @@
+package com.sentinelpay.fraudengine.service.feature;
+
+import com.sentinelpay.fraudengine.dto.TransactionRequest;
+import com.sentinelpay.fraudengine.repository.RuleEntity;
+import com.sentinelpay.fraudengine.service.RuleEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeatureCodecTest {
+
+    @Test
+    void varintsRoundTripAndUseSevenBitsPerByte() {
+        long[] values = {0, 1, 127, 128, 300, 16_383, 16_384, Integer.MAX_VALUE, Long.MAX_VALUE, -1};
+        int[] lengths = {1, 1, 1, 2, 2, 2, 3, 5, 9, 10};
+        for (int i = 0; i < values.length; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            FeatureCodec.writeVarint(out, values[i]);
+            byte[] bytes = out.toByteArray();
+            assertEquals(lengths[i], bytes.length, "length of " + values[i]);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            assertEquals(values[i], FeatureCodec.readVarint(buffer));
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+
+    @Test
+    void truncatedVarintFails() {
+        assertThrows(RuntimeException.class, () -> FeatureCodec.readVarint(ByteBuffer.wrap(new byte[] {(byte) 0x80})));
+    }
+
+    @Test
+    void zigzagKeepsSmallNegativesSmall() {
+        assertEquals(0, FeatureCodec.zigzagEncode(0));
+        assertEquals(1, FeatureCodec.zigzagEncode(-1));
+        assertEquals(2, FeatureCodec.zigzagEncode(1));
+        assertEquals(3, FeatureCodec.zigzagEncode(-2));
+        for (long value : new long[] {0, 1, -1, 63, -64, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertEquals(value, FeatureCodec.zigzagDecode(FeatureCodec.zigzagEncode(value)));
+        }
+    }
+
+    @Test
+    void packedValuesRoundTripInSchemaOrder() {
+        FeatureCodec codec = new FeatureCodec(null, new SimpleMeterRegistry());
+        FeatureCodec.FeatureSchema schema = new FeatureCodec.FeatureSchema(300,
+                new String[] {"amount", "country", "device_risk", "flagged", "hour", "missing", "nan", "new_device", "velocity"});
+
+        Map<String, Object> features = new LinkedHashMap<>();
+        features.put("velocity", -42L);
+        features.put("hour", 23);
+        features.put("device_risk", 0.25f);
+        features.put("amount", 0.1);
+        features.put("nan", Double.NaN);
+        features.put("country", "Z\u00fcrich \u2713");
+        features.put("flagged", true);
+        features.put("new_device", false);
+        features.put("missing", null);
+
+        ByteBuffer buffer = ByteBuffer.wrap(codec.pack(schema, features));
+        assertEquals(FeatureCodec.FORMAT_VERSION, buffer.get());
+        assertEquals(300, FeatureCodec.readVarint(buffer));
+        Map<String, Object> decoded = FeatureCodec.unpack(schema, buffer);
+        assertFalse(buffer.hasRemaining());
+
+        assertEquals(List.of(schema.names()), List.copyOf(decoded.keySet()));
+        assertEquals(-42L, decoded.get("velocity"));
+        assertEquals(23L, decoded.get("hour"));
+        // Exactly representable decimals are stored as floats but still read back as doubles
+        assertEquals(0.25, decoded.get("device_risk"));
+        assertEquals(0.1, decoded.get("amount"));
+        assertTrue(Double.isNaN((Double) decoded.get("nan")));
+        assertEquals("Z\u00fcrich \u2713", decoded.get("country"));
+        assertEquals(Boolean.TRUE, decoded.get("flagged"));
+        assertEquals(Boolean.FALSE, decoded.get("new_device"));
+        assertTrue(decoded.containsKey("missing"));
+        assertNull(decoded.get("missing"));
+    }
+
+    @Test
+    void replayedFeaturesTriggerTheSameRules() {
+        FeatureCodec codec = new FeatureCodec(null, new SimpleMeterRegistry());
+        FeatureCodec.FeatureSchema schema = new FeatureCodec.FeatureSchema(7, new String[] {"amount", "amount_percentile"});
+        Map<String, Object> features = Map.of("amount", 5000.0, "amount_percentile", 0.96);
+        ByteBuffer buffer = ByteBuffer.wrap(codec.pack(schema, features));
+        buffer.get();
+        FeatureCodec.readVarint(buffer);
+        Map<String, Object> replayed = FeatureCodec.unpack(schema, buffer);
+
+        TransactionRequest request = new TransactionRequest("user-1", new BigDecimal("5000.00"), "USD",
+                "merchant-1", "10.0.0.1", Map.of("browser", "firefox"), null);
+        List<RuleEntity> rules = List.of(
+                RuleEntity.builder().name("large").condition("amount > 1000").score(0.4).build(),
+                RuleEntity.builder().name("unusual").condition("amount_percentile > 0.95").score(0.2).build());
+        RuleEngine ruleEngine = new RuleEngine(null);
+
+        assertEquals(ruleEngine.evaluateRules(request, rules, features).triggeredRules(),
+                ruleEngine.evaluateRules(request, rules, replayed).triggeredRules());
+        assertEquals(Set.of("large", "unusual"), ruleEngine.evaluateRules(request, rules, replayed).triggeredRules().keySet());
+    }
+
+    @Test
+    void schemaKeyIsIndependentOfInsertionOrder() {
+        assertEquals(FeatureCodec.FeatureSchema.key(Set.of("b", "a", "c")),
+                FeatureCodec.FeatureSchema.key(Set.of("c", "b", "a")));
+        assertThrows(IllegalArgumentException.class, () -> FeatureCodec.FeatureSchema.key(Set.of("a,b")));
+    }
+}
@@ -0,0 +1,60 @@
+package com.sentinelpay.fraudengine.service.fx;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FxRateServiceTest {
+
+    @Test
+    void currencyCodesPackCaseInsensitively() {
+        assertEquals(FxRateTable.code("EUR"), FxRateTable.code("eur"));
+        assertTrue(FxRateTable.code("ZZZ") < 1 << 15);
+        assertEquals(-1, FxRateTable.code("EU"));
+        assertEquals(-1, FxRateTable.code("EU1"));
+        assertEquals(-1, FxRateTable.code("E[R"));
+        assertEquals(-1, FxRateTable.code(null));
+    }
+
+    @Test
+    void tableKeepsValidRatesAndAlwaysKnowsTheBase() {
+        FxRateTable table = FxRateTable.of("usd", Map.of("EUR", 1.08, "JPY", 0.0067, "XXX", -1.0, "BAD!", 2.0));
+
+        assertEquals("USD", table.baseCurrency());
+        assertEquals(3, table.size());
+        assertEquals(1.0, table.rate("USD"), 0.0);
+        assertEquals(1.08, table.rate("eur"), 0.0);
+        assertTrue(Double.isNaN(table.rate("XXX")));
+        assertTrue(Double.isNaN(table.rate("GBP")));
+    }
+
+    @Test
+    void stubRatesAreRebasedOntoTheConfiguredCurrency() {
+        FxRateService service = new FxRateService(new SimpleMeterRegistry(), "EUR", "does/not/exist.csv");
+
+        assertEquals(100.0, service.toBase(100.0, "EUR"), 1e-9);
+        assertEquals(100.0 / 1.08, service.toBase(100.0, "USD"), 1e-9);
+    }
+
+    @Test
+    void ratesFileReplacesTheStubAndUnknownCurrenciesPassThrough() throws IOException {
+        Path rates = Files.createTempFile("rates", ".csv");
+        Files.writeString(rates, "# units of USD per unit\nEUR, 1.10\nGBP,not-a-rate\n\nJPY,0.007\n");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FxRateService service = new FxRateService(registry, "USD", rates.toString());
+
+        service.refresh();
+
+        assertEquals(110.0, service.toBase(100.0, "EUR"), 1e-9);
+        assertEquals(7.0, service.toBase(1_000.0, "JPY"), 1e-9);
+        assertEquals(100.0, service.toBase(100.0, "GBP"), 0.0);
+        assertEquals(1.0, registry.counter("fx.unknown.currency").count(), 0.0);
+    }
+}
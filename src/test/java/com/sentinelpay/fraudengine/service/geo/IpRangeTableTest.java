@@ -0,0 +1,70 @@
+package com.sentinelpay.fraudengine.service.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IpRangeTableTest {
+
+    @Test
+    void parsesDottedQuadsOnly() {
+        assertEquals(0L, IpRangeTable.parseIpv4("0.0.0.0"));
+        assertEquals(0xFFFFFFFFL, IpRangeTable.parseIpv4("255.255.255.255"));
+        assertEquals(0x0A000001L, IpRangeTable.parseIpv4("10.0.0.1"));
+        assertEquals(-1L, IpRangeTable.parseIpv4("256.0.0.1"));
+        assertEquals(-1L, IpRangeTable.parseIpv4("10.0.0"));
+        assertEquals(-1L, IpRangeTable.parseIpv4("10.0.0.1.2"));
+        assertEquals(-1L, IpRangeTable.parseIpv4("10..0.1"));
+        assertEquals(-1L, IpRangeTable.parseIpv4("::1"));
+        assertEquals(-1L, IpRangeTable.parseIpv4(null));
+    }
+
+    @Test
+    void compiledTableFindsTheRangeOfEachAddress() throws IOException {
+        Path dir = Files.createTempDirectory("ip-ranges");
+        Path csv = dir.resolve("ranges.csv");
+        Files.writeString(csv, String.join("\n",
+                "start_ip,end_ip,country,latitude,longitude",
+                "\"81.0.0.0\",\"81.255.255.255\",\"nl\",\"52.3676\",\"4.9041\"",
+                "1.0.0.0,1.0.0.255,AU,-33.8688,151.2093",
+                "2001:db8::,2001:db8::ffff,DE,52.52,13.405",
+                "81.1.0.0,81.1.0.255,FR,48.8566,2.3522",
+                "200.10.0.0,200.12.255.255,BR,-23.5505,-46.6333",
+                "not,a,valid,row"));
+        Path table = dir.resolve("ranges.bin");
+
+        assertEquals(3, IpRangeTable.compile(csv, table));
+        IpRangeTable ranges = IpRangeTable.map(table);
+
+        int sydney = ranges.find("1.0.0.17");
+        assertEquals("AU", ranges.country(sydney));
+        assertEquals(-33.8688, ranges.latitude(sydney), 1e-4);
+        assertEquals(151.2093, ranges.longitude(sydney), 1e-4);
+
+        // The overlapping range that starts later is dropped
+        assertEquals("NL", ranges.country(ranges.find("81.1.0.10")));
+
+        // A range spanning several /16 prefixes is found from each of them
+        int saoPaulo = ranges.find("200.11.128.1");
+        assertEquals("BR", ranges.country(saoPaulo));
+        assertEquals(-46.6333, ranges.longitude(saoPaulo), 1e-4);
+        assertEquals(saoPaulo, ranges.find("200.12.255.255"));
+
+        assertEquals(IpRangeTable.NOT_FOUND, ranges.find("1.0.1.0"));
+        assertEquals(IpRangeTable.NOT_FOUND, ranges.find("2001:db8::1"));
+        assertEquals(IpRangeTable.NOT_FOUND, ranges.find("255.255.255.255"));
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = Files.createTempFile("ip-ranges", ".bin");
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+
+        assertThrows(IOException.class, () -> IpRangeTable.map(file));
+    }
+}
@@ -0,0 +1,75 @@
+package com.sentinelpay.fraudengine.service.graph;
+
+import com.sentinelpay.fraudengine.dto.TransactionRequest;
+import com.sentinelpay.fraudengine.service.feature.ScoredTransaction;
+import com.sentinelpay.fraudengine.service.feature.TransactionContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EntityLinkGraphTest {
+
+    private static final Instant NOW = Instant.parse("2026-03-02T12:00:00Z");
+
+    @Test
+    void scoredTransactionsAreLinkedOnceApplied() throws Exception {
+        EntityLinkGraph graph = newGraph();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        graph.onScored(scored(first, "shared-device"));
+        graph.onScored(scored(second, "shared-device"));
+        assertEquals(0, graph.nodeCount());
+
+        graph.applyQueued();
+
+        // Two users, the device they share, and an IP and merchant each
+        assertEquals(7, graph.nodeCount());
+        assertEquals(1, features(graph, second, "shared-device").get("graph_device_users_24h"));
+    }
+
+    @Test
+    void fraudIsFoundThroughSharedDevices() throws Exception {
+        EntityLinkGraph graph = newGraph();
+        UUID fraudster = UUID.randomUUID();
+        UUID linked = UUID.randomUUID();
+        graph.onScored(scored(fraudster, "shared-device"));
+        graph.onScored(scored(linked, "shared-device"));
+        graph.applyQueued();
+
+        graph.labelUser(fraudster, true);
+
+        assertEquals(2, features(graph, linked, "shared-device").get("graph_fraud_hops"));
+        assertEquals(EntityLinkGraph.MAX_HOPS + 1, features(graph, UUID.randomUUID(), "other-device").get("graph_fraud_hops"));
+    }
+
+    private static EntityLinkGraph newGraph() throws Exception {
+        Path snapshot = Files.createTempDirectory("entity-graph").resolve("graph.bin");
+        return new EntityLinkGraph(new SimpleMeterRegistry(), 64, 8, 30, 16, snapshot.toString());
+    }
+
+    private static Map<String, Object> features(EntityLinkGraph graph, UUID userId, String device) {
+        Map<String, Object> features = new HashMap<>();
+        graph.contribute(context(userId, device), features);
+        return features;
+    }
+
+    private static ScoredTransaction scored(UUID userId, String device) {
+        return new ScoredTransaction(UUID.randomUUID(), context(userId, device), Map.of(), 0.1f, 0.1f, "ALLOW");
+    }
+
+    private static TransactionContext context(UUID userId, String device) {
+        TransactionRequest request = new TransactionRequest(userId.toString(), new BigDecimal("25.00"), "USD",
+                "merchant-" + userId, "10.0.0." + (userId.hashCode() & 0x7f), Map.of("deviceId", device), null);
+        return TransactionContext.of(request, 25.0, NOW);
+    }
+}
@@ -0,0 +1,110 @@
+package com.sentinelpay.fraudengine.service.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LinkGraphTest {
+
+    @Test
+    void snapshotRoundTripsNodesEdgesAndFraudFlags() throws IOException {
+        LinkGraph graph = new LinkGraph(16, 4);
+        int user = graph.getOrCreate(1L, LinkGraph.USER);
+        int device = graph.getOrCreate(2L, LinkGraph.DEVICE);
+        int ip = graph.getOrCreate(3L, LinkGraph.IP);
+        graph.link(user, device, 100);
+        graph.link(user, ip, 101);
+        graph.fraud[user] = true;
+        graph.releasePins();
+
+        LinkGraph restored = LinkGraph.readFrom(read(write(graph)));
+
+        assertEquals(3, restored.size());
+        assertEquals(graph.capacity, restored.capacity);
+        assertEquals(graph.maxDegree, restored.maxDegree);
+        int restoredUser = restored.find(1L);
+        assertEquals(user, restoredUser);
+        assertEquals(LinkGraph.USER, restored.types[restoredUser]);
+        assertTrue(restored.fraud[restoredUser]);
+        assertFalse(restored.fraud[restored.find(2L)]);
+        assertEquals(2, restored.degrees[restoredUser]);
+        assertEquals(device, restored.neighbour(restoredUser, 0));
+        assertEquals(100, restored.edgeMinute(restoredUser, 0));
+        assertEquals(ip, restored.neighbour(restoredUser, 1));
+        assertEquals(101, restored.edgeMinute(restoredUser, 1));
+        assertEquals(user, restored.neighbour(restored.find(3L), 0));
+        assertEquals(-1, restored.find(4L));
+    }
+
+    @Test
+    void restoredGraphKeepsAcceptingUpdates() throws IOException {
+        LinkGraph graph = new LinkGraph(4, 2);
+        graph.link(graph.getOrCreate(1L, LinkGraph.USER), graph.getOrCreate(2L, LinkGraph.DEVICE), 1);
+        graph.releasePins();
+
+        LinkGraph restored = LinkGraph.readFrom(read(write(graph)));
+        int merchant = restored.getOrCreate(5L, LinkGraph.MERCHANT);
+        restored.link(restored.find(1L), merchant, 2);
+
+        assertEquals(3, restored.size());
+        assertEquals(2, restored.degrees[restored.find(1L)]);
+        assertEquals(merchant, restored.find(5L));
+    }
+
+    @Test
+    void rejectsOtherVersions() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x53504c47);
+        out.writeInt(1);
+        out.writeInt(4);
+        out.writeInt(2);
+        out.writeInt(0);
+
+        assertThrows(IOException.class, () -> LinkGraph.readFrom(read(bytes.toByteArray())));
+    }
+
+    @Test
+    void rejectsOtherFiles() {
+        assertThrows(IOException.class, () -> LinkGraph.readFrom(read(new byte[] {0, 0, 0, 0, 0, 0, 0, 2})));
+    }
+
+    @Test
+    void pinnedNodesAreNotEvictedWithinOneUpdate() {
+        LinkGraph graph = new LinkGraph(2, 2);
+        int first = graph.getOrCreate(1L, LinkGraph.USER);
+        int second = graph.getOrCreate(2L, LinkGraph.DEVICE);
+        graph.link(first, second, 1);
+        graph.releasePins();
+
+        int user = graph.getOrCreate(1L, LinkGraph.USER);
+        int ip = graph.getOrCreate(3L, LinkGraph.IP);
+
+        assertEquals(first, user);
+        assertEquals(user, graph.find(1L));
+        assertEquals(ip, graph.find(3L));
+        assertEquals(-1, graph.find(2L));
+        assertEquals(0, graph.degrees[user]);
+    }
+
+    private static byte[] write(LinkGraph graph) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        graph.snapshot().writeTo(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream read(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,88 @@
+package com.sentinelpay.fraudengine.service.hitters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeavyHitterSketchTest {
+
+    // Four sub-windows of one second each
+    private static final long SUB_WINDOW = 1_000;
+
+    private final HeavyHitterSketch sketch = new HeavyHitterSketch(4, 1024, 4, SUB_WINDOW, 3);
+
+    @Test
+    void countsExpireOnceTheirSubWindowLeavesTheWindow() {
+        long key = HeavyHitterSketch.hash("merchant-1");
+        for (int i = 0; i < 5; i++) {
+            sketch.add(key, "merchant-1", 100);
+        }
+        assertEquals(6, sketch.add(key, "merchant-1", 1_100));
+
+        assertEquals(6, sketch.estimate(key, 3_999));
+        assertEquals(6, sketch.total(3_999));
+        // The first sub-window leaves the window, the second is still in it
+        assertEquals(1, sketch.estimate(key, 4_000));
+        assertEquals(1, sketch.total(4_000));
+        assertEquals(0, sketch.estimate(key, 5_000));
+    }
+
+    @Test
+    void ringSlotIsReusedWithoutCarryingOldCounts() {
+        long key = HeavyHitterSketch.hash("ip-1");
+        sketch.add(key, "ip-1", 0);
+        sketch.add(key, "ip-1", 0);
+        // Five slots for four sub-windows, so sub-window 5 reuses the slot of sub-window 0
+        assertEquals(1, sketch.add(key, "ip-1", 5 * SUB_WINDOW));
+    }
+
+    @Test
+    void preparingTheNextSubWindowLeavesTheLiveWindowAlone() {
+        long key = HeavyHitterSketch.hash("bin-1");
+        for (long t = 0; t < 4 * SUB_WINDOW; t += SUB_WINDOW) {
+            sketch.add(key, "bin-1", t);
+        }
+        sketch.prepareNext(3 * SUB_WINDOW);
+        assertEquals(4, sketch.estimate(key, 3 * SUB_WINDOW));
+
+        assertEquals(4, sketch.add(key, "bin-1", 4 * SUB_WINDOW));
+        sketch.prepareNext(4 * SUB_WINDOW);
+        assertEquals(4, sketch.estimate(key, 4 * SUB_WINDOW));
+    }
+
+    @Test
+    void lateTimestampsFromARecycledSubWindowAreNotCounted() {
+        long key = HeavyHitterSketch.hash("merchant-2");
+        sketch.add(key, "merchant-2", 5 * SUB_WINDOW);
+        assertEquals(0, sketch.add(key, "merchant-2", 0));
+        assertEquals(1, sketch.estimate(key, 5 * SUB_WINDOW));
+    }
+
+    @Test
+    void topKeysAgeOutWithTheWindow() {
+        for (int i = 0; i < 10; i++) {
+            sketch.add(HeavyHitterSketch.hash("burst"), "burst", 0);
+        }
+        for (int i = 0; i < 3; i++) {
+            sketch.add(HeavyHitterSketch.hash("steady"), "steady", 3 * SUB_WINDOW + i);
+        }
+        List<HeavyHitterSketch.Hitter> top = sketch.top(5, 3 * SUB_WINDOW);
+        assertEquals("burst", top.get(0).key());
+        assertEquals(10, top.get(0).count());
+
+        sketch.add(HeavyHitterSketch.hash("steady"), "steady", 4 * SUB_WINDOW);
+        top = sketch.top(5, 4 * SUB_WINDOW);
+        assertEquals(1, top.size());
+        assertEquals(new HeavyHitterSketch.Hitter("steady", 4), top.get(0));
+    }
+
+    @Test
+    void subWindowsMustFitTheLiveSlotMask() {
+        assertThrows(IllegalArgumentException.class, () -> new HeavyHitterSketch(4, 64, 64, SUB_WINDOW, 3));
+        assertTrue(new HeavyHitterSketch(4, 64, 63, SUB_WINDOW, 3).memoryBytes() > 0);
+    }
+}
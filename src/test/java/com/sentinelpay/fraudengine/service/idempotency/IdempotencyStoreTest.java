@@ -0,0 +1,120 @@
+package com.sentinelpay.fraudengine.service.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sentinelpay.fraudengine.dto.TransactionRequest;
+import com.sentinelpay.fraudengine.dto.TransactionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs against a Redis that is down, which the store tolerates, so that only its
+ * in-process behaviour is exercised.
+ */
+class IdempotencyStoreTest {
+
+    private final AtomicInteger evaluations = new AtomicInteger();
+    private final AtomicInteger duplicates = new AtomicInteger();
+    private final IdempotencyStore store = store(16);
+
+    @Test
+    void aRetryReplaysTheFirstDecision() {
+        TransactionRequest request = request("10.00");
+        IdempotencyStore.IdempotencyKey key = store.keyFor(request, "retry-1");
+
+        TransactionResponse first = execute(key, true);
+        TransactionResponse retried = execute(key, true);
+
+        assertEquals(first, retried);
+        assertEquals(1, evaluations.get());
+        assertEquals(1, duplicates.get());
+    }
+
+    @Test
+    void aFreshDecisionIsReplayedEvenWhenTheCacheIsFullOfOthers() {
+        for (int i = 0; i < 1_000; i++) {
+            execute(store.keyFor(request("10.00"), "other-" + i), true);
+        }
+        IdempotencyStore.IdempotencyKey key = store.keyFor(request("10.00"), "latest");
+
+        TransactionResponse first = execute(key, true);
+
+        assertEquals(first, execute(key, true));
+        assertEquals(1_001, evaluations.get());
+    }
+
+    @Test
+    void unpersistedDecisionsAreEvaluatedAgain() {
+        IdempotencyStore.IdempotencyKey key = store.keyFor(request("10.00"), "fallback");
+
+        execute(key, false);
+        execute(key, false);
+
+        assertEquals(2, evaluations.get());
+        assertEquals(0, duplicates.get());
+    }
+
+    @Test
+    void aKeyCannotBeReusedForAnotherRequest() {
+        execute(store.keyFor(request("10.00"), "reused"), true);
+
+        ResponseStatusException error = assertThrows(ResponseStatusException.class,
+                () -> execute(store.keyFor(request("99.00"), "reused"), true));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, error.getStatusCode());
+    }
+
+    @Test
+    void requestsWithoutAKeyAreNotDeduplicated() {
+        assertNull(store.keyFor(request("10.00"), null));
+        assertThrows(ResponseStatusException.class, () -> store.keyFor(request("10.00"), "k".repeat(256)));
+    }
+
+    private TransactionResponse execute(IdempotencyStore.IdempotencyKey key, boolean persisted) {
+        return store.execute(key,
+                () -> Mono.fromSupplier(() -> {
+                    evaluations.incrementAndGet();
+                    TransactionResponse response = new TransactionResponse(UUID.randomUUID(), "user-1",
+                            new BigDecimal("10.00"), "ALLOW", 0.1f, Instant.now());
+                    return new IdempotencyStore.Outcome(response, persisted);
+                }),
+                () -> Mono.fromRunnable(duplicates::incrementAndGet)).block();
+    }
+
+    private static TransactionRequest request(String amount) {
+        return new TransactionRequest("user-1", new BigDecimal(amount), "USD", "merchant-1", "10.0.0.1",
+                Map.of("browser", "firefox"), null);
+    }
+
+    private static IdempotencyStore store(int cacheSize) {
+        ReactiveRedisConnectionFactory unavailable = (ReactiveRedisConnectionFactory) Proxy.newProxyInstance(
+                IdempotencyStoreTest.class.getClassLoader(), new Class<?>[] {ReactiveRedisConnectionFactory.class},
+                (proxy, method, args) -> {
+                    throw new IllegalStateException("Redis is down");
+                });
+        ReactiveRedisTemplate<String, String> redisTemplate =
+                new ReactiveRedisTemplate<>(unavailable, RedisSerializationContext.string());
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        return new IdempotencyStore(redisTemplate, objectMapper, new SimpleMeterRegistry(), false,
+                Duration.ofHours(24), Duration.ofMinutes(2), Duration.ofSeconds(30), Duration.ofMillis(100),
+                Duration.ofMillis(10), cacheSize);
+    }
+}
@@ -0,0 +1,58 @@
+package com.sentinelpay.fraudengine.service.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecisionRollupsTest {
+
+    @Test
+    void smallLatenciesHaveTheirOwnBucket() {
+        for (int micros = 0; micros < 16; micros++) {
+            assertEquals(micros, DecisionRollups.latencyBucket(micros));
+            assertEquals(micros, DecisionRollups.bucketMidpointMicros(micros));
+        }
+        assertEquals(0, DecisionRollups.latencyBucket(-5));
+    }
+
+    @Test
+    void bucketsAreContiguousAndCoverTheRange() {
+        int previous = DecisionRollups.latencyBucket(0);
+        for (long micros = 1; micros < (1L << 26); micros += 1 + micros / 64) {
+            int bucket = DecisionRollups.latencyBucket(micros);
+            assertTrue(bucket == previous || bucket == previous + 1, "bucket for " + micros);
+            previous = bucket;
+        }
+        assertEquals(DecisionRollups.LATENCY_BUCKETS - 1, DecisionRollups.latencyBucket((1L << 26) - 1));
+        assertEquals(DecisionRollups.LATENCY_BUCKETS - 1, DecisionRollups.latencyBucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    void midpointIsWithinOneSixteenthOfEveryValueInItsBucket() {
+        for (long micros = 16; micros < (1L << 26); micros += 1 + micros / 97) {
+            double midpoint = DecisionRollups.bucketMidpointMicros(DecisionRollups.latencyBucket(micros));
+            assertTrue(Math.abs(midpoint - micros) <= micros / 16.0, "midpoint " + midpoint + " for " + micros);
+        }
+    }
+
+    @Test
+    void percentilesFollowTheHistogramRanks() {
+        long[] histogram = new long[DecisionRollups.LATENCY_BUCKETS];
+        // 90 responses around 1ms and 10 around 50ms
+        histogram[DecisionRollups.latencyBucket(1_000)] = 90;
+        histogram[DecisionRollups.latencyBucket(50_000)] = 10;
+
+        assertEquals(1.0, DecisionRollups.percentileMillis(histogram, 0.50), 1.0 / 16);
+        assertEquals(1.0, DecisionRollups.percentileMillis(histogram, 0.90), 1.0 / 16);
+        assertEquals(50.0, DecisionRollups.percentileMillis(histogram, 0.95), 50.0 / 16);
+        assertEquals(50.0, DecisionRollups.percentileMillis(histogram, 0.99), 50.0 / 16);
+    }
+
+    @Test
+    void emptyOrMissingHistogramsHaveNoPercentile() {
+        assertNull(DecisionRollups.percentileMillis(new long[DecisionRollups.LATENCY_BUCKETS], 0.5));
+        assertNull(DecisionRollups.percentileMillis(null, 0.5));
+    }
+}
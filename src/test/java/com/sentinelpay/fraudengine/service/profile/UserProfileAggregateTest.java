@@ -0,0 +1,103 @@
+package com.sentinelpay.fraudengine.service.profile;
+
+import com.sentinelpay.fraudengine.dto.UserProfile;
+import com.sentinelpay.fraudengine.model.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserProfileAggregateTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    void encodeRoundTripsStatisticsAndHistory() {
+        UserProfileAggregate aggregate = new UserProfileAggregate();
+        aggregate.record(UUID.randomUUID(), 10.0, "10.0.0.1", "device-a", "merchant-1", "ALLOW", 0.1f, T0);
+        aggregate.record(UUID.randomUUID(), 30.0, "10.0.0.2", "device-a", "merchant-2", "REVIEW", 0.8f, T0 + 60_000);
+        aggregate.record(UUID.randomUUID(), 50.0, "10.0.0.1", "device-b", "merchant-1", "BLOCK", 0.9f, T0 + 120_000);
+        aggregate.recordLocation(Location.builder().country("NL").lat(52.37).lng(4.89).build(), T0 + 120_000);
+
+        UserProfileAggregate decoded = UserProfileAggregate.decode(aggregate.encode());
+
+        assertEquals(3, decoded.count());
+        assertEquals(30.0, decoded.mean(), 1e-9);
+        assertEquals(aggregate.stdDev(), decoded.stdDev(), 1e-9);
+        assertTrue(decoded.knowsIp("10.0.0.1"));
+        assertTrue(decoded.knowsIp("10.0.0.2"));
+        assertFalse(decoded.knowsIp("10.0.0.3"));
+        assertTrue(decoded.knowsDevice("device-b"));
+        assertTrue(decoded.hasBehaviour());
+        assertEquals(aggregate.merchantShare("merchant-1"), decoded.merchantShare("merchant-1"), 1e-9);
+        assertEquals(T0 + 120_000, decoded.lastLocatedMillis());
+        Location location = decoded.lastLocation();
+        assertEquals("NL", location.getCountry());
+        assertEquals(52.37, location.getLat(), 1e-9);
+        assertEquals(4.89, location.getLng(), 1e-9);
+        assertEquals(aggregate.encode(), decoded.encode());
+    }
+
+    @Test
+    void decodedProfileReportsTheSamePatterns() {
+        UserProfileAggregate aggregate = new UserProfileAggregate();
+        aggregate.record(UUID.randomUUID(), 10.0, "10.0.0.1", "device-a", "merchant-1", "ALLOW", 0.1f, T0);
+        aggregate.record(UUID.randomUUID(), 20.0, "10.0.0.2", "device-a", "merchant-1", "BLOCK", 0.9f, T0 + 1_000);
+        aggregate.seedAmountStats(10, 15.0);
+
+        UserProfile profile = UserProfileAggregate.decode(aggregate.encode()).toUserProfile("user-1");
+
+        Map<String, Object> patterns = profile.behaviorPatterns();
+        assertEquals(10L, patterns.get("transactionCount"));
+        // High-risk share covers recorded transactions only, not the seeded history
+        assertEquals(50.0, (double) patterns.get("highRiskPercentage"), 1e-9);
+        assertEquals(Map.of("ALLOW", 1L, "REVIEW", 0L, "BLOCK", 1L), patterns.get("decisionMix"));
+        assertEquals(List.of("10.0.0.2", "10.0.0.1"), profile.commonLocations());
+        assertEquals(List.of("device-a"), profile.preferredDevices());
+    }
+
+    @Test
+    void decodedProfileStillRecognisesRecentTransactions() {
+        UserProfileAggregate aggregate = new UserProfileAggregate();
+        UUID seen = UUID.randomUUID();
+        aggregate.record(seen, 10.0, "10.0.0.1", "device-a", "merchant-1", "ALLOW", 0.1f, T0);
+
+        UserProfileAggregate decoded = UserProfileAggregate.decode(aggregate.encode());
+
+        assertFalse(decoded.record(seen, 10.0, "10.0.0.1", "device-a", "merchant-1", "ALLOW", 0.1f, T0));
+        assertTrue(decoded.record(UUID.randomUUID(), 10.0, "10.0.0.1", "device-a", "merchant-1", "ALLOW", 0.1f, T0));
+        assertEquals(2, decoded.count());
+    }
+
+    @Test
+    void emptyProfileHasNoLocation() {
+        UserProfileAggregate decoded = UserProfileAggregate.decode(new UserProfileAggregate().encode());
+
+        assertEquals(0, decoded.count());
+        assertNull(decoded.lastLocation());
+        assertFalse(decoded.hasBehaviour());
+        assertTrue(decoded.toUserProfile("user-1").behaviorPatterns().isEmpty());
+    }
+
+    @Test
+    void rejectsOtherFormatsAndTruncatedData() {
+        String unknown = Base64.getEncoder().encodeToString(new byte[] {9});
+        String earlier = Base64.getEncoder().encodeToString(new byte[] {3, 0, 0, 0, 0, 0, 0, 0, 1});
+        String encoded = new UserProfileAggregate().encode();
+        byte[] bytes = Base64.getDecoder().decode(encoded);
+        String truncated = Base64.getEncoder().encodeToString(Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertThrows(IllegalArgumentException.class, () -> UserProfileAggregate.decode(unknown));
+        assertThrows(IllegalArgumentException.class, () -> UserProfileAggregate.decode(earlier));
+        assertThrows(IllegalArgumentException.class, () -> UserProfileAggregate.decode(truncated));
+    }
+}
@@ -0,0 +1,30 @@
+package com.sentinelpay.fraudengine.service.profile;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserProfileStoreTest {
+
+    @Test
+    void storedValuesCarryTheirVersion() {
+        UserProfileAggregate aggregate = new UserProfileAggregate();
+        aggregate.record(UUID.randomUUID(), 25.0, "10.0.0.1", "device-a", "merchant-1", "ALLOW", 0.1f, 1_700_000_000_000L);
+
+        UserProfileAggregate stored = UserProfileStore.decodeStored("7:" + aggregate.encode());
+
+        assertEquals(7L, stored.storedVersion());
+        assertEquals(1, stored.count());
+        assertEquals(25.0, stored.mean(), 1e-9);
+    }
+
+    @Test
+    void unversionedValuesCountAsVersionZero() {
+        UserProfileAggregate stored = UserProfileStore.decodeStored(new UserProfileAggregate().encode());
+
+        assertEquals(0L, stored.storedVersion());
+        assertEquals(0, stored.count());
+    }
+}
@@ -0,0 +1,96 @@
+package com.sentinelpay.fraudengine.service.similarity;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Recall and latency benchmark for {@link HnswIndex}. Not part of the test suite; run it
+ * by hand, e.g. with {@code java -Xmx4g ... HnswIndexBenchmark 1000000 2000 16 100 64}.
+ *
+ * <p>Vectors are drawn from a mixture of Gaussian clusters in the embedding dimension,
+ * which is closer to real feature vectors than uniform noise. Recall@10 is measured
+ * against brute force on a sample of the queries.
+ */
+public final class HnswIndexBenchmark {
+
+    public static void main(String[] args) {
+        int vectors = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int m = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int efConstruction = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        int efSearch = args.length > 4 ? Integer.parseInt(args[4]) : 64;
+        int dimension = FraudEmbedding.DIMENSION;
+        int k = 10;
+
+        SplittableRandom random = new SplittableRandom(7);
+        float[][] centres = new float[1_000][dimension];
+        for (float[] centre : centres) {
+            for (int i = 0; i < dimension; i++) {
+                centre[i] = (float) random.nextDouble();
+            }
+        }
+
+        HnswIndex index = new HnswIndex(dimension, m, efConstruction, vectors);
+        long buildStart = System.nanoTime();
+        for (int n = 0; n < vectors; n++) {
+            index.add(sample(centres, random, dimension));
+            if ((n + 1) % 100_000 == 0) {
+                System.out.printf("inserted %,d vectors in %.1fs%n", n + 1, (System.nanoTime() - buildStart) / 1e9);
+            }
+        }
+        System.out.printf("build: %,d vectors in %.1fs%n", vectors, (System.nanoTime() - buildStart) / 1e9);
+
+        float[][] queryVectors = new float[queries][];
+        for (int q = 0; q < queries; q++) {
+            queryVectors[q] = sample(centres, random, dimension);
+        }
+
+        // Warm up the JIT before measuring
+        for (int q = 0; q < queries; q++) {
+            index.search(queryVectors[q], k, efSearch);
+        }
+
+        long[] latencies = new long[queries];
+        HnswIndex.SearchResult[] results = new HnswIndex.SearchResult[queries];
+        for (int q = 0; q < queries; q++) {
+            long start = System.nanoTime();
+            results[q] = index.search(queryVectors[q], k, efSearch);
+            latencies[q] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        int recallSample = Math.min(queries, 200);
+        long hits = 0;
+        for (int q = 0; q < recallSample; q++) {
+            int[] truth = index.bruteForce(queryVectors[q], k).nodes();
+            for (int node : results[q].nodes()) {
+                for (int expected : truth) {
+                    if (node == expected) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        System.out.printf("M=%d efConstruction=%d efSearch=%d%n", m, efConstruction, efSearch);
+        System.out.printf("recall@%d: %.4f (over %d queries)%n", k, (double) hits / (recallSample * k), recallSample);
+        System.out.printf("latency p50=%.1fus p99=%.1fus max=%.1fus%n",
+                latencies[queries / 2] / 1e3,
+                latencies[(int) (queries * 0.99)] / 1e3,
+                latencies[queries - 1] / 1e3);
+    }
+
+    private static float[] sample(float[][] centres, SplittableRandom random, int dimension) {
+        float[] centre = centres[random.nextInt(centres.length)];
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = centre[i] + (float) (gaussian(random) * 0.05);
+        }
+        return vector;
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+}
@@ -0,0 +1,95 @@
+package com.sentinelpay.fraudengine.service.similarity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 8;
+
+    @Test
+    void findsTheNearestVectorsLikeBruteForce() {
+        SplittableRandom random = new SplittableRandom(11);
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 64, 16, 3);
+        for (int n = 0; n < 2_000; n++) {
+            index.add(randomVector(random));
+        }
+
+        int found = 0;
+        int queries = 100;
+        int k = 10;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+            HnswIndex.SearchResult approximate = index.search(query, k, 64);
+            HnswIndex.SearchResult exact = index.bruteForce(query, k);
+            assertEquals(k, approximate.nodes().length);
+            for (int i = 1; i < k; i++) {
+                assertTrue(approximate.distances()[i - 1] <= approximate.distances()[i]);
+            }
+            for (int node : exact.nodes()) {
+                for (int candidate : approximate.nodes()) {
+                    if (candidate == node) {
+                        found++;
+                        break;
+                    }
+                }
+            }
+        }
+        double recall = (double) found / (queries * k);
+        assertTrue(recall >= 0.9, "recall@10 was " + recall);
+    }
+
+    @Test
+    void exactMatchComesFirst() {
+        SplittableRandom random = new SplittableRandom(5);
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 64, 16, 3);
+        float[] target = null;
+        int targetNode = -1;
+        for (int n = 0; n < 500; n++) {
+            float[] vector = randomVector(random);
+            int node = index.add(vector);
+            if (n == 250) {
+                target = vector;
+                targetNode = node;
+            }
+        }
+
+        HnswIndex.SearchResult result = index.search(target, 1, 32);
+
+        assertEquals(targetNode, result.nodes()[0]);
+        assertEquals(0.0f, result.distances()[0], 1e-6f);
+    }
+
+    @Test
+    void deletedNodesAreNotReturned() {
+        SplittableRandom random = new SplittableRandom(9);
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 64, 16, 3);
+        float[] target = randomVector(random);
+        int deleted = index.add(target);
+        for (int n = 0; n < 300; n++) {
+            index.add(randomVector(random));
+        }
+
+        index.markDeleted(deleted);
+        HnswIndex.SearchResult result = index.search(target, 5, 32);
+
+        assertEquals(301, index.size());
+        assertEquals(300, index.liveSize());
+        assertTrue(index.isDeleted(deleted));
+        for (int node : result.nodes()) {
+            assertTrue(node != deleted);
+        }
+    }
+
+    private static float[] randomVector(SplittableRandom random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextDouble();
+        }
+        return vector;
+    }
+}